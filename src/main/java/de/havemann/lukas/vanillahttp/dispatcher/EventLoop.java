@@ -0,0 +1,335 @@
+package de.havemann.lukas.vanillahttp.dispatcher;
+
+import de.havemann.lukas.vanillahttp.protocol.request.HttpRequest;
+import de.havemann.lukas.vanillahttp.protocol.request.HttpRequestParsingException;
+import de.havemann.lukas.vanillahttp.protocol.request.NonBlockingHttpRequestBuffer;
+import de.havemann.lukas.vanillahttp.protocol.response.ByteBufferPool;
+import de.havemann.lukas.vanillahttp.protocol.response.CoalescingChannel;
+import de.havemann.lukas.vanillahttp.protocol.response.HttpResponse;
+import de.havemann.lukas.vanillahttp.protocol.response.HttpResponseEncoder;
+import de.havemann.lukas.vanillahttp.protocol.response.ResponseHeadBuffer;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpProtocol;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpStatusCode;
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactory;
+
+/**
+ * Thread which owns many client connections and multiplexes them with a {@link Selector}. Requests
+ * are parsed as soon as they are completely received and responses are written only as far as the
+ * socket accepts them, so the thread is never blocked by a slow or idle client. Responses of
+ * pipelined requests are coalesced and flushed, when all received requests are answered.
+ */
+class EventLoop extends Thread {
+
+  private static final Logger LOG = LoggerFactory.getLogger(EventLoop.class);
+  private static final long MAX_SELECT_TIMEOUT_MILLIS = 1000;
+
+  private final Selector selector;
+  private final Queue<SocketChannel> newConnections = new ConcurrentLinkedQueue<>();
+  private final BeanFactory beanFactory;
+  private final ByteBufferPool byteBufferPool;
+  private final Duration keepAliveTimeout;
+  private final int chunkedEncodingBufferSize;
+  private final long selectTimeout;
+  private volatile boolean running = true;
+  private long lastIdleCheck = System.nanoTime();
+
+  EventLoop(String name, BeanFactory beanFactory, ByteBufferPool byteBufferPool,
+      Duration keepAliveTimeout, int chunkedEncodingBufferSize) throws IOException {
+    super(name);
+    this.beanFactory = Objects.requireNonNull(beanFactory);
+    this.byteBufferPool = Objects.requireNonNull(byteBufferPool);
+    this.keepAliveTimeout = Objects.requireNonNull(keepAliveTimeout);
+    this.chunkedEncodingBufferSize = chunkedEncodingBufferSize;
+    this.selectTimeout = Math.max(1,
+        Math.min(MAX_SELECT_TIMEOUT_MILLIS, keepAliveTimeout.toMillis() / 2));
+    this.selector = Selector.open();
+    setDaemon(true);
+  }
+
+  /**
+   * Hands over a new client connection to the event loop. Can be called from any thread.
+   */
+  void register(SocketChannel clientChannel) {
+    newConnections.add(clientChannel);
+    selector.wakeup();
+  }
+
+  void shutdown() {
+    running = false;
+    selector.wakeup();
+  }
+
+  /**
+   * @return number of client connections owned by this event loop
+   */
+  int getConnectionCount() {
+    return selector.keys().size();
+  }
+
+  @Override
+  public void run() {
+    try {
+      while (running) {
+        selector.select(selectTimeout);
+        registerNewConnections();
+        handleSelectedConnections();
+        closeIdleConnections();
+      }
+    } catch (IOException | RuntimeException ex) {
+      LOG.error("event loop stopped unexpectedly", ex);
+    } finally {
+      closeAllConnections();
+    }
+  }
+
+  private void registerNewConnections() {
+    SocketChannel clientChannel;
+    while ((clientChannel = newConnections.poll()) != null) {
+      try {
+        clientChannel.configureBlocking(false);
+        final SelectionKey key = clientChannel.register(selector, SelectionKey.OP_READ);
+        key.attach(new Connection(clientChannel, key));
+      } catch (IOException ex) {
+        LOG.error("registration of client connection failed", ex);
+        ClientConnectionHandler.close(clientChannel);
+      }
+    }
+  }
+
+  private void handleSelectedConnections() {
+    final Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+    while (selectedKeys.hasNext()) {
+      final SelectionKey key = selectedKeys.next();
+      selectedKeys.remove();
+
+      final Connection connection = (Connection) key.attachment();
+      try {
+        if (key.isReadable()) {
+          connection.onReadable();
+        } else if (key.isWritable()) {
+          connection.onWritable();
+        }
+      } catch (IOException ex) {
+        // on broken socket close everything
+        LOG.debug("socket exception occurred", ex);
+        connection.close();
+      } catch (Exception ex) {
+        LOG.error("error during handling of client: ", ex);
+        connection.close();
+      }
+    }
+  }
+
+  /**
+   * Checks all connections at most once per select timeout instead of after every wakeup, so that
+   * the check doesn't add work proportional to the number of connections to every event. Idle
+   * connections are closed up to one select timeout after their keep alive timeout.
+   */
+  private void closeIdleConnections() {
+    final long now = System.nanoTime();
+    if (now - lastIdleCheck < TimeUnit.MILLISECONDS.toNanos(selectTimeout)) {
+      return;
+    }
+
+    lastIdleCheck = now;
+    final List<Connection> idleConnections = new ArrayList<>();
+    for (SelectionKey key : selector.keys()) {
+      final Connection connection = (Connection) key.attachment();
+      if (connection != null && connection.isIdleSince(now)) {
+        idleConnections.add(connection);
+      }
+    }
+
+    idleConnections.forEach(Connection::onTimeout);
+  }
+
+  private void closeAllConnections() {
+    for (SelectionKey key : selector.keys()) {
+      final Connection connection = (Connection) key.attachment();
+      if (connection != null) {
+        connection.close();
+      }
+    }
+    ClientConnectionHandler.close(selector);
+  }
+
+  /**
+   * State of a single client connection owned by the event loop
+   */
+  private class Connection {
+
+    private final SocketChannel clientChannel;
+    private final CoalescingChannel output;
+    private final SelectionKey key;
+    private final NonBlockingHttpRequestBuffer requestBuffer = new NonBlockingHttpRequestBuffer();
+    private final ResponseHeadBuffer headBuffer = new ResponseHeadBuffer(byteBufferPool);
+    private final ClientRequestProcessor clientRequestProcessor;
+    private HttpResponseEncoder pendingResponse;
+    private boolean closeAfterResponse;
+    private HttpProtocol protocol;
+    private long lastActivity = System.nanoTime();
+
+    Connection(SocketChannel clientChannel, SelectionKey key) {
+      this.clientChannel = clientChannel;
+      this.output = new CoalescingChannel(clientChannel, byteBufferPool);
+      this.key = key;
+      this.clientRequestProcessor = beanFactory.getBean(ClientRequestProcessor.class);
+    }
+
+    void onReadable() throws Exception {
+      final int read = requestBuffer.readFrom(clientChannel);
+      if (read == -1) {
+        LOG.debug("end of stream received");
+        close();
+        return;
+      }
+
+      lastActivity = System.nanoTime();
+      handleReceivedRequests();
+    }
+
+    void onWritable() throws Exception {
+      lastActivity = System.nanoTime();
+      if (writePendingResponse()) {
+        handleReceivedRequests();
+      }
+    }
+
+    boolean isIdleSince(long now) {
+      return now - lastActivity > keepAliveTimeout.toNanos();
+    }
+
+    void onTimeout() {
+      LOG.debug("client connection timeout");
+      if (pendingResponse == null && protocol == HttpProtocol.HTTP_1_1) {
+        try {
+          // best effort, the connection is closed anyway
+          respond(new HttpResponse.Builder(HttpProtocol.HTTP_1_1)
+              .statusCode(HttpStatusCode.REQUEST_TIMEOUT)
+              .build(), true);
+        } catch (Exception ex) {
+          LOG.debug("error during response", ex);
+        }
+      }
+      close();
+    }
+
+    private void handleReceivedRequests() throws Exception {
+      while (pendingResponse == null && key.isValid()) {
+        final HttpResponse.Builder response = new HttpResponse.Builder(
+            protocol == null ? ClientConnectionHandler.DEFAULT_HTTP_PROTOCOL : protocol);
+
+        final Optional<HttpRequest> httpRequest;
+        try {
+          if (!requestBuffer.hasCompleteRequest()) {
+            flush();
+            return;
+          }
+          httpRequest = requestBuffer.nextRequest();
+        } catch (HttpRequestParsingException ex) {
+          LOG.error("parsing error", ex);
+          respond(response.statusCode(HttpStatusCode.BAD_REQUEST).build(), true);
+          return;
+        }
+
+        if (httpRequest.isEmpty()) {
+          LOG.debug("empty line received");
+          close();
+          return;
+        }
+
+        if (!handleRequest(httpRequest.get(), response)) {
+          return;
+        }
+      }
+    }
+
+    /**
+     * @return true, if the response was written completely
+     */
+    private boolean handleRequest(HttpRequest request, HttpResponse.Builder responseBuilder)
+        throws Exception {
+      protocol = request.getHttpProtocol();
+      clientRequestProcessor.processRequest(request, responseBuilder);
+
+      final boolean shouldBeKeptAlive = ClientConnectionHandler.shouldBeKeptAlive(request);
+      if (shouldBeKeptAlive) {
+        responseBuilder.keepAliveFor(keepAliveTimeout);
+      }
+
+      final HttpResponse response = responseBuilder.build();
+      ClientConnectionHandler.log(request, response);
+      return respond(response, !shouldBeKeptAlive);
+    }
+
+    private boolean respond(HttpResponse response, boolean closeConnection) throws Exception {
+      pendingResponse = new HttpResponseEncoder(response, chunkedEncodingBufferSize, headBuffer);
+      closeAfterResponse = closeConnection;
+      output.setCoalescing(!closeConnection && requestBuffer.hasBufferedRequest());
+      return writePendingResponse();
+    }
+
+    /**
+     * @return true, if the response was written completely and the next request can be handled
+     */
+    private boolean writePendingResponse() throws Exception {
+      if (pendingResponse != null) {
+        if (!pendingResponse.writeTo(output)) {
+          // socket send buffer is full, continue as soon as the socket is writable again
+          key.interestOps(SelectionKey.OP_WRITE);
+          return false;
+        }
+
+        pendingResponse.close();
+        pendingResponse = null;
+      }
+
+      if (closeAfterResponse) {
+        if (!output.flush()) {
+          key.interestOps(SelectionKey.OP_WRITE);
+          return false;
+        }
+
+        LOG.debug("close connection by header");
+        close();
+        return false;
+      }
+
+      key.interestOps(SelectionKey.OP_READ);
+      return true;
+    }
+
+    /**
+     * Sends the coalesced responses, after all received requests were answered
+     */
+    private void flush() throws IOException {
+      key.interestOps(output.flush() ? SelectionKey.OP_READ : SelectionKey.OP_WRITE);
+    }
+
+    void close() {
+      LOG.debug("client connection closed");
+      if (pendingResponse != null) {
+        pendingResponse.close();
+        pendingResponse = null;
+      }
+      output.release();
+      key.cancel();
+      ClientConnectionHandler.close(clientChannel);
+    }
+  }
+}
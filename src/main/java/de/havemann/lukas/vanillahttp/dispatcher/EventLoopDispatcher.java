@@ -0,0 +1,114 @@
+package de.havemann.lukas.vanillahttp.dispatcher;
+
+import de.havemann.lukas.vanillahttp.protocol.response.ByteBufferPool;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.convert.DataSizeUnit;
+import org.springframework.boot.convert.DurationUnit;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.util.unit.DataUnit;
+
+/**
+ * Distributes client connections round-robin over a fixed number of {@link EventLoop} threads.
+ * Idle keep-alive connections don't occupy a thread, so a few event loop threads can serve many
+ * thousand client connections. The {@link ClientRequestProcessor} is called on the event loop
+ * thread, so it should not block for a long time.
+ */
+@Service
+@ConditionalOnProperty(name = "vanilla.server.dispatcher", havingValue = "eventloop")
+@ManagedResource(objectName = "de.havemann.lukas.vanillahttp:type=EventLoopDispatcher")
+public class EventLoopDispatcher implements ClientSocketDispatcher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(EventLoopDispatcher.class);
+
+  private final AtomicInteger next = new AtomicInteger();
+  private final BeanFactory beanFactory;
+  private final ByteBufferPool byteBufferPool;
+
+  @Value("${vanilla.server.eventloop.threads}")
+  private int threads;
+
+  @DurationUnit(ChronoUnit.MILLIS)
+  @Value("${vanilla.server.http.keepAliveTimeout}")
+  private Duration keepAliveTimeout;
+
+  @DataSizeUnit(DataUnit.BYTES)
+  @Value("${vanilla.server.http.chunkedEncodingBufferSize}")
+  private DataSize chunkedEncodingBufferSize;
+
+  private EventLoop[] eventLoops;
+
+  public EventLoopDispatcher(@Autowired BeanFactory beanFactory,
+      @Autowired ByteBufferPool byteBufferPool) {
+    this.beanFactory = Objects.requireNonNull(beanFactory);
+    this.byteBufferPool = Objects.requireNonNull(byteBufferPool);
+  }
+
+  @PostConstruct
+  public void init() throws IOException {
+    final int numberOfEventLoops = threads > 0 ? threads
+        : Runtime.getRuntime().availableProcessors();
+
+    eventLoops = new EventLoop[numberOfEventLoops];
+    for (int i = 0; i < numberOfEventLoops; i++) {
+      eventLoops[i] = new EventLoop("eventloop-" + (i + 1), beanFactory, byteBufferPool,
+          keepAliveTimeout, (int) chunkedEncodingBufferSize.toBytes());
+      eventLoops[i].start();
+    }
+
+    LOG.info("started {} event loops", numberOfEventLoops);
+  }
+
+  /**
+   * @return true, if the current thread is an event loop, which must neither wait for other threads
+   * nor work on a single request for a long time
+   */
+  public static boolean isEventLoopThread() {
+    return Thread.currentThread() instanceof EventLoop;
+  }
+
+  @Override
+  public void dispatch(Socket clientSocket) {
+    final SocketChannel clientChannel = clientSocket.getChannel();
+    if (clientChannel == null) {
+      LOG.error("client socket is not backed by a channel. closing connection");
+      ClientConnectionHandler.close(clientSocket);
+      return;
+    }
+
+    final int index = Math.floorMod(next.getAndIncrement(), eventLoops.length);
+    eventLoops[index].register(clientChannel);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    Arrays.stream(eventLoops).forEach(EventLoop::shutdown);
+  }
+
+  @ManagedAttribute(description = "number of event loop threads")
+  public int getEventLoopCount() {
+    return eventLoops.length;
+  }
+
+  @ManagedAttribute(description = "number of client connections owned by all event loops")
+  public int getConnectionCount() {
+    return Arrays.stream(eventLoops).mapToInt(EventLoop::getConnectionCount).sum();
+  }
+}
@@ -0,0 +1,74 @@
+package de.havemann.lukas.vanillahttp.dispatcher;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.Socket;
+import java.util.Objects;
+import java.util.concurrent.ThreadFactory;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs every {@link ClientConnectionHandler} on a new virtual thread. Blocking io parks the virtual
+ * thread instead of the carrier thread, so the simple blocking handling of {@link
+ * UnlimitedThreadDispatcher} scales to a huge number of keep-alive connections.
+ * <p>
+ * Virtual threads are available since Java 21. The virtual thread factory is looked up at runtime,
+ * so the server can still be built for and run on Java 11 with another dispatcher.
+ */
+@Service
+@ConditionalOnProperty(name = "vanilla.server.dispatcher", havingValue = "virtual")
+public class VirtualThreadDispatcher implements ClientSocketDispatcher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(VirtualThreadDispatcher.class);
+  private static final String THREAD_NAME_PREFIX = "virtual-client-";
+
+  private final BeanFactory beanFactory;
+  private ThreadFactory threadFactory;
+
+  public VirtualThreadDispatcher(@Autowired BeanFactory beanFactory) {
+    this.beanFactory = Objects.requireNonNull(beanFactory);
+  }
+
+  /**
+   * Equivalent of {@code Thread.ofVirtual().name(prefix, 1).factory()}
+   */
+  static ThreadFactory createVirtualThreadFactory(String namePrefix) {
+    try {
+      final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+      final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      final Class<?> virtualBuilderClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+
+      final MethodHandle ofVirtual = lookup.findStatic(Thread.class, "ofVirtual",
+          MethodType.methodType(virtualBuilderClass));
+      final MethodHandle name = lookup.findVirtual(virtualBuilderClass, "name",
+          MethodType.methodType(virtualBuilderClass, String.class, long.class));
+      final MethodHandle factory = lookup.findVirtual(builderClass, "factory",
+          MethodType.methodType(ThreadFactory.class));
+
+      final Object builder = name.invoke(ofVirtual.invoke(), namePrefix, 1L);
+      return (ThreadFactory) factory.invoke(builder);
+    } catch (Throwable ex) {
+      throw new IllegalStateException("virtual threads require Java 21 or newer. running on "
+          + System.getProperty("java.version"), ex);
+    }
+  }
+
+  @PostConstruct
+  public void init() {
+    threadFactory = createVirtualThreadFactory(THREAD_NAME_PREFIX);
+    LOG.info("handling client connections with virtual threads");
+  }
+
+  @Override
+  public void dispatch(Socket clientSocket) {
+    threadFactory.newThread(beanFactory.getBean(ClientConnectionHandler.class, clientSocket))
+        .start();
+  }
+}
@@ -0,0 +1,201 @@
+package de.havemann.lukas.vanillahttp.dispatcher;
+
+import de.havemann.lukas.vanillahttp.protocol.response.HttpResponse;
+import de.havemann.lukas.vanillahttp.protocol.response.HttpResponseWriter;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpStatusCode;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Service;
+
+/**
+ * Handles client connections with a bounded worker pool. The pool keeps {@code coreSize}
+ * pre-started threads, grows up to {@code maxSize} threads when the hand-off queue is full and
+ * shrinks back after the configured idle timeout. If the pool and the queue are exhausted, the
+ * configured {@link RejectionPolicy} is applied.
+ */
+@Service
+@ConditionalOnProperty(name = "vanilla.server.dispatcher", havingValue = "pool")
+@ManagedResource(objectName = "de.havemann.lukas.vanillahttp:type=WorkerPoolDispatcher")
+public class WorkerPoolDispatcher implements ClientSocketDispatcher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(WorkerPoolDispatcher.class);
+  // interval of the checks for a shut down pool, while the acceptor thread is blocked
+  private static final long BLOCK_CHECK_INTERVAL_MILLIS = 100;
+
+  private final AtomicInteger id = new AtomicInteger(1);
+  private final LongAdder rejectedConnections = new LongAdder();
+  private final BeanFactory beanFactory;
+
+  @Value("${vanilla.server.pool.coreSize}")
+  private int coreSize;
+
+  @Value("${vanilla.server.pool.maxSize}")
+  private int maxSize;
+
+  @Value("${vanilla.server.pool.queueSize}")
+  private int queueSize;
+
+  @Value("${vanilla.server.pool.idleTimeout}")
+  private Duration idleTimeout;
+
+  @Value("${vanilla.server.pool.rejectionPolicy}")
+  private RejectionPolicy rejectionPolicy;
+
+  private ThreadPoolExecutor executor;
+
+  public WorkerPoolDispatcher(@Autowired BeanFactory beanFactory) {
+    this.beanFactory = Objects.requireNonNull(beanFactory);
+  }
+
+  @PostConstruct
+  public void init() {
+    // a queue size of zero results in a direct hand-off to an idle worker thread
+    final BlockingQueue<Runnable> queue = queueSize > 0
+        ? new ArrayBlockingQueue<>(queueSize)
+        : new SynchronousQueue<>();
+
+    executor = new ThreadPoolExecutor(coreSize, maxSize, idleTimeout.toMillis(),
+        TimeUnit.MILLISECONDS, queue, runnable -> {
+      final Thread thread = new Thread(runnable, "worker-" + id.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.prestartAllCoreThreads();
+
+    LOG.info("started worker pool with core size {}, max size {} and queue size {}", coreSize,
+        maxSize, queueSize);
+  }
+
+  @Override
+  public void dispatch(Socket clientSocket) {
+    final ClientConnectionHandler handler =
+        beanFactory.getBean(ClientConnectionHandler.class, clientSocket);
+    try {
+      executor.execute(handler);
+    } catch (RejectedExecutionException ex) {
+      if (rejectionPolicy == RejectionPolicy.SERVICE_UNAVAILABLE) {
+        // connections served by other policies later on are no rejections
+        rejectedConnections.increment();
+      }
+      rejectionPolicy.reject(executor, handler, clientSocket);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    // queued connections are never handled
+    for (Runnable queued : executor.shutdownNow()) {
+      ((ClientConnectionHandler) queued).closeConnection();
+    }
+  }
+
+  @ManagedAttribute(description = "current number of worker threads")
+  public int getPoolSize() {
+    return executor.getPoolSize();
+  }
+
+  @ManagedAttribute(description = "number of worker threads busy with a client connection")
+  public int getActiveCount() {
+    return executor.getActiveCount();
+  }
+
+  @ManagedAttribute(description = "largest number of worker threads since startup")
+  public int getLargestPoolSize() {
+    return executor.getLargestPoolSize();
+  }
+
+  @ManagedAttribute(description = "number of client connections waiting for a worker thread")
+  public int getQueueDepth() {
+    return executor.getQueue().size();
+  }
+
+  @ManagedAttribute(description = "number of client connections rejected with 503 since startup")
+  public long getRejectedConnections() {
+    return rejectedConnections.sum();
+  }
+
+  /**
+   * Strategy which is applied if a client connection can't be handed over to the worker pool.
+   */
+  public enum RejectionPolicy {
+
+    /**
+     * Answers the client with {@link HttpStatusCode#SERVICE_UNAVAILABLE} and closes the
+     * connection. The acceptor thread is never blocked.
+     */
+    SERVICE_UNAVAILABLE {
+      @Override
+      void reject(ThreadPoolExecutor executor, ClientConnectionHandler handler,
+          Socket clientSocket) {
+        LOG.warn("worker pool exhausted. rejecting client connection");
+        try (HttpResponseWriter responseWriter = new HttpResponseWriter(
+            clientSocket.getOutputStream())) {
+          responseWriter.write(new HttpResponse.Builder(ClientConnectionHandler.DEFAULT_HTTP_PROTOCOL)
+              .statusCode(HttpStatusCode.SERVICE_UNAVAILABLE)
+              .closeConnection()
+              .build());
+        } catch (Exception ex) {
+          LOG.debug("error during rejection of client connection", ex);
+        } finally {
+          ClientConnectionHandler.close(clientSocket);
+        }
+      }
+    },
+
+    /**
+     * Blocks the acceptor thread until the worker pool accepts the connection again. New
+     * connections queue up in the backlog of the accepting socket in the meantime. The connection
+     * is closed, if the pool is shut down while waiting.
+     */
+    BLOCK {
+      @Override
+      void reject(ThreadPoolExecutor executor, ClientConnectionHandler handler,
+          Socket clientSocket) {
+        try {
+          while (!executor.isShutdown()) {
+            try {
+              // may start another worker thread, if the pool shrank in the meantime
+              executor.execute(handler);
+              return;
+            } catch (RejectedExecutionException ex) {
+              if (executor.getQueue().offer(handler, BLOCK_CHECK_INTERVAL_MILLIS,
+                  TimeUnit.MILLISECONDS)) {
+                if (executor.isShutdown() && executor.remove(handler)) {
+                  break;
+                }
+                return;
+              }
+            }
+          }
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+
+        LOG.debug("could not enqueue client connection");
+        ClientConnectionHandler.close(clientSocket);
+      }
+    };
+
+    abstract void reject(ThreadPoolExecutor executor, ClientConnectionHandler handler,
+        Socket clientSocket);
+  }
+}
@@ -73,7 +73,7 @@ public class HttpRequest {
   @SuppressWarnings("UnusedReturnValue")
   protected static class Builder {
 
-    private final Map<String, String> httpHeader = new HashMap<>();
+    private Map<String, String> httpHeader = new HashMap<>();
     private HttpMethod httpMethod;
     private String uri;
     private HttpProtocol httpProtocol;
@@ -103,6 +103,15 @@ public class HttpRequest {
       return this;
     }
 
+    /**
+     * Replaces all header fields. The given map can't be modified by {@link #addHttpHeader}
+     * afterwards.
+     */
+    public Builder httpHeader(Map<String, String> httpHeader) {
+      this.httpHeader = httpHeader;
+      return this;
+    }
+
     public Builder messageBody(String messageBody) {
       this.messageBody = messageBody;
       return this;
@@ -1,69 +1,118 @@
 package de.havemann.lukas.vanillahttp.protocol.request;
 
-import de.havemann.lukas.vanillahttp.protocol.specification.HttpProtocol;
-import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
 import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * {@link HttpRequestBuffer} reads lines from inputStream until a complete http request could be
- * read.
+ * {@link HttpRequestBuffer} reads bytes from inputStream until a complete http request could be
+ * read. The receive buffer is reused for all requests of a connection. Bytes received after the end
+ * of a request are kept for the next request, so pipelined requests are supported.
  */
 public class HttpRequestBuffer implements Closeable {
 
   private static final Logger LOG = LoggerFactory.getLogger(HttpRequestBuffer.class);
+  private static final int INITIAL_BUFFER_SIZE = 1024;
 
-  final private BufferedReader reader;
-  private StringBuilder buffer = new StringBuilder(512);
+  private final InputStream inputStream;
+  private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+  private int limit;
+  private int endOfBufferedRequest = -1;
 
   public HttpRequestBuffer(InputStream inputStream) {
-    reader = new BufferedReader(new InputStreamReader(inputStream));
+    this.inputStream = Objects.requireNonNull(inputStream);
   }
 
   public Optional<HttpRequest> readRequest() throws IOException {
-    readUntilEndOfHttpHeader();
+    final int endOfRequest = readUntilEndOfHttpHeader();
 
-    String httpRequest = buffer.toString();
     if (LOG.isDebugEnabled()) {
-      LOG.debug("received http request " + httpRequest);
-    }
-
-    if (httpRequest.isEmpty()) {
-      return Optional.empty();
+      LOG.debug("received http request " + asString(endOfRequest));
     }
 
     try {
-      return Optional.of(new HttpRequestParser(httpRequest).parse());
+      if (HttpRequestParser.isBlank(buffer, 0, endOfRequest)) {
+        return Optional.empty();
+      }
+
+      return Optional.of(new HttpRequestParser(buffer, 0, endOfRequest).parse());
     } catch (HttpRequestParsingException ex) {
-      LOG.error("Can't parse http request. got " + buffer, ex);
+      LOG.error("Can't parse http request. got " + asString(endOfRequest), ex);
       throw ex;
+    } finally {
+      consume(endOfRequest);
     }
   }
 
-  private void readUntilEndOfHttpHeader() throws IOException {
-    buffer = new StringBuilder(512);
+  /**
+   * @return true, if another complete request was already received. The next {@link
+   * #readRequest()} doesn't block in this case.
+   */
+  public boolean hasBufferedRequest() {
+    if (endOfBufferedRequest == -1) {
+      endOfBufferedRequest = HttpRequestParser.findEndOfRequest(buffer, 0, limit);
+    }
+    return endOfBufferedRequest != -1;
+  }
+
+  /**
+   * @return end of the http request header in buffer or end of received data, if the stream ended
+   */
+  private int readUntilEndOfHttpHeader() throws IOException {
+    if (endOfBufferedRequest != -1) {
+      return endOfBufferedRequest;
+    }
+
+    int scanPosition = 0;
     try {
-      String line;
-      while ((line = reader.readLine()) != null && !line.isBlank()) {
-        buffer.append(line).append(HttpProtocol.DELIMITER);
+      while (true) {
+        final int endOfRequest = HttpRequestParser.findEndOfRequest(buffer, scanPosition, limit);
+        if (endOfRequest != -1) {
+          return endOfRequest;
+        }
+        scanPosition = limit;
+
+        if (limit >= HttpRequestParser.MAX_REQUEST_HEADER_SIZE) {
+          throw HttpRequestParsingException.Reason.REQUEST_HEADER_TOO_LARGE.toException();
+        }
+        if (limit == buffer.length) {
+          buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+
+        final int read = inputStream.read(buffer, limit, buffer.length - limit);
+        if (read == -1) {
+          return limit;
+        }
+        limit += read;
       }
     } catch (IOException ex) {
       if (LOG.isDebugEnabled()) {
-        LOG.debug("received so far:\n" + buffer.toString());
+        LOG.debug("received so far:\n" + asString(limit));
       }
       throw ex;
     }
   }
 
+  private void consume(int length) {
+    System.arraycopy(buffer, length, buffer, 0, limit - length);
+    limit -= length;
+    endOfBufferedRequest = -1;
+  }
+
+  private String asString(int length) {
+    return new String(buffer, 0, length, StandardCharsets.UTF_8);
+  }
+
   @Override
   public void close() {
     try {
-      reader.close();
+      inputStream.close();
     } catch (IOException e) {
       LOG.error("error during close", e);
     }
@@ -4,26 +4,102 @@ import de.havemann.lukas.vanillahttp.protocol.specification.HttpHeaderField;
 import de.havemann.lukas.vanillahttp.protocol.specification.HttpMethod;
 import de.havemann.lukas.vanillahttp.protocol.specification.HttpProtocol;
 import de.havemann.lukas.vanillahttp.protocol.specification.ProtocolRepresentation;
-import java.util.StringTokenizer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
  * Simple implementation of a recursive descent parser for HTTP/1.0 and HTTP/1.1 requests.
+ * <p>
+ * The parser works directly on the received bytes. Method and protocol are matched without
+ * creating strings, header fields are only recorded as offsets and decoded on access by {@link
+ * RequestHeaderMap}.
  */
 public class HttpRequestParser {
 
-  private final StringTokenizer tokenizer;
+  public static final int MAX_REQUEST_HEADER_SIZE = 64 * 1024;
+  private static final HttpMethod[] HTTP_METHODS = HttpMethod.values();
+  private static final HttpProtocol[] HTTP_PROTOCOLS = HttpProtocol.values();
+  private static final int OFFSETS_PER_FIELD = 4;
+
+  private final byte[] request;
   private final HttpRequest.Builder requestBuilder = new HttpRequest.Builder();
+  private int position;
 
   public HttpRequestParser(String request) {
-    this.tokenizer = new StringTokenizer(request, HttpProtocol.DELIMITER);
+    this(request.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * @param request buffer containing the request. the given range is copied, so that the buffer can
+   *                be reused after parsing.
+   * @param offset  start of the request in buffer
+   * @param length  length of the request in bytes
+   */
+  public HttpRequestParser(byte[] request, int offset, int length) {
+    this(Arrays.copyOfRange(request, offset, offset + length));
+  }
+
+  private HttpRequestParser(byte[] request) {
+    this.request = request;
+  }
+
+  /**
+   * Searches for the empty line which terminates a request header
+   *
+   * @param data         received bytes
+   * @param scanPosition position up to which data was already scanned without success
+   * @param limit        end of received bytes
+   * @return position after the empty line or -1, if the request header is not complete yet
+   */
+  static int findEndOfRequest(byte[] data, int scanPosition, int limit) {
+    // an empty line instead of a request line
+    if (limit > 0 && data[0] == '\n') {
+      return 1;
+    }
+    if (limit > 1 && data[0] == '\r' && data[1] == '\n') {
+      return 2;
+    }
+
+    for (int i = Math.max(scanPosition, 1); i < limit; i++) {
+      if (data[i] != '\n') {
+        continue;
+      }
+
+      if (data[i - 1] == '\n' || (i > 1 && data[i - 1] == '\r' && data[i - 2] == '\n')) {
+        return i + 1;
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * @return true, if the given range only consists of line breaks and whitespaces
+   */
+  static boolean isBlank(byte[] data, int offset, int length) {
+    for (int i = offset; i < offset + length; i++) {
+      if (!isLineBreak(data[i]) && !isWhitespace(data[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isLineBreak(byte b) {
+    return b == '\r' || b == '\n';
+  }
+
+  private static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\t' || b == '\f';
   }
 
   public HttpRequest parse() {
-    if (!tokenizer.hasMoreTokens()) {
+    skipLineBreaks();
+    if (position == request.length) {
       throw HttpRequestParsingException.Reason.EMPTY_STATUS_LINE.toException();
     }
 
-    parseStatusLine(tokenizer.nextToken());
+    parseStatusLine(endOfLine(position));
 
     parseHttpHeader();
     parseRequestBody();
@@ -32,53 +108,54 @@ public class HttpRequestParser {
   }
 
   private void parseRequestBody() {
-    final StringBuilder messageBody = new StringBuilder();
-    while (tokenizer.hasMoreTokens()) {
-      messageBody.append(tokenizer.nextToken()).append(HttpProtocol.DELIMITER);
-    }
-
-    final String messageBodyResult = messageBody.toString();
-    if (!messageBodyResult.isEmpty()) {
-      requestBuilder.messageBody(messageBodyResult);
+    skipLineBreaks();
+    if (position < request.length) {
+      requestBuilder.messageBody(decode(position, request.length));
     }
   }
 
-  private void parseStatusLine(String statusLine) {
-    final StringTokenizer tokenizer = new StringTokenizer(statusLine);
+  private void parseStatusLine(int endOfStatusLine) {
+    parseHttpMethod(endOfStatusLine);
+    parseUri(endOfStatusLine);
+    parseHttpProtocol(endOfStatusLine);
 
-    parseHttpMethod(tokenizer);
-    parseUri(tokenizer);
-    parseHttpProtocol(tokenizer);
+    position = nextLine(endOfStatusLine);
   }
 
-  private void parseHttpMethod(StringTokenizer statusLineTokens) {
-    // no hasMoreTokens(), at least one token should be present.
-    final String currentToken = statusLineTokens.nextToken();
+  private void parseHttpMethod(int endOfStatusLine) {
+    final int start = skipWhitespaces(position, endOfStatusLine);
+    position = endOfToken(start, endOfStatusLine);
+    if (start == position) {
+      throw HttpRequestParsingException.Reason.EMPTY_STATUS_LINE.toException();
+    }
 
-    final HttpMethod httpMethod = ProtocolRepresentation.detect(HttpMethod.class, currentToken);
+    final HttpMethod httpMethod = detect(HTTP_METHODS, start, position);
     if (httpMethod == null) {
-      throw HttpRequestParsingException.Reason.UNSUPPORTED_HTTP_METHOD.toException(currentToken);
+      throw HttpRequestParsingException.Reason.UNSUPPORTED_HTTP_METHOD
+          .toException(decode(start, position));
     }
 
     requestBuilder.httpMethod(httpMethod);
   }
 
-  private void parseUri(StringTokenizer statusLineTokens) {
-    if (!statusLineTokens.hasMoreTokens()) {
+  private void parseUri(int endOfStatusLine) {
+    final int start = skipWhitespaces(position, endOfStatusLine);
+    position = endOfToken(start, endOfStatusLine);
+    if (start == position) {
       throw HttpRequestParsingException.Reason.URI_EXPECTED.toException();
     }
 
-    requestBuilder.requestUri(statusLineTokens.nextToken());
+    requestBuilder.requestUri(decode(start, position));
   }
 
-  private void parseHttpProtocol(StringTokenizer statusLineTokens) {
-    if (!statusLineTokens.hasMoreTokens()) {
+  private void parseHttpProtocol(int endOfStatusLine) {
+    final int start = skipWhitespaces(position, endOfStatusLine);
+    position = endOfToken(start, endOfStatusLine);
+    if (start == position) {
       throw HttpRequestParsingException.Reason.HTTP_PROTOCOL_EXPECTED.toException();
     }
 
-    final String currentToken = statusLineTokens.nextToken();
-    final HttpProtocol httpProtocol = ProtocolRepresentation
-        .detect(HttpProtocol.class, currentToken);
+    final HttpProtocol httpProtocol = detect(HTTP_PROTOCOLS, start, position);
     if (httpProtocol == null) {
       throw HttpRequestParsingException.Reason.UNSUPPORTED_HTTP_PROTOCOL.toException();
     }
@@ -87,26 +164,107 @@ public class HttpRequestParser {
   }
 
   private void parseHttpHeader() {
-    while (tokenizer.hasMoreTokens()) {
-      final String httpHeader = tokenizer.nextToken();
+    int[] offsets = new int[8 * OFFSETS_PER_FIELD];
+    int fieldCount = 0;
 
-      if (httpHeader.isEmpty()) {
-        break;
+    while (position < request.length && !isLineBreak(request[position])) {
+      final int endOfLine = endOfLine(position);
+      final int separator = indexOfKeyValueDelimiter(position, endOfLine);
+      if (separator == -1) {
+        throw HttpRequestParsingException.Reason.INVALID_HTTP_HEADER_FIELD
+            .toException(decode(position, endOfLine));
       }
 
-      parseSingleHttpHeaderField(httpHeader);
+      if ((fieldCount + 1) * OFFSETS_PER_FIELD > offsets.length) {
+        offsets = Arrays.copyOf(offsets, offsets.length * 2);
+      }
+
+      final int field = fieldCount * OFFSETS_PER_FIELD;
+      offsets[field] = position;
+      offsets[field + 1] = separator;
+      offsets[field + 2] = separator + HttpHeaderField.KEY_VALUE_DELIMITER.length();
+      offsets[field + 3] = endOfLine;
+      fieldCount++;
+
+      position = nextLine(endOfLine);
     }
+
+    requestBuilder.httpHeader(new RequestHeaderMap(request, offsets, fieldCount));
+  }
+
+  private int indexOfKeyValueDelimiter(int start, int end) {
+    final String delimiter = HttpHeaderField.KEY_VALUE_DELIMITER;
+    for (int i = start; i <= end - delimiter.length(); i++) {
+      if (matches(delimiter, i, i + delimiter.length())) {
+        return i;
+      }
+    }
+    return -1;
   }
 
-  private void parseSingleHttpHeaderField(String httpHeaderField) {
-    int separator = httpHeaderField.indexOf(HttpHeaderField.KEY_VALUE_DELIMITER);
-    if (separator == -1) {
-      throw HttpRequestParsingException.Reason.INVALID_HTTP_HEADER_FIELD
-          .toException(httpHeaderField);
+  private <T extends ProtocolRepresentation> T detect(T[] elements, int start, int end) {
+    for (T element : elements) {
+      if (matches(element.getRepresentation(), start, end)) {
+        return element;
+      }
     }
+    return null;
+  }
+
+  private boolean matches(String token, int start, int end) {
+    if (token.length() != end - start) {
+      return false;
+    }
+
+    for (int i = 0; i < token.length(); i++) {
+      if (request[start + i] != token.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String decode(int start, int end) {
+    return new String(request, start, end - start, StandardCharsets.UTF_8);
+  }
 
-    requestBuilder.addHttpHeader(
-        httpHeaderField.substring(0, separator),
-        httpHeaderField.substring(separator + HttpHeaderField.KEY_VALUE_DELIMITER.length()));
+  private void skipLineBreaks() {
+    while (position < request.length && isLineBreak(request[position])) {
+      position++;
+    }
+  }
+
+  private int skipWhitespaces(int start, int end) {
+    int i = start;
+    while (i < end && isWhitespace(request[i])) {
+      i++;
+    }
+    return i;
+  }
+
+  private int endOfToken(int start, int end) {
+    int i = start;
+    while (i < end && !isWhitespace(request[i])) {
+      i++;
+    }
+    return i;
+  }
+
+  private int endOfLine(int start) {
+    int i = start;
+    while (i < request.length && !isLineBreak(request[i])) {
+      i++;
+    }
+    return i;
+  }
+
+  private int nextLine(int endOfLine) {
+    if (endOfLine < request.length && request[endOfLine] == '\r') {
+      endOfLine++;
+    }
+    if (endOfLine < request.length && request[endOfLine] == '\n') {
+      endOfLine++;
+    }
+    return endOfLine;
   }
-}
\ No newline at end of file
+}
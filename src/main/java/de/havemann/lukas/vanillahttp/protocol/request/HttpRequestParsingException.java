@@ -51,7 +51,8 @@ public class HttpRequestParsingException extends RuntimeException {
     URI_EXPECTED,
     HTTP_PROTOCOL_EXPECTED,
     UNSUPPORTED_HTTP_PROTOCOL,
-    INVALID_HTTP_HEADER_FIELD;
+    INVALID_HTTP_HEADER_FIELD,
+    REQUEST_HEADER_TOO_LARGE;
 
     public HttpRequestParsingException toException(String token) {
       return new HttpRequestParsingException(this, Objects.requireNonNull(token));
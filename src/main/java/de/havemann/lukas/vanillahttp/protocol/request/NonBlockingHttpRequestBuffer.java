@@ -0,0 +1,115 @@
+package de.havemann.lukas.vanillahttp.protocol.request;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link NonBlockingHttpRequestBuffer} accumulates the bytes received from a non-blocking channel
+ * until a complete http request could be read. In contrast to {@link HttpRequestBuffer} the reading
+ * thread is never blocked. Bytes received after the end of a request are kept for the next
+ * request, so pipelined requests are supported.
+ */
+public class NonBlockingHttpRequestBuffer {
+
+  public static final int MAX_REQUEST_HEADER_SIZE = HttpRequestParser.MAX_REQUEST_HEADER_SIZE;
+  private static final Logger LOG = LoggerFactory.getLogger(NonBlockingHttpRequestBuffer.class);
+  private static final int INITIAL_BUFFER_SIZE = 1024;
+
+  private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+  private int scanPosition;
+  private int endOfRequest = -1;
+
+  /**
+   * Reads the currently available bytes from the channel
+   *
+   * @param channel non-blocking channel to read from
+   * @return number of bytes read or -1 if end of stream is reached
+   */
+  public int readFrom(ReadableByteChannel channel) throws IOException {
+    if (!buffer.hasRemaining()) {
+      grow();
+    }
+
+    return channel.read(buffer);
+  }
+
+  /**
+   * @return true, if a complete http request or an empty line was received
+   * @throws HttpRequestParsingException if the request header exceeds {@link
+   *                                     #MAX_REQUEST_HEADER_SIZE}
+   */
+  public boolean hasCompleteRequest() {
+    if (!hasBufferedRequest() && buffer.position() >= MAX_REQUEST_HEADER_SIZE) {
+      throw HttpRequestParsingException.Reason.REQUEST_HEADER_TOO_LARGE.toException();
+    }
+
+    return endOfRequest != -1;
+  }
+
+  /**
+   * In contrast to {@link #hasCompleteRequest()} an oversized request header is not reported.
+   *
+   * @return true, if a complete http request or an empty line was received
+   */
+  public boolean hasBufferedRequest() {
+    if (endOfRequest == -1) {
+      endOfRequest = HttpRequestParser.findEndOfRequest(buffer.array(), scanPosition,
+          buffer.position());
+      scanPosition = buffer.position();
+    }
+
+    return endOfRequest != -1;
+  }
+
+  /**
+   * Parses the next complete request. Must only be called if {@link #hasCompleteRequest()} returned
+   * true.
+   *
+   * @return parsed request or empty, if an empty line was received
+   */
+  public Optional<HttpRequest> nextRequest() {
+    if (!hasCompleteRequest()) {
+      throw new IllegalStateException("no complete request received");
+    }
+
+    final byte[] data = buffer.array();
+    final int length = endOfRequest;
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("received http request " + new String(data, 0, length, StandardCharsets.UTF_8));
+    }
+
+    try {
+      if (HttpRequestParser.isBlank(data, 0, length)) {
+        return Optional.empty();
+      }
+
+      return Optional.of(new HttpRequestParser(data, 0, length).parse());
+    } catch (HttpRequestParsingException ex) {
+      LOG.error("Can't parse http request. got "
+          + new String(data, 0, length, StandardCharsets.UTF_8), ex);
+      throw ex;
+    } finally {
+      consume(length);
+    }
+  }
+
+  private void consume(int length) {
+    buffer.flip();
+    buffer.position(length);
+    buffer.compact();
+    scanPosition = 0;
+    endOfRequest = -1;
+  }
+
+  private void grow() {
+    final ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() * 2);
+    buffer.flip();
+    grown.put(buffer);
+    buffer = grown;
+  }
+}
@@ -0,0 +1,127 @@
+package de.havemann.lukas.vanillahttp.protocol.request;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only map of the header fields of a parsed request. Field names and values stay in the
+ * received bytes and are only decoded on access, so a lookup of a single field doesn't decode the
+ * other fields. Same header fields are folded like in {@link HttpRequest.Builder#addHttpHeader}.
+ * <p>
+ * Not thread safe. Iterating the map decodes and caches all fields.
+ */
+class RequestHeaderMap extends AbstractMap<String, String> {
+
+  private final byte[] request;
+  private final int[] offsets;
+  private final int fieldCount;
+  private Map<String, String> decoded;
+
+  /**
+   * @param request    bytes of the request
+   * @param offsets    name start, name end, value start and value end of every header field
+   * @param fieldCount number of header fields in offsets
+   */
+  RequestHeaderMap(byte[] request, int[] offsets, int fieldCount) {
+    this.request = request;
+    this.offsets = offsets;
+    this.fieldCount = fieldCount;
+  }
+
+  @Override
+  public String get(Object key) {
+    if (decoded != null || !isAscii(key)) {
+      return decodeAll().get(key);
+    }
+
+    final String name = (String) key;
+    String result = null;
+    for (int field = 0; field < fieldCount; field++) {
+      if (nameMatches(field, name)) {
+        final String value = decodeValue(field);
+        // RFC 7230 requires folding of same http header fields
+        result = result == null ? value : result + "," + value;
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    if (decoded != null || !isAscii(key)) {
+      return decodeAll().containsKey(key);
+    }
+
+    for (int field = 0; field < fieldCount; field++) {
+      if (nameMatches(field, (String) key)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return fieldCount == 0;
+  }
+
+  @Override
+  public Set<Entry<String, String>> entrySet() {
+    return decodeAll().entrySet();
+  }
+
+  private Map<String, String> decodeAll() {
+    if (decoded == null) {
+      final Map<String, String> fields = new HashMap<>();
+      for (int field = 0; field < fieldCount; field++) {
+        fields.merge(decodeName(field), decodeValue(field), (first, second) -> first + "," + second);
+      }
+      decoded = fields;
+    }
+    return decoded;
+  }
+
+  private static boolean isAscii(Object key) {
+    if (!(key instanceof String)) {
+      return false;
+    }
+
+    final String name = (String) key;
+    for (int i = 0; i < name.length(); i++) {
+      if (name.charAt(i) >= 0x80) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean nameMatches(int field, String name) {
+    final int start = offsets[field * 4];
+    final int end = offsets[field * 4 + 1];
+    if (end - start != name.length()) {
+      return false;
+    }
+
+    for (int i = 0; i < name.length(); i++) {
+      if (request[start + i] != name.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String decodeName(int field) {
+    return decode(offsets[field * 4], offsets[field * 4 + 1]);
+  }
+
+  private String decodeValue(int field) {
+    return decode(offsets[field * 4 + 2], offsets[field * 4 + 3]);
+  }
+
+  private String decode(int start, int end) {
+    return new String(request, start, end - start, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,110 @@
+package de.havemann.lukas.vanillahttp.protocol.response;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+
+/**
+ * Body of known size, which is written directly from a {@link ByteBuffer}. A direct or memory
+ * mapped buffer is written to the socket without copying it into the heap. The buffer is leased
+ * as soon as the body is written and the lease is closed after the write.
+ */
+public class BufferRegion {
+
+  private final Callable<Lease> leaseOpener;
+  private final long count;
+
+  /**
+   * @param leaseOpener leases the buffer as soon as the body is written. the remaining bytes of
+   *                    the buffer are sent.
+   * @param count       number of remaining bytes of the leased buffer
+   */
+  public BufferRegion(Callable<Lease> leaseOpener, long count) {
+    this.leaseOpener = Objects.requireNonNull(leaseOpener);
+    this.count = count;
+    if (count < 0) {
+      throw new IllegalArgumentException("invalid buffer region size " + count);
+    }
+  }
+
+  /**
+   * @param content complete body, which is not changed while the response is written
+   * @return region of the whole array
+   */
+  public static BufferRegion of(byte[] content) {
+    return new BufferRegion(() -> new HeapLease(content), content.length);
+  }
+
+  /**
+   * @param offset offset of the slice within the remaining bytes of this region
+   * @param count  number of bytes of the slice
+   * @return region of a part of the same buffer, e.g. for a byte range
+   */
+  public BufferRegion slice(long offset, long count) {
+    if (offset < 0 || count < 0 || offset + count > this.count) {
+      throw new IllegalArgumentException("invalid slice " + offset + "/" + count);
+    }
+    return new BufferRegion(() -> new SliceLease(open(), (int) offset, (int) count), count);
+  }
+
+  public Lease open() throws Exception {
+    return leaseOpener.call();
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Buffer, which must not be released or changed until the lease is closed
+   */
+  public interface Lease extends AutoCloseable {
+
+    ByteBuffer getBuffer();
+
+    @Override
+    void close();
+  }
+
+  private static final class SliceLease implements Lease {
+
+    private final Lease lease;
+    private final ByteBuffer buffer;
+
+    private SliceLease(Lease lease, int offset, int count) {
+      this.lease = lease;
+      final ByteBuffer leased = lease.getBuffer().duplicate();
+      final int start = leased.position() + offset;
+      this.buffer = leased.limit(start + count).position(start);
+    }
+
+    @Override
+    public ByteBuffer getBuffer() {
+      return buffer;
+    }
+
+    @Override
+    public void close() {
+      lease.close();
+    }
+  }
+
+  private static final class HeapLease implements Lease {
+
+    private final byte[] content;
+
+    private HeapLease(byte[] content) {
+      this.content = content;
+    }
+
+    @Override
+    public ByteBuffer getBuffer() {
+      return ByteBuffer.wrap(content);
+    }
+
+    @Override
+    public void close() {
+      // heap buffers are released by the garbage collector
+    }
+  }
+}
@@ -0,0 +1,116 @@
+package de.havemann.lukas.vanillahttp.protocol.response;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Pool of direct {@link ByteBuffer}s shared by all connections, so that buffers for response heads
+ * and body slices are not allocated per response. Direct buffers are written to sockets without an
+ * additional copy. Buffers are pooled in size classes of powers of two from {@link #MIN_SIZE} to
+ * {@link #MAX_SIZE} bytes. Larger buffers are allocated on the heap and not pooled.
+ * <p>
+ * Thread safe.
+ */
+@Component
+@ManagedResource(objectName = "de.havemann.lukas.vanillahttp:type=ByteBufferPool")
+public class ByteBufferPool {
+
+  public static final int MIN_SIZE = 512;
+  public static final int MAX_SIZE = 64 * 1024;
+  private static final int MIN_SIZE_SHIFT = Integer.numberOfTrailingZeros(MIN_SIZE);
+
+  private final int maxBuffersPerSize;
+  private final SizeClass[] sizeClasses;
+  private final LongAdder allocations = new LongAdder();
+
+  /**
+   * @param maxBuffersPerSize max number of pooled buffers per size class
+   */
+  public ByteBufferPool(
+      @Value("${vanilla.server.http.bufferPool.maxBuffersPerSize}") int maxBuffersPerSize) {
+    if (maxBuffersPerSize < 0) {
+      throw new IllegalArgumentException("invalid max buffers of " + maxBuffersPerSize);
+    }
+
+    this.maxBuffersPerSize = maxBuffersPerSize;
+    this.sizeClasses = new SizeClass[indexOf(MAX_SIZE) + 1];
+    for (int i = 0; i < sizeClasses.length; i++) {
+      sizeClasses[i] = new SizeClass();
+    }
+  }
+
+  /**
+   * @param minCapacity min. capacity of the buffer in bytes
+   * @return cleared buffer, which should be released after use
+   */
+  public ByteBuffer acquire(int minCapacity) {
+    if (minCapacity > MAX_SIZE) {
+      allocations.increment();
+      return ByteBuffer.allocate(minCapacity);
+    }
+
+    final int index = indexOf(minCapacity);
+    final ByteBuffer pooled = sizeClasses[index].buffers.poll();
+    if (pooled != null) {
+      sizeClasses[index].size.decrementAndGet();
+      return pooled;
+    }
+
+    allocations.increment();
+    return ByteBuffer.allocateDirect(MIN_SIZE << index);
+  }
+
+  /**
+   * Returns the buffer to the pool. The buffer must not be used anymore.
+   */
+  public void release(ByteBuffer buffer) {
+    if (!buffer.isDirect() || buffer.capacity() > MAX_SIZE
+        || Integer.bitCount(buffer.capacity()) != 1 || buffer.capacity() < MIN_SIZE) {
+      return;
+    }
+
+    final SizeClass sizeClass = sizeClasses[indexOf(buffer.capacity())];
+    if (sizeClass.size.incrementAndGet() > maxBuffersPerSize) {
+      // pool is full, buffer is freed by the garbage collector
+      sizeClass.size.decrementAndGet();
+      return;
+    }
+
+    sizeClass.buffers.offer(buffer.clear());
+  }
+
+  private static int indexOf(int capacity) {
+    if (capacity <= MIN_SIZE) {
+      return 0;
+    }
+    // index of the next power of two
+    return 32 - Integer.numberOfLeadingZeros(capacity - 1) - MIN_SIZE_SHIFT;
+  }
+
+  @ManagedAttribute(description = "number of buffers in the pool")
+  public int getPooledBufferCount() {
+    int count = 0;
+    for (SizeClass sizeClass : sizeClasses) {
+      count += sizeClass.size.get();
+    }
+    return count;
+  }
+
+  @ManagedAttribute(description = "number of allocated buffers since startup")
+  public long getAllocations() {
+    return allocations.sum();
+  }
+
+  private static final class SizeClass {
+
+    private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+  }
+}
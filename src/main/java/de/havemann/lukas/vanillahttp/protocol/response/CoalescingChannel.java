@@ -0,0 +1,187 @@
+package de.havemann.lukas.vanillahttp.protocol.response;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+
+/**
+ * Coalesces the responses of pipelined requests, so that they are sent with as few socket writes as
+ * possible. While coalescing is enabled, small writes are copied into a staging buffer from the
+ * {@link ByteBufferPool}, which is sent with {@link #flush()}. Writes, which don't fit into the
+ * staging buffer, are sent together with the staged bytes in a single gathering write. Without
+ * coalescing, writes go directly to the target channel as soon as nothing is staged.
+ * <p>
+ * The target channel may be blocking or non-blocking. Not thread safe.
+ */
+public class CoalescingChannel implements GatheringByteChannel {
+
+  static final int STAGING_SIZE = 16 * 1024;
+
+  private final WritableByteChannel target;
+  private final ByteBufferPool pool;
+  private final ByteBuffer[] single = new ByteBuffer[1];
+  private final ByteBuffer[] gathered = new ByteBuffer[3];
+  private ByteBuffer staging;
+  private boolean coalescing;
+
+  /**
+   * @param target channel to write to
+   * @param pool   pool for the staging buffer, which is only held while bytes are staged
+   */
+  public CoalescingChannel(WritableByteChannel target, ByteBufferPool pool) {
+    this.target = Objects.requireNonNull(target);
+    this.pool = Objects.requireNonNull(pool);
+  }
+
+  /**
+   * @param coalescing true, if more responses follow immediately and small writes should be staged
+   */
+  public void setCoalescing(boolean coalescing) {
+    this.coalescing = coalescing;
+  }
+
+  /**
+   * Writes the staged bytes to the target channel.
+   *
+   * @return true, if all staged bytes were written. false, if a non-blocking target channel didn't
+   * accept all bytes.
+   */
+  public boolean flush() throws IOException {
+    if (staging == null) {
+      return true;
+    }
+
+    staging.flip();
+    while (staging.hasRemaining()) {
+      if (target.write(staging) == 0) {
+        // send buffer of the non-blocking channel is full
+        break;
+      }
+    }
+    return completeWriteOfStaging();
+  }
+
+  /**
+   * @return channel the bytes are written to. Must only be used directly after a successful {@link
+   * #flush()}, e.g. for a zero copy file transfer.
+   */
+  public WritableByteChannel getTarget() {
+    return target;
+  }
+
+  @Override
+  public int write(ByteBuffer source) throws IOException {
+    single[0] = source;
+    try {
+      return (int) write(single, 0, 1);
+    } finally {
+      single[0] = null;
+    }
+  }
+
+  @Override
+  public long write(ByteBuffer[] sources, int offset, int length) throws IOException {
+    final long total = remaining(sources, offset, length);
+    final int staged = staging == null ? 0 : staging.position();
+    if ((coalescing || staged > 0) && total <= STAGING_SIZE - staged) {
+      stage(sources, offset, length);
+      return total;
+    }
+
+    if (staged == 0) {
+      return writeToTarget(sources, offset, length);
+    }
+
+    if (!(target instanceof GatheringByteChannel) || length >= gathered.length) {
+      return flush() ? writeToTarget(sources, offset, length) : 0;
+    }
+
+    // staged bytes are sent first, followed by the sources in the same write
+    gathered[0] = staging.flip();
+    System.arraycopy(sources, offset, gathered, 1, length);
+    try {
+      ((GatheringByteChannel) target).write(gathered, 0, length + 1);
+    } finally {
+      for (int i = 0; i <= length; i++) {
+        gathered[i] = null;
+      }
+    }
+    completeWriteOfStaging();
+    return total - remaining(sources, offset, length);
+  }
+
+  @Override
+  public long write(ByteBuffer[] sources) throws IOException {
+    return write(sources, 0, sources.length);
+  }
+
+  /**
+   * Returns the staging buffer to the pool. Staged bytes are discarded.
+   */
+  public void release() {
+    if (staging != null) {
+      pool.release(staging);
+      staging = null;
+    }
+  }
+
+  @Override
+  public boolean isOpen() {
+    return target.isOpen();
+  }
+
+  @Override
+  public void close() throws IOException {
+    release();
+    target.close();
+  }
+
+  private void stage(ByteBuffer[] sources, int offset, int length) {
+    if (staging == null) {
+      staging = pool.acquire(STAGING_SIZE);
+    }
+
+    for (int i = offset; i < offset + length; i++) {
+      staging.put(sources[i]);
+    }
+  }
+
+  private long writeToTarget(ByteBuffer[] sources, int offset, int length) throws IOException {
+    if (target instanceof GatheringByteChannel) {
+      return ((GatheringByteChannel) target).write(sources, offset, length);
+    }
+
+    long written = 0;
+    for (int i = offset; i < offset + length; i++) {
+      written += target.write(sources[i]);
+      if (sources[i].hasRemaining()) {
+        break;
+      }
+    }
+    return written;
+  }
+
+  /**
+   * @return true, if the staged bytes were written completely
+   */
+  private boolean completeWriteOfStaging() {
+    if (staging.hasRemaining()) {
+      // keep the rest for the next write
+      staging.compact();
+      return false;
+    }
+
+    release();
+    return true;
+  }
+
+  private static long remaining(ByteBuffer[] sources, int offset, int length) {
+    long remaining = 0;
+    for (int i = offset; i < offset + length; i++) {
+      remaining += sources[i].remaining();
+    }
+    return remaining;
+  }
+}
@@ -0,0 +1,57 @@
+package de.havemann.lukas.vanillahttp.protocol.response;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Body of known size, which consists of {@link BufferRegion}s and {@link FileRegion}s sent one
+ * after another, e.g. the parts of a multipart/byteranges body. Every region is written like a
+ * body of its own, so that file regions are still transferred zero copy.
+ */
+public class CompositeRegion {
+
+  // every region is either a BufferRegion or a FileRegion
+  private final List<Object> regions;
+  private final long count;
+
+  private CompositeRegion(Builder builder) {
+    this.regions = Collections.unmodifiableList(new ArrayList<>(builder.regions));
+    this.count = builder.count;
+  }
+
+  /**
+   * @return buffer and file regions in the order they are sent
+   */
+  List<Object> getRegions() {
+    return regions;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  @SuppressWarnings("UnusedReturnValue")
+  public static class Builder {
+
+    private final List<Object> regions = new ArrayList<>();
+    private long count;
+
+    public Builder add(BufferRegion bufferRegion) {
+      regions.add(Objects.requireNonNull(bufferRegion));
+      count += bufferRegion.getCount();
+      return this;
+    }
+
+    public Builder add(FileRegion fileRegion) {
+      regions.add(Objects.requireNonNull(fileRegion));
+      count += fileRegion.getCount();
+      return this;
+    }
+
+    public CompositeRegion build() {
+      return new CompositeRegion(this);
+    }
+  }
+}
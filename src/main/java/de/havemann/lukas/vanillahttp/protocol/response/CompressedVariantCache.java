@@ -0,0 +1,233 @@
+package de.havemann.lukas.vanillahttp.protocol.response;
+
+import de.havemann.lukas.vanillahttp.protocol.specification.ContentCoding;
+import de.havemann.lukas.vanillahttp.protocol.specification.etag.ETag;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DataSizeUnit;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.util.unit.DataUnit;
+
+/**
+ * Bounded cache of compressed bodies, so that repeated requests for the same content are compressed
+ * only once. A compressed variant is identified by the requested path, the ETag of the uncompressed
+ * content and the content coding. The path is part of the key, since a metadata ETag may be equal
+ * for different files. Changed content has a new ETag, so outdated variants are never served and
+ * are evicted eventually in least recently used order, once the configured max size is reached.
+ * <p>
+ * The compression is executed by the caller outside of the lock, which coalesces concurrent misses
+ * for the same variant. A variant, which is compressed while it is streamed, is captured and cached
+ * as soon as it is read completely.
+ */
+@Component
+@ManagedResource(objectName = "de.havemann.lukas.vanillahttp:type=CompressedVariantCache")
+public class CompressedVariantCache {
+
+  // approximated memory of key, map entry and array header of an entry
+  private static final int ENTRY_OVERHEAD = 128;
+
+  private final Map<Key, byte[]> variants = new LinkedHashMap<>(16, 0.75f, true);
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  @DataSizeUnit(DataUnit.BYTES)
+  @Value("${vanilla.server.http.compression.cacheSize}")
+  private DataSize maxSize;
+
+  private long size;
+
+  @PostConstruct
+  public void init() {
+    if (maxSize.isNegative()) {
+      throw new IllegalArgumentException("invalid cache size of " + maxSize);
+    }
+  }
+
+  /**
+   * @param path   requested path of the content
+   * @param eTag   etag of the uncompressed content
+   * @param coding content coding of the variant
+   * @return cached variant, which must not be modified, or empty on a cache miss
+   */
+  public Optional<byte[]> get(String path, ETag eTag, ContentCoding coding) {
+    synchronized (variants) {
+      final byte[] variant = variants.get(new Key(path, eTag, coding));
+      if (variant != null) {
+        hits.increment();
+        return Optional.of(variant);
+      }
+    }
+
+    misses.increment();
+    return Optional.empty();
+  }
+
+  /**
+   * @param path    requested path of the content
+   * @param eTag    etag of the uncompressed content
+   * @param coding  content coding of the variant
+   * @param variant compressed content, which must not be modified anymore
+   * @return the supplied variant
+   */
+  public byte[] put(String path, ETag eTag, ContentCoding coding, byte[] variant) {
+    put(new Key(path, eTag, coding), variant);
+    return variant;
+  }
+
+  /**
+   * @param path       requested path of the content
+   * @param eTag       etag of the uncompressed content
+   * @param coding     content coding of the variant
+   * @param compressed stream of the variant, which is compressed while it is read
+   * @return stream of the variant, which caches the variant as soon as it is read completely
+   */
+  public InputStream capture(String path, ETag eTag, ContentCoding coding,
+      InputStream compressed) {
+    return new CapturingStream(compressed, new Key(path, eTag, coding));
+  }
+
+  private void put(Key key, byte[] variant) {
+    final long entrySize = variant.length + ENTRY_OVERHEAD;
+    if (entrySize > maxSize.toBytes()) {
+      return;
+    }
+
+    synchronized (variants) {
+      final byte[] previous = variants.put(key, variant);
+      size += entrySize - (previous == null ? 0 : previous.length + ENTRY_OVERHEAD);
+
+      final Iterator<byte[]> leastRecentlyUsed = variants.values().iterator();
+      while (size > maxSize.toBytes()) {
+        size -= leastRecentlyUsed.next().length + ENTRY_OVERHEAD;
+        leastRecentlyUsed.remove();
+      }
+    }
+  }
+
+  @ManagedAttribute(description = "number of cached variants")
+  public int getEntryCount() {
+    synchronized (variants) {
+      return variants.size();
+    }
+  }
+
+  @ManagedAttribute(description = "approximated memory of all cached variants in bytes")
+  public long getSize() {
+    synchronized (variants) {
+      return size;
+    }
+  }
+
+  @ManagedAttribute(description = "number of requests served from cache since startup")
+  public long getHits() {
+    return hits.sum();
+  }
+
+  @ManagedAttribute(description = "number of compressed variants since startup")
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  @ManagedOperation(description = "removes all cached variants")
+  public void clear() {
+    synchronized (variants) {
+      variants.clear();
+      size = 0;
+    }
+  }
+
+  /**
+   * Copies the streamed variant, until it exceeds the max size of the cache
+   */
+  private final class CapturingStream extends FilterInputStream {
+
+    private final Key key;
+    private ByteArrayOutputStream captured = new ByteArrayOutputStream();
+
+    private CapturingStream(InputStream compressed, Key key) {
+      super(compressed);
+      this.key = key;
+    }
+
+    @Override
+    public int read() throws IOException {
+      final int read = super.read();
+      if (read == -1) {
+        complete();
+      } else if (capturing(1)) {
+        captured.write(read);
+      }
+      return read;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      final int read = super.read(bytes, offset, length);
+      if (read == -1) {
+        complete();
+      } else if (capturing(read)) {
+        captured.write(bytes, offset, read);
+      }
+      return read;
+    }
+
+    private boolean capturing(int count) {
+      if (captured != null && captured.size() + count + ENTRY_OVERHEAD > maxSize.toBytes()) {
+        // too large for the cache
+        captured = null;
+      }
+      return captured != null;
+    }
+
+    private void complete() {
+      if (captured != null) {
+        put(key, captured.toByteArray());
+        captured = null;
+      }
+    }
+  }
+
+  private static final class Key {
+
+    private final String path;
+    private final ETag eTag;
+    private final ContentCoding coding;
+
+    private Key(String path, ETag eTag, ContentCoding coding) {
+      this.path = Objects.requireNonNull(path);
+      this.eTag = Objects.requireNonNull(eTag);
+      this.coding = Objects.requireNonNull(coding);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key key = (Key) o;
+      return coding == key.coding && eTag.equals(key.eTag) && path.equals(key.path);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(path, eTag, coding);
+    }
+  }
+}
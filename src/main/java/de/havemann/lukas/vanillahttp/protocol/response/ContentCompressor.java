@@ -0,0 +1,319 @@
+package de.havemann.lukas.vanillahttp.protocol.response;
+
+import de.havemann.lukas.vanillahttp.protocol.specification.AcceptEncoding;
+import de.havemann.lukas.vanillahttp.protocol.specification.ContentCoding;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpHeader;
+import de.havemann.lukas.vanillahttp.protocol.specification.MediaType;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DataSizeUnit;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.util.unit.DataUnit;
+
+/**
+ * Compresses text bodies on the fly for clients, which accept gzip or deflate. The content coding
+ * is negotiated with the quality values of the Accept-Encoding header field. Bodies are compressed
+ * completely in memory, so that the compressed body is sent with Content-Length, or step by step
+ * while they are streamed. Only bodies of known size between the configured min. and max. size are
+ * compressed on the fly. Larger bodies are only sent compressed, if a precompressed variant exists.
+ * <p>
+ * Thread safe.
+ */
+@Component
+@ManagedResource(objectName = "de.havemann.lukas.vanillahttp:type=ContentCompressor")
+public class ContentCompressor {
+
+  private static final Set<MediaType> COMPRESSIBLE_MEDIA_TYPES = EnumSet.of(MediaType.HTML,
+      MediaType.CSS, MediaType.JAVASCRIPT, MediaType.JSON, MediaType.XML, MediaType.ASCII_TEXT);
+  private static final List<ContentCoding> OFFERED_CODINGS = List.of(ContentCoding.GZIP,
+      ContentCoding.DEFLATE);
+  private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0,
+      0, (byte) 0xff};
+  private static final int READ_SIZE = 16 * 1024;
+
+  private final LongAdder compressedResponses = new LongAdder();
+  private final LongAdder bytesBeforeCompression = new LongAdder();
+  private final LongAdder bytesAfterCompression = new LongAdder();
+
+  @Value("${vanilla.server.http.compression.enabled}")
+  private boolean enabled;
+
+  @DataSizeUnit(DataUnit.BYTES)
+  @Value("${vanilla.server.http.compression.minSize}")
+  private DataSize minSize;
+
+  @DataSizeUnit(DataUnit.BYTES)
+  @Value("${vanilla.server.http.compression.maxSize}")
+  private DataSize maxSize;
+
+  @Value("${vanilla.server.http.compression.level}")
+  private int level;
+
+  @PostConstruct
+  public void init() {
+    if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+      throw new IllegalArgumentException("invalid compression level " + level);
+    }
+    if (minSize.isNegative() || maxSize.toBytes() > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("invalid compression size limits");
+    }
+  }
+
+  /**
+   * @return true, if a body of this media type and size is compressed for clients accepting it
+   */
+  public boolean isCompressible(MediaType mediaType, OptionalLong size) {
+    return mayBePrecompressed(mediaType, size) && size.getAsLong() <= maxSize.toBytes();
+  }
+
+  /**
+   * Bodies, which are too large for compression on the fly, are only sent compressed, if a
+   * precompressed variant exists.
+   *
+   * @return true, if a precompressed variant of a body of this media type and size is sent to
+   * clients accepting it
+   */
+  public boolean mayBePrecompressed(MediaType mediaType, OptionalLong size) {
+    return enabled && COMPRESSIBLE_MEDIA_TYPES.contains(mediaType) && size.isPresent()
+        && size.getAsLong() >= minSize.toBytes();
+  }
+
+  /**
+   * @return supported content codings in order of preference
+   */
+  public List<ContentCoding> getOfferedCodings() {
+    return OFFERED_CODINGS;
+  }
+
+  /**
+   * @param requestHeader    header of the request containing the Accept-Encoding header field
+   * @param availableCodings codings, which are available for the body, in order of preference
+   * @return content coding preferred by the client or empty, if the body should not be compressed
+   */
+  public Optional<ContentCoding> negotiate(HttpHeader requestHeader,
+      List<ContentCoding> availableCodings) {
+    return AcceptEncoding.of(requestHeader).select(availableCodings);
+  }
+
+  /**
+   * @return compressed remaining bytes of the leased buffer
+   */
+  public byte[] compress(BufferRegion bufferRegion, ContentCoding coding) throws Exception {
+    try (BufferRegion.Lease lease = bufferRegion.open();
+        Compression compression = new Compression(coding, bufferRegion.getCount())) {
+      compression.update(lease.getBuffer().duplicate());
+      return compression.finish();
+    }
+  }
+
+  /**
+   * @return compressed bytes of the file region
+   */
+  public byte[] compress(FileRegion fileRegion, ContentCoding coding) throws Exception {
+    try (FileChannel file = fileRegion.open();
+        Compression compression = new Compression(coding, fileRegion.getCount())) {
+      final ByteBuffer buffer = ByteBuffer.allocate(
+          (int) Math.min(READ_SIZE, Math.max(fileRegion.getCount(), 1)));
+      long position = fileRegion.getPosition();
+      final long end = fileRegion.getPosition() + fileRegion.getCount();
+      while (position < end) {
+        buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+        final int read = file.read(buffer, position);
+        if (read == -1) {
+          throw new EOFException("file is shorter than the announced content length");
+        }
+        position += read;
+        compression.update(buffer.flip());
+      }
+      return compression.finish();
+    }
+  }
+
+  /**
+   * Compresses the content step by step while the returned stream is read, so that the compression
+   * of a large body doesn't block the reading thread for a long time, e.g. an event loop.
+   *
+   * @param content uncompressed content, which is closed together with the returned stream
+   * @return stream of the compressed content
+   */
+  public InputStream compressing(InputStream content, ContentCoding coding) {
+    return new CompressingStream(content, new Compression(coding, READ_SIZE));
+  }
+
+  @ManagedAttribute(description = "number of compressed responses since startup")
+  public long getCompressedResponses() {
+    return compressedResponses.sum();
+  }
+
+  @ManagedAttribute(description = "number of bytes of the compressed bodies before compression")
+  public long getBytesBeforeCompression() {
+    return bytesBeforeCompression.sum();
+  }
+
+  @ManagedAttribute(description = "number of bytes of the compressed bodies after compression")
+  public long getBytesAfterCompression() {
+    return bytesAfterCompression.sum();
+  }
+
+  /**
+   * Compression of a single body with gzip or deflate (zlib format)
+   */
+  private final class Compression implements AutoCloseable {
+
+    private final boolean gzip;
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private final ByteArrayOutputStream output;
+    private final byte[] buffer = new byte[8192];
+    private long drained;
+
+    private Compression(ContentCoding coding, long size) {
+      if (coding != ContentCoding.GZIP && coding != ContentCoding.DEFLATE) {
+        throw new IllegalArgumentException("not supported " + coding);
+      }
+
+      this.gzip = coding == ContentCoding.GZIP;
+      // gzip has its own header and trailer around the raw deflate data
+      this.deflater = new Deflater(level, gzip);
+      // text is usually compressed to less than a third
+      this.output = new ByteArrayOutputStream((int) Math.min(size / 3 + 64, Integer.MAX_VALUE));
+      if (gzip) {
+        output.writeBytes(GZIP_HEADER);
+      }
+    }
+
+    void update(ByteBuffer input) {
+      if (gzip) {
+        crc.update(input.duplicate());
+      }
+
+      deflater.setInput(input);
+      while (!deflater.needsInput()) {
+        output.write(buffer, 0, deflater.deflate(buffer));
+      }
+    }
+
+    /**
+     * @return compressed bytes since the last call, which are removed from the output
+     */
+    byte[] drain() {
+      final byte[] compressed = output.toByteArray();
+      drained += compressed.length;
+      output.reset();
+      return compressed;
+    }
+
+    byte[] finish() {
+      deflater.finish();
+      while (!deflater.finished()) {
+        output.write(buffer, 0, deflater.deflate(buffer));
+      }
+
+      if (gzip) {
+        writeIntLittleEndian((int) crc.getValue());
+        writeIntLittleEndian((int) deflater.getBytesRead());
+      }
+
+      compressedResponses.increment();
+      bytesBeforeCompression.add(deflater.getBytesRead());
+      bytesAfterCompression.add(drained + output.size());
+      return output.toByteArray();
+    }
+
+    private void writeIntLittleEndian(int value) {
+      output.write(value);
+      output.write(value >>> 8);
+      output.write(value >>> 16);
+      output.write(value >>> 24);
+    }
+
+    @Override
+    public void close() {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Reads the next slice of the content, whenever the compressed bytes of the previous slice are
+   * consumed
+   */
+  private static final class CompressingStream extends InputStream {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final InputStream content;
+    private final Compression compression;
+    private final byte[] input = new byte[READ_SIZE];
+    private byte[] compressed = EMPTY;
+    private int position;
+    private boolean finished;
+
+    private CompressingStream(InputStream content, Compression compression) {
+      this.content = content;
+      this.compression = compression;
+    }
+
+    @Override
+    public int read() throws IOException {
+      final byte[] single = new byte[1];
+      return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+
+      while (position == compressed.length) {
+        if (finished) {
+          return -1;
+        }
+        compressNextSlice();
+      }
+
+      final int count = Math.min(length, compressed.length - position);
+      System.arraycopy(compressed, position, bytes, offset, count);
+      position += count;
+      return count;
+    }
+
+    private void compressNextSlice() throws IOException {
+      final int read = content.read(input);
+      if (read == -1) {
+        compressed = compression.finish();
+        finished = true;
+      } else {
+        compression.update(ByteBuffer.wrap(input, 0, read));
+        compressed = compression.drain();
+      }
+      position = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        content.close();
+      } finally {
+        compression.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package de.havemann.lukas.vanillahttp.protocol.response;
+
+import java.nio.channels.FileChannel;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+
+/**
+ * Region of a file, which is used as response body. The region is transferred with {@link
+ * FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}, so that the
+ * operating system can send the file content without copying it into the jvm.
+ */
+public class FileRegion {
+
+  private final Callable<FileChannel> fileChannelOpener;
+  private final long position;
+  private final long count;
+
+  /**
+   * @param fileChannelOpener opens the file channel as soon as the body is written. the channel is
+   *                          closed after the transfer.
+   * @param position          position of the first byte in the file
+   * @param count             number of bytes to transfer
+   */
+  public FileRegion(Callable<FileChannel> fileChannelOpener, long position, long count) {
+    this.fileChannelOpener = Objects.requireNonNull(fileChannelOpener);
+    this.position = position;
+    this.count = count;
+    if (position < 0 || count < 0) {
+      throw new IllegalArgumentException("invalid file region " + position + "/" + count);
+    }
+  }
+
+  public FileChannel open() throws Exception {
+    return fileChannelOpener.call();
+  }
+
+  public long getPosition() {
+    return position;
+  }
+
+  public long getCount() {
+    return count;
+  }
+}
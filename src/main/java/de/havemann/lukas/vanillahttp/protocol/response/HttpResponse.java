@@ -23,12 +23,23 @@ public class HttpResponse {
   private final HttpStatusCode statusCode;
   private final List<Pair<HttpHeaderField, String>> headerFields;
   private final Callable<InputStream> payloadRenderer;
+  private final FileRegion fileRegion;
+  private final BufferRegion bufferRegion;
+  private final CompositeRegion compositeRegion;
 
   public HttpResponse(Builder builder) {
     this.protocol = Objects.requireNonNull(builder.protocol);
     this.statusCode = Objects.requireNonNull(builder.statusCode);
     this.headerFields = Collections.unmodifiableList(builder.headerFields);
     this.payloadRenderer = builder.payloadRenderer;
+    this.fileRegion = builder.fileRegion;
+    this.bufferRegion = builder.bufferRegion;
+    this.compositeRegion = builder.compositeRegion;
+    if ((payloadRenderer != null ? 1 : 0) + (fileRegion != null ? 1 : 0)
+        + (bufferRegion != null ? 1 : 0) + (compositeRegion != null ? 1 : 0) > 1) {
+      throw new IllegalArgumentException(
+          "only one of payload renderer, file region, buffer region and composite region allowed");
+    }
   }
 
   public HttpProtocol getProtocol() {
@@ -47,6 +58,18 @@ public class HttpResponse {
     return Optional.ofNullable(payloadRenderer);
   }
 
+  public Optional<FileRegion> getFileRegion() {
+    return Optional.ofNullable(fileRegion);
+  }
+
+  public Optional<BufferRegion> getBufferRegion() {
+    return Optional.ofNullable(bufferRegion);
+  }
+
+  public Optional<CompositeRegion> getCompositeRegion() {
+    return Optional.ofNullable(compositeRegion);
+  }
+
   @SuppressWarnings("UnusedReturnValue")
   public static class Builder {
 
@@ -54,6 +77,9 @@ public class HttpResponse {
     private final HttpProtocol protocol;
     private HttpStatusCode statusCode;
     private Callable<InputStream> payloadRenderer;
+    private FileRegion fileRegion;
+    private BufferRegion bufferRegion;
+    private CompositeRegion compositeRegion;
 
     public Builder(HttpProtocol protocol) {
       this.protocol = Objects.requireNonNull(protocol);
@@ -75,6 +101,11 @@ public class HttpResponse {
       return this;
     }
 
+    public Builder closeConnection() {
+      add(HttpHeaderField.CONNECTION, "close");
+      return this;
+    }
+
     public Builder contentType(MediaType mediatype) {
       add(HttpHeaderField.CONTENT_TYPE, mediatype.getRepresentation());
       return this;
@@ -90,6 +121,9 @@ public class HttpResponse {
       return this;
     }
 
+    /**
+     * Streamed body of unknown size, which is sent chunked for HTTP/1.1
+     */
     public Builder payloadRenderer(Callable<InputStream> payloadRenderer) {
       if (protocol == HttpProtocol.HTTP_1_1) {
         add(HttpHeaderField.TRANSFER_ENCODING, "chunked");
@@ -98,6 +132,40 @@ public class HttpResponse {
       return this;
     }
 
+    /**
+     * Body with known size, which is sent with Content-Length instead of chunked encoding
+     */
+    public Builder fileRegion(FileRegion fileRegion) {
+      add(HttpHeaderField.CONTENT_LENGTH, Long.toString(fileRegion.getCount()));
+      this.fileRegion = fileRegion;
+      return this;
+    }
+
+    /**
+     * Body with known size, which is written from a buffer with Content-Length
+     */
+    public Builder bufferRegion(BufferRegion bufferRegion) {
+      add(HttpHeaderField.CONTENT_LENGTH, Long.toString(bufferRegion.getCount()));
+      this.bufferRegion = bufferRegion;
+      return this;
+    }
+
+    /**
+     * Body with known size consisting of several regions, which is sent with Content-Length
+     */
+    public Builder compositeRegion(CompositeRegion compositeRegion) {
+      add(HttpHeaderField.CONTENT_LENGTH, Long.toString(compositeRegion.getCount()));
+      this.compositeRegion = compositeRegion;
+      return this;
+    }
+
+    /**
+     * Complete body, which is sent with Content-Length
+     */
+    public Builder payload(byte[] payload) {
+      return bufferRegion(BufferRegion.of(payload));
+    }
+
     public HttpResponse build() {
       return new HttpResponse(this);
     }
@@ -0,0 +1,379 @@
+package de.havemann.lukas.vanillahttp.protocol.response;
+
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpProtocol;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Objects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serializes a {@link HttpResponse} step by step into a {@link WritableByteChannel}. The encoder
+ * only produces the next slice of the response, once the previous slice was completely accepted by
+ * the channel. Therefore the same encoder can be used for blocking channels and for non-blocking
+ * channels, which accept only as many bytes as fit into the socket send buffer. The head is
+ * serialized into the {@link ResponseHeadBuffer} of the connection. If the channel is a {@link
+ * GatheringByteChannel}, the head and the first slice of the body are written with a single write.
+ * <p>
+ * A {@link FileRegion} body is transferred with {@link FileChannel#transferTo}, which is a zero
+ * copy sendfile if the channel is a socket channel. A {@link BufferRegion} body is written directly
+ * from the leased buffer. The regions of a {@link CompositeRegion} body are written one after
+ * another.
+ */
+public class HttpResponseEncoder implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(HttpResponseEncoder.class);
+  private static final byte[] CRLF = HttpProtocol.DELIMITER.getBytes(StandardCharsets.UTF_8);
+  private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] HTTP_1_END_OF_BODY = "\r\n\r\n".getBytes(StandardCharsets.UTF_8);
+
+  // hex representation of the chunk size (max. 8 characters for an int) and CRLF
+  private static final int CHUNK_HEADER_LENGTH = 10;
+  private static final int GATHERED_FILE_SIZE = 16 * 1024;
+
+  private final HttpResponse httpResponse;
+  private final int chunkedEncodingBufferSize;
+  private final ResponseHeadBuffer headBuffer;
+  private final ByteBuffer[] pending = new ByteBuffer[2];
+  private int pendingIndex;
+  private int pendingCount;
+  private State state = State.HEAD;
+  private InputStream body;
+  private byte[] chunkBuffer;
+  private FileChannel file;
+  private long filePosition;
+  private long fileEnd;
+  private ByteBuffer fileBuffer;
+  private BufferRegion.Lease bufferLease;
+  private Iterator<Object> regions;
+
+  /**
+   * @param httpResponse              response to be serialized
+   * @param chunkedEncodingBufferSize max size of a single chunk in bytes
+   * @param headBuffer                buffer of the connection for the response head
+   */
+  public HttpResponseEncoder(HttpResponse httpResponse, int chunkedEncodingBufferSize,
+      ResponseHeadBuffer headBuffer) {
+    this.httpResponse = Objects.requireNonNull(httpResponse);
+    this.chunkedEncodingBufferSize = chunkedEncodingBufferSize;
+    this.headBuffer = Objects.requireNonNull(headBuffer);
+    if (chunkedEncodingBufferSize <= 0) {
+      throw new IllegalArgumentException("invalid buffer size of " + chunkedEncodingBufferSize);
+    }
+  }
+
+  /**
+   * @param httpResponse              response to be serialized
+   * @param chunkedEncodingBufferSize max size of a single chunk in bytes
+   */
+  public HttpResponseEncoder(HttpResponse httpResponse, int chunkedEncodingBufferSize) {
+    this(httpResponse, chunkedEncodingBufferSize, new ResponseHeadBuffer());
+  }
+
+  /**
+   * Writes as many bytes of the response as the channel accepts.
+   *
+   * @param channel channel to write the response to
+   * @return true, if the response was written completely. false, if the channel did not accept
+   * all bytes and the method should be called again as soon as the channel is writable.
+   */
+  public boolean writeTo(WritableByteChannel channel) throws Exception {
+    while (true) {
+      if (!writePending(channel)) {
+        return false;
+      }
+
+      if (state == State.DONE) {
+        closeBody();
+        releaseBuffers();
+        return true;
+      }
+
+      if (state == State.BUFFER_WRITTEN) {
+        closeBody();
+        openNextRegion();
+        continue;
+      }
+
+      if (state == State.HEAD) {
+        final ByteBuffer head = encodeHead();
+        setPending(head, channel instanceof GatheringByteChannel ? firstBodySlice() : null);
+        continue;
+      }
+
+      if (state == State.FILE) {
+        if (!transferFile(channel)) {
+          return false;
+        }
+        continue;
+      }
+
+      setPending(nextSlice(), null);
+    }
+  }
+
+  /**
+   * @return false, if the channel did not accept all pending bytes
+   */
+  private boolean writePending(WritableByteChannel channel) throws IOException {
+    while (pendingIndex < pendingCount) {
+      final int writtenBefore = pendingIndex;
+      if (channel instanceof GatheringByteChannel) {
+        // single write of head and first body slice
+        ((GatheringByteChannel) channel).write(pending, pendingIndex, pendingCount - pendingIndex);
+      } else {
+        channel.write(pending[pendingIndex]);
+      }
+
+      while (pendingIndex < pendingCount && !pending[pendingIndex].hasRemaining()) {
+        pending[pendingIndex++] = null;
+      }
+
+      final boolean gathered = channel instanceof GatheringByteChannel;
+      if (pendingIndex < pendingCount && (gathered || pendingIndex == writtenBefore)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void setPending(ByteBuffer first, ByteBuffer second) {
+    pending[0] = first;
+    pending[1] = second;
+    pendingIndex = 0;
+    pendingCount = second == null ? 1 : 2;
+  }
+
+  /**
+   * @return first slice of the body, which is written together with the head. null, if the body
+   * is written separately.
+   */
+  private ByteBuffer firstBodySlice() throws Exception {
+    switch (state) {
+      case BODY:
+      case BUFFER:
+        return nextSlice();
+      case FILE:
+        // small files are read instead of transferred, so that head and body are sent together
+        return fileEnd - filePosition <= GATHERED_FILE_SIZE && fileEnd > filePosition
+            ? readFileSlice() : null;
+      default:
+        return null;
+    }
+  }
+
+  public HttpResponse getHttpResponse() {
+    return httpResponse;
+  }
+
+  private ByteBuffer nextSlice() throws Exception {
+    switch (state) {
+      case HEAD:
+        return encodeHead();
+      case BODY:
+        return encodeBody();
+      case BUFFER:
+        // the lease is closed as soon as the buffer was written
+        state = State.BUFFER_WRITTEN;
+        return bufferLease.getBuffer();
+      default:
+        throw new IllegalStateException("no more data in state " + state);
+    }
+  }
+
+  private ByteBuffer encodeHead() throws Exception {
+    if (httpResponse.getPayloadRenderer().isPresent()) {
+      if (httpResponse.getProtocol() != HttpProtocol.HTTP_1
+          && httpResponse.getProtocol() != HttpProtocol.HTTP_1_1) {
+        throw new IllegalArgumentException("not supported " + httpResponse.getProtocol());
+      }
+
+      body = httpResponse.getPayloadRenderer().get().call();
+      chunkBuffer = new byte[CHUNK_HEADER_LENGTH + chunkedEncodingBufferSize + CRLF.length];
+      state = State.BODY;
+    } else if (httpResponse.getFileRegion().isPresent()) {
+      openRegion(httpResponse.getFileRegion().get());
+    } else if (httpResponse.getBufferRegion().isPresent()) {
+      openRegion(httpResponse.getBufferRegion().get());
+    } else if (httpResponse.getCompositeRegion().isPresent()) {
+      regions = httpResponse.getCompositeRegion().get().getRegions().iterator();
+      openNextRegion();
+    } else {
+      state = State.DONE;
+    }
+
+    return headBuffer.encode(httpResponse);
+  }
+
+  /**
+   * Opens the next region of a composite body. The body is done, if there is no more region.
+   */
+  private void openNextRegion() throws Exception {
+    if (regions == null || !regions.hasNext()) {
+      state = State.DONE;
+      return;
+    }
+
+    final Object region = regions.next();
+    if (region instanceof FileRegion) {
+      openRegion((FileRegion) region);
+    } else {
+      openRegion((BufferRegion) region);
+    }
+  }
+
+  private void openRegion(FileRegion fileRegion) throws Exception {
+    file = fileRegion.open();
+    filePosition = fileRegion.getPosition();
+    fileEnd = fileRegion.getPosition() + fileRegion.getCount();
+    state = State.FILE;
+  }
+
+  private void openRegion(BufferRegion bufferRegion) throws Exception {
+    bufferLease = bufferRegion.open();
+    state = State.BUFFER;
+  }
+
+  private ByteBuffer encodeBody() throws IOException {
+    final int read = body.readNBytes(chunkBuffer, CHUNK_HEADER_LENGTH, chunkedEncodingBufferSize);
+    if (read == 0) {
+      closeBody();
+      state = State.DONE;
+      return ByteBuffer.wrap(
+          httpResponse.getProtocol() == HttpProtocol.HTTP_1 ? HTTP_1_END_OF_BODY : LAST_CHUNK);
+    }
+
+    if (httpResponse.getProtocol() == HttpProtocol.HTTP_1) {
+      return ByteBuffer.wrap(chunkBuffer, CHUNK_HEADER_LENGTH, read);
+    }
+
+    // chunk header is placed directly in front of the chunk data to save a copy of the data
+    int chunkStart = CHUNK_HEADER_LENGTH - CRLF.length;
+    System.arraycopy(CRLF, 0, chunkBuffer, chunkStart, CRLF.length);
+    int remainingSize = read;
+    do {
+      chunkBuffer[--chunkStart] = HEX_DIGITS[remainingSize & 0xf];
+      remainingSize >>>= 4;
+    } while (remainingSize != 0);
+    System.arraycopy(CRLF, 0, chunkBuffer, CHUNK_HEADER_LENGTH + read, CRLF.length);
+    return ByteBuffer.wrap(chunkBuffer, chunkStart,
+        CHUNK_HEADER_LENGTH - chunkStart + read + CRLF.length);
+  }
+
+  /**
+   * @return false, if the non-blocking channel doesn't accept more bytes at the moment
+   */
+  private boolean transferFile(WritableByteChannel channel) throws Exception {
+    if (filePosition == fileEnd) {
+      closeBody();
+      openNextRegion();
+      return true;
+    }
+
+    WritableByteChannel target = channel;
+    if (channel instanceof CoalescingChannel) {
+      // sendfile bypasses the staging buffer, so the staged bytes have to be sent first
+      if (!((CoalescingChannel) channel).flush()) {
+        return false;
+      }
+      target = ((CoalescingChannel) channel).getTarget();
+    }
+
+    final long transferred = file.transferTo(filePosition, fileEnd - filePosition, target);
+    filePosition += transferred;
+    if (transferred > 0) {
+      return true;
+    }
+
+    if (filePosition >= file.size()) {
+      // truncated file would be retried forever, since the socket stays writable
+      throw new EOFException("file is shorter than the announced content length");
+    }
+
+    if (target instanceof SelectableChannel && !((SelectableChannel) target).isBlocking()) {
+      // socket send buffer is full
+      return false;
+    }
+
+    // blocking sockets of virtual threads are non-blocking on os level, so that transferTo can't
+    // wait for the socket. fall back to a blocking write of the next slice.
+    setPending(readFileSlice(), null);
+    return true;
+  }
+
+  private ByteBuffer readFileSlice() throws IOException {
+    if (fileBuffer == null) {
+      fileBuffer = headBuffer.getPool().acquire((int) Math.min(fileEnd - filePosition,
+          Math.max(chunkedEncodingBufferSize, GATHERED_FILE_SIZE)));
+    }
+
+    fileBuffer.clear();
+    fileBuffer.limit((int) Math.min(fileBuffer.capacity(), fileEnd - filePosition));
+    final int read = file.read(fileBuffer, filePosition);
+    if (read == -1) {
+      throw new EOFException("file is shorter than the announced content length");
+    }
+    filePosition += read;
+    return fileBuffer.flip();
+  }
+
+  private void closeBody() {
+    if (body != null) {
+      try {
+        body.close();
+      } catch (IOException e) {
+        LOG.error("error during close", e);
+      }
+      body = null;
+    }
+
+    if (file != null) {
+      try {
+        file.close();
+      } catch (IOException e) {
+        LOG.error("error during close", e);
+      }
+      file = null;
+    }
+
+    if (bufferLease != null) {
+      bufferLease.close();
+      bufferLease = null;
+    }
+  }
+
+  /**
+   * Returns the buffers to the pool, as soon as nothing is pending anymore
+   */
+  private void releaseBuffers() {
+    if (fileBuffer != null) {
+      headBuffer.getPool().release(fileBuffer);
+      fileBuffer = null;
+    }
+
+    headBuffer.release();
+  }
+
+  /**
+   * Releases the resources of the response body, if the response was not completely written.
+   */
+  @Override
+  public void close() {
+    closeBody();
+    releaseBuffers();
+  }
+
+  private enum State {
+    HEAD, BODY, FILE, BUFFER, BUFFER_WRITTEN, DONE
+  }
+}
@@ -1,38 +1,57 @@
 package de.havemann.lukas.vanillahttp.protocol.response;
 
-import de.havemann.lukas.vanillahttp.protocol.specification.HttpHeaderField;
-import de.havemann.lukas.vanillahttp.protocol.specification.HttpProtocol;
 import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
+import java.nio.channels.WritableByteChannel;
 import java.util.Objects;
-import java.util.concurrent.Callable;
-import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * {@link HttpResponseWriter} wraps a {@link OutputStream}
+ * {@link HttpResponseWriter} wraps a {@link OutputStream} or a blocking {@link WritableByteChannel}
+ * and writes complete http responses in a blocking manner. The serialization of the response is
+ * done by {@link HttpResponseEncoder}. File bodies are only sent zero copy, if the writer wraps the
+ * socket channel. Responses of pipelined requests are coalesced by a {@link CoalescingChannel} and
+ * only flushed with the last response of a batch.
  */
 public class HttpResponseWriter implements Closeable {
 
   public static final int DEFAULT_BUFFER_SIZE = 255;
   private static final Logger LOG = LoggerFactory.getLogger(HttpResponseWriter.class);
   private final OutputStream outputStream;
+  private final CoalescingChannel channel;
   private final int chunkedEncodingBufferSize;
+  private final ResponseHeadBuffer headBuffer;
+
+  private HttpResponseWriter(OutputStream outputStream, WritableByteChannel channel,
+      int bufferSize, ResponseHeadBuffer headBuffer) {
+    this.outputStream = outputStream;
+    this.headBuffer = Objects.requireNonNull(headBuffer);
+    this.channel = new CoalescingChannel(channel, headBuffer.getPool());
+    this.chunkedEncodingBufferSize = bufferSize;
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("invalid buffer size of " + bufferSize);
+    }
+  }
 
   /**
    * @param outputStream stream to write http protocol output to
    * @param bufferSize   buffer size for chunked encoding in bytes
    */
   public HttpResponseWriter(OutputStream outputStream, int bufferSize) {
-    this.outputStream = Objects.requireNonNull(outputStream);
-    this.chunkedEncodingBufferSize = bufferSize;
-    if (bufferSize <= 0) {
-      throw new IllegalArgumentException("invalid buffer size of " + bufferSize);
-    }
+    this(outputStream, new OutputStreamChannel(outputStream), bufferSize,
+        new ResponseHeadBuffer());
+  }
+
+  /**
+   * @param outputStream stream to write http protocol output to
+   * @param bufferSize   buffer size for chunked encoding in bytes
+   * @param pool         pool for buffers, which are only needed during a response
+   */
+  public HttpResponseWriter(OutputStream outputStream, int bufferSize, ByteBufferPool pool) {
+    this(outputStream, new OutputStreamChannel(outputStream), bufferSize,
+        new ResponseHeadBuffer(pool));
   }
 
   /**
@@ -44,89 +63,61 @@ public class HttpResponseWriter implements Closeable {
     this(outputStream, DEFAULT_BUFFER_SIZE);
   }
 
-  public void write(HttpResponse httpResponse) throws Exception {
-    writeHeader(httpResponse);
-
-    if (httpResponse.getPayloadRenderer().isPresent()) {
-      renderBody(httpResponse.getProtocol(), httpResponse.getPayloadRenderer().get());
-    }
-
-    finish();
-  }
-
-  private void writeHeader(HttpResponse httpResponse) throws IOException {
-    outputStream.write(httpResponse.getProtocol().asUTF8Bytes());
-    outputStream.write(' ');
-    outputStream.write(httpResponse.getStatusCode().asUTF8Bytes());
-    writeCRLF();
-
-    for (Pair<HttpHeaderField, String> headerField : httpResponse.getHeaderFields()) {
-      outputStream.write(headerField.getKey().asUTF8Bytes());
-      outputStream.write(HttpHeaderField.KEY_VALUE_DELIMITER.getBytes(StandardCharsets.UTF_8));
-      outputStream.write(headerField.getValue().getBytes(StandardCharsets.UTF_8));
-      writeCRLF();
-    }
+  /**
+   * @param channel    blocking channel to write http protocol output to
+   * @param bufferSize buffer size for chunked encoding in bytes
+   */
+  public HttpResponseWriter(WritableByteChannel channel, int bufferSize) {
+    this(null, channel, bufferSize, new ResponseHeadBuffer());
   }
 
-  private void finish() throws IOException {
-    writeCRLF();
-    outputStream.flush();
+  /**
+   * @param channel    blocking channel to write http protocol output to
+   * @param bufferSize buffer size for chunked encoding in bytes
+   * @param pool       pool for buffers, which are only needed during a response
+   */
+  public HttpResponseWriter(WritableByteChannel channel, int bufferSize, ByteBufferPool pool) {
+    this(null, channel, bufferSize, new ResponseHeadBuffer(pool));
   }
 
-  private void renderBody(HttpProtocol protocol, Callable<InputStream> inputStreamSupplier)
-      throws Exception {
-    try (InputStream inputStream = inputStreamSupplier.call()) {
-      selectByProtocol(protocol, inputStream);
-    }
+  public void write(HttpResponse httpResponse) throws Exception {
+    write(httpResponse, true);
   }
 
-  private void selectByProtocol(HttpProtocol protocol, InputStream inputStream) throws IOException {
-    writeCRLF();
-
-    if (protocol == HttpProtocol.HTTP_1) {
-      inputStream.transferTo(outputStream);
-      writeCRLF();
-      return;
-    }
-
-    if (protocol == HttpProtocol.HTTP_1_1) {
-      writeOutChunked(inputStream);
-      writeFinalByte();
-      return;
+  /**
+   * @param httpResponse response to be written
+   * @param flush        false, if the response of another pipelined request follows immediately.
+   *                     The response is then sent together with the following responses.
+   */
+  public void write(HttpResponse httpResponse, boolean flush) throws Exception {
+    channel.setCoalescing(!flush);
+    try (HttpResponseEncoder encoder = new HttpResponseEncoder(httpResponse,
+        chunkedEncodingBufferSize, headBuffer)) {
+      // blocking channel always accepts all bytes, so the loop terminates after a single call
+      while (!encoder.writeTo(channel)) {
+        LOG.debug("partial write on blocking channel");
+      }
     }
 
-    throw new IllegalArgumentException("not supported " + protocol);
-  }
-
-  private void writeFinalByte() throws IOException {
-    outputStream.write('0');
-    writeCRLF();
-  }
-
-  private void writeOutChunked(InputStream inputStream) throws IOException {
-    byte[] buffer;
-    do {
-      buffer = inputStream.readNBytes(chunkedEncodingBufferSize);
-      if (buffer.length == 0) {
-        return;
+    if (flush) {
+      channel.flush();
+      if (outputStream != null) {
+        outputStream.flush();
       }
-
-      outputStream.write(Integer.toHexString(buffer.length).getBytes(StandardCharsets.UTF_8));
-      writeCRLF();
-      outputStream.write(buffer);
-      writeCRLF();
-    } while (inputStream.available() != 0);
-  }
-
-  private void writeCRLF() throws IOException {
-    outputStream.write('\r');
-    outputStream.write('\n');
+    }
   }
 
   @Override
   public void close() {
     try {
-      outputStream.close();
+      // best effort for responses of pipelined requests, which were not flushed yet
+      channel.flush();
+    } catch (IOException e) {
+      LOG.debug("flush during close failed", e);
+    }
+
+    try {
+      channel.close();
     } catch (IOException e) {
       LOG.error("error during close", e);
     }
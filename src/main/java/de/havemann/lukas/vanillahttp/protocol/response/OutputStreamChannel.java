@@ -0,0 +1,103 @@
+package de.havemann.lukas.vanillahttp.protocol.response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Objects;
+
+/**
+ * Adapts an {@link OutputStream} to a {@link WritableByteChannel}. In contrast to {@link
+ * java.nio.channels.Channels#newChannel(OutputStream)} no monitor is held during the blocking write,
+ * so a virtual thread is not pinned to its carrier thread while waiting for a slow client. Heap
+ * buffers are written without an intermediate copy. Small buffers of a gathering write are combined
+ * into a single write to the stream.
+ */
+class OutputStreamChannel implements GatheringByteChannel {
+
+  private static final int TRANSFER_SIZE = 8192;
+
+  private final OutputStream outputStream;
+  private boolean open = true;
+  private byte[] transferBuffer;
+
+  OutputStreamChannel(OutputStream outputStream) {
+    this.outputStream = Objects.requireNonNull(outputStream);
+  }
+
+  @Override
+  public int write(ByteBuffer source) throws IOException {
+    if (!open) {
+      throw new ClosedChannelException();
+    }
+
+    final int length = source.remaining();
+    if (source.hasArray()) {
+      outputStream.write(source.array(), source.arrayOffset() + source.position(), length);
+      source.position(source.limit());
+      return length;
+    }
+
+    final byte[] buffer = getTransferBuffer();
+    while (source.hasRemaining()) {
+      final int slice = Math.min(source.remaining(), buffer.length);
+      source.get(buffer, 0, slice);
+      outputStream.write(buffer, 0, slice);
+    }
+    return length;
+  }
+
+  @Override
+  public long write(ByteBuffer[] sources, int offset, int length) throws IOException {
+    long total = 0;
+    for (int i = offset; i < offset + length; i++) {
+      total += sources[i].remaining();
+    }
+
+    if (total > TRANSFER_SIZE) {
+      long written = 0;
+      for (int i = offset; i < offset + length; i++) {
+        written += write(sources[i]);
+      }
+      return written;
+    }
+
+    if (!open) {
+      throw new ClosedChannelException();
+    }
+
+    final byte[] buffer = getTransferBuffer();
+    int position = 0;
+    for (int i = offset; i < offset + length; i++) {
+      final int remaining = sources[i].remaining();
+      sources[i].get(buffer, position, remaining);
+      position += remaining;
+    }
+    outputStream.write(buffer, 0, position);
+    return position;
+  }
+
+  @Override
+  public long write(ByteBuffer[] sources) throws IOException {
+    return write(sources, 0, sources.length);
+  }
+
+  private byte[] getTransferBuffer() {
+    if (transferBuffer == null) {
+      transferBuffer = new byte[TRANSFER_SIZE];
+    }
+    return transferBuffer;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return open;
+  }
+
+  @Override
+  public void close() throws IOException {
+    open = false;
+    outputStream.close();
+  }
+}
@@ -0,0 +1,104 @@
+package de.havemann.lukas.vanillahttp.protocol.response;
+
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpHeaderField;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpProtocol;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import org.apache.commons.lang3.tuple.Pair;
+
+/**
+ * Buffer for the status line and header fields of the responses of a connection. The head is
+ * assembled from the pre-encoded bytes of the protocol elements, so that a response head is
+ * serialized without allocation and written with a single write. The buffer is taken from the
+ * {@link ByteBufferPool} for the response and grows on demand.
+ * <p>
+ * Not thread safe. The serialized head is only valid until the buffer is released.
+ */
+public final class ResponseHeadBuffer {
+
+  private static final int INITIAL_CAPACITY = 512;
+  private static final byte[] CRLF = HttpProtocol.DELIMITER.getBytes(StandardCharsets.UTF_8);
+
+  private final ByteBufferPool pool;
+  private ByteBuffer buffer;
+
+  /**
+   * @param pool pool shared by all connections
+   */
+  public ResponseHeadBuffer(ByteBufferPool pool) {
+    this.pool = Objects.requireNonNull(pool);
+  }
+
+  /**
+   * Creates a buffer with its own pool, which reuses a single buffer for all responses
+   */
+  public ResponseHeadBuffer() {
+    this(new ByteBufferPool(1));
+  }
+
+  ByteBufferPool getPool() {
+    return pool;
+  }
+
+  /**
+   * @return buffer containing the serialized head, which is ready to be written
+   */
+  ByteBuffer encode(HttpResponse httpResponse) {
+    if (buffer == null) {
+      buffer = pool.acquire(INITIAL_CAPACITY);
+    }
+
+    buffer.clear();
+    put(httpResponse.getProtocol().statusLineOf(httpResponse.getStatusCode()));
+    for (Pair<HttpHeaderField, String> headerField : httpResponse.getHeaderFields()) {
+      put(headerField.getKey().linePrefix());
+      putValue(headerField.getValue());
+      put(CRLF);
+    }
+    put(CRLF);
+    return buffer.flip();
+  }
+
+  /**
+   * Returns the buffer to the pool, after the head was written.
+   */
+  void release() {
+    if (buffer != null) {
+      pool.release(buffer);
+      buffer = null;
+    }
+  }
+
+  private void put(byte[] bytes) {
+    ensureRemaining(bytes.length);
+    buffer.put(bytes);
+  }
+
+  private void putValue(String value) {
+    ensureRemaining(value.length());
+    final int start = buffer.position();
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      if (c >= 0x80) {
+        // header values are ascii in general. encode other values completely
+        buffer.position(start);
+        put(value.getBytes(StandardCharsets.UTF_8));
+        return;
+      }
+      buffer.put((byte) c);
+    }
+  }
+
+  private void ensureRemaining(int length) {
+    if (buffer.remaining() >= length) {
+      return;
+    }
+
+    final ByteBuffer larger = pool.acquire(
+        Math.max(buffer.capacity() * 2, buffer.position() + length));
+    larger.put(buffer.flip());
+    pool.release(buffer);
+    buffer = larger;
+  }
+}
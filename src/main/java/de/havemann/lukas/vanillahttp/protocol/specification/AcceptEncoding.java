@@ -0,0 +1,108 @@
+package de.havemann.lukas.vanillahttp.protocol.specification;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Accept-Encoding header field of <a href="https://tools.ietf.org/html/rfc7231#section-5.3.4">RFC
+ * 7231</a> with the quality values of the content codings accepted by the client
+ */
+public class AcceptEncoding {
+
+  private static final String WILDCARD = "*";
+
+  private final Map<ContentCoding, Double> qualities = new EnumMap<>(ContentCoding.class);
+  private Double wildcardQuality;
+
+  private AcceptEncoding() {
+  }
+
+  /**
+   * Parses the Accept-Encoding header field. Unknown codings and entries with an invalid quality
+   * value are ignored.
+   */
+  public static AcceptEncoding of(HttpHeader httpHeader) {
+    final AcceptEncoding acceptEncoding = new AcceptEncoding();
+    httpHeader.getValues(HttpHeaderField.ACCEPT_ENCODING)
+        .filter(value -> !value.isEmpty())
+        .forEach(acceptEncoding::add);
+    return acceptEncoding;
+  }
+
+  private void add(String value) {
+    final String[] parts = value.split(";");
+    final Double quality = parseQuality(parts);
+    if (quality == null) {
+      return;
+    }
+
+    final String name = parts[0].trim();
+    if (WILDCARD.equals(name)) {
+      wildcardQuality = quality;
+      return;
+    }
+    ContentCoding.fromName(name).ifPresent(coding -> qualities.putIfAbsent(coding, quality));
+  }
+
+  /**
+   * @return quality value between 0 and 1 or null, if the value is invalid
+   */
+  private static Double parseQuality(String[] parts) {
+    double quality = 1;
+    for (int i = 1; i < parts.length; i++) {
+      final String parameter = parts[i].trim();
+      if (parameter.length() > 2 && Character.toLowerCase(parameter.charAt(0)) == 'q'
+          && parameter.charAt(1) == '=') {
+        try {
+          quality = Double.parseDouble(parameter.substring(2));
+        } catch (NumberFormatException ex) {
+          return null;
+        }
+      }
+    }
+
+    return quality >= 0 && quality <= 1 ? quality : null;
+  }
+
+  /**
+   * @return quality value of the coding. 0, if the coding is not acceptable
+   */
+  public double qualityOf(ContentCoding coding) {
+    final Double quality = qualities.get(coding);
+    if (quality != null) {
+      return quality;
+    }
+
+    if (wildcardQuality != null) {
+      return wildcardQuality;
+    }
+
+    // identity is always acceptable, unless it is excluded explicitly
+    return coding == ContentCoding.IDENTITY ? 1 : 0;
+  }
+
+  /**
+   * @param offered content codings offered by the server, in order of preference of the server
+   * @return coding with the highest quality value, or empty if identity should be sent
+   */
+  public Optional<ContentCoding> select(List<ContentCoding> offered) {
+    ContentCoding selected = null;
+    double selectedQuality = 0;
+    for (ContentCoding coding : offered) {
+      final double quality = qualityOf(coding);
+      if (quality > selectedQuality) {
+        selected = coding;
+        selectedQuality = quality;
+      }
+    }
+
+    // identity is only preferred over the offered codings, if the client ranks it explicitly
+    final Double identityQuality = qualities.getOrDefault(ContentCoding.IDENTITY, wildcardQuality);
+    if (selected == null || (identityQuality != null && identityQuality > selectedQuality)) {
+      return Optional.empty();
+    }
+    return Optional.of(selected);
+  }
+}
@@ -0,0 +1,71 @@
+package de.havemann.lukas.vanillahttp.protocol.specification;
+
+/**
+ * Satisfiable range of bytes of a representation with the positions of the first and last byte
+ * (inclusive) of <a href="https://tools.ietf.org/html/rfc7233#section-2.1">RFC 7233</a>
+ */
+public final class ByteRange {
+
+  public static final String UNIT = "bytes";
+
+  private final long first;
+  private final long last;
+
+  public ByteRange(long first, long last) {
+    this.first = first;
+    this.last = last;
+    if (first < 0 || last < first) {
+      throw new IllegalArgumentException("invalid byte range " + first + "-" + last);
+    }
+  }
+
+  /**
+   * @param completeLength length of the complete representation
+   * @return value of the Content-Range header field of a 416 (Range Not Satisfiable) response
+   */
+  public static String unsatisfiedContentRange(long completeLength) {
+    return UNIT + " */" + completeLength;
+  }
+
+  public long getFirst() {
+    return first;
+  }
+
+  public long getLast() {
+    return last;
+  }
+
+  public long getLength() {
+    return last - first + 1;
+  }
+
+  /**
+   * @param completeLength length of the complete representation
+   * @return value of the Content-Range header field, e.g. "bytes 0-499/1234"
+   */
+  public String contentRangeOf(long completeLength) {
+    return UNIT + ' ' + first + '-' + last + '/' + completeLength;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    ByteRange byteRange = (ByteRange) o;
+    return first == byteRange.first && last == byteRange.last;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(first) * 31 + Long.hashCode(last);
+  }
+
+  @Override
+  public String toString() {
+    return first + "-" + last;
+  }
+}
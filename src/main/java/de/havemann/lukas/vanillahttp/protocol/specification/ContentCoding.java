@@ -0,0 +1,44 @@
+package de.havemann.lukas.vanillahttp.protocol.specification;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Content codings of <a href="https://tools.ietf.org/html/rfc7231#section-3.1.2.1">RFC 7231</a>,
+ * which are negotiated with the Accept-Encoding header field
+ */
+public enum ContentCoding implements ProtocolRepresentation {
+
+  GZIP("gzip"),
+  DEFLATE("deflate"),
+  IDENTITY("identity");
+
+  private final String name;
+
+  ContentCoding(String name) {
+    this.name = name;
+  }
+
+  /**
+   * @param name case-insensitive name of the content coding. "x-gzip" is an alias of gzip.
+   * @return content coding or empty, if the coding is unknown
+   */
+  public static Optional<ContentCoding> fromName(String name) {
+    final String normalizedName = name.trim().toLowerCase(Locale.ROOT);
+    if ("x-gzip".equals(normalizedName)) {
+      return Optional.of(GZIP);
+    }
+
+    for (ContentCoding coding : values()) {
+      if (coding.name.equals(normalizedName)) {
+        return Optional.of(coding);
+      }
+    }
+    return Optional.empty();
+  }
+
+  @Override
+  public String getRepresentation() {
+    return name;
+  }
+}
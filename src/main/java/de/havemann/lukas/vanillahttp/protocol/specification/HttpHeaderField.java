@@ -1,5 +1,7 @@
 package de.havemann.lukas.vanillahttp.protocol.specification;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * List of common http header fields
  */
@@ -7,10 +9,31 @@ public enum HttpHeaderField implements ProtocolRepresentation {
 
   CONNECTION("Connection"),
   CONTENT_TYPE("ContentType"),
+  CONTENT_LENGTH("Content-Length"),
   TRANSFER_ENCODING("Transfer-Encoding"),
   KEEP_ALIVE("Keep-Alive"),
   LAST_MODIFIED("Last-Modified"),
 
+  // RFC 7231 content negotiation
+
+  ACCEPT("Accept"),
+  ACCEPT_ENCODING("Accept-Encoding"),
+  CONTENT_ENCODING("Content-Encoding"),
+  VARY("Vary"),
+
+  // RFC 7233 range requests
+
+  ACCEPT_RANGES("Accept-Ranges"),
+  CONTENT_RANGE("Content-Range"),
+  RANGE("Range"),
+
+  /**
+   * The "If-Range" header field makes a Range request conditional on the representation being
+   * unchanged. If the entity-tag or the modification date doesn't match, the complete
+   * representation is sent instead of the requested ranges.
+   */
+  IF_RANGE("If-Range"),
+
   // RFC 7232
 
   /**
@@ -51,13 +74,32 @@ public enum HttpHeaderField implements ProtocolRepresentation {
   public static final String KEY_VALUE_DELIMITER = ": ";
 
   private final String headerFieldName;
+  private final byte[] utf8Bytes;
+  private final byte[] linePrefix;
 
   HttpHeaderField(String headerFieldName) {
     this.headerFieldName = headerFieldName;
+    this.utf8Bytes = headerFieldName.getBytes(StandardCharsets.UTF_8);
+    this.linePrefix = (headerFieldName + KEY_VALUE_DELIMITER).getBytes(StandardCharsets.UTF_8);
   }
 
   @Override
   public String getRepresentation() {
     return headerFieldName;
   }
+
+  /**
+   * @return cached bytes, which must not be modified
+   */
+  @Override
+  public byte[] asUTF8Bytes() {
+    return utf8Bytes;
+  }
+
+  /**
+   * @return cached bytes of the header line up to the value, e.g. "ETag: ". must not be modified.
+   */
+  public byte[] linePrefix() {
+    return linePrefix;
+  }
 }
@@ -1,5 +1,9 @@
 package de.havemann.lukas.vanillahttp.protocol.specification;
 
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+
 /**
  * List of supported HTTP protocols
  */
@@ -10,13 +14,36 @@ public enum HttpProtocol implements ProtocolRepresentation {
   public static final String DELIMITER = "\r\n";
 
   private final String protocol;
+  private final byte[] utf8Bytes;
+  private final Map<HttpStatusCode, byte[]> statusLines = new EnumMap<>(HttpStatusCode.class);
 
   HttpProtocol(String protocol) {
     this.protocol = protocol;
+    this.utf8Bytes = protocol.getBytes(StandardCharsets.UTF_8);
+    for (HttpStatusCode statusCode : HttpStatusCode.values()) {
+      statusLines.put(statusCode, (protocol + " " + statusCode.getRepresentation() + DELIMITER)
+          .getBytes(StandardCharsets.UTF_8));
+    }
   }
 
   @Override
   public String getRepresentation() {
     return protocol;
   }
+
+  /**
+   * @return cached bytes, which must not be modified
+   */
+  @Override
+  public byte[] asUTF8Bytes() {
+    return utf8Bytes;
+  }
+
+  /**
+   * @return cached bytes of the complete status line including CRLF, e.g. "HTTP/1.1 200 OK\r\n".
+   * must not be modified.
+   */
+  public byte[] statusLineOf(HttpStatusCode statusCode) {
+    return statusLines.get(statusCode);
+  }
 }
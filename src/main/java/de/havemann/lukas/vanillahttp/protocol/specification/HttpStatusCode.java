@@ -1,5 +1,6 @@
 package de.havemann.lukas.vanillahttp.protocol.specification;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 
 /**
@@ -10,6 +11,7 @@ public enum HttpStatusCode implements ProtocolRepresentation {
 
   // 2xx successful operation
   OK(200, "OK"),
+  PARTIAL_CONTENT(206, "Partial Content"),
 
   // 3xx redirection,
   NOT_MODIFIED(304, "Not Modified"),
@@ -19,16 +21,20 @@ public enum HttpStatusCode implements ProtocolRepresentation {
   FORBIDDEN(403, "Forbidden"),
   NOT_FOUND(404, "Not Found"),
   REQUEST_TIMEOUT(408, "Request Timeout"),
+  RANGE_NOT_SATISFIABLE(416, "Range Not Satisfiable"),
 
   // 5xx server error
-  INTERNAL_SERVER_ERROR(500, "Internal Server Error");
+  INTERNAL_SERVER_ERROR(500, "Internal Server Error"),
+  SERVICE_UNAVAILABLE(503, "Service Unavailable");
 
   private final int code;
   private final String description;
+  private final byte[] utf8Bytes;
 
   HttpStatusCode(int code, String description) {
     this.code = code;
     this.description = Objects.requireNonNull(description);
+    this.utf8Bytes = getRepresentation().getBytes(StandardCharsets.UTF_8);
   }
 
   public int getCode() {
@@ -39,4 +45,12 @@ public enum HttpStatusCode implements ProtocolRepresentation {
   public String getRepresentation() {
     return code + " " + description;
   }
+
+  /**
+   * @return cached bytes, which must not be modified
+   */
+  @Override
+  public byte[] asUTF8Bytes() {
+    return utf8Bytes;
+  }
 }
@@ -0,0 +1,127 @@
+package de.havemann.lukas.vanillahttp.protocol.specification;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Range header field of <a href="https://tools.ietf.org/html/rfc7233#section-3.1">RFC 7233</a>
+ * with the byte ranges requested by the client. The requested ranges are resolved against the
+ * length of the representation.
+ */
+public class RangeRequest {
+
+  /**
+   * More ranges are ignored, since many small ranges cost more than sending the complete
+   * representation
+   */
+  public static final int MAX_RANGES = 16;
+
+  private static final String PREFIX = ByteRange.UNIT + '=';
+  private static final long SUFFIX = -1;
+
+  // pairs of first and last byte position. first is SUFFIX for a suffix length in last
+  private final long[] specs;
+
+  private RangeRequest(long[] specs) {
+    this.specs = specs;
+  }
+
+  /**
+   * Parses the Range header field. A syntactically invalid field, another unit than bytes or more
+   * than {@link #MAX_RANGES} ranges are ignored.
+   *
+   * @return requested ranges or empty, if the complete representation is requested
+   */
+  public static Optional<RangeRequest> of(HttpHeader httpHeader) {
+    return httpHeader.getValueOf(HttpHeaderField.RANGE).flatMap(RangeRequest::parse);
+  }
+
+  private static Optional<RangeRequest> parse(String value) {
+    final String trimmed = value.trim();
+    if (!trimmed.regionMatches(true, 0, PREFIX, 0, PREFIX.length())) {
+      return Optional.empty();
+    }
+
+    final String[] rangeSpecs = trimmed.substring(PREFIX.length()).split(",");
+    if (rangeSpecs.length > MAX_RANGES) {
+      return Optional.empty();
+    }
+
+    final long[] specs = new long[rangeSpecs.length * 2];
+    for (int i = 0; i < rangeSpecs.length; i++) {
+      final String rangeSpec = rangeSpecs[i].trim();
+      final int dash = rangeSpec.indexOf('-');
+      if (dash < 0) {
+        return Optional.empty();
+      }
+
+      try {
+        if (dash == 0) {
+          specs[2 * i] = SUFFIX;
+          specs[2 * i + 1] = parsePosition(rangeSpec.substring(1));
+        } else {
+          specs[2 * i] = parsePosition(rangeSpec.substring(0, dash));
+          specs[2 * i + 1] = dash == rangeSpec.length() - 1
+              ? Long.MAX_VALUE : parsePosition(rangeSpec.substring(dash + 1));
+          if (specs[2 * i + 1] < specs[2 * i]) {
+            return Optional.empty();
+          }
+        }
+      } catch (NumberFormatException ex) {
+        return Optional.empty();
+      }
+    }
+
+    return Optional.of(new RangeRequest(specs));
+  }
+
+  private static long parsePosition(String position) {
+    for (int i = 0; i < position.length(); i++) {
+      if (position.charAt(i) < '0' || position.charAt(i) > '9') {
+        throw new NumberFormatException("invalid position " + position);
+      }
+    }
+    return Long.parseLong(position);
+  }
+
+  /**
+   * Resolves the requested ranges against the length of the representation. Overlapping and
+   * adjacent ranges are coalesced in ascending order.
+   *
+   * @param completeLength length of the representation in bytes
+   * @return satisfiable ranges. empty, if none of the requested ranges is satisfiable.
+   */
+  public List<ByteRange> resolve(long completeLength) {
+    final List<ByteRange> ranges = new ArrayList<>(specs.length / 2);
+    for (int i = 0; i < specs.length; i += 2) {
+      if (specs[i] == SUFFIX) {
+        if (specs[i + 1] > 0 && completeLength > 0) {
+          ranges.add(new ByteRange(Math.max(0, completeLength - specs[i + 1]),
+              completeLength - 1));
+        }
+      } else if (specs[i] < completeLength) {
+        ranges.add(new ByteRange(specs[i], Math.min(specs[i + 1], completeLength - 1)));
+      }
+    }
+
+    if (ranges.size() < 2) {
+      return ranges;
+    }
+
+    ranges.sort(Comparator.comparingLong(ByteRange::getFirst));
+    final List<ByteRange> coalesced = new ArrayList<>(ranges.size());
+    ByteRange current = ranges.get(0);
+    for (ByteRange range : ranges.subList(1, ranges.size())) {
+      if (range.getFirst() <= current.getLast() + 1) {
+        current = new ByteRange(current.getFirst(), Math.max(current.getLast(), range.getLast()));
+      } else {
+        coalesced.add(current);
+        current = range;
+      }
+    }
+    coalesced.add(current);
+    return coalesced;
+  }
+}
@@ -61,6 +61,14 @@ public class ETag implements ProtocolRepresentation {
     return '"' + data + '"';
   }
 
+  /**
+   * @param suffix identifies the representation, e.g. the content coding
+   * @return etag of the same kind for another representation of the same resource
+   */
+  public ETag withSuffix(String suffix) {
+    return new ETag(data + '-' + suffix, kind);
+  }
+
   public Kind getKind() {
     return kind;
   }
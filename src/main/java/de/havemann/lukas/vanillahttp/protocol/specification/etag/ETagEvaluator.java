@@ -42,6 +42,40 @@ public class ETagEvaluator {
     return true;
   }
 
+  /**
+   * Evaluates the If-Range header field of <a
+   * href="https://tools.ietf.org/html/rfc7233#section-3.2">RFC 7233</a>. An entity-tag must match
+   * with the strong comparison and a date must match the last modification date exactly.
+   *
+   * @return true, if the requested ranges should be sent. false, if the representation changed and
+   * the complete representation should be sent.
+   */
+  public boolean isRangeApplicable(@Nullable ETag currentETag,
+      @Nullable ZonedDateTime currentLastModified) {
+    final Optional<String> ifRange = httpHeader.getValueOf(HttpHeaderField.IF_RANGE)
+        .map(String::trim);
+    if (ifRange.isEmpty()) {
+      return true;
+    }
+
+    final String value = ifRange.get();
+    if (value.startsWith("\"") || value.startsWith(ETag.WEAK_TAG_PREFIX)) {
+      return currentETag != null && ETag.Kind.STRONG.compare(ETag.from(value), currentETag);
+    }
+
+    if (currentLastModified == null) {
+      return false;
+    }
+
+    try {
+      return ZonedDateTime.from(DateTimeFormatter.RFC_1123_DATE_TIME.parse(value)).toInstant()
+          .equals(currentLastModified.truncatedTo(ChronoUnit.SECONDS).toInstant());
+    } catch (RuntimeException e) {
+      LOG.error("Error during parsing of if range {}", value);
+      return false;
+    }
+  }
+
   public boolean isRequestLastModifiedOutdated(ZonedDateTime currentLastModified) {
     return getLastModified()
         .map(requestLastModified -> requestLastModified
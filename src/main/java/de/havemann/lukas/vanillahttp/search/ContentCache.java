@@ -0,0 +1,299 @@
+package de.havemann.lukas.vanillahttp.search;
+
+import de.havemann.lukas.vanillahttp.protocol.specification.MediaType;
+import de.havemann.lukas.vanillahttp.protocol.specification.etag.ETag;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.ZonedDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DataSizeUnit;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.util.unit.DataUnit;
+
+/**
+ * Optional cache of file content, which is bounded by the total size of the cached content.
+ * <p>
+ * Entries are evicted in least recently used order. A new entry is only admitted, if it was
+ * requested more often than all the entries, which would have to be evicted for it (TinyLFU). The
+ * request frequency is estimated by {@link FrequencySketch}. So a scan over many rarely requested
+ * files doesn't replace the hot set.
+ * <p>
+ * Entries of changed files are invalidated immediately, if they are reported by {@link
+ * FilesystemWatcher}.
+ */
+@Component
+@ManagedResource(objectName = "de.havemann.lukas.vanillahttp:type=ContentCache")
+public class ContentCache implements FileChangeListener {
+
+  // assumed min. average entry size for the dimensioning of the frequency sketch
+  private static final long AVERAGE_ENTRY_SIZE = 1024;
+  private static final int MAX_EXPECTED_ENTRIES = 1 << 22;
+
+  private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder rejections = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  @Value("${vanilla.server.filesystem.contentCache.enabled}")
+  private boolean enabled;
+
+  @DataSizeUnit(DataUnit.BYTES)
+  @Value("${vanilla.server.filesystem.contentCache.maxSize}")
+  private DataSize maxSize;
+
+  @DataSizeUnit(DataUnit.BYTES)
+  @Value("${vanilla.server.filesystem.contentCache.maxEntrySize}")
+  private DataSize maxEntrySize;
+
+  private FrequencySketch frequencySketch;
+  private long size;
+  private long lastChangeAt;
+
+  @PostConstruct
+  public void init() {
+    if (maxSize.isNegative() || maxEntrySize.isNegative()) {
+      throw new IllegalArgumentException("invalid content cache size");
+    }
+
+    frequencySketch = new FrequencySketch((int) Math.min(MAX_EXPECTED_ENTRIES,
+        maxSize.toBytes() / AVERAGE_ENTRY_SIZE));
+    lastChangeAt = System.nanoTime();
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Looks up the cached content and records the request for the admission of the key.
+   *
+   * @param key uri path of the requested content
+   * @return cached content
+   */
+  public synchronized Optional<Entry> get(String key) {
+    if (!enabled) {
+      return Optional.empty();
+    }
+
+    frequencySketch.increment(key);
+    final Entry entry = entries.get(key);
+    if (entry == null) {
+      misses.increment();
+      return Optional.empty();
+    }
+
+    hits.increment();
+    return Optional.of(entry);
+  }
+
+  /**
+   * Checks in advance, if content of given size would be admitted. Prevents loading of content,
+   * which is rejected anyway.
+   *
+   * @param key       uri path of the content
+   * @param entrySize size of the content in bytes
+   * @return true, if {@link #put} would accept the content at the moment
+   */
+  public synchronized boolean admits(String key, long entrySize) {
+    if (!enabled || entrySize > maxEntrySize.toBytes() || entrySize > maxSize.toBytes()) {
+      return false;
+    }
+
+    final int candidateFrequency = frequencySketch.frequency(key);
+    long available = maxSize.toBytes() - size;
+    final Iterator<Map.Entry<String, Entry>> leastRecentlyUsed = entries.entrySet().iterator();
+    while (available < entrySize && leastRecentlyUsed.hasNext()) {
+      final Map.Entry<String, Entry> victim = leastRecentlyUsed.next();
+      if (!victim.getKey().equals(key)
+          && frequencySketch.frequency(victim.getKey()) >= candidateFrequency) {
+        return false;
+      }
+      available += victim.getValue().getSize();
+    }
+
+    return available >= entrySize;
+  }
+
+  /**
+   * Adds the content to the cache, if it is admitted. Evicts least recently used entries to make
+   * room for the content. Content loaded before the last reported file change is rejected, because
+   * it may be outdated already.
+   *
+   * @param key   uri path of the content
+   * @param entry content
+   * @return true, if the content was added
+   */
+  public synchronized boolean put(String key, Entry entry) {
+    if (entry.getValidatedAt() - lastChangeAt < 0 || !admits(key, entry.getSize())) {
+      rejections.increment();
+      return false;
+    }
+
+    invalidate(key);
+    final Iterator<Entry> leastRecentlyUsed = entries.values().iterator();
+    while (size + entry.getSize() > maxSize.toBytes()) {
+      size -= leastRecentlyUsed.next().getSize();
+      leastRecentlyUsed.remove();
+      evictions.increment();
+    }
+
+    entries.put(key, entry);
+    size += entry.getSize();
+    return true;
+  }
+
+  public synchronized void invalidate(String key) {
+    final Entry removed = entries.remove(key);
+    if (removed != null) {
+      size -= removed.getSize();
+    }
+  }
+
+  /**
+   * Invalidates the content of the changed file and all files below a changed directory. A cached
+   * directory index is invalidated by changes of other index files too, because another index may
+   * now be served for the uri of the directory.
+   */
+  @Override
+  public synchronized void onChange(Path path) {
+    lastChangeAt = System.nanoTime();
+    final Iterator<Entry> iterator = entries.values().iterator();
+    while (iterator.hasNext()) {
+      final Entry entry = iterator.next();
+      if (entry.getPath().startsWith(path) || isSiblingIndex(entry.getPath(), path)) {
+        size -= entry.getSize();
+        iterator.remove();
+      }
+    }
+  }
+
+  private static boolean isSiblingIndex(Path file, Path changed) {
+    return isIndex(file) && isIndex(changed) && Objects.equals(file.getParent(),
+        changed.getParent());
+  }
+
+  private static boolean isIndex(Path path) {
+    return path.getFileName() != null && path.getFileName().toString().startsWith("index.htm");
+  }
+
+  @Override
+  public synchronized void onOverflow() {
+    lastChangeAt = System.nanoTime();
+    clear();
+  }
+
+  @ManagedOperation(description = "removes all cached content")
+  public synchronized void clear() {
+    entries.clear();
+    size = 0;
+  }
+
+  @ManagedAttribute(description = "number of cached files")
+  public synchronized int getEntryCount() {
+    return entries.size();
+  }
+
+  @ManagedAttribute(description = "size of all cached files in bytes")
+  public synchronized long getSize() {
+    return size;
+  }
+
+  @ManagedAttribute(description = "number of requests served from cache since startup")
+  public long getHits() {
+    return hits.sum();
+  }
+
+  @ManagedAttribute(description = "number of requests not found in cache since startup")
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  @ManagedAttribute(description = "number of files not admitted to the cache since startup")
+  public long getRejections() {
+    return rejections.sum();
+  }
+
+  @ManagedAttribute(description = "number of files evicted from the cache since startup")
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * Cached file content with the metadata needed to answer a request without filesystem access
+   */
+  public static final class Entry {
+
+    private final Path path;
+    private final byte[] content;
+    private final MediaType mediaType;
+    private final ETag eTag;
+    private final ZonedDateTime lastModified;
+    private final FileTime fileLastModified;
+    private volatile long validatedAt;
+
+    /**
+     * @param path             file the content was loaded from. normalized to an absolute path
+     * @param content          content of the file
+     * @param fileLastModified modification time of the file, when it was loaded
+     * @param validatedAt      {@link System#nanoTime()} before the load
+     */
+    public Entry(Path path, byte[] content, MediaType mediaType, ETag eTag,
+        ZonedDateTime lastModified, FileTime fileLastModified, long validatedAt) {
+      this.path = path.toAbsolutePath().normalize();
+      this.content = Objects.requireNonNull(content);
+      this.mediaType = mediaType;
+      this.eTag = eTag;
+      this.lastModified = lastModified;
+      this.fileLastModified = Objects.requireNonNull(fileLastModified);
+      this.validatedAt = validatedAt;
+    }
+
+    public Path getPath() {
+      return path;
+    }
+
+    public byte[] getContent() {
+      return content;
+    }
+
+    public long getSize() {
+      return content.length;
+    }
+
+    public MediaType getMediaType() {
+      return mediaType;
+    }
+
+    public ETag getETag() {
+      return eTag;
+    }
+
+    public ZonedDateTime getLastModified() {
+      return lastModified;
+    }
+
+    public FileTime getFileLastModified() {
+      return fileLastModified;
+    }
+
+    public long getValidatedAt() {
+      return validatedAt;
+    }
+
+    public void setValidatedAt(long validatedAt) {
+      this.validatedAt = validatedAt;
+    }
+  }
+}
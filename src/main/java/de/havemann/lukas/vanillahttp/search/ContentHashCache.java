@@ -0,0 +1,190 @@
+package de.havemann.lukas.vanillahttp.search;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of content hashes. An entry is identified by path, size and modification time of
+ * the hashed resource, so that a changed resource is hashed again and the outdated entry is evicted
+ * eventually. The least recently used entry is evicted, once the configured max number of entries
+ * is reached.
+ * <p>
+ * The hash is calculated outside of the lock, so concurrent misses for the same resource may
+ * calculate the hash more than once. Hashes of changed files are removed immediately, if they are
+ * reported by {@link FilesystemWatcher}.
+ */
+@Component
+@ManagedResource(objectName = "de.havemann.lukas.vanillahttp:type=ContentHashCache")
+public class ContentHashCache implements FileChangeListener {
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  @Value("${vanilla.server.filesystem.hashCache.maxEntries}")
+  private int maxEntries;
+
+  private Map<Key, byte[]> hashes;
+
+  @PostConstruct
+  public void init() {
+    if (maxEntries < 0) {
+      throw new IllegalArgumentException("invalid max entries of " + maxEntries);
+    }
+
+    hashes = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, byte[]> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  /**
+   * Returns the cached hash of the resource or calculates and caches it.
+   *
+   * @param key             identity of the resource version
+   * @param hashCalculation calculates the hash on a cache miss
+   * @return hash of the resource
+   */
+  public byte[] get(Key key, HashCalculation hashCalculation) throws IOException {
+    synchronized (hashes) {
+      final byte[] hash = hashes.get(key);
+      if (hash != null) {
+        hits.increment();
+        return hash;
+      }
+    }
+
+    misses.increment();
+    final byte[] hash = hashCalculation.calculate();
+    synchronized (hashes) {
+      hashes.put(key, hash);
+    }
+    return hash;
+  }
+
+  /**
+   * @return copy of all cached hashes
+   */
+  Map<Key, byte[]> snapshot() {
+    synchronized (hashes) {
+      return new HashMap<>(hashes);
+    }
+  }
+
+  @ManagedAttribute(description = "number of cached hashes")
+  public int getSize() {
+    synchronized (hashes) {
+      return hashes.size();
+    }
+  }
+
+  @ManagedAttribute(description = "number of requests served from cache since startup")
+  public long getHits() {
+    return hits.sum();
+  }
+
+  @ManagedAttribute(description = "number of calculated hashes since startup")
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  @Override
+  public void onChange(Path path) {
+    synchronized (hashes) {
+      hashes.keySet().removeIf(key -> key.path.startsWith(path));
+    }
+  }
+
+  @Override
+  public void onOverflow() {
+    clear();
+  }
+
+  @ManagedOperation(description = "removes all cached hashes")
+  public void clear() {
+    synchronized (hashes) {
+      hashes.clear();
+    }
+  }
+
+  /**
+   * Calculation of a hash, which is executed on a cache miss
+   */
+  @FunctionalInterface
+  public interface HashCalculation {
+
+    byte[] calculate() throws IOException;
+  }
+
+  /**
+   * Identifies a version of a resource by path, size and modification time
+   */
+  public static final class Key {
+
+    private final Path path;
+    private final long size;
+    private final FileTime lastModified;
+
+    /**
+     * @param path         path of the resource. normalized to an absolute path
+     * @param size         size of the resource in bytes
+     * @param lastModified modification time of the resource
+     */
+    public Key(Path path, long size, FileTime lastModified) {
+      this.path = path.toAbsolutePath().normalize();
+      this.size = size;
+      this.lastModified = Objects.requireNonNull(lastModified);
+    }
+
+    Path getPath() {
+      return path;
+    }
+
+    long getSize() {
+      return size;
+    }
+
+    FileTime getLastModified() {
+      return lastModified;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key key = (Key) o;
+      return size == key.size && path.equals(key.path) && lastModified.equals(key.lastModified);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(path, size, lastModified);
+    }
+
+    @Override
+    public String toString() {
+      return "Key{" +
+          "path=" + path +
+          ", size=" + size +
+          ", lastModified=" + lastModified +
+          '}';
+    }
+  }
+}
@@ -1,11 +1,20 @@
 package de.havemann.lukas.vanillahttp.search;
 
+import de.havemann.lukas.vanillahttp.protocol.response.BufferRegion;
+import de.havemann.lukas.vanillahttp.protocol.response.FileRegion;
+import de.havemann.lukas.vanillahttp.protocol.specification.ContentCoding;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpHeader;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpHeaderField;
 import de.havemann.lukas.vanillahttp.protocol.specification.HttpStatusCode;
 import de.havemann.lukas.vanillahttp.protocol.specification.MediaType;
+import de.havemann.lukas.vanillahttp.protocol.specification.etag.ETag;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 /**
  * Service for searching and loading content.
@@ -20,10 +29,24 @@ public interface ContentSearchService {
    */
   Response fetch(String uri);
 
+  /**
+   * Searches for a resource identified by the supplied uri and lists a page of the entries of a
+   * directory, if a {@link DirectoryListingQuery} is requested by the uri or header. Defaults to
+   * {@link #fetch(String)}, if machine-readable listings are not supported.
+   *
+   * @param uri        identifying the searched resource
+   * @param httpHeader header of the request, which may request a json listing
+   * @return result object with the json listing or the search result of the uri
+   */
+  default Response fetch(String uri, HttpHeader httpHeader) {
+    return fetch(uri);
+  }
+
   enum Result {
     FOUND(HttpStatusCode.OK),
     NOT_FOUND(HttpStatusCode.NOT_FOUND),
     PERMISSION_DENIED(HttpStatusCode.FORBIDDEN),
+    INVALID_REQUEST(HttpStatusCode.BAD_REQUEST),
     ERROR(HttpStatusCode.INTERNAL_SERVER_ERROR);
 
     // we are running inside a http server so http technology dependent elements in the api are okay.
@@ -52,6 +75,39 @@ public interface ContentSearchService {
      */
     Optional<InputStream> getInputStream();
 
+    /**
+     * Opens a file channel to the found resource, if the resource is a file. Allows zero copy
+     * transfer of the resource. The caller is responsible for closing the channel.
+     */
+    default Optional<FileChannel> getFileChannel() throws IOException {
+      return Optional.empty();
+    }
+
+    /**
+     * Buffer containing the found resource, e.g. a memory mapped file. Preferred over {@link
+     * #getFileChannel()}, if present.
+     */
+    default Optional<BufferRegion> getBufferRegion() throws IOException {
+      return Optional.empty();
+    }
+
+    /**
+     * Precompressed variant of the found resource, e.g. "style.css.gz" next to "style.css"
+     *
+     * @param coding content coding of the variant
+     * @return region of the variant or empty, if there is no up to date variant
+     */
+    default Optional<FileRegion> getPrecompressed(ContentCoding coding) throws IOException {
+      return Optional.empty();
+    }
+
+    /**
+     * @return size of the found resource in bytes, if known in advance
+     */
+    default OptionalLong getSize() {
+      return OptionalLong.empty();
+    }
+
     /**
      * Return Hash-Value of found resource. Call to method may lead to load of resource into memory
      * depending on specific implementation
@@ -60,9 +116,25 @@ public interface ContentSearchService {
      */
     Optional<byte[]> getHash() throws IOException;
 
+    /**
+     * Entity tag of found resource. Defaults to a strong etag of {@link #getHash()}.
+     *
+     * @return etag of found resource
+     */
+    default Optional<ETag> getETag() throws IOException {
+      return getHash().map(hash -> new ETag(hash, ETag.Kind.STRONG));
+    }
+
     /**
      * @return last modification date
      */
     Optional<ZonedDateTime> getLastModified();
+
+    /**
+     * @return request header fields, which select the representation of the found resource
+     */
+    default List<HttpHeaderField> getVary() {
+      return List.of();
+    }
   }
 }
@@ -1,17 +1,22 @@
 package de.havemann.lukas.vanillahttp.search;
 
-import java.io.File;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryIteratorException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Iterator;
 import java.util.Objects;
 
 /**
  * Simple class to render a html page which list all the files and subdirectories of a supplied
- * directory in a unstructured list.
+ * directory in a unstructured list. The page is rendered while the directory is iterated, so that
+ * the listing of a large directory is streamed without keeping the whole page in memory. The
+ * template is encoded once and file names are escaped for html and the link target.
  */
 public class DirectoryHtmlPage {
 
@@ -29,44 +34,211 @@ public class DirectoryHtmlPage {
       "</body>",
       "</html>");
 
+  private static final String DIRECTORY_PATH = "#directoryPath";
+  private static final String[] START_PAGE_SEGMENTS = START_PAGE.split(DIRECTORY_PATH, -1);
+  private static final byte[] END_PAGE_BYTES = END_PAGE.getBytes(StandardCharsets.UTF_8);
+  private static final byte[] LIST_ELEMENT_START =
+      "<li><a href=\"".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] LIST_ELEMENT_MIDDLE = "\">".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] LIST_ELEMENT_END = "</a>\n".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] DIRECTORY_SUFFIX = "/".getBytes(StandardCharsets.UTF_8);
+  private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+  // entries are rendered in batches of about this size
+  private static final int RENDER_SIZE = 8 * 1024;
 
   private final String directoryName;
-  private final OutputStream outputStream;
-  private final File directory;
+  private final Path directory;
 
-  public DirectoryHtmlPage(String directoryName, File directory, OutputStream outputStream) {
+  public DirectoryHtmlPage(String directoryName, Path directory) {
     this.directoryName = Objects.requireNonNull(directoryName);
     this.directory = Objects.requireNonNull(directory);
-    this.outputStream = Objects.requireNonNull(outputStream);
   }
 
-  public void render() throws IOException {
-    outputStream.write(
-        START_PAGE.replaceAll("#directoryPath", directoryName).getBytes(StandardCharsets.UTF_8));
-    renderFiles();
-    outputStream.write(END_PAGE.getBytes(StandardCharsets.UTF_8));
+  /**
+   * Renders the complete page
+   */
+  public void render(OutputStream outputStream) throws IOException {
+    try (InputStream page = open()) {
+      page.transferTo(outputStream);
+    }
+  }
+
+  /**
+   * @return stream of the page, which iterates the directory as the page is read. must be closed.
+   */
+  public InputStream open() throws IOException {
+    return new PageStream(Files.newDirectoryStream(directory));
   }
 
-  private void renderFiles() throws IOException {
-    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory.toPath())) {
-      for (Path path : stream) {
-        if (path.toFile().canRead()) {
-          outputStream.write(renderListElement(getFilename(path)));
+  static String escapeHtml(String value) {
+    StringBuilder escaped = null;
+    for (int i = 0; i < value.length(); i++) {
+      final String replacement = htmlReplacementOf(value.charAt(i));
+      if (replacement != null && escaped == null) {
+        escaped = new StringBuilder(value.length() + 16).append(value, 0, i);
+      }
+      if (escaped != null) {
+        if (replacement != null) {
+          escaped.append(replacement);
+        } else {
+          escaped.append(value.charAt(i));
         }
       }
     }
+    return escaped == null ? value : escaped.toString();
   }
 
-  private String getFilename(Path path) {
-    if (Files.isDirectory(path)) {
-      return path.getFileName().toString() + "/";
+  private static String htmlReplacementOf(char c) {
+    switch (c) {
+      case '&':
+        return "&amp;";
+      case '<':
+        return "&lt;";
+      case '>':
+        return "&gt;";
+      case '"':
+        return "&quot;";
+      case '\'':
+        return "&#39;";
+      default:
+        return null;
     }
+  }
 
-    return path.getFileName().toString();
+  /**
+   * @return file name as relative link target with percent encoded reserved characters
+   */
+  static String encodeLink(String fileName) {
+    final StringBuilder encoded = new StringBuilder(fileName.length() + 16);
+    for (byte b : fileName.getBytes(StandardCharsets.UTF_8)) {
+      final char c = (char) (b & 0xff);
+      if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+          || "-._~!$&'()*+,;=@".indexOf(c) >= 0) {
+        encoded.append(c);
+      } else {
+        encoded.append('%').append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xf]);
+      }
+    }
+    return encoded.toString();
   }
 
-  private byte[] renderListElement(String file) {
-    return "<li><a href=\"#file\">#file</a>\n".replaceAll("#file", file)
-        .getBytes(StandardCharsets.UTF_8);
+  /**
+   * Renders the next entries of the directory, as soon as the previously rendered bytes were read
+   */
+  private final class PageStream extends InputStream {
+
+    private final DirectoryStream<Path> entries;
+    private final Iterator<Path> iterator;
+    private final RenderBuffer rendered = new RenderBuffer();
+    private int position;
+    private boolean ended;
+
+    private PageStream(DirectoryStream<Path> entries) {
+      this.entries = entries;
+      this.iterator = entries.iterator();
+
+      final String escapedName = escapeHtml(directoryName);
+      for (int i = 0; i < START_PAGE_SEGMENTS.length; i++) {
+        if (i > 0) {
+          rendered.writeBytes(escapedName.getBytes(StandardCharsets.UTF_8));
+        }
+        rendered.writeBytes(START_PAGE_SEGMENTS[i].getBytes(StandardCharsets.UTF_8));
+      }
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (!hasRendered()) {
+        return -1;
+      }
+      return rendered.byteAt(position++);
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      Objects.checkFromIndexSize(offset, length, bytes.length);
+      if (length == 0) {
+        return 0;
+      }
+      if (!hasRendered()) {
+        return -1;
+      }
+
+      final int count = Math.min(length, rendered.size() - position);
+      rendered.copyTo(position, bytes, offset, count);
+      position += count;
+      return count;
+    }
+
+    /**
+     * @return false, if the page is completely read
+     */
+    private boolean hasRendered() throws IOException {
+      while (position == rendered.size()) {
+        if (ended) {
+          return false;
+        }
+        renderNextEntries();
+      }
+      return true;
+    }
+
+    private void renderNextEntries() throws IOException {
+      rendered.reset();
+      position = 0;
+      try {
+        while (rendered.size() < RENDER_SIZE && iterator.hasNext()) {
+          renderListElement(iterator.next());
+        }
+      } catch (DirectoryIteratorException ex) {
+        throw ex.getCause();
+      }
+
+      if (!iterator.hasNext()) {
+        rendered.writeBytes(END_PAGE_BYTES);
+        ended = true;
+      }
+    }
+
+    private void renderListElement(Path path) {
+      final String fileName = path.getFileName().toString();
+      final boolean isDirectory = Files.isDirectory(path);
+
+      rendered.writeBytes(LIST_ELEMENT_START);
+      rendered.writeBytes(escapeHtml(encodeLink(fileName)).getBytes(StandardCharsets.UTF_8));
+      if (isDirectory) {
+        rendered.writeBytes(DIRECTORY_SUFFIX);
+      }
+      rendered.writeBytes(LIST_ELEMENT_MIDDLE);
+      rendered.writeBytes(escapeHtml(fileName).getBytes(StandardCharsets.UTF_8));
+      if (isDirectory) {
+        rendered.writeBytes(DIRECTORY_SUFFIX);
+      }
+      rendered.writeBytes(LIST_ELEMENT_END);
+    }
+
+    @Override
+    public void close() throws IOException {
+      entries.close();
+    }
+  }
+
+  /**
+   * Buffer of the rendered bytes, which are read without copying them into a new array
+   */
+  private static final class RenderBuffer extends ByteArrayOutputStream {
+
+    private RenderBuffer() {
+      super(RENDER_SIZE + 1024);
+    }
+
+    int byteAt(int index) {
+      return buf[index] & 0xff;
+    }
+
+    void copyTo(int index, byte[] target, int offset, int length) {
+      System.arraycopy(buf, index, target, offset, length);
+    }
   }
 }
@@ -0,0 +1,193 @@
+package de.havemann.lukas.vanillahttp.search;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Entries of a directory in ascending order of a {@link DirectoryListingQuery.SortKey}. A page of
+ * the directory is found with a binary search for the cursor of the previous page instead of
+ * iterating the directory from the start. The cursor contains the sort value and name of an entry,
+ * so that it stays valid, even if the entry is removed. Immutable.
+ */
+final class DirectoryIndex {
+
+  // approximated memory of an entry without the characters of its name
+  private static final int ENTRY_OVERHEAD = 96;
+
+  private final DirectoryListingQuery.SortKey sortKey;
+  private final Entry[] entries;
+  private final long estimatedSize;
+
+  private DirectoryIndex(DirectoryListingQuery.SortKey sortKey, Entry[] entries) {
+    this.sortKey = sortKey;
+    this.entries = entries;
+    long size = 0;
+    for (Entry entry : entries) {
+      size += ENTRY_OVERHEAD + entry.name.length();
+    }
+    this.estimatedSize = size;
+  }
+
+  /**
+   * Reads the name and attributes of all entries of the directory. Entries, which are removed
+   * while the directory is read, are skipped.
+   */
+  static DirectoryIndex of(Path directory, DirectoryListingQuery.SortKey sortKey)
+      throws IOException {
+    final List<Entry> entries = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+      for (Path path : stream) {
+        try {
+          final BasicFileAttributes attributes = Files.readAttributes(path,
+              BasicFileAttributes.class);
+          entries.add(new Entry(path.getFileName().toString(), attributes.isDirectory(),
+              attributes.size(), attributes.lastModifiedTime().toMillis()));
+        } catch (NoSuchFileException ex) {
+          // removed in the meantime
+        }
+      }
+    } catch (DirectoryIteratorException ex) {
+      throw ex.getCause();
+    }
+
+    final Entry[] sorted = entries.toArray(new Entry[0]);
+    Arrays.sort(sorted, sortKey.getComparator());
+    return new DirectoryIndex(sortKey, sorted);
+  }
+
+  /**
+   * @return entries of the page selected by order, limit and cursor of the query
+   * @throws IllegalArgumentException if the cursor is invalid
+   */
+  Page page(DirectoryListingQuery query) {
+    final boolean descending = query.isDescending();
+    int start = descending ? entries.length - 1 : 0;
+    if (query.getAfter().isPresent()) {
+      final int position = Arrays.binarySearch(entries, decodeCursor(query.getAfter().get()),
+          sortKey.getComparator());
+      final int insertionPoint = position >= 0 ? position : -position - 1;
+      if (descending) {
+        start = insertionPoint - 1;
+      } else {
+        start = position >= 0 ? position + 1 : insertionPoint;
+      }
+    }
+
+    final int step = descending ? -1 : 1;
+    final List<Entry> page = new ArrayList<>(Math.min(query.getLimit(), entries.length));
+    int index = start;
+    for (; index >= 0 && index < entries.length && page.size() < query.getLimit(); index += step) {
+      page.add(entries[index]);
+    }
+
+    final boolean hasNext = index >= 0 && index < entries.length;
+    return new Page(Collections.unmodifiableList(page),
+        hasNext ? cursorOf(page.get(page.size() - 1)) : null);
+  }
+
+  private String cursorOf(Entry entry) {
+    final String cursor = sortKey.valueOf(entry) + "/" + entry.name;
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static Entry decodeCursor(String cursor) {
+    final String decoded = new String(Base64.getUrlDecoder().decode(cursor),
+        StandardCharsets.UTF_8);
+    final int separator = decoded.indexOf('/');
+    if (separator < 0) {
+      throw new IllegalArgumentException("invalid cursor " + cursor);
+    }
+
+    // names never contain a slash
+    final long value = Long.parseLong(decoded.substring(0, separator));
+    final String name = decoded.substring(separator + 1);
+    return new Entry(name, false, value, value);
+  }
+
+  int getEntryCount() {
+    return entries.length;
+  }
+
+  /**
+   * @return approximated memory of the index in bytes
+   */
+  long getEstimatedSize() {
+    return estimatedSize;
+  }
+
+  /**
+   * Name and attributes of a directory entry
+   */
+  static final class Entry {
+
+    private final String name;
+    private final boolean directory;
+    private final long size;
+    private final long lastModified;
+
+    Entry(String name, boolean directory, long size, long lastModified) {
+      this.name = Objects.requireNonNull(name);
+      this.directory = directory;
+      this.size = size;
+      this.lastModified = lastModified;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    boolean isDirectory() {
+      return directory;
+    }
+
+    long getSize() {
+      return size;
+    }
+
+    /**
+     * @return modification time in milliseconds since epoch
+     */
+    long getLastModified() {
+      return lastModified;
+    }
+  }
+
+  /**
+   * Entries of a page and the cursor of the next page
+   */
+  static final class Page {
+
+    private final List<Entry> entries;
+    private final String next;
+
+    private Page(List<Entry> entries, String next) {
+      this.entries = entries;
+      this.next = next;
+    }
+
+    List<Entry> getEntries() {
+      return entries;
+    }
+
+    /**
+     * @return cursor of the next page or empty, if this is the last page
+     */
+    Optional<String> getNext() {
+      return Optional.ofNullable(next);
+    }
+  }
+}
@@ -0,0 +1,193 @@
+package de.havemann.lukas.vanillahttp.search;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DataSizeUnit;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.util.unit.DataUnit;
+
+/**
+ * Bounded cache of sorted {@link DirectoryIndex}es, so that paging through a large directory scans
+ * the directory only once per sort order. An index is valid as long as the modification time of
+ * the directory is unchanged and it is younger than the supplied max age, since size and
+ * modification time of an entry change without changing the directory. The least recently used
+ * indexes are evicted, once the configured max size is reached.
+ * <p>
+ * Indexes of changed directories and entries are removed immediately, if they are reported by
+ * {@link FilesystemWatcher}. The directory is scanned outside of the lock, so concurrent misses for
+ * the same directory may scan it more than once.
+ */
+@Component
+@ManagedResource(objectName = "de.havemann.lukas.vanillahttp:type=DirectoryIndexCache")
+public class DirectoryIndexCache implements FileChangeListener {
+
+  private final Map<Key, Indexed> indexes = new LinkedHashMap<>(16, 0.75f, true);
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  @DataSizeUnit(DataUnit.BYTES)
+  @Value("${vanilla.server.filesystem.indexCache.maxSize}")
+  private DataSize maxSize;
+
+  private long size;
+
+  @PostConstruct
+  public void init() {
+    if (maxSize.isNegative()) {
+      throw new IllegalArgumentException("invalid index cache size of " + maxSize);
+    }
+  }
+
+  /**
+   * Returns the cached index or scans the directory and caches its index.
+   *
+   * @param directory    path of the directory
+   * @param sortKey      sort order of the index
+   * @param lastModified modification time of the directory before it is scanned
+   * @param maxAge       max age of a cached index
+   * @return index of the directory
+   */
+  DirectoryIndex get(Path directory, DirectoryListingQuery.SortKey sortKey,
+      FileTime lastModified, Duration maxAge) throws IOException {
+    final Key key = new Key(directory, sortKey);
+    final long now = System.nanoTime();
+    synchronized (indexes) {
+      final Indexed indexed = indexes.get(key);
+      if (indexed != null && indexed.lastModified.equals(lastModified)
+          && now - indexed.scannedAt < maxAge.toNanos()) {
+        hits.increment();
+        return indexed.index;
+      }
+    }
+
+    misses.increment();
+    final DirectoryIndex index = DirectoryIndex.of(directory, sortKey);
+    put(key, new Indexed(lastModified, now, index));
+    return index;
+  }
+
+  private void put(Key key, Indexed indexed) {
+    if (indexed.index.getEstimatedSize() > maxSize.toBytes()) {
+      return;
+    }
+
+    synchronized (indexes) {
+      final Indexed previous = indexes.put(key, indexed);
+      size += indexed.index.getEstimatedSize()
+          - (previous == null ? 0 : previous.index.getEstimatedSize());
+
+      final Iterator<Indexed> leastRecentlyUsed = indexes.values().iterator();
+      while (size > maxSize.toBytes()) {
+        size -= leastRecentlyUsed.next().index.getEstimatedSize();
+        leastRecentlyUsed.remove();
+      }
+    }
+  }
+
+  @ManagedAttribute(description = "number of cached indexes")
+  public int getEntryCount() {
+    synchronized (indexes) {
+      return indexes.size();
+    }
+  }
+
+  @ManagedAttribute(description = "approximated memory of all cached indexes in bytes")
+  public long getSize() {
+    synchronized (indexes) {
+      return size;
+    }
+  }
+
+  @ManagedAttribute(description = "number of pages served from a cached index since startup")
+  public long getHits() {
+    return hits.sum();
+  }
+
+  @ManagedAttribute(description = "number of scanned directories since startup")
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  @Override
+  public void onChange(Path path) {
+    synchronized (indexes) {
+      final Iterator<Map.Entry<Key, Indexed>> entries = indexes.entrySet().iterator();
+      while (entries.hasNext()) {
+        final Map.Entry<Key, Indexed> entry = entries.next();
+        final Path directory = entry.getKey().directory;
+        // attributes of an entry are part of the index of its parent
+        if (directory.startsWith(path) || directory.equals(path.getParent())) {
+          size -= entry.getValue().index.getEstimatedSize();
+          entries.remove();
+        }
+      }
+    }
+  }
+
+  @Override
+  public void onOverflow() {
+    clear();
+  }
+
+  @ManagedOperation(description = "removes all cached indexes")
+  public void clear() {
+    synchronized (indexes) {
+      indexes.clear();
+      size = 0;
+    }
+  }
+
+  private static final class Indexed {
+
+    private final FileTime lastModified;
+    private final long scannedAt;
+    private final DirectoryIndex index;
+
+    private Indexed(FileTime lastModified, long scannedAt, DirectoryIndex index) {
+      this.lastModified = Objects.requireNonNull(lastModified);
+      this.scannedAt = scannedAt;
+      this.index = Objects.requireNonNull(index);
+    }
+  }
+
+  private static final class Key {
+
+    private final Path directory;
+    private final DirectoryListingQuery.SortKey sortKey;
+
+    private Key(Path directory, DirectoryListingQuery.SortKey sortKey) {
+      this.directory = Objects.requireNonNull(directory);
+      this.sortKey = Objects.requireNonNull(sortKey);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key key = (Key) o;
+      return sortKey == key.sortKey && directory.equals(key.directory);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(directory, sortKey);
+    }
+  }
+}
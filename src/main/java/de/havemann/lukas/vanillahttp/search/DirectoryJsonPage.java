@@ -0,0 +1,66 @@
+package de.havemann.lukas.vanillahttp.search;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Renders a page of a {@link DirectoryIndex} as machine-readable json listing with name, type,
+ * size and modification time of the entries and the cursor of the next page, e.g.
+ * <pre>
+ * {"directory":"/dir","entries":[{"name":"a.txt","type":"file","size":12,
+ * "lastModified":"2021-05-01T10:00:00Z"}],"next":"MC9hLnR4dA"}
+ * </pre>
+ */
+final class DirectoryJsonPage {
+
+  private final String directoryName;
+  private final DirectoryIndex.Page page;
+
+  DirectoryJsonPage(String directoryName, DirectoryIndex.Page page) {
+    this.directoryName = Objects.requireNonNull(directoryName);
+    this.page = Objects.requireNonNull(page);
+  }
+
+  byte[] render() {
+    final StringBuilder json = new StringBuilder(64 + page.getEntries().size() * 96);
+    json.append("{\"directory\":");
+    appendString(json, directoryName);
+    json.append(",\"entries\":[");
+    for (int i = 0; i < page.getEntries().size(); i++) {
+      final DirectoryIndex.Entry entry = page.getEntries().get(i);
+      if (i > 0) {
+        json.append(',');
+      }
+      json.append("{\"name\":");
+      appendString(json, entry.getName());
+      json.append(",\"type\":\"").append(entry.isDirectory() ? "directory" : "file")
+          .append("\",\"size\":").append(entry.getSize())
+          .append(",\"lastModified\":\"").append(Instant.ofEpochMilli(entry.getLastModified()))
+          .append("\"}");
+    }
+    json.append("],\"next\":");
+    if (page.getNext().isPresent()) {
+      appendString(json, page.getNext().get());
+    } else {
+      json.append("null");
+    }
+    json.append('}');
+    return json.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  static void appendString(StringBuilder json, String value) {
+    json.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        json.append('\\').append(c);
+      } else if (c < 0x20) {
+        json.append(String.format("\\u%04x", (int) c));
+      } else {
+        json.append(c);
+      }
+    }
+    json.append('"');
+  }
+}
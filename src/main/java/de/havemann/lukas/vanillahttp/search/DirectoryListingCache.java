@@ -0,0 +1,220 @@
+package de.havemann.lukas.vanillahttp.search;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DataSizeUnit;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.util.unit.DataUnit;
+
+/**
+ * Bounded cache of rendered directory listings. A listing is valid as long as the modification
+ * time of the directory is unchanged, which changes as soon as an entry is added, removed or
+ * renamed. A listing is captured while it is streamed to the first client, so that a listing is
+ * never rendered only for the cache. The least recently used listings are evicted, once the
+ * configured max size is reached.
+ * <p>
+ * Listings of changed directories are removed immediately, if they are reported by {@link
+ * FilesystemWatcher}.
+ */
+@Component
+@ManagedResource(objectName = "de.havemann.lukas.vanillahttp:type=DirectoryListingCache")
+public class DirectoryListingCache implements FileChangeListener {
+
+  private final Map<Path, Listing> listings = new LinkedHashMap<>(16, 0.75f, true);
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  @DataSizeUnit(DataUnit.BYTES)
+  @Value("${vanilla.server.filesystem.listingCache.maxSize}")
+  private DataSize maxSize;
+
+  @DataSizeUnit(DataUnit.BYTES)
+  @Value("${vanilla.server.filesystem.listingCache.maxEntrySize}")
+  private DataSize maxEntrySize;
+
+  private long size;
+
+  @PostConstruct
+  public void init() {
+    if (maxSize.isNegative() || maxEntrySize.isNegative()
+        || maxEntrySize.toBytes() > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("invalid listing cache size");
+    }
+  }
+
+  /**
+   * @param directory    path of the directory
+   * @param lastModified current modification time of the directory
+   * @return cached listing, which must not be modified, or empty if the directory changed
+   */
+  public Optional<byte[]> get(Path directory, FileTime lastModified) {
+    synchronized (listings) {
+      final Listing listing = listings.get(directory);
+      if (listing != null && listing.lastModified.equals(lastModified)) {
+        hits.increment();
+        return Optional.of(listing.page);
+      }
+    }
+
+    misses.increment();
+    return Optional.empty();
+  }
+
+  /**
+   * @param directory    path of the directory
+   * @param lastModified modification time of the directory before the listing was rendered
+   * @param page         stream of the rendered listing
+   * @return stream of the listing, which caches the listing as soon as it is read completely
+   */
+  public InputStream capture(Path directory, FileTime lastModified, InputStream page) {
+    return new CapturingStream(page, directory, lastModified);
+  }
+
+  private void put(Path directory, FileTime lastModified, byte[] page) {
+    if (page.length > maxEntrySize.toBytes() || page.length > maxSize.toBytes()) {
+      return;
+    }
+
+    synchronized (listings) {
+      final Listing previous = listings.put(directory, new Listing(lastModified, page));
+      size += page.length - (previous == null ? 0 : previous.page.length);
+
+      final Iterator<Listing> leastRecentlyUsed = listings.values().iterator();
+      while (size > maxSize.toBytes()) {
+        size -= leastRecentlyUsed.next().page.length;
+        leastRecentlyUsed.remove();
+      }
+    }
+  }
+
+  @ManagedAttribute(description = "number of cached listings")
+  public int getEntryCount() {
+    synchronized (listings) {
+      return listings.size();
+    }
+  }
+
+  @ManagedAttribute(description = "size of all cached listings in bytes")
+  public long getSize() {
+    synchronized (listings) {
+      return size;
+    }
+  }
+
+  @ManagedAttribute(description = "number of listings served from cache since startup")
+  public long getHits() {
+    return hits.sum();
+  }
+
+  @ManagedAttribute(description = "number of rendered listings since startup")
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  @Override
+  public void onChange(Path path) {
+    synchronized (listings) {
+      final Iterator<Map.Entry<Path, Listing>> entries = listings.entrySet().iterator();
+      while (entries.hasNext()) {
+        final Map.Entry<Path, Listing> entry = entries.next();
+        if (entry.getKey().startsWith(path) || entry.getKey().equals(path.getParent())) {
+          size -= entry.getValue().page.length;
+          entries.remove();
+        }
+      }
+    }
+  }
+
+  @Override
+  public void onOverflow() {
+    clear();
+  }
+
+  @ManagedOperation(description = "removes all cached listings")
+  public void clear() {
+    synchronized (listings) {
+      listings.clear();
+      size = 0;
+    }
+  }
+
+  private static final class Listing {
+
+    private final FileTime lastModified;
+    private final byte[] page;
+
+    private Listing(FileTime lastModified, byte[] page) {
+      this.lastModified = Objects.requireNonNull(lastModified);
+      this.page = Objects.requireNonNull(page);
+    }
+  }
+
+  /**
+   * Copies the streamed listing, until it exceeds the max entry size
+   */
+  private final class CapturingStream extends FilterInputStream {
+
+    private final Path directory;
+    private final FileTime lastModified;
+    private ByteArrayOutputStream captured = new ByteArrayOutputStream();
+
+    private CapturingStream(InputStream page, Path directory, FileTime lastModified) {
+      super(page);
+      this.directory = directory;
+      this.lastModified = lastModified;
+    }
+
+    @Override
+    public int read() throws IOException {
+      final int read = super.read();
+      if (read == -1) {
+        complete();
+      } else if (capturing(1)) {
+        captured.write(read);
+      }
+      return read;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      final int read = super.read(bytes, offset, length);
+      if (read == -1) {
+        complete();
+      } else if (capturing(read)) {
+        captured.write(bytes, offset, read);
+      }
+      return read;
+    }
+
+    private boolean capturing(int count) {
+      if (captured != null && captured.size() + count > maxEntrySize.toBytes()) {
+        // too large for the cache
+        captured = null;
+      }
+      return captured != null;
+    }
+
+    private void complete() {
+      if (captured != null) {
+        put(directory, lastModified, captured.toByteArray());
+        captured = null;
+      }
+    }
+  }
+}
@@ -0,0 +1,153 @@
+package de.havemann.lukas.vanillahttp.search;
+
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpHeader;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpHeaderField;
+import de.havemann.lukas.vanillahttp.protocol.specification.MediaType;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Query of a machine-readable json directory listing. The json listing is requested with the query
+ * parameter "format=json" or the Accept header field. A page of the listing is selected with
+ * "sort" (name, size or mtime), "order" (asc or desc), "limit" and the cursor "after", which is
+ * the "next" cursor of the previous page.
+ */
+public final class DirectoryListingQuery {
+
+  public static final int DEFAULT_LIMIT = 1000;
+  public static final int MAX_LIMIT = 10_000;
+
+  private static final String FORMAT = "format";
+  private static final String JSON_FORMAT = "json";
+
+  private final SortKey sortKey;
+  private final boolean descending;
+  private final int limit;
+  private final String after;
+
+  DirectoryListingQuery(SortKey sortKey, boolean descending, int limit, String after) {
+    this.sortKey = sortKey;
+    this.descending = descending;
+    this.limit = limit;
+    this.after = after;
+  }
+
+  /**
+   * Invalid sort, order and limit parameters are replaced by their defaults.
+   *
+   * @param uri        requested uri including the query
+   * @param httpHeader header of the request
+   * @return query of the json listing or empty, if a html listing is requested
+   */
+  public static Optional<DirectoryListingQuery> of(String uri, HttpHeader httpHeader) {
+    final Map<String, String> parameters = parseQuery(URI.create(uri).getRawQuery());
+    final String format = parameters.get(FORMAT);
+    final boolean acceptsJson = httpHeader.getValues(HttpHeaderField.ACCEPT)
+        .anyMatch(value -> value.startsWith(MediaType.JSON.getRepresentation()));
+    if (format != null ? !JSON_FORMAT.equalsIgnoreCase(format) : !acceptsJson) {
+      return Optional.empty();
+    }
+
+    return Optional.of(new DirectoryListingQuery(
+        SortKey.fromParameter(parameters.get("sort")).orElse(SortKey.NAME),
+        "desc".equalsIgnoreCase(parameters.get("order")),
+        parseLimit(parameters.get("limit")),
+        parameters.get("after")));
+  }
+
+  private static Map<String, String> parseQuery(String rawQuery) {
+    final Map<String, String> parameters = new HashMap<>();
+    if (rawQuery == null) {
+      return parameters;
+    }
+
+    for (String parameter : rawQuery.split("&")) {
+      final int separator = parameter.indexOf('=');
+      if (separator > 0) {
+        parameters.putIfAbsent(parameter.substring(0, separator),
+            URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8));
+      }
+    }
+    return parameters;
+  }
+
+  private static int parseLimit(String limit) {
+    try {
+      return limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(Integer.parseInt(limit),
+          MAX_LIMIT));
+    } catch (NumberFormatException ex) {
+      return DEFAULT_LIMIT;
+    }
+  }
+
+  public SortKey getSortKey() {
+    return sortKey;
+  }
+
+  public boolean isDescending() {
+    return descending;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  /**
+   * @return cursor of the last entry of the previous page or empty for the first page
+   */
+  public Optional<String> getAfter() {
+    return Optional.ofNullable(after);
+  }
+
+  /**
+   * Sort order of a listing. Entries with the same size or modification time are sorted by name,
+   * so that every entry has a unique position.
+   */
+  public enum SortKey {
+    NAME("name", Comparator.comparing(DirectoryIndex.Entry::getName)),
+    SIZE("size", Comparator.comparingLong(DirectoryIndex.Entry::getSize)
+        .thenComparing(DirectoryIndex.Entry::getName)),
+    LAST_MODIFIED("mtime", Comparator.comparingLong(DirectoryIndex.Entry::getLastModified)
+        .thenComparing(DirectoryIndex.Entry::getName));
+
+    private final String parameter;
+    private final Comparator<DirectoryIndex.Entry> comparator;
+
+    SortKey(String parameter, Comparator<DirectoryIndex.Entry> comparator) {
+      this.parameter = parameter;
+      this.comparator = comparator;
+    }
+
+    static Optional<SortKey> fromParameter(String parameter) {
+      for (SortKey sortKey : values()) {
+        if (sortKey.parameter.equalsIgnoreCase(parameter)) {
+          return Optional.of(sortKey);
+        }
+      }
+      return Optional.empty();
+    }
+
+    Comparator<DirectoryIndex.Entry> getComparator() {
+      return comparator;
+    }
+
+    /**
+     * @return value of the entry, which is compared before the name
+     */
+    long valueOf(DirectoryIndex.Entry entry) {
+      switch (this) {
+        case SIZE:
+          return entry.getSize();
+        case LAST_MODIFIED:
+          return entry.getLastModified();
+        default:
+          return 0;
+      }
+    }
+  }
+}
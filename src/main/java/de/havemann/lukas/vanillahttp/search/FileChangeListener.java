@@ -0,0 +1,24 @@
+package de.havemann.lukas.vanillahttp.search;
+
+import java.nio.file.Path;
+
+/**
+ * Listener for changes in the base directory, which are detected by {@link FilesystemWatcher}.
+ * Implemented by caches, which have to invalidate their entries for changed files.
+ */
+public interface FileChangeListener {
+
+  /**
+   * Called after a file or directory was created, modified or deleted. A changed directory
+   * includes all files and directories below it.
+   *
+   * @param path absolute and normalized path of the changed file or directory
+   */
+  void onChange(Path path);
+
+  /**
+   * Called if changes may have been missed, e.g. on an overflow of the event queue. All entries
+   * have to be revalidated.
+   */
+  void onOverflow();
+}
@@ -1,48 +1,102 @@
 package de.havemann.lukas.vanillahttp.search;
 
+import de.havemann.lukas.vanillahttp.protocol.response.BufferRegion;
+import de.havemann.lukas.vanillahttp.protocol.response.FileRegion;
+import de.havemann.lukas.vanillahttp.protocol.specification.ContentCoding;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpHeader;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpHeaderField;
 import de.havemann.lukas.vanillahttp.protocol.specification.MediaType;
+import de.havemann.lukas.vanillahttp.protocol.specification.etag.ETag;
+import de.havemann.lukas.vanillahttp.search.PathResolutionCache.Resolution;
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
-import java.util.Arrays;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.PostConstruct;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.convert.DataSizeUnit;
+import org.springframework.boot.convert.DurationUnit;
 import org.springframework.stereotype.Service;
-import org.springframework.util.unit.DataSize;
-import org.springframework.util.unit.DataUnit;
 
 /**
  * Searches for content in the filesystem by converting the supplied URI into a filesystem url.
  * Files are searched in a configurable base directory. Supplied URIs are checked, that no filed
- * outside of the configured basedir can be accessed. If a directory is requested, {@link
- * FilesystemContentSearchService} generates with {@link DirectoryHtmlPage} a html page containing
- * all files and sub directories of the requested directory.
+ * outside of the configured basedir can be accessed. Resolved request paths are cached in the
+ * {@link PathResolutionCache}. If a directory is requested, {@link FilesystemContentSearchService}
+ * generates with {@link DirectoryHtmlPage} a html page containing all files and sub directories of
+ * the requested directory. The page is streamed while the
+ * directory is iterated and cached in the {@link DirectoryListingCache}. Pages of a json listing
+ * are read from a sorted index of the {@link DirectoryIndexCache}. The ETag of files is generated
+ * according to the configured {@link ETagStrategy}. Content hashes are cached in {@link
+ * ContentHashCache}.
+ * <p>
+ * If the {@link ContentCache} is enabled, frequently requested files are served from memory. While
+ * the base directory is watched by {@link FilesystemWatcher}, cached files are invalidated on change
+ * notifications. Otherwise a cached file is revalidated with its size and modification time, once
+ * the configured revalidation interval has passed. Large files are served from memory mapped
+ * regions of the {@link MappedFileCache}, if it is enabled. Precompressed siblings of a file like
+ * "style.css.gz" are offered as variants of the file, as long as they are not older than the file.
+ * Concurrent loads and hash calculations of the same file version are coalesced by {@link
+ * SingleFlight}. Hashes of unchanged files are reused from the {@link HashManifest} after a
+ * restart.
  */
 @Service
 class FilesystemContentSearchService implements ContentSearchService {
 
   private static final Logger LOG = LoggerFactory.getLogger(FilesystemContentSearchService.class);
-
-  @DataSizeUnit(DataUnit.BYTES)
-  @Value("${vanilla.server.filesystem.maxInMemory}")
-  private DataSize maxInMemoryFileSize;
+  private static final Map<ContentCoding, String> PRECOMPRESSED_EXTENSIONS = Map.of(
+      ContentCoding.GZIP, ".gz",
+      ContentCoding.DEFLATE, ".zz");
+  static final List<String> INDEX_FILE_NAMES = List.of("index.html", "index.htm");
+  private static final HttpHeader NO_HEADER = new HttpHeader(Map.of());
+  private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+  private final ContentHashCache contentHashCache;
+  private final ContentCache contentCache;
+  private final FilesystemWatcher filesystemWatcher;
+  private final MappedFileCache mappedFileCache;
+  private final DirectoryListingCache directoryListingCache;
+  private final DirectoryIndexCache directoryIndexCache;
+  private final PathResolutionCache pathResolutionCache;
+  private final NegativeLookupCache negativeLookupCache;
+  private final SingleFlight singleFlight;
+  private final HashManifest hashManifest;
+  // shared by all requests for missing paths
+  private final Response notFoundResponse = new InMemoryResponse(Result.NOT_FOUND);
+
+  @Value("${vanilla.server.filesystem.eTag}")
+  private ETagStrategy eTagStrategy;
+
+  @DurationUnit(ChronoUnit.MILLIS)
+  @Value("${vanilla.server.filesystem.contentCache.revalidateAfter}")
+  private Duration revalidateAfter;
 
   @Value("${vanilla.server.filesystem.basedir}")
   private String basedir;
@@ -57,14 +111,69 @@ class FilesystemContentSearchService implements ContentSearchService {
     }
   }
 
+  FilesystemContentSearchService(@Autowired ContentHashCache contentHashCache,
+      @Autowired ContentCache contentCache, @Autowired FilesystemWatcher filesystemWatcher,
+      @Autowired MappedFileCache mappedFileCache,
+      @Autowired DirectoryListingCache directoryListingCache,
+      @Autowired DirectoryIndexCache directoryIndexCache,
+      @Autowired PathResolutionCache pathResolutionCache,
+      @Autowired NegativeLookupCache negativeLookupCache,
+      @Autowired SingleFlight singleFlight, @Autowired HashManifest hashManifest) {
+    this.contentHashCache = Objects.requireNonNull(contentHashCache);
+    this.contentCache = Objects.requireNonNull(contentCache);
+    this.filesystemWatcher = Objects.requireNonNull(filesystemWatcher);
+    this.mappedFileCache = Objects.requireNonNull(mappedFileCache);
+    this.directoryListingCache = Objects.requireNonNull(directoryListingCache);
+    this.directoryIndexCache = Objects.requireNonNull(directoryIndexCache);
+    this.pathResolutionCache = Objects.requireNonNull(pathResolutionCache);
+    this.negativeLookupCache = Objects.requireNonNull(negativeLookupCache);
+    this.singleFlight = Objects.requireNonNull(singleFlight);
+    this.hashManifest = Objects.requireNonNull(hashManifest);
+  }
+
   @PostConstruct
   public void init() {
     baseDirPath = new File(basedir).toPath().toAbsolutePath().normalize();
   }
 
+  /**
+   * Returns the cached hash, the persisted hash of the {@link HashManifest} or calculates the hash.
+   * Concurrent misses for the same file version share one hash calculation.
+   */
+  private byte[] hashOf(ContentHashCache.Key hashKey,
+      ContentHashCache.HashCalculation hashCalculation) throws IOException {
+    return contentHashCache.get(hashKey, () -> {
+      final Optional<byte[]> persisted = hashManifest.get(hashKey);
+      if (persisted.isPresent()) {
+        return persisted.get();
+      }
+      return singleFlight.execute(SingleFlight.keyOf("hash", hashKey),
+          hashCalculation::calculate, hashCalculation::calculate);
+    });
+  }
+
+  /**
+   * @return absolute and normalized path of the base directory
+   */
+  Path getBaseDirPath() {
+    return baseDirPath;
+  }
+
   public Response fetch(String uri) {
+    return fetch(uri, NO_HEADER);
+  }
+
+  /**
+   * Lists a page of a directory as json, if a listing would be generated for the uri and a {@link
+   * DirectoryListingQuery} is requested. The query is only parsed for such directories.
+   */
+  @Override
+  public Response fetch(String uri, HttpHeader httpHeader) {
     try {
-      return internalFetch(uri);
+      if (contentCache.isEnabled()) {
+        return fetchCached(uri, httpHeader);
+      }
+      return internalFetch(uri, httpHeader);
     } catch (IOException ex) {
       LOG.error("error during processing of search", ex);
     }
@@ -72,76 +181,238 @@ class FilesystemContentSearchService implements ContentSearchService {
     return new InMemoryResponse(Result.ERROR);
   }
 
-  @NotNull
-  private Response internalFetch(String uri) throws IOException {
-    final File file = getFile(uri);
+  private Response listDirectory(String uri, Path directory, DirectoryListingQuery query) {
+    try {
+      final BasicFileAttributes attributes = Files.readAttributes(directory,
+          BasicFileAttributes.class);
+      // without change notifications, changed sizes of entries are detected by revalidation
+      final Duration maxAge = filesystemWatcher.isWatching()
+          ? Duration.ofNanos(Long.MAX_VALUE) : revalidateAfter;
+      final DirectoryIndex.Page page = directoryIndexCache
+          .get(directory, query.getSortKey(), attributes.lastModifiedTime(), maxAge)
+          .page(query);
+      final String directoryName = "/" + baseDirPath.relativize(directory);
+      return new JsonListingResponse(new DirectoryJsonPage(directoryName, page).render());
+    } catch (IllegalArgumentException ex) {
+      LOG.debug("invalid listing cursor in {}", uri, ex);
+      return new InMemoryResponse(Result.INVALID_REQUEST);
+    } catch (IOException ex) {
+      LOG.error("error during listing of {}", directory, ex);
+      return new InMemoryResponse(Result.ERROR);
+    }
+  }
 
-    if (!file.exists()) {
-      return new InMemoryResponse(Result.NOT_FOUND);
+  private Response fetchCached(String uri, HttpHeader httpHeader) throws IOException {
+    final String key = URI.create(uri).getPath();
+    final Optional<ContentCache.Entry> cached = contentCache.get(key);
+    if (cached.isPresent() && isUnchanged(key, cached.get())) {
+      return new CachedResponse(cached.get());
     }
 
-    if (!file.canRead() || !isInsideBaseDir(file)) {
-      return new InMemoryResponse(Result.PERMISSION_DENIED);
+    final Response response = internalFetch(uri, httpHeader);
+    if (response instanceof FileSystemResponse
+        && contentCache.admits(key, response.getSize().orElse(Long.MAX_VALUE))) {
+      final FileSystemResponse fileResponse = (FileSystemResponse) response;
+      // concurrent requests share one load. on timeout the file is streamed directly
+      final Optional<ContentCache.Entry> entry = singleFlight.execute(
+          SingleFlight.keyOf("load", fileResponse.getHashKey()),
+          () -> fileResponse.toCacheEntry().filter(loaded -> contentCache.put(key, loaded)),
+          Optional::empty);
+      if (entry.isPresent()) {
+        return new CachedResponse(entry.get());
+      }
     }
 
-    if (file.isDirectory()) {
-      return new InMemoryResponse(Result.FOUND, MediaType.HTML, renderDirectoryPage(file));
+    return response;
+  }
+
+  private boolean isUnchanged(String key, ContentCache.Entry entry) {
+    final long now = System.nanoTime();
+    if (filesystemWatcher.isWatching()
+        || now - entry.getValidatedAt() < revalidateAfter.toNanos()) {
+      return true;
+    }
+
+    try {
+      final BasicFileAttributes attributes = Files.readAttributes(entry.getPath(),
+          BasicFileAttributes.class);
+      if (attributes.isRegularFile() && attributes.size() == entry.getSize()
+          && attributes.lastModifiedTime().equals(entry.getFileLastModified())) {
+        entry.setValidatedAt(now);
+        return true;
+      }
+    } catch (NoSuchFileException ex) {
+      LOG.debug("cached file {} was removed", entry.getPath());
+    } catch (IOException ex) {
+      LOG.warn("revalidation of cached file {} failed", entry.getPath(), ex);
     }
 
-    return new FileSystemResponse(Result.FOUND, file);
+    contentCache.invalidate(key);
+    return false;
   }
 
-  private boolean isInsideBaseDir(File file) {
-    final Path requestedPath = file.toPath().toAbsolutePath().normalize();
-    return requestedPath.startsWith(baseDirPath);
+  @NotNull
+  private Response internalFetch(String uri, HttpHeader httpHeader) throws IOException {
+    final Resolution resolution = resolve(uri);
+    switch (resolution.getKind()) {
+      case NOT_FOUND:
+        return notFoundResponse;
+      case FORBIDDEN:
+        return new InMemoryResponse(Result.PERMISSION_DENIED);
+      case DIRECTORY:
+        final Optional<DirectoryListingQuery> query = DirectoryListingQuery.of(uri, httpHeader);
+        return query.isPresent() ? listDirectory(uri, resolution.getPath(), query.get())
+            : new DirectoryResponse(resolution.getPath());
+      default:
+        return new FileSystemResponse(Result.FOUND, resolution.getPath().toFile());
+    }
+  }
+
+  /**
+   * Resolves the path of the uri to a file, the index file of a directory or a directory. Found
+   * targets are cached in the {@link PathResolutionCache}, missing paths in the {@link
+   * NegativeLookupCache}.
+   */
+  Resolution resolve(String uri) {
+    final String rawPath = rawPathOf(uri);
+    final Optional<Resolution> missing = negativeLookupCache.get(rawPath);
+    if (missing.isPresent()) {
+      return missing.get();
+    }
+
+    final Optional<Resolution> cached = pathResolutionCache.get(rawPath, resolutionMaxAge());
+    if (cached.isPresent()) {
+      return cached.get();
+    }
+
+    final long startedAt = System.nanoTime();
+    final Resolution resolution = resolveUncached(rawPath);
+    if (resolution.getKind() == Resolution.Kind.NOT_FOUND) {
+      negativeLookupCache.put(rawPath, resolution);
+    } else {
+      pathResolutionCache.put(rawPath, resolution, startedAt);
+    }
+    return resolution;
   }
 
-  private byte[] renderDirectoryPage(File file) throws IOException {
-    final ByteArrayOutputStream byteData = new ByteArrayOutputStream();
-    final String directoryName =
-        "/" + baseDirPath.relativize(file.toPath().normalize().toAbsolutePath()).toString();
-    new DirectoryHtmlPage(directoryName, file, byteData).render();
-    return byteData.toByteArray();
+  /**
+   * Without change notifications, resolutions are revalidated like cached content
+   */
+  private Duration resolutionMaxAge() {
+    return filesystemWatcher.isWatching() ? Duration.ofNanos(Long.MAX_VALUE) : revalidateAfter;
   }
 
-  private File getFile(String uri) {
-    final String requestedPath = basedir + URI.create(uri).getPath();
+  private Resolution resolveUncached(String rawPath) {
+    final String requestedPath = basedir + URI.create(rawPath).getPath();
 
     LOG.debug(requestedPath);
 
-    final File file = new File(requestedPath);
-    if (file.isDirectory()) {
-      return findIndexFileIn(file).orElse(file);
+    final Path requested = new File(requestedPath).toPath().toAbsolutePath().normalize();
+    Path target = requested;
+    Resolution.Kind kind = Resolution.Kind.FILE;
+    if (Files.isDirectory(requested)) {
+      final Optional<Path> indexFile = findIndexFileIn(requested);
+      target = indexFile.orElse(requested);
+      kind = indexFile.isPresent() ? Resolution.Kind.FILE : Resolution.Kind.DIRECTORY;
+    } else if (!Files.exists(requested)) {
+      return new Resolution(Resolution.Kind.NOT_FOUND, requested);
     }
 
-    return file;
+    if (!Files.isReadable(target) || !target.startsWith(baseDirPath)) {
+      return new Resolution(Resolution.Kind.FORBIDDEN, target);
+    }
+    return new Resolution(kind, target);
   }
 
-  @NotNull
-  private Optional<File> findIndexFileIn(File file) {
-    return Arrays.stream(file.listFiles())
-        .filter(File::isFile)
-        .filter(f -> f.getName().equals("index.html") || f.getName().equals("index.htm"))
-        .findFirst();
+  /**
+   * @return path of the uri without query and fragment, which is not decoded yet
+   */
+  private static String rawPathOf(String uri) {
+    for (int i = 0; i < uri.length(); i++) {
+      if (uri.charAt(i) == '?' || uri.charAt(i) == '#') {
+        return uri.substring(0, i);
+      }
+    }
+    return uri;
+  }
+
+  /**
+   * The lookup of the sibling is cached in the {@link PathResolutionCache}.
+   *
+   * @param path         path of the uncompressed file
+   * @param lastModified modification time of the uncompressed file
+   * @return region of the precompressed sibling, if it exists and is not outdated
+   */
+  private Optional<FileRegion> findPrecompressed(Path path, FileTime lastModified,
+      ContentCoding coding) throws IOException {
+    final String extension = PRECOMPRESSED_EXTENSIONS.get(coding);
+    if (extension == null) {
+      return Optional.empty();
+    }
+
+    final Path sibling = path.resolveSibling(path.getFileName() + extension);
+    final Optional<PathResolutionCache.Sibling> cached = pathResolutionCache
+        .getSibling(sibling, resolutionMaxAge());
+    final Optional<BasicFileAttributes> attributes;
+    if (cached.isPresent()) {
+      attributes = cached.get().getAttributes();
+    } else {
+      final long startedAt = System.nanoTime();
+      attributes = readAttributesOf(sibling);
+      pathResolutionCache.putSibling(sibling,
+          new PathResolutionCache.Sibling(attributes.orElse(null)), startedAt);
+    }
+
+    return attributes.filter(found -> found.isRegularFile()
+            && found.lastModifiedTime().compareTo(lastModified) >= 0)
+        .map(found -> new FileRegion(() -> FileChannel.open(sibling, StandardOpenOption.READ),
+            0, found.size()));
+  }
+
+  private static Optional<BasicFileAttributes> readAttributesOf(Path path) throws IOException {
+    try {
+      return Optional.of(Files.readAttributes(path, BasicFileAttributes.class));
+    } catch (NoSuchFileException ex) {
+      return Optional.empty();
+    }
   }
 
   /**
-   * Representing generated responses like the {@link DirectoryHtmlPage} or error search responses.
+   * Probes the index file names directly instead of iterating the directory
    */
-  static class InMemoryResponse implements Response {
+  private static Optional<Path> findIndexFileIn(Path directory) {
+    for (String indexFileName : INDEX_FILE_NAMES) {
+      final Path indexFile = directory.resolve(indexFileName);
+      if (Files.isRegularFile(indexFile)) {
+        return Optional.of(indexFile);
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Representing generated responses like error search responses.
+   */
+  class InMemoryResponse implements Response {
 
     private final Result result;
     private final MediaType mediaType;
     private final byte[] inMemory;
+    private final ContentHashCache.Key hashKey;
 
-    public InMemoryResponse(Result result, MediaType mediaType, byte[] inMemory) {
+    /**
+     * @param hashKey identity of the generated content in {@link ContentHashCache}
+     */
+    public InMemoryResponse(Result result, MediaType mediaType, byte[] inMemory,
+        ContentHashCache.Key hashKey) {
       this.result = Objects.requireNonNull(result);
       this.mediaType = mediaType;
       this.inMemory = inMemory;
+      this.hashKey = hashKey;
     }
 
     public InMemoryResponse(Result result) {
-      this(result, null, null);
+      this(result, null, null, null);
     }
 
     public Result getResult() {
@@ -157,8 +428,22 @@ class FilesystemContentSearchService implements ContentSearchService {
     }
 
     @Override
-    public Optional<byte[]> getHash() {
-      return Optional.of(getMessageDigest().digest(inMemory));
+    public Optional<BufferRegion> getBufferRegion() {
+      return Optional.ofNullable(inMemory).map(BufferRegion::of);
+    }
+
+    @Override
+    public OptionalLong getSize() {
+      return inMemory == null ? OptionalLong.empty() : OptionalLong.of(inMemory.length);
+    }
+
+    @Override
+    public Optional<byte[]> getHash() throws IOException {
+      if (hashKey == null) {
+        return Optional.of(getMessageDigest().digest(inMemory));
+      }
+
+      return Optional.of(contentHashCache.get(hashKey, () -> getMessageDigest().digest(inMemory)));
     }
 
     @Override
@@ -168,6 +453,198 @@ class FilesystemContentSearchService implements ContentSearchService {
     }
   }
 
+  /**
+   * @return weak etag of file key, modification time and size, which doesn't require to read the
+   * content
+   */
+  private static ETag metadataETagOf(BasicFileAttributes attributes) {
+    // file key distinguishes a replaced file with same size and modification time
+    final Object fileKey = attributes.fileKey();
+    final String data = (fileKey == null ? "" : Integer.toHexString(fileKey.hashCode()) + "-")
+        + Long.toHexString(attributes.lastModifiedTime().to(TimeUnit.MICROSECONDS)) + "-"
+        + Long.toHexString(attributes.size());
+    return new ETag(data, ETag.Kind.WEAK);
+  }
+
+  /**
+   * Representing the {@link DirectoryHtmlPage} of a found directory. The page is served from the
+   * {@link DirectoryListingCache} or streamed while the directory is iterated.
+   */
+  class DirectoryResponse implements Response {
+
+    private final Path directory;
+    private final BasicFileAttributes attributes;
+    private final byte[] cachedPage;
+
+    DirectoryResponse(Path directory) throws IOException {
+      this.directory = Objects.requireNonNull(directory);
+      // modification time of a directory changes, if an entry is added, removed or renamed
+      this.attributes = Files.readAttributes(directory, BasicFileAttributes.class);
+      this.cachedPage = directoryListingCache.get(directory, attributes.lastModifiedTime())
+          .orElse(null);
+    }
+
+    public Result getResult() {
+      return Result.FOUND;
+    }
+
+    public Optional<MediaType> getMediaType() {
+      return Optional.of(MediaType.HTML);
+    }
+
+    public Optional<InputStream> getInputStream() {
+      if (cachedPage != null) {
+        return Optional.of(new ByteArrayInputStream(cachedPage));
+      }
+
+      final String directoryName = "/" + baseDirPath.relativize(directory);
+      try {
+        return Optional.of(directoryListingCache.capture(directory, attributes.lastModifiedTime(),
+            new DirectoryHtmlPage(directoryName, directory).open()));
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+    }
+
+    @Override
+    public Optional<BufferRegion> getBufferRegion() {
+      return Optional.ofNullable(cachedPage).map(BufferRegion::of);
+    }
+
+    @Override
+    public OptionalLong getSize() {
+      // unknown until the listing is cached, so that the listing is streamed
+      return cachedPage == null ? OptionalLong.empty() : OptionalLong.of(cachedPage.length);
+    }
+
+    @Override
+    public Optional<byte[]> getHash() {
+      return Optional.empty();
+    }
+
+    @Override
+    public Optional<ETag> getETag() {
+      return Optional.of(metadataETagOf(attributes));
+    }
+
+    @Override
+    public Optional<ZonedDateTime> getLastModified() {
+      return Optional.of(attributes.lastModifiedTime().toInstant().atZone(ZoneOffset.UTC));
+    }
+
+    @Override
+    public List<HttpHeaderField> getVary() {
+      // the json listing is requested with the Accept header field
+      return List.of(HttpHeaderField.ACCEPT);
+    }
+  }
+
+  /**
+   * Representing a page of the json listing of a found directory. Sizes and modification times of
+   * the entries change without changing the directory, so the page is identified by its hash.
+   */
+  class JsonListingResponse implements Response {
+
+    private final byte[] page;
+
+    JsonListingResponse(byte[] page) {
+      this.page = Objects.requireNonNull(page);
+    }
+
+    public Result getResult() {
+      return Result.FOUND;
+    }
+
+    public Optional<MediaType> getMediaType() {
+      return Optional.of(MediaType.JSON);
+    }
+
+    public Optional<InputStream> getInputStream() {
+      return Optional.of(new ByteArrayInputStream(page));
+    }
+
+    @Override
+    public Optional<BufferRegion> getBufferRegion() {
+      return Optional.of(BufferRegion.of(page));
+    }
+
+    @Override
+    public OptionalLong getSize() {
+      return OptionalLong.of(page.length);
+    }
+
+    @Override
+    public Optional<byte[]> getHash() {
+      return Optional.of(getMessageDigest().digest(page));
+    }
+
+    @Override
+    public Optional<ZonedDateTime> getLastModified() {
+      return Optional.empty();
+    }
+
+    @Override
+    public List<HttpHeaderField> getVary() {
+      return List.of(HttpHeaderField.ACCEPT);
+    }
+  }
+
+  /**
+   * Representing a found file, which is served from {@link ContentCache}.
+   */
+  class CachedResponse implements Response {
+
+    private final ContentCache.Entry entry;
+
+    CachedResponse(ContentCache.Entry entry) {
+      this.entry = Objects.requireNonNull(entry);
+    }
+
+    public Result getResult() {
+      return Result.FOUND;
+    }
+
+    public Optional<MediaType> getMediaType() {
+      return Optional.ofNullable(entry.getMediaType());
+    }
+
+    public Optional<InputStream> getInputStream() {
+      return Optional.of(new ByteArrayInputStream(entry.getContent()));
+    }
+
+    @Override
+    public Optional<BufferRegion> getBufferRegion() {
+      return Optional.of(BufferRegion.of(entry.getContent()));
+    }
+
+    @Override
+    public Optional<FileRegion> getPrecompressed(ContentCoding coding) throws IOException {
+      return findPrecompressed(entry.getPath(), entry.getFileLastModified(), coding);
+    }
+
+    @Override
+    public OptionalLong getSize() {
+      return OptionalLong.of(entry.getSize());
+    }
+
+    @Override
+    public Optional<byte[]> getHash() throws IOException {
+      final ContentHashCache.Key hashKey = new ContentHashCache.Key(entry.getPath(),
+          entry.getSize(), entry.getFileLastModified());
+      return Optional.of(hashOf(hashKey, () -> getMessageDigest().digest(entry.getContent())));
+    }
+
+    @Override
+    public Optional<ETag> getETag() {
+      return Optional.ofNullable(entry.getETag());
+    }
+
+    @Override
+    public Optional<ZonedDateTime> getLastModified() {
+      return Optional.ofNullable(entry.getLastModified());
+    }
+  }
+
   /**
    * Representing a search response for a found file in the base directory.
    */
@@ -176,16 +653,18 @@ class FilesystemContentSearchService implements ContentSearchService {
     private final Result result;
     private final File file;
     private final MediaType mediaType;
+    private final BasicFileAttributes attributes;
     private final ZonedDateTime lastModified;
-    private InputStream inputStream;
+    private final long loadedAt;
 
     public FileSystemResponse(Result result, File file) throws IOException {
+      // taken before any access, so that concurrent changes are detected by the content cache
+      this.loadedAt = System.nanoTime();
       this.result = Objects.requireNonNull(result);
       this.file = Objects.requireNonNull(file);
-      this.lastModified = Files.getLastModifiedTime(file.toPath()).toInstant()
-          .atZone(ZoneOffset.UTC);
+      this.attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+      this.lastModified = attributes.lastModifiedTime().toInstant().atZone(ZoneOffset.UTC);
       this.mediaType = getMediaType(file);
-      this.inputStream = new BufferedInputStream(new FileInputStream(file));
     }
 
     public Result getResult() {
@@ -197,53 +676,102 @@ class FilesystemContentSearchService implements ContentSearchService {
     }
 
     public Optional<InputStream> getInputStream() {
-      return Optional.of(inputStream);
+      return Optional.of(openInputStream());
     }
 
     @Override
-    public Optional<byte[]> getHash() throws IOException {
-      // performance optimization. do not stream file twice.
-      if (file.length() < maxInMemoryFileSize.toBytes()) {
-        return loadFileIntoMemoryAndCalculateHash();
-      }
+    public Optional<FileChannel> getFileChannel() throws IOException {
+      return Optional.of(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+    }
 
-      if (LOG.isDebugEnabled()) {
-        LOG.debug("big file request for {} with size of {}", file.getName(),
-            DataSize.of(file.length(), DataUnit.BYTES));
+    @Override
+    public Optional<BufferRegion> getBufferRegion() throws IOException {
+      if (!mappedFileCache.isCandidate(attributes.size())) {
+        return Optional.empty();
       }
-      return calculateHashStreamed();
+
+      return mappedFileCache.get(file.toPath(), attributes)
+          .map(mapping -> new BufferRegion(() -> mapping.lease(attributes), attributes.size()));
     }
 
     @Override
-    public Optional<ZonedDateTime> getLastModified() {
-      return Optional.ofNullable(lastModified);
+    public Optional<FileRegion> getPrecompressed(ContentCoding coding) throws IOException {
+      return findPrecompressed(file.toPath(), attributes.lastModifiedTime(), coding);
     }
 
-    @NotNull
-    private Optional<byte[]> loadFileIntoMemoryAndCalculateHash() throws IOException {
-      final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    @Override
+    public OptionalLong getSize() {
+      return OptionalLong.of(attributes.size());
+    }
 
-      try (InputStream toStream = this.inputStream) {
-        toStream.transferTo(outputStream);
+    private InputStream openInputStream() {
+      try {
+        return new BufferedInputStream(new FileInputStream(file));
+      } catch (FileNotFoundException e) {
+        throw new UncheckedIOException(e);
       }
+    }
+
+    @Override
+    public Optional<byte[]> getHash() throws IOException {
+      return Optional.of(hashOf(getHashKey(), this::calculateHash));
+    }
 
-      final byte[] buffer = outputStream.toByteArray();
-      // replace inputStream with In-Memory to prevent double load
-      this.inputStream = new ByteArrayInputStream(buffer);
-      return Optional.of(getMessageDigest().digest(buffer));
+    /**
+     * @return identity of the file version
+     */
+    ContentHashCache.Key getHashKey() {
+      return new ContentHashCache.Key(file.toPath(), attributes.size(),
+          attributes.lastModifiedTime());
     }
 
-    @NotNull
-    private Optional<byte[]> calculateHashStreamed() throws IOException {
+    /**
+     * Streams the file through the digest, so that no file of any size is kept in memory. The body
+     * is sent from the file anyway.
+     */
+    private byte[] calculateHash() throws IOException {
       final MessageDigest messageDigest = getMessageDigest();
-      try (InputStream firstStream = this.inputStream) {
-        while (firstStream.available() != 0) {
-          messageDigest.digest(firstStream.readNBytes((int) maxInMemoryFileSize.toBytes()));
+      final byte[] buffer = new byte[HASH_BUFFER_SIZE];
+      try (InputStream toStream = new FileInputStream(file)) {
+        // digest() would reset the digest, so the content is only added with update()
+        int read;
+        while ((read = toStream.read(buffer)) != -1) {
+          messageDigest.update(buffer, 0, read);
         }
       }
 
-      this.inputStream = new BufferedInputStream(new FileInputStream(file));
-      return Optional.of(messageDigest.digest());
+      return messageDigest.digest();
+    }
+
+    @Override
+    public Optional<ETag> getETag() throws IOException {
+      if (eTagStrategy == ETagStrategy.CONTENT) {
+        return Response.super.getETag();
+      }
+
+      return Optional.of(metadataETagOf(attributes));
+    }
+
+    @Override
+    public Optional<ZonedDateTime> getLastModified() {
+      return Optional.ofNullable(lastModified);
+    }
+
+    /**
+     * Loads the file into memory
+     *
+     * @return cache entry or empty, if the file was changed during load
+     */
+    Optional<ContentCache.Entry> toCacheEntry() throws IOException {
+      final ETag eTag = getETag().orElse(null);
+      final byte[] content = Files.readAllBytes(file.toPath());
+
+      if (content.length != attributes.size()) {
+        return Optional.empty();
+      }
+
+      return Optional.of(new ContentCache.Entry(file.toPath(), content, mediaType, eTag,
+          lastModified, attributes.lastModifiedTime(), loadedAt));
     }
 
     private MediaType getMediaType(File file) {
@@ -264,4 +792,22 @@ class FilesystemContentSearchService implements ContentSearchService {
       return "";
     }
   }
+
+  /**
+   * Strategy for generating the ETag of files
+   */
+  public enum ETagStrategy {
+
+    /**
+     * Weak ETag derived from file key, modification time and size. Doesn't read the file content,
+     * so that revalidation requests are cheap.
+     */
+    METADATA,
+
+    /**
+     * Strong ETag derived from the MD5 hash of the file content. The hash is cached by path, size
+     * and modification time, so that the file is only read again after it was changed.
+     */
+    CONTENT
+  }
 }
@@ -0,0 +1,295 @@
+package de.havemann.lukas.vanillahttp.search;
+
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpStatusCode;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationUnit;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Warms up the caches on startup, before the server accepts connections. The base directory is
+ * walked in parallel and the request paths of files and directories are resolved into the {@link
+ * PathResolutionCache}, until it is full. Afterwards frequently requested files of a hot list are
+ * fetched, so that their content, hashes and pages of the operating system are cached. They are
+ * fetched last, so that the walk doesn't evict their resolutions from the least recently used
+ * {@link PathResolutionCache}.
+ * <p>
+ * The hot list contains one request path per line or is a snapshot of an access log in common log
+ * format. Paths are preloaded in order of their number of occurrences. Warming stops, once the
+ * configured time budget is exceeded. The warmup runs while the application context is refreshed,
+ * so the application is reported ready only after warming finished.
+ */
+@Component
+@ManagedResource(objectName = "de.havemann.lukas.vanillahttp:type=FilesystemWarmer")
+public class FilesystemWarmer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FilesystemWarmer.class);
+  private static final int READ_SIZE = 64 * 1024;
+
+  private final FilesystemContentSearchService searchService;
+  private final PathResolutionCache pathResolutionCache;
+  private final LongAdder resolvedPaths = new LongAdder();
+  private final LongAdder preloadedFiles = new LongAdder();
+
+  @Value("${vanilla.server.filesystem.warmup.enabled}")
+  private boolean enabled;
+
+  @DurationUnit(ChronoUnit.MILLIS)
+  @Value("${vanilla.server.filesystem.warmup.timeBudget}")
+  private Duration timeBudget;
+
+  @Value("${vanilla.server.filesystem.warmup.hotList}")
+  private String hotList;
+
+  @Value("${vanilla.server.filesystem.warmup.preloadCount}")
+  private int preloadCount;
+
+  private volatile State state = State.NOT_STARTED;
+  private volatile long durationMillis;
+
+  FilesystemWarmer(@Autowired FilesystemContentSearchService searchService,
+      @Autowired PathResolutionCache pathResolutionCache) {
+    this.searchService = searchService;
+    this.pathResolutionCache = pathResolutionCache;
+  }
+
+  /**
+   * Ordered before the {@link ContextRefreshedEvent} listener, which starts accepting connections.
+   */
+  @SuppressWarnings("unused")
+  @Order(Ordered.HIGHEST_PRECEDENCE)
+  @EventListener
+  public void onApplicationEvent(ContextRefreshedEvent event) {
+    if (!enabled || state != State.NOT_STARTED) {
+      return;
+    }
+
+    state = State.WARMING;
+    final long start = System.nanoTime();
+    final long deadline = start + timeBudget.toNanos();
+    final ForkJoinPool pool = new ForkJoinPool();
+    try {
+      final List<String> hotPaths = readHotPaths();
+      pool.submit(new WarmDirectory(searchService.getBaseDirPath(), "/", deadline))
+          .get(remainingNanos(deadline), TimeUnit.NANOSECONDS);
+      // parallel stream is executed by the pool of the submitting task
+      pool.submit(() -> hotPaths.parallelStream().forEach(path -> preload(path, deadline)))
+          .get(remainingNanos(deadline), TimeUnit.NANOSECONDS);
+      state = State.FINISHED;
+    } catch (TimeoutException ex) {
+      LOG.warn("warmup exceeded time budget of {}", timeBudget);
+      state = State.BUDGET_EXCEEDED;
+    } catch (ExecutionException | IOException ex) {
+      LOG.error("warmup failed", ex);
+      state = State.FAILED;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      state = State.FAILED;
+    } finally {
+      pool.shutdownNow();
+    }
+
+    durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    LOG.info("warmup {} after {} ms. resolved {} paths and preloaded {} files", state,
+        durationMillis, resolvedPaths.sum(), preloadedFiles.sum());
+  }
+
+  private static long remainingNanos(long deadline) {
+    return Math.max(0, deadline - System.nanoTime());
+  }
+
+  /**
+   * @return request paths of the hot list in order of their number of occurrences
+   */
+  List<String> readHotPaths() throws IOException {
+    if (hotList.isBlank() || preloadCount <= 0) {
+      return List.of();
+    }
+
+    final Map<String, Long> occurrences;
+    try (Stream<String> lines = Files.lines(Path.of(hotList), StandardCharsets.UTF_8)) {
+      occurrences = lines.map(FilesystemWarmer::requestPathOf)
+          .flatMap(Optional::stream)
+          .collect(Collectors.groupingBy(path -> path, HashMap::new, Collectors.counting()));
+    }
+
+    return occurrences.entrySet().stream()
+        .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+        .limit(preloadCount)
+        .map(Map.Entry::getKey)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * @param line request path or access log line like {@code 127.0.0.1 - - [...] "GET /a.css
+   *             HTTP/1.1" 200 512}
+   * @return request path of the line
+   */
+  static Optional<String> requestPathOf(String line) {
+    final int requestStart = line.indexOf('"');
+    if (requestStart < 0) {
+      final String path = line.trim();
+      return path.startsWith("/") ? Optional.of(path) : Optional.empty();
+    }
+
+    final int requestEnd = line.indexOf('"', requestStart + 1);
+    final String[] request = line.substring(requestStart + 1,
+        requestEnd < 0 ? line.length() : requestEnd).split(" ");
+    if (request.length < 2 || !request[1].startsWith("/")) {
+      return Optional.empty();
+    }
+    return Optional.of(request[1]);
+  }
+
+  /**
+   * Fetches the file like a request, so that its content and hash are cached, and reads the file
+   * into the page cache of the operating system, if it isn't held in memory.
+   */
+  private void preload(String path, long deadline) {
+    if (System.nanoTime() > deadline) {
+      return;
+    }
+
+    try {
+      final ContentSearchService.Response response = searchService.fetch(path);
+      if (response.getResult().getDefaultHttpCode() != HttpStatusCode.OK) {
+        LOG.debug("hot path {} not found", path);
+        return;
+      }
+
+      response.getETag();
+      if (response.getBufferRegion().isEmpty()) {
+        final Optional<FileChannel> fileChannel = response.getFileChannel();
+        if (fileChannel.isPresent()) {
+          readThrough(fileChannel.get(), deadline);
+        }
+      }
+      preloadedFiles.increment();
+    } catch (IOException | RuntimeException ex) {
+      LOG.warn("could not preload {}", path, ex);
+    }
+  }
+
+  private static void readThrough(FileChannel fileChannel, long deadline) throws IOException {
+    try (FileChannel file = fileChannel) {
+      final ByteBuffer buffer = ByteBuffer.allocate(READ_SIZE);
+      while (file.read(buffer.clear()) != -1 && System.nanoTime() < deadline) {
+        // read only to load the file into the page cache
+      }
+    }
+  }
+
+  @ManagedAttribute(description = "state of the warmup")
+  public String getState() {
+    return state.name();
+  }
+
+  @ManagedAttribute(description = "duration of the warmup in milliseconds")
+  public long getDurationMillis() {
+    return durationMillis;
+  }
+
+  @ManagedAttribute(description = "number of resolved paths of the base directory")
+  public long getResolvedPaths() {
+    return resolvedPaths.sum();
+  }
+
+  @ManagedAttribute(description = "number of preloaded files of the hot list")
+  public long getPreloadedFiles() {
+    return preloadedFiles.sum();
+  }
+
+  private enum State {
+    NOT_STARTED, WARMING, FINISHED, BUDGET_EXCEEDED, FAILED
+  }
+
+  /**
+   * Resolves the request paths of a directory and its entries and forks a task for every sub
+   * directory. Symbolic links to directories are not followed. Stops, once the {@link
+   * PathResolutionCache} is full, since further resolutions would only evict earlier ones.
+   */
+  private final class WarmDirectory extends RecursiveAction {
+
+    private final Path directory;
+    private final String rawPath;
+    private final long deadline;
+
+    private WarmDirectory(Path directory, String rawPath, long deadline) {
+      this.directory = directory;
+      this.rawPath = rawPath;
+      this.deadline = deadline;
+    }
+
+    @Override
+    protected void compute() {
+      if (isStopped()) {
+        return;
+      }
+
+      resolve(rawPath);
+      final List<WarmDirectory> subDirectories = new ArrayList<>();
+      try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+        for (Path entry : entries) {
+          if (isStopped()) {
+            return;
+          }
+          final String name = DirectoryHtmlPage.encodeLink(entry.getFileName().toString());
+          final BasicFileAttributes attributes = Files.readAttributes(entry,
+              BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+          if (attributes.isDirectory()) {
+            subDirectories.add(new WarmDirectory(entry, rawPath + name + "/", deadline));
+          } else {
+            resolve(rawPath + name);
+          }
+        }
+      } catch (IOException | DirectoryIteratorException ex) {
+        LOG.debug("could not warm up directory {}", directory, ex);
+      }
+
+      invokeAll(subDirectories);
+    }
+
+    private boolean isStopped() {
+      return System.nanoTime() > deadline || pathResolutionCache.isFull();
+    }
+
+    private void resolve(String path) {
+      searchService.resolve(path);
+      resolvedPaths.increment();
+    }
+  }
+}
@@ -0,0 +1,233 @@
+package de.havemann.lukas.vanillahttp.search;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Watches the base directory and all its sub directories for changes and notifies all {@link
+ * FileChangeListener}. New sub directories are registered as soon as their creation is detected.
+ * If events were lost, all directories are registered again and the listeners are asked for a
+ * complete revalidation.
+ * <p>
+ * As long as {@link #isWatching()} is true, caches don't need to check for changes on their own.
+ * If a directory can't be registered, e.g. once the limit of watches of the os is reached,
+ * watching stops and the listeners are asked for a complete revalidation.
+ */
+@Component
+@ManagedResource(objectName = "de.havemann.lukas.vanillahttp:type=FilesystemWatcher")
+public class FilesystemWatcher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FilesystemWatcher.class);
+  private static final long SHUTDOWN_TIMEOUT_MILLIS = 2000;
+
+  private final List<FileChangeListener> listeners;
+  private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+  private final LongAdder events = new LongAdder();
+  private final LongAdder overflows = new LongAdder();
+
+  @Value("${vanilla.server.filesystem.watch}")
+  private boolean enabled;
+
+  @Value("${vanilla.server.filesystem.basedir}")
+  private String basedir;
+
+  private WatchService watchService;
+  private Thread watcherThread;
+  private volatile boolean watching;
+
+  public FilesystemWatcher(@Autowired List<FileChangeListener> listeners) {
+    this.listeners = Objects.requireNonNull(listeners);
+  }
+
+  @PostConstruct
+  public void start() {
+    if (!enabled) {
+      LOG.info("watching of base directory disabled. caches revalidate files on their own");
+      return;
+    }
+
+    final Path baseDirPath = Path.of(basedir).toAbsolutePath().normalize();
+    try {
+      watchService = baseDirPath.getFileSystem().newWatchService();
+      registerRecursively(baseDirPath);
+    } catch (IOException e) {
+      LOG.warn("could not watch {}. caches revalidate files on their own", baseDirPath, e);
+      closeWatchService();
+      return;
+    }
+
+    watching = true;
+    watcherThread = new Thread(() -> processEvents(baseDirPath));
+    watcherThread.setName("filesystemWatcher");
+    watcherThread.setDaemon(true);
+    watcherThread.start();
+    LOG.info("watching {} directories below {}", watchedDirectories.size(), baseDirPath);
+  }
+
+  /**
+   * @return true, if changes in the base directory are detected
+   */
+  @ManagedAttribute(description = "true, if changes in the base directory are detected")
+  public boolean isWatching() {
+    return watching;
+  }
+
+  @ManagedAttribute(description = "number of watched directories")
+  public int getWatchedDirectoryCount() {
+    return watchedDirectories.size();
+  }
+
+  @ManagedAttribute(description = "number of processed change events since startup")
+  public long getEventCount() {
+    return events.sum();
+  }
+
+  @ManagedAttribute(description = "number of lost events since startup")
+  public long getOverflowCount() {
+    return overflows.sum();
+  }
+
+  private void registerRecursively(Path directory) throws IOException {
+    Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+          throws IOException {
+        final WatchKey key = dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        watchedDirectories.put(key, dir);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  private void processEvents(Path baseDirPath) {
+    while (watching) {
+      final WatchKey key;
+      try {
+        key = watchService.take();
+      } catch (ClosedWatchServiceException e) {
+        LOG.debug("watch service closed. stopping watcher thread");
+        return;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+
+      final Path directory = watchedDirectories.get(key);
+      for (WatchEvent<?> event : key.pollEvents()) {
+        if (!watching) {
+          // stopped after a failed registration
+          return;
+        }
+        if (event.kind() == OVERFLOW || directory == null) {
+          handleOverflow(baseDirPath);
+          continue;
+        }
+
+        events.increment();
+        handleChange(directory.resolve((Path) event.context()), event.kind());
+      }
+
+      if (!key.reset()) {
+        // directory was deleted
+        watchedDirectories.remove(key);
+      }
+    }
+  }
+
+  private void handleChange(Path changed, WatchEvent.Kind<?> kind) {
+    LOG.debug("{} {}", kind, changed);
+    if (kind == ENTRY_CREATE && Files.isDirectory(changed, LinkOption.NOFOLLOW_LINKS)) {
+      try {
+        registerRecursively(changed);
+      } catch (IOException e) {
+        stopWatching(changed, e);
+        return;
+      }
+    }
+
+    notifyListeners(listener -> listener.onChange(changed));
+  }
+
+  private void handleOverflow(Path baseDirPath) {
+    LOG.warn("change events of {} lost. revalidating all caches", baseDirPath);
+    overflows.increment();
+    try {
+      registerRecursively(baseDirPath);
+    } catch (IOException e) {
+      stopWatching(baseDirPath, e);
+      return;
+    }
+    notifyListeners(FileChangeListener::onOverflow);
+  }
+
+  /**
+   * Changes below an unregistered directory wouldn't be detected, so caches have to revalidate
+   * their entries on their own from now on.
+   */
+  private void stopWatching(Path directory, IOException cause) {
+    LOG.warn("could not watch {}. caches revalidate files on their own", directory, cause);
+    watching = false;
+    closeWatchService();
+    notifyListeners(FileChangeListener::onOverflow);
+  }
+
+  private void notifyListeners(Consumer<FileChangeListener> notification) {
+    for (FileChangeListener listener : listeners) {
+      try {
+        notification.accept(listener);
+      } catch (RuntimeException e) {
+        LOG.error("error in file change listener {}", listener, e);
+      }
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() throws InterruptedException {
+    watching = false;
+    closeWatchService();
+    if (watcherThread != null) {
+      watcherThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+    }
+  }
+
+  private void closeWatchService() {
+    if (watchService == null) {
+      return;
+    }
+
+    try {
+      watchService.close();
+    } catch (IOException e) {
+      LOG.error("error during close of watch service", e);
+    }
+  }
+}
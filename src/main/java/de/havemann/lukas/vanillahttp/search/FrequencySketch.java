@@ -0,0 +1,75 @@
+package de.havemann.lukas.vanillahttp.search;
+
+/**
+ * Count-min sketch estimating how often a key was requested recently. The counters of all keys are
+ * halved after a fixed number of increments, so that the popularity of keys ages. Used as
+ * admission filter of {@link ContentCache} (TinyLFU).
+ * <p>
+ * Not thread safe.
+ */
+final class FrequencySketch {
+
+  private static final int DEPTH = 4;
+  private static final int MAX_COUNT = 15;
+  private static final int[] SEEDS = {0x97cb3127, 0xc2b2ae35, 0x85ebca6b, 0x27d4eb2f};
+
+  private final byte[] counters;
+  private final int width;
+  private final int sampleSize;
+  private int additions;
+
+  /**
+   * @param expectedEntries expected number of distinct keys, which should be distinguishable
+   */
+  FrequencySketch(int expectedEntries) {
+    this.width = Integer.highestOneBit(Math.max(16, expectedEntries - 1) << 1);
+    this.counters = new byte[DEPTH * width];
+    this.sampleSize = 10 * width;
+  }
+
+  void increment(Object key) {
+    final int hash = spread(key.hashCode());
+    boolean added = false;
+    for (int row = 0; row < DEPTH; row++) {
+      final int index = indexOf(hash, row);
+      if (counters[index] < MAX_COUNT) {
+        counters[index]++;
+        added = true;
+      }
+    }
+
+    if (added && ++additions == sampleSize) {
+      reset();
+    }
+  }
+
+  /**
+   * @return estimated number of recent increments of key. never underestimated, but capped at 15
+   */
+  int frequency(Object key) {
+    final int hash = spread(key.hashCode());
+    int frequency = MAX_COUNT;
+    for (int row = 0; row < DEPTH; row++) {
+      frequency = Math.min(frequency, counters[indexOf(hash, row)]);
+    }
+    return frequency;
+  }
+
+  private void reset() {
+    for (int i = 0; i < counters.length; i++) {
+      counters[i] = (byte) (counters[i] >>> 1);
+    }
+    additions /= 2;
+  }
+
+  private int indexOf(int hash, int row) {
+    int h = (hash + SEEDS[row]) * SEEDS[row];
+    h ^= h >>> 16;
+    return row * width + (h & (width - 1));
+  }
+
+  private static int spread(int hash) {
+    final int h = hash * 0x9e3779b9;
+    return h ^ (h >>> 16);
+  }
+}
@@ -0,0 +1,378 @@
+package de.havemann.lukas.vanillahttp.search;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationUnit;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Persists the content hashes of the {@link ContentHashCache} periodically and on shutdown into a
+ * binary manifest file, so that a restarted server serves content ETags without reading unchanged
+ * files again. The manifest is memory mapped on startup and after every save and looked up by
+ * binary search, without parsing it. A hash of the manifest is only used, if path, size and
+ * modification time of the file are unchanged. Hashes of deleted files and of paths, which are
+ * longer than 65535 bytes, are not persisted.
+ * <p>
+ * Layout of the manifest in big endian byte order:
+ * <pre>
+ * int magic, int count
+ * count * (long path hash, int record offset) sorted by path hash
+ * count * (long size, long modification time in nanos, short path length, byte digest length,
+ *          path in utf-8, digest)
+ * </pre>
+ * Disabled, if no manifest file is configured.
+ */
+@Component
+@ManagedResource(objectName = "de.havemann.lukas.vanillahttp:type=HashManifest")
+public class HashManifest {
+
+  private static final Logger LOG = LoggerFactory.getLogger(HashManifest.class);
+  // "VHM1"
+  private static final int MAGIC = 0x56484d31;
+  private static final int HEADER_SIZE = 8;
+  private static final int INDEX_ENTRY_SIZE = 12;
+  private static final int RECORD_HEADER_SIZE = 19;
+  private static final int MAX_PATH_LENGTH = 0xffff;
+
+  private final ContentHashCache contentHashCache;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  @Value("${vanilla.server.filesystem.hashManifest.file}")
+  private String file;
+
+  @Value("${vanilla.server.filesystem.hashManifest.maxEntries}")
+  private int maxEntries;
+
+  @DurationUnit(ChronoUnit.MILLIS)
+  @Value("${vanilla.server.filesystem.hashManifest.saveInterval}")
+  private Duration saveInterval;
+
+  private volatile ByteBuffer manifest;
+  private volatile int count;
+  private ScheduledExecutorService saver;
+  // misses of the hash cache at the last save
+  private long savedMisses;
+
+  HashManifest(@Autowired ContentHashCache contentHashCache) {
+    this.contentHashCache = Objects.requireNonNull(contentHashCache);
+  }
+
+  @PostConstruct
+  public void init() {
+    if (maxEntries < 0 || saveInterval.isNegative()) {
+      throw new IllegalArgumentException("invalid hash manifest configuration");
+    }
+    if (!isEnabled()) {
+      return;
+    }
+
+    load(Path.of(file));
+    if (!saveInterval.isZero()) {
+      saver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "hash-manifest");
+        thread.setDaemon(true);
+        return thread;
+      });
+      saver.scheduleWithFixedDelay(this::saveIfHashed, saveInterval.toMillis(),
+          saveInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+  }
+
+  public boolean isEnabled() {
+    return !file.isBlank();
+  }
+
+  private void load(Path path) {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      final ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (mapped.capacity() < HEADER_SIZE || mapped.getInt(0) != MAGIC || mapped.getInt(4) < 0
+          || HEADER_SIZE + (long) mapped.getInt(4) * INDEX_ENTRY_SIZE > mapped.capacity()) {
+        LOG.warn("ignoring invalid hash manifest {}", path);
+        return;
+      }
+
+      manifest = mapped;
+      count = mapped.getInt(4);
+      LOG.info("mapped hash manifest {} with {} entries", path, count);
+    } catch (NoSuchFileException ex) {
+      LOG.info("no hash manifest {} found", path);
+    } catch (IOException ex) {
+      LOG.warn("could not map hash manifest {}", path, ex);
+    }
+  }
+
+  /**
+   * @param key path, size and modification time of the file
+   * @return persisted hash of the file or empty, if it's unknown or the file has changed
+   */
+  Optional<byte[]> get(ContentHashCache.Key key) {
+    final ByteBuffer buffer = manifest;
+    if (buffer == null) {
+      return Optional.empty();
+    }
+
+    final byte[] path = key.getPath().toString().getBytes(StandardCharsets.UTF_8);
+    try {
+      final int index = lookup(buffer, buffer.getInt(4), path);
+      if (index >= 0) {
+        final int offset = buffer.getInt(HEADER_SIZE + index * INDEX_ENTRY_SIZE + 8);
+        if (buffer.getLong(offset) == key.getSize()
+            && buffer.getLong(offset + 8) == key.getLastModified().to(TimeUnit.NANOSECONDS)) {
+          final byte[] digest = read(buffer, offset + RECORD_HEADER_SIZE + path.length,
+              buffer.get(offset + 18) & 0xff);
+          hits.increment();
+          return Optional.of(digest);
+        }
+      }
+    } catch (IndexOutOfBoundsException ex) {
+      LOG.warn("corrupt record for {} in hash manifest", key.getPath(), ex);
+    }
+
+    misses.increment();
+    return Optional.empty();
+  }
+
+  /**
+   * @return index of the record of the path or -1, if the path is not part of the manifest
+   */
+  private static int lookup(ByteBuffer buffer, int count, byte[] path) {
+    final long hash = hashOf(path);
+    int low = 0;
+    int high = count;
+    // first index entry with the hash
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (buffer.getLong(HEADER_SIZE + middle * INDEX_ENTRY_SIZE) < hash) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    for (int i = low; i < count && buffer.getLong(HEADER_SIZE + i * INDEX_ENTRY_SIZE) == hash;
+        i++) {
+      final int offset = buffer.getInt(HEADER_SIZE + i * INDEX_ENTRY_SIZE + 8);
+      if (hasPath(buffer, offset, path)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static byte[] read(ByteBuffer buffer, int offset, int length) {
+    final byte[] bytes = new byte[length];
+    buffer.duplicate().position(offset).get(bytes);
+    return bytes;
+  }
+
+  private static boolean hasPath(ByteBuffer buffer, int offset, byte[] path) {
+    if ((buffer.getShort(offset + 16) & 0xffff) != path.length) {
+      return false;
+    }
+    for (int i = 0; i < path.length; i++) {
+      if (buffer.get(offset + RECORD_HEADER_SIZE + i) != path[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static long hashOf(byte[] path) {
+    // 64 bit FNV-1a
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : path) {
+      hash ^= b & 0xff;
+      hash *= 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (saver != null) {
+      saver.shutdownNow();
+    }
+    if (isEnabled()) {
+      save();
+    }
+  }
+
+  /**
+   * Saves the manifest, if hashes were calculated since the last save, so that a crashed server
+   * loses at most the hashes of one save interval.
+   */
+  void saveIfHashed() {
+    if (contentHashCache.getMisses() != savedMisses) {
+      save();
+    }
+  }
+
+  /**
+   * Writes the cached hashes and the hashes of the mapped manifest, which were not hashed again,
+   * into a new manifest, which replaces and is mapped instead of the mapped manifest.
+   */
+  @ManagedOperation(description = "persists the cached content hashes")
+  public synchronized void save() {
+    if (!isEnabled()) {
+      return;
+    }
+
+    savedMisses = contentHashCache.getMisses();
+    final List<Record> records = new ArrayList<>();
+    final Set<String> paths = new HashSet<>();
+    for (Map.Entry<ContentHashCache.Key, byte[]> hash : contentHashCache.snapshot().entrySet()) {
+      final ContentHashCache.Key key = hash.getKey();
+      final byte[] path = key.getPath().toString().getBytes(StandardCharsets.UTF_8);
+      if (records.size() < maxEntries && isPersistable(path)
+          && paths.add(key.getPath().toString())) {
+        records.add(new Record(path, key.getSize(), key.getLastModified().to(TimeUnit.NANOSECONDS),
+            hash.getValue()));
+      }
+    }
+    addMappedRecords(records, paths);
+
+    final Path path = Path.of(file);
+    try {
+      final Path temporary = Files.createTempFile(path.toAbsolutePath().getParent(),
+          path.getFileName().toString(), ".tmp");
+      write(temporary, records);
+      Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      LOG.info("saved hash manifest {} with {} entries", path, records.size());
+    } catch (IOException ex) {
+      LOG.error("could not save hash manifest {}", path, ex);
+      return;
+    }
+
+    // hashes evicted from the hash cache until the next save are kept by the new manifest
+    load(path);
+  }
+
+  /**
+   * @return true, if the length of the path fits into the record and the file still exists
+   */
+  private static boolean isPersistable(byte[] path) {
+    if (path.length > MAX_PATH_LENGTH) {
+      LOG.debug("not persisting hash of a path with {} bytes", path.length);
+      return false;
+    }
+    return Files.exists(Path.of(new String(path, StandardCharsets.UTF_8)));
+  }
+
+  private void addMappedRecords(List<Record> records, Set<String> paths) {
+    final ByteBuffer buffer = manifest;
+    if (buffer == null) {
+      return;
+    }
+
+    try {
+      final int mappedCount = buffer.getInt(4);
+      for (int i = 0; i < mappedCount && records.size() < maxEntries; i++) {
+        final int offset = buffer.getInt(HEADER_SIZE + i * INDEX_ENTRY_SIZE + 8);
+        final byte[] path = read(buffer, offset + RECORD_HEADER_SIZE,
+            buffer.getShort(offset + 16) & 0xffff);
+        final byte[] digest = read(buffer, offset + RECORD_HEADER_SIZE + path.length,
+            buffer.get(offset + 18) & 0xff);
+        if (isPersistable(path) && paths.add(new String(path, StandardCharsets.UTF_8))) {
+          records.add(new Record(path, buffer.getLong(offset), buffer.getLong(offset + 8), digest));
+        }
+      }
+    } catch (IndexOutOfBoundsException ex) {
+      LOG.warn("skipping corrupt records of hash manifest", ex);
+    }
+  }
+
+  private static void write(Path path, List<Record> records) throws IOException {
+    final Record[] sorted = records.toArray(new Record[0]);
+    Arrays.sort(sorted, Comparator.comparingLong(record -> record.hash));
+
+    try (DataOutputStream output = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(path)))) {
+      output.writeInt(MAGIC);
+      output.writeInt(sorted.length);
+      long offset = HEADER_SIZE + (long) sorted.length * INDEX_ENTRY_SIZE;
+      for (Record record : sorted) {
+        if (offset > Integer.MAX_VALUE) {
+          throw new IOException("manifest exceeds 2GB. reduce max entries");
+        }
+        output.writeLong(record.hash);
+        output.writeInt((int) offset);
+        offset += RECORD_HEADER_SIZE + record.path.length + record.digest.length;
+      }
+      for (Record record : sorted) {
+        output.writeLong(record.size);
+        output.writeLong(record.lastModified);
+        output.writeShort(record.path.length);
+        output.writeByte(record.digest.length);
+        output.write(record.path);
+        output.write(record.digest);
+      }
+    }
+  }
+
+  @ManagedAttribute(description = "number of entries of the mapped manifest")
+  public int getEntryCount() {
+    return count;
+  }
+
+  @ManagedAttribute(description = "number of hashes served from the manifest since startup")
+  public long getHits() {
+    return hits.sum();
+  }
+
+  @ManagedAttribute(description = "number of unknown or outdated files since startup")
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  private static final class Record {
+
+    private final byte[] path;
+    private final long hash;
+    private final long size;
+    private final long lastModified;
+    private final byte[] digest;
+
+    private Record(byte[] path, long size, long lastModified, byte[] digest) {
+      this.path = path;
+      this.hash = hashOf(path);
+      this.size = size;
+      this.lastModified = lastModified;
+      this.digest = digest;
+    }
+  }
+}
@@ -0,0 +1,371 @@
+package de.havemann.lukas.vanillahttp.search;
+
+import de.havemann.lukas.vanillahttp.protocol.response.BufferRegion;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DataSizeUnit;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.util.unit.DataUnit;
+
+/**
+ * Optional cache of memory mapped files for large files, which are too big for the {@link
+ * ContentCache}. The mapped content lives outside of the java heap in the page cache of the
+ * operating system and is written directly from the mapping to the socket.
+ * <p>
+ * The cache is bounded by the total size of the mapped files and by the number of mappings.
+ * Mappings are evicted in least recently used order and admitted like in the {@link ContentCache}
+ * (TinyLFU). Every response holds a reference to its mapping. An evicted mapping is unmapped as
+ * soon as the last response using it is written, instead of waiting for the garbage collector.
+ */
+@Component
+@ManagedResource(objectName = "de.havemann.lukas.vanillahttp:type=MappedFileCache")
+public class MappedFileCache implements FileChangeListener {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MappedFileCache.class);
+  private static final Unmapper UNMAPPER = Unmapper.create();
+
+  private final Map<Path, Mapping> mappings = new LinkedHashMap<>(16, 0.75f, true);
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder rejections = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  @Value("${vanilla.server.filesystem.mappedCache.enabled}")
+  private boolean enabled;
+
+  @DataSizeUnit(DataUnit.BYTES)
+  @Value("${vanilla.server.filesystem.mappedCache.minFileSize}")
+  private DataSize minFileSize;
+
+  @DataSizeUnit(DataUnit.BYTES)
+  @Value("${vanilla.server.filesystem.mappedCache.maxSize}")
+  private DataSize maxSize;
+
+  @Value("${vanilla.server.filesystem.mappedCache.maxMappings}")
+  private int maxMappings;
+
+  private FrequencySketch frequencySketch;
+  private long size;
+
+  @PostConstruct
+  public void init() {
+    if (minFileSize.isNegative() || maxSize.isNegative() || maxMappings < 0) {
+      throw new IllegalArgumentException("invalid mapped file cache size");
+    }
+
+    // candidates are estimated with ten times the number of mappings
+    frequencySketch = new FrequencySketch(Math.max(maxMappings, 1) * 10);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @param size size of a file in bytes
+   * @return true, if the file is large enough to be mapped
+   */
+  public boolean isCandidate(long size) {
+    return enabled && size >= minFileSize.toBytes() && size <= Integer.MAX_VALUE;
+  }
+
+  /**
+   * Looks up the mapping of the file or maps the file, if it is admitted. A cached mapping of an
+   * older version of the file is evicted.
+   *
+   * @param path       file to be mapped
+   * @param attributes current attributes of the file
+   * @return mapping of the current file version
+   */
+  public synchronized Optional<Mapping> get(Path path, BasicFileAttributes attributes)
+      throws IOException {
+    if (!isCandidate(attributes.size())) {
+      return Optional.empty();
+    }
+
+    final Path key = path.toAbsolutePath().normalize();
+    frequencySketch.increment(key);
+    final Mapping cached = mappings.get(key);
+    if (cached != null && cached.isVersionOf(attributes)) {
+      hits.increment();
+      return Optional.of(cached);
+    }
+
+    misses.increment();
+    if (cached != null) {
+      remove(key);
+    }
+
+    if (!admits(key, attributes.size())) {
+      rejections.increment();
+      return Optional.empty();
+    }
+
+    final Mapping mapping = Mapping.map(key, attributes);
+    final Iterator<Mapping> leastRecentlyUsed = mappings.values().iterator();
+    while (mappings.size() >= maxMappings || size + mapping.getSize() > maxSize.toBytes()) {
+      final Mapping evicted = leastRecentlyUsed.next();
+      leastRecentlyUsed.remove();
+      size -= evicted.getSize();
+      evicted.release();
+      evictions.increment();
+    }
+
+    mappings.put(key, mapping);
+    size += mapping.getSize();
+    return Optional.of(mapping);
+  }
+
+  private boolean admits(Path key, long mappingSize) {
+    if (mappingSize > maxSize.toBytes() || maxMappings == 0) {
+      return false;
+    }
+
+    final int candidateFrequency = frequencySketch.frequency(key);
+    long available = maxSize.toBytes() - size;
+    int availableMappings = maxMappings - mappings.size();
+    final Iterator<Map.Entry<Path, Mapping>> leastRecentlyUsed = mappings.entrySet().iterator();
+    while ((available < mappingSize || availableMappings < 1) && leastRecentlyUsed.hasNext()) {
+      final Map.Entry<Path, Mapping> victim = leastRecentlyUsed.next();
+      if (frequencySketch.frequency(victim.getKey()) >= candidateFrequency) {
+        return false;
+      }
+      available += victim.getValue().getSize();
+      availableMappings++;
+    }
+
+    return available >= mappingSize && availableMappings >= 1;
+  }
+
+  private void remove(Path key) {
+    final Mapping removed = mappings.remove(key);
+    if (removed != null) {
+      size -= removed.getSize();
+      removed.release();
+    }
+  }
+
+  @Override
+  public synchronized void onChange(Path path) {
+    final Iterator<Map.Entry<Path, Mapping>> iterator = mappings.entrySet().iterator();
+    while (iterator.hasNext()) {
+      final Map.Entry<Path, Mapping> entry = iterator.next();
+      if (entry.getKey().startsWith(path)) {
+        iterator.remove();
+        size -= entry.getValue().getSize();
+        entry.getValue().release();
+      }
+    }
+  }
+
+  @Override
+  public void onOverflow() {
+    clear();
+  }
+
+  @PreDestroy
+  @ManagedOperation(description = "unmaps all files, which are not in use")
+  public synchronized void clear() {
+    mappings.values().forEach(Mapping::release);
+    mappings.clear();
+    size = 0;
+  }
+
+  @ManagedAttribute(description = "number of mapped files")
+  public synchronized int getMappingCount() {
+    return mappings.size();
+  }
+
+  @ManagedAttribute(description = "size of all mapped files in bytes")
+  public synchronized long getSize() {
+    return size;
+  }
+
+  @ManagedAttribute(description = "number of requests served from a mapping since startup")
+  public long getHits() {
+    return hits.sum();
+  }
+
+  @ManagedAttribute(description = "number of requests without mapping since startup")
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  @ManagedAttribute(description = "number of files not admitted to the cache since startup")
+  public long getRejections() {
+    return rejections.sum();
+  }
+
+  @ManagedAttribute(description = "number of mappings evicted from the cache since startup")
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  /**
+   * Read only mapping of a file version. The mapping is reference counted. The cache holds one
+   * reference and every open lease holds one. The file is unmapped, once all references are
+   * released.
+   */
+  public static final class Mapping {
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final FileTime lastModified;
+    private final Object fileKey;
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    private Mapping(Path path, MappedByteBuffer buffer, BasicFileAttributes attributes) {
+      this.path = Objects.requireNonNull(path);
+      this.buffer = Objects.requireNonNull(buffer);
+      this.lastModified = attributes.lastModifiedTime();
+      this.fileKey = attributes.fileKey();
+    }
+
+    static Mapping map(Path path, BasicFileAttributes attributes) throws IOException {
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        // the mapping stays valid after the channel is closed
+        return new Mapping(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, attributes.size()),
+            attributes);
+      }
+    }
+
+    public Path getPath() {
+      return path;
+    }
+
+    public long getSize() {
+      return buffer.capacity();
+    }
+
+    boolean isVersionOf(BasicFileAttributes attributes) {
+      return attributes.size() == buffer.capacity()
+          && attributes.lastModifiedTime().equals(lastModified)
+          && Objects.equals(attributes.fileKey(), fileKey);
+    }
+
+    /**
+     * Leases the mapped content. If the mapping was unmapped in the meantime, the file is mapped
+     * again for this lease only.
+     *
+     * @param attributes attributes of the file version, which is leased
+     * @return lease, which has to be closed after use
+     */
+    public BufferRegion.Lease lease(BasicFileAttributes attributes) throws IOException {
+      if (retain()) {
+        return new MappingLease(this);
+      }
+
+      return new MappingLease(map(path, attributes));
+    }
+
+    boolean isUnmapped() {
+      return references.get() == 0;
+    }
+
+    private boolean retain() {
+      while (true) {
+        final int current = references.get();
+        if (current == 0) {
+          return false;
+        }
+        if (references.compareAndSet(current, current + 1)) {
+          return true;
+        }
+      }
+    }
+
+    private void release() {
+      if (references.decrementAndGet() == 0) {
+        UNMAPPER.unmap(buffer);
+      }
+    }
+  }
+
+  private static final class MappingLease implements BufferRegion.Lease {
+
+    private final Mapping mapping;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private MappingLease(Mapping mapping) {
+      this.mapping = mapping;
+    }
+
+    @Override
+    public ByteBuffer getBuffer() {
+      // independent position for every response
+      return mapping.buffer.asReadOnlyBuffer();
+    }
+
+    @Override
+    public void close() {
+      if (closed.compareAndSet(false, true)) {
+        mapping.release();
+      }
+    }
+  }
+
+  /**
+   * Unmaps a mapped buffer immediately. Java offers no public api for this, so the internal
+   * cleaner is used. If it is not accessible, the mapping is released by the garbage collector.
+   */
+  private static final class Unmapper {
+
+    private final Object unsafe;
+    private final Method invokeCleaner;
+
+    private Unmapper(Object unsafe, Method invokeCleaner) {
+      this.unsafe = unsafe;
+      this.invokeCleaner = invokeCleaner;
+    }
+
+    static Unmapper create() {
+      try {
+        final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+        final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+        theUnsafe.setAccessible(true);
+        return new Unmapper(theUnsafe.get(null),
+            unsafeClass.getMethod("invokeCleaner", ByteBuffer.class));
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        LOG.warn("unmapping not supported. mappings are released by the garbage collector", e);
+        return new Unmapper(null, null);
+      }
+    }
+
+    void unmap(MappedByteBuffer buffer) {
+      if (invokeCleaner == null) {
+        return;
+      }
+
+      try {
+        invokeCleaner.invoke(unsafe, buffer);
+      } catch (ReflectiveOperationException e) {
+        LOG.warn("unmapping failed", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,218 @@
+package de.havemann.lukas.vanillahttp.search;
+
+import de.havemann.lukas.vanillahttp.search.PathResolutionCache.Resolution;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationUnit;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of request paths, which were recently not found, so that repeated requests for
+ * missing files, e.g. of scanners or broken links, don't access the filesystem. A missing path is
+ * cached for the configured time to live. The least recently used path is evicted, once the
+ * configured max number of entries is reached.
+ * <p>
+ * A bloom filter in front of the exact entries answers lookups of paths, which were never missed,
+ * without taking the lock. Removed paths remain in the bloom filter until it is rebuilt, which only
+ * causes a lookup of the exact entries. The bloom filter is sized for twice the max number of
+ * entries and rebuilt after max entries insertions, so that a rebuild is amortized over as many
+ * misses. Missing paths are removed immediately, if the creation of
+ * the path or a parent directory is reported by {@link FilesystemWatcher}.
+ */
+@Component
+@ManagedResource(objectName = "de.havemann.lukas.vanillahttp:type=NegativeLookupCache")
+public class NegativeLookupCache implements FileChangeListener {
+
+  // about 1% false positives with 4 hash functions
+  private static final int BITS_PER_ENTRY = 10;
+  private static final int HASH_FUNCTIONS = 4;
+  // cached paths and paths inserted since the last rebuild
+  private static final int FILTER_CAPACITY_FACTOR = 2;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder rebuilds = new LongAdder();
+
+  @Value("${vanilla.server.filesystem.negativeCache.maxEntries}")
+  private int maxEntries;
+
+  @DurationUnit(ChronoUnit.MILLIS)
+  @Value("${vanilla.server.filesystem.negativeCache.timeToLive}")
+  private Duration timeToLive;
+
+  private Map<String, Resolution> missingPaths;
+  private volatile BloomFilter bloomFilter;
+  // paths added to the bloom filter since it was built
+  private int insertions;
+
+  @PostConstruct
+  public void init() {
+    if (maxEntries < 0 || timeToLive.isNegative()) {
+      throw new IllegalArgumentException("invalid negative cache configuration");
+    }
+
+    missingPaths = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Resolution> eldest) {
+        return size() > maxEntries;
+      }
+    };
+    bloomFilter = newBloomFilter();
+  }
+
+  /**
+   * @param rawPath raw path of the request uri without query
+   * @return resolution of the missing path or empty, if the path wasn't missed recently
+   */
+  Optional<Resolution> get(String rawPath) {
+    if (!bloomFilter.mightContain(rawPath)) {
+      misses.increment();
+      return Optional.empty();
+    }
+
+    synchronized (missingPaths) {
+      final Resolution missing = missingPaths.get(rawPath);
+      if (missing != null && System.nanoTime() - missing.getResolvedAt() < timeToLive.toNanos()) {
+        hits.increment();
+        return Optional.of(missing);
+      }
+      if (missing != null) {
+        missingPaths.remove(rawPath);
+      }
+    }
+
+    misses.increment();
+    return Optional.empty();
+  }
+
+  /**
+   * @param rawPath raw path of the request uri without query
+   * @param missing resolution of the path, which was not found
+   */
+  void put(String rawPath, Resolution missing) {
+    if (maxEntries == 0) {
+      return;
+    }
+
+    synchronized (missingPaths) {
+      missingPaths.put(rawPath, missing);
+      if (++insertions > maxEntries) {
+        // evicted and removed paths would fill up the bloom filter
+        final BloomFilter rebuilt = newBloomFilter();
+        missingPaths.keySet().forEach(rebuilt::add);
+        insertions = 0;
+        bloomFilter = rebuilt;
+        rebuilds.increment();
+      } else {
+        bloomFilter.add(rawPath);
+      }
+    }
+  }
+
+  private BloomFilter newBloomFilter() {
+    return new BloomFilter(FILTER_CAPACITY_FACTOR * maxEntries);
+  }
+
+  @ManagedAttribute(description = "number of cached missing paths")
+  public int getSize() {
+    synchronized (missingPaths) {
+      return missingPaths.size();
+    }
+  }
+
+  @ManagedAttribute(description = "number of requests for missing paths served from cache")
+  public long getHits() {
+    return hits.sum();
+  }
+
+  @ManagedAttribute(description = "number of requests, which were not known as missing")
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  @ManagedAttribute(description = "number of rebuilds of the bloom filter since startup")
+  public long getRebuilds() {
+    return rebuilds.sum();
+  }
+
+  @Override
+  public void onChange(Path path) {
+    synchronized (missingPaths) {
+      missingPaths.values().removeIf(missing -> missing.getPath().startsWith(path));
+    }
+  }
+
+  @Override
+  public void onOverflow() {
+    clear();
+  }
+
+  @ManagedOperation(description = "removes all cached missing paths")
+  public void clear() {
+    synchronized (missingPaths) {
+      missingPaths.clear();
+      insertions = 0;
+      bloomFilter = newBloomFilter();
+    }
+  }
+
+  /**
+   * Bloom filter of strings with double hashing. Thread safe.
+   */
+  private static final class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final int bitCount;
+
+    private BloomFilter(int expectedEntries) {
+      this.bits = new AtomicLongArray(Math.max(1, (expectedEntries * BITS_PER_ENTRY + 63) / 64));
+      this.bitCount = bits.length() * 64;
+    }
+
+    void add(String value) {
+      final int hash = value.hashCode();
+      final int step = mix(hash) | 1;
+      for (int i = 0; i < HASH_FUNCTIONS; i++) {
+        final int bit = Math.floorMod(hash + i * step, bitCount);
+        final long mask = 1L << bit;
+        final int index = bit >>> 6;
+        long word;
+        do {
+          word = bits.get(index);
+        } while ((word & mask) == 0 && !bits.compareAndSet(index, word, word | mask));
+      }
+    }
+
+    boolean mightContain(String value) {
+      final int hash = value.hashCode();
+      final int step = mix(hash) | 1;
+      for (int i = 0; i < HASH_FUNCTIONS; i++) {
+        final int bit = Math.floorMod(hash + i * step, bitCount);
+        if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static int mix(int hash) {
+      // finalizer of murmur3
+      hash ^= hash >>> 16;
+      hash *= 0x85ebca6b;
+      hash ^= hash >>> 13;
+      hash *= 0xc2b2ae35;
+      return hash ^ (hash >>> 16);
+    }
+  }
+}
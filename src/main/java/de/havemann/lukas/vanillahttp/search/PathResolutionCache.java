@@ -0,0 +1,345 @@
+package de.havemann.lukas.vanillahttp.search;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of resolved request paths, so that decoding, normalization and the index file
+ * lookup of a request path are done only once. A resolution is valid until the resolved file or
+ * directory changes or it is older than the supplied max age. The least recently used resolution is
+ * evicted, once the configured max number of entries is reached.
+ * <p>
+ * Resolutions of changed files are removed immediately, if they are reported by {@link
+ * FilesystemWatcher}. A resolved directory is removed as well, if one of its entries changes, since
+ * an index file may have been created. If an index file changes, a resolution to another index file
+ * of the same directory is removed too, since the preferred index file may have been created.
+ * Resolutions are indexed by their path, so that a change only looks up the affected entries. A
+ * resolution, which was started before the last change, is not cached, since the change may have
+ * been missed by it.
+ * <p>
+ * The attributes of precompressed siblings of resolved files are cached alongside, so that content
+ * negotiation doesn't read them for every request.
+ */
+@Component
+@ManagedResource(objectName = "de.havemann.lukas.vanillahttp:type=PathResolutionCache")
+public class PathResolutionCache implements FileChangeListener {
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  @Value("${vanilla.server.filesystem.resolutionCache.maxEntries}")
+  private int maxEntries;
+
+  private Map<String, Resolution> resolutions;
+  private PathIndex<String> resolutionIndex;
+  private Map<Path, Sibling> siblings;
+  private PathIndex<Path> siblingIndex;
+  private volatile long lastChangeAt;
+
+  @PostConstruct
+  public void init() {
+    if (maxEntries < 0) {
+      throw new IllegalArgumentException("invalid max entries of " + maxEntries);
+    }
+
+    resolutionIndex = new PathIndex<>();
+    resolutions = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Resolution> eldest) {
+        if (size() > maxEntries) {
+          resolutionIndex.remove(eldest.getValue().path, eldest.getKey());
+          return true;
+        }
+        return false;
+      }
+    };
+    siblingIndex = new PathIndex<>();
+    siblings = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Path, Sibling> eldest) {
+        if (size() > maxEntries) {
+          siblingIndex.remove(eldest.getKey(), eldest.getKey());
+          return true;
+        }
+        return false;
+      }
+    };
+    lastChangeAt = System.nanoTime();
+  }
+
+  /**
+   * @param rawPath raw path of the request uri without query
+   * @param maxAge  max age of a cached resolution
+   * @return cached resolution of the path or empty, if it is unknown or outdated
+   */
+  Optional<Resolution> get(String rawPath, Duration maxAge) {
+    synchronized (resolutions) {
+      final Resolution resolution = resolutions.get(rawPath);
+      if (resolution != null && System.nanoTime() - resolution.resolvedAt < maxAge.toNanos()) {
+        hits.increment();
+        return Optional.of(resolution);
+      }
+    }
+
+    misses.increment();
+    return Optional.empty();
+  }
+
+  /**
+   * @param rawPath    raw path of the request uri without query
+   * @param resolution resolution of the path
+   * @param startedAt  start of the resolution in nanoseconds of {@link System#nanoTime()}
+   */
+  void put(String rawPath, Resolution resolution, long startedAt) {
+    synchronized (resolutions) {
+      if (startedAt - lastChangeAt < 0) {
+        return;
+      }
+      final Resolution replaced = resolutions.put(rawPath, resolution);
+      if (replaced != null) {
+        resolutionIndex.remove(replaced.path, rawPath);
+      }
+      resolutionIndex.add(resolution.path, rawPath);
+    }
+  }
+
+  /**
+   * @param path   absolute and normalized path of the precompressed sibling
+   * @param maxAge max age of a cached lookup
+   * @return cached lookup of the sibling or empty, if it is unknown or outdated
+   */
+  Optional<Sibling> getSibling(Path path, Duration maxAge) {
+    synchronized (siblings) {
+      final Sibling sibling = siblings.get(path);
+      if (sibling != null && System.nanoTime() - sibling.lookedUpAt < maxAge.toNanos()) {
+        return Optional.of(sibling);
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * @param path      absolute and normalized path of the precompressed sibling
+   * @param sibling   lookup of the sibling
+   * @param startedAt start of the lookup in nanoseconds of {@link System#nanoTime()}
+   */
+  void putSibling(Path path, Sibling sibling, long startedAt) {
+    synchronized (siblings) {
+      if (startedAt - lastChangeAt < 0) {
+        return;
+      }
+      if (siblings.put(path, sibling) == null) {
+        siblingIndex.add(path, path);
+      }
+    }
+  }
+
+  /**
+   * @return true, if another resolution would evict the least recently used resolution
+   */
+  boolean isFull() {
+    synchronized (resolutions) {
+      return resolutions.size() >= maxEntries;
+    }
+  }
+
+  @ManagedAttribute(description = "number of cached resolutions")
+  public int getSize() {
+    synchronized (resolutions) {
+      return resolutions.size();
+    }
+  }
+
+  @ManagedAttribute(description = "number of requests resolved from cache since startup")
+  public long getHits() {
+    return hits.sum();
+  }
+
+  @ManagedAttribute(description = "number of resolved request paths since startup")
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  @Override
+  public void onChange(Path path) {
+    lastChangeAt = System.nanoTime();
+    synchronized (resolutions) {
+      final Set<String> removed = resolutionIndex.removeAtOrBelow(path);
+      if (path.getParent() != null) {
+        removed.addAll(resolutionIndex.removeAt(path.getParent()));
+        if (isIndexFile(path)) {
+          for (String indexFileName : FilesystemContentSearchService.INDEX_FILE_NAMES) {
+            removed.addAll(resolutionIndex.removeAt(path.resolveSibling(indexFileName)));
+          }
+        }
+      }
+      resolutions.keySet().removeAll(removed);
+    }
+    synchronized (siblings) {
+      siblings.keySet().removeAll(siblingIndex.removeAtOrBelow(path));
+    }
+  }
+
+  private static boolean isIndexFile(Path path) {
+    return path.getFileName() != null
+        && FilesystemContentSearchService.INDEX_FILE_NAMES.contains(path.getFileName().toString());
+  }
+
+  @Override
+  public void onOverflow() {
+    clear();
+  }
+
+  @ManagedOperation(description = "removes all cached resolutions")
+  public void clear() {
+    lastChangeAt = System.nanoTime();
+    synchronized (resolutions) {
+      resolutions.clear();
+      resolutionIndex.clear();
+    }
+    synchronized (siblings) {
+      siblings.clear();
+      siblingIndex.clear();
+    }
+  }
+
+  /**
+   * Keys of cached entries by the path of their target, sorted by path, so that the entries of a
+   * path and all paths below it are found without iterating all entries. Not thread safe.
+   */
+  private static final class PathIndex<K> {
+
+    private final TreeMap<String, Set<K>> keys = new TreeMap<>();
+
+    void add(Path path, K key) {
+      keys.computeIfAbsent(path.toString(), ignored -> new HashSet<>()).add(key);
+    }
+
+    void remove(Path path, K key) {
+      final Set<K> keysOfPath = keys.get(path.toString());
+      if (keysOfPath != null && keysOfPath.remove(key) && keysOfPath.isEmpty()) {
+        keys.remove(path.toString());
+      }
+    }
+
+    /**
+     * @return removed keys of the path
+     */
+    Set<K> removeAt(Path path) {
+      final Set<K> removed = keys.remove(path.toString());
+      return removed != null ? removed : new HashSet<>();
+    }
+
+    /**
+     * @return removed keys of the path and all paths below it
+     */
+    Set<K> removeAtOrBelow(Path path) {
+      final Set<K> removed = removeAt(path);
+      final String separator = path.getFileSystem().getSeparator();
+      final String directory = path.toString().endsWith(separator)
+          ? path.toString() : path + separator;
+      // all paths below the directory start with it and sort before its successor
+      final String successor = directory.substring(0, directory.length() - 1)
+          + (char) (separator.charAt(separator.length() - 1) + 1);
+      final Map<String, Set<K>> below = keys.subMap(directory, successor);
+      below.values().forEach(removed::addAll);
+      below.clear();
+      return removed;
+    }
+
+    void clear() {
+      keys.clear();
+    }
+  }
+
+  /**
+   * Looked up precompressed sibling of a file, which may not exist
+   */
+  static final class Sibling {
+
+    private final BasicFileAttributes attributes;
+    private final long lookedUpAt = System.nanoTime();
+
+    /**
+     * @param attributes attributes of the sibling or null, if it doesn't exist
+     */
+    Sibling(BasicFileAttributes attributes) {
+      this.attributes = attributes;
+    }
+
+    /**
+     * @return attributes of the sibling or empty, if it doesn't exist
+     */
+    Optional<BasicFileAttributes> getAttributes() {
+      return Optional.ofNullable(attributes);
+    }
+  }
+
+  /**
+   * Target of a request path in the base directory
+   */
+  static final class Resolution {
+
+    private final Kind kind;
+    private final Path path;
+    private final long resolvedAt = System.nanoTime();
+
+    /**
+     * @param kind kind of the target
+     * @param path absolute and normalized path of the target
+     */
+    Resolution(Kind kind, Path path) {
+      this.kind = Objects.requireNonNull(kind);
+      this.path = Objects.requireNonNull(path);
+    }
+
+    Kind getKind() {
+      return kind;
+    }
+
+    Path getPath() {
+      return path;
+    }
+
+    /**
+     * @return time of the resolution in nanoseconds of {@link System#nanoTime()}
+     */
+    long getResolvedAt() {
+      return resolvedAt;
+    }
+
+    enum Kind {
+      /**
+       * requested file or index file of the requested directory
+       */
+      FILE,
+      /**
+       * requested directory without index file
+       */
+      DIRECTORY,
+      /**
+       * not readable or outside of the base directory
+       */
+      FORBIDDEN,
+      /**
+       * neither file nor directory exists, cached by {@link NegativeLookupCache}
+       */
+      NOT_FOUND
+    }
+  }
+}
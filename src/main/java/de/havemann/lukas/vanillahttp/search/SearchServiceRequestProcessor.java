@@ -2,18 +2,35 @@ package de.havemann.lukas.vanillahttp.search;
 
 import de.havemann.lukas.vanillahttp.dispatcher.ClientRequestProcessor;
 import de.havemann.lukas.vanillahttp.dispatcher.ClientSocketDispatcher;
+import de.havemann.lukas.vanillahttp.dispatcher.EventLoopDispatcher;
 import de.havemann.lukas.vanillahttp.protocol.request.HttpRequest;
+import de.havemann.lukas.vanillahttp.protocol.response.BufferRegion;
+import de.havemann.lukas.vanillahttp.protocol.response.CompositeRegion;
+import de.havemann.lukas.vanillahttp.protocol.response.CompressedVariantCache;
+import de.havemann.lukas.vanillahttp.protocol.response.ContentCompressor;
+import de.havemann.lukas.vanillahttp.protocol.response.FileRegion;
 import de.havemann.lukas.vanillahttp.protocol.response.HttpResponse;
+import de.havemann.lukas.vanillahttp.protocol.specification.ByteRange;
+import de.havemann.lukas.vanillahttp.protocol.specification.ContentCoding;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpHeaderField;
 import de.havemann.lukas.vanillahttp.protocol.specification.HttpMethod;
 import de.havemann.lukas.vanillahttp.protocol.specification.HttpStatusCode;
 import de.havemann.lukas.vanillahttp.protocol.specification.MediaType;
+import de.havemann.lukas.vanillahttp.protocol.specification.RangeRequest;
 import de.havemann.lukas.vanillahttp.protocol.specification.etag.ETag;
 import de.havemann.lukas.vanillahttp.protocol.specification.etag.ETagEvaluator;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.ThreadLocalRandom;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,50 +41,93 @@ import org.springframework.stereotype.Component;
  * Contains the main business logic of the vanilla-http-server. Binds together all the different
  * components by excepting {@link HttpRequest}, calling the provided {@link ContentSearchService}
  * instance to find the request resource, evaluating the content search result and generating the
- * HTTP response.
+ * HTTP response. Text bodies are sent precompressed or compressed with the {@link
+ * ContentCompressor} for clients accepting it. Compressed bodies are cached in the {@link
+ * CompressedVariantCache}, concurrent compressions of the same content are coalesced by {@link
+ * SingleFlight}. On event loop threads, bodies are compressed while they are written. Byte ranges
+ * of uncompressed content are sent as 206 (Partial Content). Directories are listed as json, if a
+ * {@link DirectoryListingQuery} is requested.
  */
 @Component
 @Scope("prototype")
 public class SearchServiceRequestProcessor implements ClientRequestProcessor {
 
   private static final Logger LOG = LoggerFactory.getLogger(ClientSocketDispatcher.class);
+  private static final String MULTIPART_BYTERANGES = "multipart/byteranges; boundary=";
+  // bodies of unsuccessful search results are rendered once and shared by all responses
+  private static final Map<ContentSearchService.Result, byte[]> RESULT_BODIES =
+      renderResultBodies();
 
   private final ContentSearchService contentSearchService;
+  private final ContentCompressor contentCompressor;
+  private final CompressedVariantCache compressedVariantCache;
+  private final SingleFlight singleFlight;
 
-  public SearchServiceRequestProcessor(@Autowired ContentSearchService contentSearchService) {
+  public SearchServiceRequestProcessor(@Autowired ContentSearchService contentSearchService,
+      @Autowired ContentCompressor contentCompressor,
+      @Autowired CompressedVariantCache compressedVariantCache,
+      @Autowired SingleFlight singleFlight) {
     this.contentSearchService = contentSearchService;
+    this.contentCompressor = contentCompressor;
+    this.compressedVariantCache = compressedVariantCache;
+    this.singleFlight = singleFlight;
   }
 
   public void processRequest(HttpRequest request, HttpResponse.Builder response)
       throws IOException {
     final ContentSearchService.Response searchResponse = contentSearchService
-        .fetch(request.getUri());
+        .fetch(request.getUri(), request.getHeader());
 
     if (searchResponse.getResult() != ContentSearchService.Result.FOUND) {
       final HttpStatusCode defaultHttpCode = searchResponse.getResult().getDefaultHttpCode();
       response.statusCode(defaultHttpCode)
           .contentType(MediaType.ASCII_TEXT)
-          .payloadRenderer(() -> new ByteArrayInputStream(
-              defaultHttpCode.getRepresentation().getBytes(StandardCharsets.UTF_8)));
+          .payload(RESULT_BODIES.get(searchResponse.getResult()));
       return;
     }
 
     handleFoundSearchResult(request, searchResponse, response);
   }
 
+  private static Map<ContentSearchService.Result, byte[]> renderResultBodies() {
+    final Map<ContentSearchService.Result, byte[]> bodies =
+        new EnumMap<>(ContentSearchService.Result.class);
+    for (ContentSearchService.Result result : ContentSearchService.Result.values()) {
+      bodies.put(result,
+          result.getDefaultHttpCode().getRepresentation().getBytes(StandardCharsets.UTF_8));
+    }
+    return bodies;
+  }
+
   private void handleFoundSearchResult(HttpRequest request,
       ContentSearchService.Response searchResponse, HttpResponse.Builder builder)
       throws IOException {
-    final boolean shouldContentBeSend = prepareHttpHeader(request, searchResponse, builder);
+    final Optional<ETag> eTag = searchResponse.getETag();
+    for (HttpHeaderField vary : searchResponse.getVary()) {
+      builder.add(HttpHeaderField.VARY, vary.getRepresentation());
+    }
+    final Map<ContentCoding, FileRegion> precompressed = new EnumMap<>(ContentCoding.class);
+    final Optional<ContentCoding> coding = negotiateContentCoding(request, searchResponse,
+        precompressed, builder);
+    final boolean shouldContentBeSend = prepareHttpHeader(request, searchResponse, eTag, coding,
+        builder);
+    final Optional<List<ByteRange>> ranges = shouldContentBeSend
+        ? selectRanges(request, searchResponse, eTag, coding, builder) : Optional.empty();
 
+    if (ranges.isPresent()) {
+      addRanges(searchResponse, ranges.get(), builder);
+      return;
+    }
+
+    builder.contentType(searchResponse.getMediaType().orElse(MediaType.UNKNOWN));
     if (request.getHttpMethod() == HttpMethod.HEAD) {
       return;
     }
 
     if (request.getHttpMethod() == HttpMethod.GET) {
       if (shouldContentBeSend) {
-        builder.payloadRenderer(() -> searchResponse.getInputStream()
-            .orElseThrow(() -> new IllegalStateException(searchResponse.toString())));
+        addPayload(request, searchResponse, eTag, coding.map(precompressed::get), coding,
+            builder);
       }
       return;
     }
@@ -78,15 +138,256 @@ public class SearchServiceRequestProcessor implements ClientRequestProcessor {
     builder.statusCode(HttpStatusCode.INTERNAL_SERVER_ERROR);
   }
 
-  private boolean prepareHttpHeader(HttpRequest request,
-      ContentSearchService.Response searchResponse, HttpResponse.Builder builder)
+  /**
+   * @param precompressed receives the precompressed variants, which were looked up
+   * @return content coding of the body or empty, if the body is sent uncompressed
+   */
+  private Optional<ContentCoding> negotiateContentCoding(HttpRequest request,
+      ContentSearchService.Response searchResponse, Map<ContentCoding, FileRegion> precompressed,
+      HttpResponse.Builder builder) throws IOException {
+    final MediaType mediaType = searchResponse.getMediaType().orElse(MediaType.UNKNOWN);
+    final OptionalLong size = searchResponse.getSize();
+    if (!contentCompressor.mayBePrecompressed(mediaType, size)) {
+      return Optional.empty();
+    }
+
+    final boolean compressibleOnTheFly = contentCompressor.isCompressible(mediaType, size);
+    final List<ContentCoding> availableCodings = new ArrayList<>();
+    for (ContentCoding coding : contentCompressor.getOfferedCodings()) {
+      // content, which is too large for compression on the fly, may be precompressed
+      if (compressibleOnTheFly) {
+        availableCodings.add(coding);
+      } else {
+        searchResponse.getPrecompressed(coding).ifPresent(region -> {
+          precompressed.put(coding, region);
+          availableCodings.add(coding);
+        });
+      }
+    }
+
+    if (availableCodings.isEmpty()) {
+      return Optional.empty();
+    }
+
+    // caches must not serve the compressed body to clients, which don't accept it
+    builder.add(HttpHeaderField.VARY, HttpHeaderField.ACCEPT_ENCODING.getRepresentation());
+    final Optional<ContentCoding> negotiated = contentCompressor
+        .negotiate(request.getHeader(), availableCodings);
+    if (compressibleOnTheFly && negotiated.isPresent()) {
+      // only the variant of the selected coding is looked up
+      searchResponse.getPrecompressed(negotiated.get())
+          .ifPresent(region -> precompressed.put(negotiated.get(), region));
+    }
+    return negotiated;
+  }
+
+  /**
+   * Ranges are only supported for uncompressed content of known size, since the size of the
+   * compressed content is unknown in advance.
+   *
+   * @return requested ranges or empty, if the complete content is sent. an empty list, if none of
+   * the requested ranges is satisfiable.
+   */
+  private Optional<List<ByteRange>> selectRanges(HttpRequest request,
+      ContentSearchService.Response searchResponse, Optional<ETag> eTag,
+      Optional<ContentCoding> coding, HttpResponse.Builder builder) {
+    final OptionalLong size = searchResponse.getSize();
+    if (coding.isPresent() || size.isEmpty()) {
+      return Optional.empty();
+    }
+
+    builder.add(HttpHeaderField.ACCEPT_RANGES, ByteRange.UNIT);
+    if (request.getHttpMethod() != HttpMethod.GET) {
+      return Optional.empty();
+    }
+
+    final Optional<RangeRequest> rangeRequest = RangeRequest.of(request.getHeader());
+    if (rangeRequest.isEmpty() || !new ETagEvaluator(request.getHeader())
+        .isRangeApplicable(eTag.orElse(null), searchResponse.getLastModified().orElse(null))) {
+      return Optional.empty();
+    }
+
+    return Optional.of(rangeRequest.get().resolve(size.getAsLong()));
+  }
+
+  /**
+   * Sends a single range directly and multiple ranges as multipart/byteranges body. Every range
+   * is read from the buffer or transferred from the file at its position.
+   */
+  private void addRanges(ContentSearchService.Response searchResponse, List<ByteRange> ranges,
+      HttpResponse.Builder builder) throws IOException {
+    final long size = searchResponse.getSize().orElseThrow();
+    final MediaType mediaType = searchResponse.getMediaType().orElse(MediaType.UNKNOWN);
+    if (ranges.isEmpty()) {
+      builder.statusCode(HttpStatusCode.RANGE_NOT_SATISFIABLE)
+          .add(HttpHeaderField.CONTENT_RANGE, ByteRange.unsatisfiedContentRange(size))
+          .contentType(MediaType.ASCII_TEXT)
+          .payload(HttpStatusCode.RANGE_NOT_SATISFIABLE.getRepresentation()
+              .getBytes(StandardCharsets.UTF_8));
+      return;
+    }
+
+    builder.statusCode(HttpStatusCode.PARTIAL_CONTENT);
+    final Optional<BufferRegion> bufferRegion = searchResponse.getBufferRegion();
+    if (ranges.size() == 1) {
+      final ByteRange range = ranges.get(0);
+      builder.contentType(mediaType)
+          .add(HttpHeaderField.CONTENT_RANGE, range.contentRangeOf(size));
+      if (bufferRegion.isPresent()) {
+        builder.bufferRegion(bufferRegion.get().slice(range.getFirst(), range.getLength()));
+      } else {
+        builder.fileRegion(fileRegionOf(searchResponse, range));
+      }
+      return;
+    }
+
+    final String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    builder.add(HttpHeaderField.CONTENT_TYPE, MULTIPART_BYTERANGES + boundary);
+    final CompositeRegion.Builder body = new CompositeRegion.Builder();
+    for (ByteRange range : ranges) {
+      body.add(BufferRegion.of(("\r\n--" + boundary + "\r\n"
+          + HttpHeaderField.CONTENT_TYPE.getRepresentation() + HttpHeaderField.KEY_VALUE_DELIMITER
+          + mediaType.getRepresentation() + "\r\n"
+          + HttpHeaderField.CONTENT_RANGE.getRepresentation() + HttpHeaderField.KEY_VALUE_DELIMITER
+          + range.contentRangeOf(size) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII)));
+      if (bufferRegion.isPresent()) {
+        body.add(bufferRegion.get().slice(range.getFirst(), range.getLength()));
+      } else {
+        body.add(fileRegionOf(searchResponse, range));
+      }
+    }
+    body.add(BufferRegion.of(("\r\n--" + boundary + "--\r\n")
+        .getBytes(StandardCharsets.US_ASCII)));
+    builder.compositeRegion(body.build());
+  }
+
+  /**
+   * @param precompressed precompressed variant of the negotiated coding, if there is one
+   */
+  private void addPayload(HttpRequest request, ContentSearchService.Response searchResponse,
+      Optional<ETag> eTag, Optional<FileRegion> precompressed, Optional<ContentCoding> coding,
+      HttpResponse.Builder builder) throws IOException {
+    if (precompressed.isPresent()) {
+      builder.fileRegion(precompressed.get());
+      return;
+    }
+
+    if (coding.isPresent()) {
+      addCompressedPayload(URI.create(request.getUri()).getRawPath(), searchResponse, eTag,
+          coding.get(), builder);
+      return;
+    }
+
+    final Optional<BufferRegion> bufferRegion = searchResponse.getBufferRegion();
+    if (bufferRegion.isPresent()) {
+      builder.bufferRegion(bufferRegion.get());
+      return;
+    }
+
+    final OptionalLong size = searchResponse.getSize();
+    if (size.isPresent()) {
+      // files are sent zero copy with content length
+      builder.fileRegion(fileRegionOf(searchResponse, size.getAsLong()));
+      return;
+    }
+
+    // streamed content of unknown size
+    builder.payloadRenderer(() -> searchResponse.getInputStream()
+        .orElseThrow(() -> new IllegalStateException(searchResponse.toString())));
+  }
+
+  /**
+   * @param path requested path, which identifies the cached variants together with the etag
+   */
+  private void addCompressedPayload(String path, ContentSearchService.Response searchResponse,
+      Optional<ETag> eTag, ContentCoding coding, HttpResponse.Builder builder) throws IOException {
+    // repeated requests for the same content are served without compressing it again
+    final Optional<byte[]> cached = eTag.flatMap(tag -> compressedVariantCache.get(path, tag, coding));
+    if (cached.isPresent()) {
+      builder.payload(cached.get());
+      return;
+    }
+
+    if (EventLoopDispatcher.isEventLoopThread()) {
+      // compressed step by step while the response is written, so that the other connections of
+      // the event loop aren't blocked by the compression of a large body
+      builder.payloadRenderer(() -> streamCompressed(path, searchResponse, eTag, coding));
+      return;
+    }
+
+    if (eTag.isEmpty()) {
+      builder.payload(compress(searchResponse, coding));
+      return;
+    }
+
+    // concurrent requests share one compression
+    final Object key = SingleFlight.keyOf("compress", path, eTag.get(), coding);
+    final Optional<byte[]> compressed = singleFlight.execute(key, () -> Optional.of(
+            compressedVariantCache.put(path, eTag.get(), coding, compress(searchResponse, coding))),
+        Optional::empty);
+    if (compressed.isPresent()) {
+      builder.payload(compressed.get());
+      return;
+    }
+
+    // the concurrent compression took too long or failed. the body is streamed directly instead
+    // of compressing it completely once more
+    builder.payloadRenderer(() -> streamCompressed(path, searchResponse, eTag, coding));
+  }
+
+  /**
+   * @return stream of the compressed body, which is cached as soon as it is sent completely
+   */
+  private InputStream streamCompressed(String path, ContentSearchService.Response searchResponse,
+      Optional<ETag> eTag, ContentCoding coding) {
+    final InputStream compressed = contentCompressor.compressing(searchResponse.getInputStream()
+        .orElseThrow(() -> new IllegalStateException(searchResponse.toString())), coding);
+    return eTag.map(tag -> compressedVariantCache.capture(path, tag, coding, compressed))
+        .orElse(compressed);
+  }
+
+  private byte[] compress(ContentSearchService.Response searchResponse, ContentCoding coding)
       throws IOException {
+    try {
+      final Optional<BufferRegion> bufferRegion = searchResponse.getBufferRegion();
+      if (bufferRegion.isPresent()) {
+        return contentCompressor.compress(bufferRegion.get(), coding);
+      }
+
+      final long size = searchResponse.getSize()
+          .orElseThrow(() -> new IllegalStateException(searchResponse.toString()));
+      return contentCompressor.compress(fileRegionOf(searchResponse, size), coding);
+    } catch (IOException | RuntimeException ex) {
+      throw ex;
+    } catch (Exception ex) {
+      throw new IOException("compression failed", ex);
+    }
+  }
+
+  private static FileRegion fileRegionOf(ContentSearchService.Response searchResponse, long size) {
+    return fileRegionOf(searchResponse, 0, size);
+  }
+
+  private static FileRegion fileRegionOf(ContentSearchService.Response searchResponse,
+      ByteRange range) {
+    return fileRegionOf(searchResponse, range.getFirst(), range.getLength());
+  }
+
+  private static FileRegion fileRegionOf(ContentSearchService.Response searchResponse,
+      long position, long count) {
+    return new FileRegion(() -> searchResponse.getFileChannel()
+        .orElseThrow(() -> new IllegalStateException(searchResponse.toString())), position, count);
+  }
+
+  private boolean prepareHttpHeader(HttpRequest request,
+      ContentSearchService.Response searchResponse, Optional<ETag> contentETag,
+      Optional<ContentCoding> coding, HttpResponse.Builder builder) {
     final Optional<ZonedDateTime> lastModified = searchResponse.getLastModified();
-    final Optional<ETag> eTag = searchResponse.getHash()
-        .map(hash -> new ETag(hash, ETag.Kind.STRONG));
+    // every content coding is a representation of its own
+    final Optional<ETag> eTag = contentETag
+        .map(tag -> coding.map(c -> tag.withSuffix(c.getRepresentation())).orElse(tag));
 
     builder.statusCode(searchResponse.getResult().getDefaultHttpCode());
-    builder.contentType(searchResponse.getMediaType().orElse(MediaType.UNKNOWN));
     lastModified.ifPresent(builder::lastModified);
     eTag.ifPresent(builder::eTag);
 
@@ -95,6 +396,8 @@ public class SearchServiceRequestProcessor implements ClientRequestProcessor {
 
     if (!shouldContentBeSend) {
       builder.statusCode(HttpStatusCode.NOT_MODIFIED);
+    } else {
+      coding.ifPresent(c -> builder.add(HttpHeaderField.CONTENT_ENCODING, c.getRepresentation()));
     }
 
     return shouldContentBeSend;
@@ -0,0 +1,138 @@
+package de.havemann.lukas.vanillahttp.search;
+
+import de.havemann.lukas.vanillahttp.dispatcher.EventLoopDispatcher;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationUnit;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Coalesces concurrent cache misses for the same key, so that only the first caller loads, hashes
+ * or compresses the content, while the other callers wait for its result. A key has to identify
+ * the version of the content, e.g. path, size and modification time of a file.
+ * <p>
+ * Waiting callers fall back to their own direct load, if the result isn't available within the
+ * configured timeout or the first caller failed. Event loop threads don't wait at all, since
+ * waiting would stall all connections of the event loop. Thread safe.
+ */
+@Component
+@ManagedResource(objectName = "de.havemann.lukas.vanillahttp:type=SingleFlight")
+public class SingleFlight {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SingleFlight.class);
+
+  private final Map<Object, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+  private final LongAdder loads = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+  private final LongAdder fallbacks = new LongAdder();
+
+  @DurationUnit(ChronoUnit.MILLIS)
+  @Value("${vanilla.server.filesystem.singleFlight.timeout}")
+  private Duration timeout;
+
+  @PostConstruct
+  public void init() {
+    if (timeout.isNegative()) {
+      throw new IllegalArgumentException("invalid single flight timeout of " + timeout);
+    }
+  }
+
+  /**
+   * @param parts parts of a key, e.g. the kind of the load and the identity of the content version
+   * @return key, which is equal to keys of equal parts
+   */
+  public static Object keyOf(Object... parts) {
+    return List.of(parts);
+  }
+
+  /**
+   * Loads the value or waits for the concurrent load of the same key.
+   *
+   * @param key      identity of the loaded content version
+   * @param load     load, which is executed, if no load of the key is in flight
+   * @param fallback direct load, which is executed, if waiting for the concurrent load failed or
+   *                 the caller is an event loop thread
+   * @return loaded value, which may be shared with concurrent callers
+   */
+  public <V> V execute(Object key, Load<V> load, Load<V> fallback) throws IOException {
+    final CompletableFuture<Object> flight = new CompletableFuture<>();
+    final CompletableFuture<Object> inFlight = flights.putIfAbsent(key, flight);
+    if (inFlight != null) {
+      coalesced.increment();
+      return await(inFlight, fallback);
+    }
+
+    loads.increment();
+    try {
+      final V value = load.load();
+      flight.complete(value);
+      return value;
+    } catch (IOException | RuntimeException | Error ex) {
+      flight.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      flights.remove(key, flight);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private <V> V await(CompletableFuture<Object> inFlight, Load<V> fallback) throws IOException {
+    final Duration waitTime = EventLoopDispatcher.isEventLoopThread() ? Duration.ZERO : timeout;
+    try {
+      return (V) inFlight.get(waitTime.toNanos(), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException ex) {
+      LOG.debug("concurrent load not finished within {}. loading directly", waitTime);
+    } catch (ExecutionException ex) {
+      LOG.debug("concurrent load failed. loading directly", ex.getCause());
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+
+    fallbacks.increment();
+    return fallback.load();
+  }
+
+  @ManagedAttribute(description = "number of loads in flight")
+  public int getInFlight() {
+    return flights.size();
+  }
+
+  @ManagedAttribute(description = "number of executed loads since startup")
+  public long getLoads() {
+    return loads.sum();
+  }
+
+  @ManagedAttribute(description = "number of callers, which waited for a concurrent load")
+  public long getCoalesced() {
+    return coalesced.sum();
+  }
+
+  @ManagedAttribute(description = "number of waiting callers, which loaded directly")
+  public long getFallbacks() {
+    return fallbacks.sum();
+  }
+
+  /**
+   * Load of a value, e.g. reading, hashing or compressing content
+   */
+  @FunctionalInterface
+  public interface Load<V> {
+
+    V load() throws IOException;
+  }
+}
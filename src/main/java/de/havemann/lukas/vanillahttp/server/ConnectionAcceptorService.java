@@ -3,10 +3,14 @@ package de.havemann.lukas.vanillahttp.server;
 import de.havemann.lukas.vanillahttp.dispatcher.ClientSocketDispatcher;
 import java.io.IOException;
 import java.net.InetAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.SocketTimeoutException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,17 +21,25 @@ import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 /**
- * Starts the Thread which accepts new client connections. New client sockets are passed to {@link
+ * Starts the Threads which accept new client connections. New client sockets are passed to {@link
  * ClientSocketDispatcher}.
+ * <p>
+ * If more than one acceptor thread is configured and the operating system supports {@code
+ * SO_REUSEPORT}, every acceptor thread gets its own listening socket and the kernel distributes new
+ * connections between them. Otherwise all acceptor threads share a single listening socket.
+ * Acceptor threads block in accept without timeout and are woken up on shutdown by closing the
+ * listening sockets.
  */
 @Service
 public class ConnectionAcceptorService {
 
-  public static final Duration ACCEPTOR_THREAD_TIMEOUT = Duration.ofMillis(1000);
+  public static final Duration ACCEPTOR_SHUTDOWN_TIMEOUT = Duration.ofMillis(2000);
   private static final Logger LOG = LoggerFactory.getLogger(ConnectionAcceptorService.class);
   private final ClientSocketDispatcher clientSocketDispatcher;
   private final AtomicReference<AcceptorThreadState> state = new AtomicReference<>(
       AcceptorThreadState.NOT_STARTED);
+  private final List<ServerSocketChannel> acceptingChannels = new ArrayList<>();
+  private final List<Thread> acceptorThreads = new ArrayList<>();
 
   @Value("${vanilla.server.port}")
   private Integer port;
@@ -35,8 +47,10 @@ public class ConnectionAcceptorService {
   private String host;
   @Value("${vanilla.server.backlog}")
   private Integer backlog;
-  private ServerSocket acceptingSocket;
-  private Thread acceptorThread;
+  @Value("${vanilla.server.acceptor.threads}")
+  private Integer acceptorThreadCount;
+  @Value("${vanilla.server.acceptor.reusePort}")
+  private Boolean reusePort;
 
   public ConnectionAcceptorService(ClientSocketDispatcher clientSocketDispatcher) {
     this.clientSocketDispatcher = clientSocketDispatcher;
@@ -45,22 +59,52 @@ public class ConnectionAcceptorService {
   @SuppressWarnings("unused")
   @EventListener
   public void onApplicationEvent(ContextRefreshedEvent event) {
-    if (!bindAcceptingSocket()) {
+    if (acceptorThreadCount <= 0) {
+      throw new IllegalArgumentException("invalid acceptor thread count " + acceptorThreadCount);
+    }
+
+    if (!state.compareAndSet(AcceptorThreadState.NOT_STARTED, AcceptorThreadState.RUNNING)) {
+      LOG.warn("acceptor threads already started. current state {}", state.get());
+      return;
+    }
+
+    if (!bindAcceptingChannels()) {
+      closeAcceptingChannels();
+      state.set(AcceptorThreadState.STOPPED);
       return;
     }
 
-    LOG.info("start excepting client connections");
+    LOG.info("start excepting client connections with {} acceptor threads on {} sockets",
+        acceptorThreadCount, acceptingChannels.size());
 
-    acceptorThread = new Thread(this::acceptClientConnections);
-    acceptorThread.setName("acceptThread");
-    acceptorThread.setPriority(Thread.MAX_PRIORITY);
-    acceptorThread.start();
+    for (int i = 0; i < acceptorThreadCount; i++) {
+      final ServerSocketChannel channel = acceptingChannels.get(i % acceptingChannels.size());
+      final Thread acceptorThread = new Thread(() -> acceptClientConnections(channel));
+      acceptorThread.setName("acceptThread-" + (i + 1));
+      acceptorThread.setPriority(Thread.MAX_PRIORITY);
+      acceptorThreads.add(acceptorThread);
+      acceptorThread.start();
+    }
   }
 
-  private boolean bindAcceptingSocket() {
+  private boolean bindAcceptingChannels() {
     try {
-      acceptingSocket = new ServerSocket(port, backlog, InetAddress.getByName(host));
-      acceptingSocket.setSoTimeout((int) ACCEPTOR_THREAD_TIMEOUT.toMillis());
+      final InetSocketAddress address = new InetSocketAddress(InetAddress.getByName(host), port);
+      for (int i = 0; i < acceptorThreadCount; i++) {
+        // channel backed socket, so that dispatchers can switch client sockets to non-blocking io
+        final ServerSocketChannel channel = ServerSocketChannel.open();
+        acceptingChannels.add(channel);
+
+        final boolean ownSocketPerThread = useReusePort(channel);
+        if (ownSocketPerThread) {
+          channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+        }
+        channel.bind(address, backlog);
+
+        if (!ownSocketPerThread) {
+          break;
+        }
+      }
       LOG.info("started vanilla http server on {} and port {}", host, port);
       return true;
     } catch (IOException e) {
@@ -69,21 +113,30 @@ public class ConnectionAcceptorService {
     }
   }
 
-  private void acceptClientConnections() {
-    state.set(AcceptorThreadState.RUNNING);
+  private boolean useReusePort(ServerSocketChannel channel) {
+    if (!reusePort || acceptorThreadCount == 1) {
+      return false;
+    }
 
+    if (!channel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+      LOG.info("SO_REUSEPORT not supported. acceptor threads share a single socket");
+      return false;
+    }
+    return true;
+  }
+
+  private void acceptClientConnections(ServerSocketChannel channel) {
     while (state.get() == AcceptorThreadState.RUNNING) {
-      Socket clientSocket;
       try {
-        clientSocket = acceptingSocket.accept();
-        clientSocketDispatcher.dispatch(clientSocket);
-      } catch (SocketTimeoutException e) {
-        LOG.debug("clientSocket timeout. free thread to check shutdown flag");
+        final SocketChannel clientChannel = channel.accept();
+        clientSocketDispatcher.dispatch(clientChannel.socket());
+      } catch (ClosedChannelException e) {
+        LOG.debug("accepting socket closed. stopping acceptor thread");
+        return;
       } catch (IOException e) {
         LOG.error("unexpected error", e);
       }
     }
-    state.set(AcceptorThreadState.STOPPED);
   }
 
   @SuppressWarnings("unused")
@@ -94,22 +147,24 @@ public class ConnectionAcceptorService {
       return;
     }
 
-    if (acceptorThread != null) {
-      acceptorThread.join(ACCEPTOR_THREAD_TIMEOUT.multipliedBy(2).toMillis());
-    }
+    // wakes up all acceptor threads blocked in accept
+    closeAcceptingChannels();
 
-    closeAcceptingSocket();
+    for (Thread acceptorThread : acceptorThreads) {
+      acceptorThread.join(ACCEPTOR_SHUTDOWN_TIMEOUT.toMillis());
+    }
+    state.set(AcceptorThreadState.STOPPED);
 
     LOG.info("Acceptor socket closed");
   }
 
-  private void closeAcceptingSocket() {
-    try {
-      if (acceptingSocket != null) {
-        acceptingSocket.close();
+  private void closeAcceptingChannels() {
+    for (ServerSocketChannel channel : acceptingChannels) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        LOG.error("error during close of accepting socket", e);
       }
-    } catch (IOException e) {
-      LOG.error("error during close of accepting socket", e);
     }
   }
 
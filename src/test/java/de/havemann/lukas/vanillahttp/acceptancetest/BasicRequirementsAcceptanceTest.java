@@ -6,6 +6,8 @@ import static org.junit.jupiter.api.Assertions.fail;
 
 import de.havemann.lukas.vanillahttp.VanillaHttpServer;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.stream.Collectors;
 import org.assertj.core.api.SoftAssertions;
 import org.jsoup.Connection;
@@ -34,6 +36,40 @@ class BasicRequirementsAcceptanceTest {
 
   private static final String BASE_URL = "http://localhost:9999/";
 
+  @Test
+  void httpGetRequestToFileIsSentWithContentLengthTest() throws IOException {
+    final Connection.Response response = Jsoup.connect(BASE_URL + "subdirectory/hamburg.jpg")
+        .method(Connection.Method.GET)
+        .maxBodySize(0)
+        .execute();
+
+    final Path file = Path.of("./src/test/resources/sampledirectory/subdirectory/hamburg.jpg");
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(response.header("Content-Length")).isEqualTo(String.valueOf(Files.size(file)));
+    softly.assertThat(response.header("Transfer-Encoding")).isNull();
+    softly.assertThat(response.bodyAsBytes()).isEqualTo(Files.readAllBytes(file));
+    softly.assertAll();
+  }
+
+  @Test
+  void cachedDirectoryPageIsSentWithContentLengthTest() throws IOException {
+    // the first request streams the page and caches it
+    final String streamed = Jsoup.connect(BASE_URL + "subdirectory/")
+        .method(Connection.Method.GET)
+        .execute()
+        .body();
+    final Connection.Response response = Jsoup.connect(BASE_URL + "subdirectory/")
+        .method(Connection.Method.GET)
+        .execute();
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(response.header("Content-Length"))
+        .isEqualTo(String.valueOf(response.bodyAsBytes().length));
+    softly.assertThat(response.header("Transfer-Encoding")).isNull();
+    softly.assertThat(response.body()).isEqualTo(streamed);
+    softly.assertAll();
+  }
+
   /**
    * Server must handle get request and its is possible to discover subdirectories
    */
@@ -0,0 +1,208 @@
+package de.havemann.lukas.vanillahttp.acceptancetest;
+
+import static de.havemann.lukas.vanillahttp.acceptancetest.HttpResponses.header;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.havemann.lukas.vanillahttp.VanillaHttpServer;
+import de.havemann.lukas.vanillahttp.protocol.response.CompressedVariantCache;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpHeaderField;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpStatusCode;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.temporal.ChronoUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Testing the on the fly compression of text bodies and precompressed siblings
+ */
+@SpringBootTest(classes = VanillaHttpServer.class)
+@TestPropertySource(properties = {
+    "vanilla.server.port=9989",
+    "vanilla.server.http.compression.enabled=true",
+    "vanilla.server.http.compression.minSize=1KB",
+    "vanilla.server.http.compression.maxSize=64KB",
+    "vanilla.server.filesystem.basedir=./target/compression-test"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class CompressionAcceptanceTest {
+
+  private static final String BASE_URL = "http://localhost:9989/";
+  private static final Path BASE_DIR = Path.of("./target/compression-test");
+  private static final String CONTENT = "compressible text ".repeat(500);
+
+  private static final String HUGE_CONTENT = "too large for compression on the fly ".repeat(3000);
+
+  private final HttpClient httpClient = HttpClient.newHttpClient();
+  private byte[] precompressed;
+
+  @Autowired
+  private CompressedVariantCache compressedVariantCache;
+
+  @BeforeAll
+  void beforeAll() throws IOException {
+    Files.createDirectories(BASE_DIR);
+    Files.writeString(BASE_DIR.resolve("large.txt"), CONTENT);
+    Files.writeString(BASE_DIR.resolve("small.txt"), "small text");
+
+    precompressed = gzip(HUGE_CONTENT);
+    Files.writeString(BASE_DIR.resolve("huge.txt"), HUGE_CONTENT);
+    Files.write(BASE_DIR.resolve("huge.txt.gz"), precompressed);
+
+    final Path stale = BASE_DIR.resolve("stale.txt");
+    Files.write(BASE_DIR.resolve("stale.txt.gz"), gzip("outdated content"));
+    Files.writeString(stale, CONTENT);
+    Files.setLastModifiedTime(BASE_DIR.resolve("stale.txt.gz"), FileTime.from(
+        Files.getLastModifiedTime(stale).toInstant().minus(1, ChronoUnit.HOURS)));
+  }
+
+  @Test
+  void textIsCompressedForAcceptingClientTest() throws Exception {
+    final HttpResponse<byte[]> response = get("large.txt", "deflate;q=0.5, gzip");
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(response.statusCode()).isEqualTo(HttpStatusCode.OK.getCode());
+    softly.assertThat(header(response, HttpHeaderField.CONTENT_ENCODING)).isEqualTo("gzip");
+    softly.assertThat(header(response, HttpHeaderField.VARY)).isEqualTo("Accept-Encoding");
+    softly.assertThat(header(response, HttpHeaderField.CONTENT_LENGTH))
+        .isEqualTo(String.valueOf(response.body().length));
+    softly.assertThat(header(response, HttpHeaderField.E_TAG)).endsWith("-gzip\"");
+    softly.assertThat(gunzip(response.body())).isEqualTo(CONTENT);
+    softly.assertAll();
+  }
+
+  @Test
+  void textIsNotCompressedWithoutAcceptEncodingTest() throws Exception {
+    final HttpResponse<byte[]> response = get("large.txt", "identity");
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(header(response, HttpHeaderField.CONTENT_ENCODING)).isNull();
+    softly.assertThat(header(response, HttpHeaderField.VARY)).isEqualTo("Accept-Encoding");
+    softly.assertThat(new String(response.body(), StandardCharsets.UTF_8)).isEqualTo(CONTENT);
+    softly.assertAll();
+  }
+
+  @Test
+  void smallTextIsNotCompressedTest() throws Exception {
+    final HttpResponse<byte[]> response = get("small.txt", "gzip");
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(header(response, HttpHeaderField.CONTENT_ENCODING)).isNull();
+    softly.assertThat(header(response, HttpHeaderField.VARY)).isNull();
+    softly.assertThat(new String(response.body(), StandardCharsets.UTF_8)).isEqualTo("small text");
+    softly.assertAll();
+  }
+
+  @Test
+  void eTagOfCompressedRepresentationIsValidatedTest() throws Exception {
+    final String gzipETag = header(get("large.txt", "gzip"), HttpHeaderField.E_TAG);
+    final String identityETag = header(get("large.txt", "identity"), HttpHeaderField.E_TAG);
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(gzipETag).isNotEqualTo(identityETag);
+    softly.assertThat(get("large.txt", "gzip", gzipETag).statusCode())
+        .isEqualTo(HttpStatusCode.NOT_MODIFIED.getCode());
+    softly.assertThat(get("large.txt", "identity", gzipETag).statusCode())
+        .isEqualTo(HttpStatusCode.OK.getCode());
+    softly.assertAll();
+  }
+
+  @Test
+  void precompressedSiblingIsSentTest() throws Exception {
+    final HttpResponse<byte[]> response = get("huge.txt", "gzip, deflate");
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(header(response, HttpHeaderField.CONTENT_ENCODING)).isEqualTo("gzip");
+    softly.assertThat(header(response, HttpHeaderField.VARY)).isEqualTo("Accept-Encoding");
+    softly.assertThat(response.body()).isEqualTo(precompressed);
+    softly.assertAll();
+  }
+
+  @Test
+  void largeTextWithoutPrecompressedSiblingIsNotCompressedTest() throws Exception {
+    final HttpResponse<byte[]> response = get("huge.txt", "deflate");
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(header(response, HttpHeaderField.CONTENT_ENCODING)).isNull();
+    softly.assertThat(new String(response.body(), StandardCharsets.UTF_8))
+        .isEqualTo(HUGE_CONTENT);
+    softly.assertAll();
+  }
+
+  @Test
+  void outdatedPrecompressedSiblingIsIgnoredTest() throws Exception {
+    final HttpResponse<byte[]> response = get("stale.txt", "gzip");
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(header(response, HttpHeaderField.CONTENT_ENCODING)).isEqualTo("gzip");
+    softly.assertThat(gunzip(response.body())).isEqualTo(CONTENT);
+    softly.assertAll();
+  }
+
+  @Test
+  void compressedVariantIsCachedTest() throws Exception {
+    get("large.txt", "deflate");
+    final long hits = compressedVariantCache.getHits();
+
+    final HttpResponse<byte[]> response = get("large.txt", "deflate");
+
+    assertThat(compressedVariantCache.getHits()).isGreaterThan(hits);
+    assertThat(inflate(response.body())).isEqualTo(CONTENT);
+  }
+
+  private HttpResponse<byte[]> get(String file, String acceptEncoding) throws Exception {
+    return httpClient.send(request(file, acceptEncoding).build(),
+        HttpResponse.BodyHandlers.ofByteArray());
+  }
+
+  private HttpResponse<byte[]> get(String file, String acceptEncoding, String ifNoneMatch)
+      throws Exception {
+    return httpClient.send(request(file, acceptEncoding)
+            .header(HttpHeaderField.IF_NONE_MATCH.getRepresentation(), ifNoneMatch)
+            .build(),
+        HttpResponse.BodyHandlers.ofByteArray());
+  }
+
+  private static HttpRequest.Builder request(String file, String acceptEncoding) {
+    return HttpRequest.newBuilder(URI.create(BASE_URL + file))
+        .header(HttpHeaderField.ACCEPT_ENCODING.getRepresentation(), acceptEncoding);
+  }
+
+  private static byte[] gzip(String content) throws IOException {
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+      gzip.write(content.getBytes(StandardCharsets.UTF_8));
+    }
+    return output.toByteArray();
+  }
+
+  private static String inflate(byte[] compressed) throws IOException {
+    try (InflaterInputStream inflater = new InflaterInputStream(
+        new ByteArrayInputStream(compressed))) {
+      return new String(inflater.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  private static String gunzip(byte[] compressed) throws IOException {
+    try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+      return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package de.havemann.lukas.vanillahttp.acceptancetest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.havemann.lukas.vanillahttp.VanillaHttpServer;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpHeaderField;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpStatusCode;
+import de.havemann.lukas.vanillahttp.search.ContentCache;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Testing that files are served from {@link ContentCache} and that changed files are reloaded
+ */
+@SpringBootTest(classes = VanillaHttpServer.class)
+@TestPropertySource(properties = {
+    "vanilla.server.port=9991",
+    "vanilla.server.filesystem.contentCache.enabled=true",
+    "vanilla.server.filesystem.contentCache.revalidateAfter=0ms",
+    "vanilla.server.filesystem.watch=false",
+    "vanilla.server.filesystem.basedir=./target/content-cache-test"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ContentCacheAcceptanceTest {
+
+  private static final String BASE_URL = "http://localhost:9991/";
+  private static final Path BASE_DIR = Path.of("./target/content-cache-test");
+
+  @Autowired
+  private ContentCache contentCache;
+
+  @BeforeAll
+  void beforeAll() throws IOException {
+    Files.createDirectories(BASE_DIR);
+  }
+
+  @Test
+  void fileIsServedFromCacheTest() throws IOException {
+    Files.writeString(BASE_DIR.resolve("cached.txt"), "cached content");
+
+    final Connection.Response firstResponse = get("cached.txt");
+    final long hitsBefore = contentCache.getHits();
+    final Connection.Response secondResponse = get("cached.txt");
+
+    assertThat(contentCache.getHits()).isEqualTo(hitsBefore + 1);
+    assertThat(secondResponse.body()).isEqualTo("cached content");
+    assertThat(secondResponse.header(HttpHeaderField.E_TAG.getRepresentation()))
+        .isEqualTo(firstResponse.header(HttpHeaderField.E_TAG.getRepresentation()));
+    assertThat(secondResponse.header(HttpHeaderField.LAST_MODIFIED.getRepresentation()))
+        .isEqualTo(firstResponse.header(HttpHeaderField.LAST_MODIFIED.getRepresentation()));
+  }
+
+  @Test
+  void changedFileIsReloadedTest() throws IOException {
+    final Path file = BASE_DIR.resolve("changed.txt");
+    Files.writeString(file, "first version");
+    Files.setLastModifiedTime(file, FileTime.from(Instant.parse("2021-04-15T18:26:56Z")));
+    assertThat(get("changed.txt").body()).isEqualTo("first version");
+
+    Files.writeString(file, "second version");
+    Files.setLastModifiedTime(file, FileTime.from(Instant.parse("2021-04-16T18:26:56Z")));
+
+    assertThat(get("changed.txt").body()).isEqualTo("second version");
+  }
+
+  @Test
+  void removedFileIsNotFoundTest() throws IOException {
+    final Path file = BASE_DIR.resolve("removed.txt");
+    Files.writeString(file, "removed");
+    get("removed.txt");
+
+    Files.delete(file);
+
+    assertThat(Jsoup.connect(BASE_URL + "removed.txt")
+        .ignoreHttpErrors(true)
+        .execute()
+        .statusCode()).isEqualTo(HttpStatusCode.NOT_FOUND.getCode());
+  }
+
+  private static Connection.Response get(String path) throws IOException {
+    return Jsoup.connect(BASE_URL + path)
+        .method(Connection.Method.GET)
+        .ignoreContentType(true)
+        .execute();
+  }
+}
@@ -0,0 +1,125 @@
+package de.havemann.lukas.vanillahttp.acceptancetest;
+
+import static de.havemann.lukas.vanillahttp.acceptancetest.HttpResponses.header;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.havemann.lukas.vanillahttp.VanillaHttpServer;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpHeaderField;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpStatusCode;
+import de.havemann.lukas.vanillahttp.protocol.specification.etag.ETag;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Testing strong ETags of the content hash and If-Range for files, which are hashed in several
+ * reads
+ */
+@SpringBootTest(classes = VanillaHttpServer.class)
+@TestPropertySource(properties = {
+    "vanilla.server.port=9984",
+    "vanilla.server.filesystem.eTag=CONTENT",
+    "vanilla.server.filesystem.basedir=./target/content-etag-test"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ContentETagAcceptanceTest {
+
+  private static final String BASE_URL = "http://localhost:9984/";
+  private static final Path BASE_DIR = Path.of("./target/content-etag-test");
+
+  private final HttpClient httpClient = HttpClient.newHttpClient();
+  private byte[] first;
+  private byte[] second;
+
+  @BeforeAll
+  void beforeAll() throws IOException {
+    final Random random = new Random(42);
+    first = new byte[1024 * 1024 + 17];
+    random.nextBytes(first);
+    second = new byte[1024 * 1024 + 17];
+    random.nextBytes(second);
+
+    Files.createDirectories(BASE_DIR);
+    Files.write(BASE_DIR.resolve("first.bin"), first);
+    Files.write(BASE_DIR.resolve("second.bin"), second);
+  }
+
+  @Test
+  void eTagOfLargeFileIsHashOfCompleteContentTest() throws Exception {
+    final HttpResponse<byte[]> firstResponse = get("first.bin");
+    final HttpResponse<byte[]> secondResponse = get("second.bin");
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(firstResponse.body()).isEqualTo(first);
+    softly.assertThat(header(firstResponse, HttpHeaderField.E_TAG))
+        .isEqualTo(strongETagOf(first).getRepresentation());
+    softly.assertThat(header(secondResponse, HttpHeaderField.E_TAG))
+        .isEqualTo(strongETagOf(second).getRepresentation());
+    softly.assertAll();
+  }
+
+  @Test
+  void ifNoneMatchOfOtherLargeFileIsNotModifiedTest() throws Exception {
+    final HttpResponse<byte[]> response = send(HttpRequest.newBuilder(URI.create(BASE_URL
+        + "second.bin")).header(HttpHeaderField.IF_NONE_MATCH.getRepresentation(),
+        strongETagOf(first).getRepresentation()));
+
+    assertThat(response.statusCode()).isEqualTo(HttpStatusCode.OK.getCode());
+    assertThat(response.body()).isEqualTo(second);
+  }
+
+  @Test
+  void rangeOfReplacedLargeFileIsNotSentForOldETagTest() throws Exception {
+    final Path file = BASE_DIR.resolve("replaced.bin");
+    Files.write(file, first);
+    final String oldETag = header(get("replaced.bin"), HttpHeaderField.E_TAG);
+    final HttpResponse<byte[]> unchanged = send(rangeRequest("replaced.bin", oldETag));
+
+    // same size with another modification time, like a new version of a download
+    Files.write(file, second);
+    Files.setLastModifiedTime(file, FileTime.fromMillis(
+        Files.getLastModifiedTime(file).toMillis() + 10_000));
+    final HttpResponse<byte[]> replaced = send(rangeRequest("replaced.bin", oldETag));
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(unchanged.statusCode()).isEqualTo(HttpStatusCode.PARTIAL_CONTENT.getCode());
+    softly.assertThat(unchanged.body()).isEqualTo(Arrays.copyOfRange(first, 1000, first.length));
+    softly.assertThat(replaced.statusCode()).isEqualTo(HttpStatusCode.OK.getCode());
+    softly.assertThat(replaced.body()).isEqualTo(second);
+    softly.assertThat(header(replaced, HttpHeaderField.E_TAG))
+        .isEqualTo(strongETagOf(second).getRepresentation());
+    softly.assertAll();
+  }
+
+  private static ETag strongETagOf(byte[] content) throws Exception {
+    return new ETag(MessageDigest.getInstance("MD5").digest(content), ETag.Kind.STRONG);
+  }
+
+  private static HttpRequest.Builder rangeRequest(String file, String ifRange) {
+    return HttpRequest.newBuilder(URI.create(BASE_URL + file))
+        .header(HttpHeaderField.RANGE.getRepresentation(), "bytes=1000-")
+        .header(HttpHeaderField.IF_RANGE.getRepresentation(), ifRange);
+  }
+
+  private HttpResponse<byte[]> get(String file) throws Exception {
+    return send(HttpRequest.newBuilder(URI.create(BASE_URL + file)));
+  }
+
+  private HttpResponse<byte[]> send(HttpRequest.Builder request) throws Exception {
+    return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+  }
+}
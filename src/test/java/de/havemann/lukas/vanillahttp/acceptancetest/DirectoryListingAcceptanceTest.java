@@ -0,0 +1,122 @@
+package de.havemann.lukas.vanillahttp.acceptancetest;
+
+import static de.havemann.lukas.vanillahttp.acceptancetest.HttpResponses.header;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.havemann.lukas.vanillahttp.VanillaHttpServer;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpHeaderField;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpStatusCode;
+import de.havemann.lukas.vanillahttp.search.DirectoryListingCache;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Testing streamed directory listings, which are cached in {@link DirectoryListingCache}
+ */
+@SpringBootTest(classes = VanillaHttpServer.class)
+@TestPropertySource(properties = {
+    "vanilla.server.port=9987",
+    "vanilla.server.filesystem.basedir=./target/listing-test"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class DirectoryListingAcceptanceTest {
+
+  private static final String BASE_URL = "http://localhost:9987/";
+  private static final Path BASE_DIR = Path.of("./target/listing-test");
+  private static final int ENTRIES = 5000;
+
+  private final HttpClient httpClient = HttpClient.newHttpClient();
+
+  @Autowired
+  private DirectoryListingCache directoryListingCache;
+
+  @BeforeAll
+  void beforeAll() throws IOException {
+    if (Files.exists(BASE_DIR)) {
+      try (Stream<Path> paths = Files.walk(BASE_DIR)) {
+        paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+      }
+    }
+
+    final Path large = Files.createDirectories(BASE_DIR.resolve("large"));
+    for (int i = 0; i < ENTRIES; i++) {
+      Files.createFile(large.resolve("file-" + i + ".txt"));
+    }
+    Files.createDirectories(BASE_DIR.resolve("escaped"));
+    Files.createFile(BASE_DIR.resolve("escaped").resolve("<b>&co #1.txt"));
+    Files.createDirectories(BASE_DIR.resolve("changing"));
+  }
+
+  @Test
+  void largeListingIsStreamedAndCachedTest() throws Exception {
+    final HttpResponse<String> streamed = get("large/");
+    final long hits = directoryListingCache.getHits();
+    final HttpResponse<String> cached = get("large/");
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(streamed.statusCode()).isEqualTo(HttpStatusCode.OK.getCode());
+    softly.assertThat(header(streamed, HttpHeaderField.TRANSFER_ENCODING)).isEqualTo("chunked");
+    softly.assertThat(streamed.body()).contains("<li><a href=\"file-4999.txt\">file-4999.txt</a>");
+    softly.assertThat(streamed.body().split("<li>")).hasSize(ENTRIES + 1);
+    softly.assertThat(header(cached, HttpHeaderField.CONTENT_LENGTH)).isNotNull();
+    softly.assertThat(cached.body()).isEqualTo(streamed.body());
+    softly.assertThat(directoryListingCache.getHits()).isGreaterThan(hits);
+    softly.assertAll();
+  }
+
+  @Test
+  void namesAreEscapedTest() throws Exception {
+    assertThat(get("escaped/").body())
+        .contains("<li><a href=\"%3Cb%3E&amp;co%20%231.txt\">&lt;b&gt;&amp;co #1.txt</a>");
+  }
+
+  @Test
+  void listingIsRevalidatedWithETagTest() throws Exception {
+    final HttpResponse<String> response = get("changing/");
+    final String eTag = header(response, HttpHeaderField.E_TAG);
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(eTag).startsWith("W/");
+    softly.assertThat(header(response, HttpHeaderField.LAST_MODIFIED)).isNotNull();
+    softly.assertThat(get("changing/", eTag).statusCode())
+        .isEqualTo(HttpStatusCode.NOT_MODIFIED.getCode());
+
+    Files.createFile(BASE_DIR.resolve("changing").resolve("new.txt"));
+    // modification time of the directory may not change within the timestamp resolution
+    Files.setLastModifiedTime(BASE_DIR.resolve("changing"),
+        FileTime.from(Instant.now().plusSeconds(10)));
+    final HttpResponse<String> changed = get("changing/", eTag);
+    softly.assertThat(changed.statusCode()).isEqualTo(HttpStatusCode.OK.getCode());
+    softly.assertThat(changed.body()).contains("new.txt");
+    softly.assertAll();
+  }
+
+  private HttpResponse<String> get(String path) throws Exception {
+    return httpClient.send(HttpRequest.newBuilder(URI.create(BASE_URL + path)).build(),
+        HttpResponse.BodyHandlers.ofString());
+  }
+
+  private HttpResponse<String> get(String path, String ifNoneMatch) throws Exception {
+    return httpClient.send(HttpRequest.newBuilder(URI.create(BASE_URL + path))
+            .header(HttpHeaderField.IF_NONE_MATCH.getRepresentation(), ifNoneMatch)
+            .build(),
+        HttpResponse.BodyHandlers.ofString());
+  }
+}
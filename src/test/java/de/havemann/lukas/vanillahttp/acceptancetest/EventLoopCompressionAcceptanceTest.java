@@ -0,0 +1,82 @@
+package de.havemann.lukas.vanillahttp.acceptancetest;
+
+import static de.havemann.lukas.vanillahttp.acceptancetest.HttpResponses.header;
+
+import de.havemann.lukas.vanillahttp.VanillaHttpServer;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpHeaderField;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpStatusCode;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Testing the compression of text bodies on event loop threads, which compress the body while it
+ * is written
+ */
+@SpringBootTest(classes = VanillaHttpServer.class)
+@TestPropertySource(properties = {
+    "vanilla.server.port=9983",
+    "vanilla.server.dispatcher=eventloop",
+    "vanilla.server.eventloop.threads=1",
+    "vanilla.server.http.compression.enabled=true",
+    "vanilla.server.filesystem.basedir=./target/eventloop-compression-test"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class EventLoopCompressionAcceptanceTest {
+
+  private static final String BASE_URL = "http://localhost:9983/";
+  private static final Path BASE_DIR = Path.of("./target/eventloop-compression-test");
+  // larger than a single compressed slice
+  private static final String CONTENT = "compressible text on the event loop ".repeat(2000);
+
+  private final HttpClient httpClient = HttpClient.newHttpClient();
+
+  @BeforeAll
+  void beforeAll() throws IOException {
+    Files.createDirectories(BASE_DIR);
+    Files.writeString(BASE_DIR.resolve("large.txt"), CONTENT);
+  }
+
+  @Test
+  void streamedCompressedBodyIsCachedTest() throws Exception {
+    final HttpResponse<byte[]> streamed = get("large.txt");
+    final HttpResponse<byte[]> cached = get("large.txt");
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(streamed.statusCode()).isEqualTo(HttpStatusCode.OK.getCode());
+    softly.assertThat(header(streamed, HttpHeaderField.CONTENT_ENCODING)).isEqualTo("gzip");
+    softly.assertThat(header(streamed, HttpHeaderField.TRANSFER_ENCODING)).isEqualTo("chunked");
+    softly.assertThat(gunzip(streamed.body())).isEqualTo(CONTENT);
+    softly.assertThat(header(cached, HttpHeaderField.CONTENT_LENGTH))
+        .isEqualTo(String.valueOf(streamed.body().length));
+    softly.assertThat(cached.body()).isEqualTo(streamed.body());
+    softly.assertThat(header(cached, HttpHeaderField.E_TAG))
+        .isEqualTo(header(streamed, HttpHeaderField.E_TAG));
+    softly.assertAll();
+  }
+
+  private HttpResponse<byte[]> get(String file) throws Exception {
+    return httpClient.send(HttpRequest.newBuilder(URI.create(BASE_URL + file))
+            .header(HttpHeaderField.ACCEPT_ENCODING.getRepresentation(), "gzip").build(),
+        HttpResponse.BodyHandlers.ofByteArray());
+  }
+
+  private static String gunzip(byte[] compressed) throws IOException {
+    try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+      return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package de.havemann.lukas.vanillahttp.acceptancetest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.havemann.lukas.vanillahttp.VanillaHttpServer;
+import de.havemann.lukas.vanillahttp.acceptancetest.Extension2AcceptanceTest.SimpleHttpTestClient;
+import de.havemann.lukas.vanillahttp.dispatcher.EventLoopDispatcher;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpHeaderField;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpStatusCode;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.assertj.core.api.SoftAssertions;
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Testing the non-blocking client connection handling of {@link EventLoopDispatcher}
+ */
+@SpringBootTest(classes = VanillaHttpServer.class)
+@TestPropertySource(properties = {
+    "vanilla.server.port=9995",
+    "vanilla.server.dispatcher=eventloop",
+    "vanilla.server.eventloop.threads=2",
+    "vanilla.server.http.keepAliveTimeout: 500ms",
+    "vanilla.server.http.chunkedEncodingBufferSize: 1KB",
+    "vanilla.server.filesystem.basedir=./src/test/resources/sampledirectory"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class EventLoopDispatcherAcceptanceTest {
+
+  private static final String BASE_URL = "http://localhost:9995/";
+
+  private SimpleHttpTestClient client;
+
+  @BeforeEach
+  void beforeEach() {
+    client = new SimpleHttpTestClient(9995);
+  }
+
+  @AfterEach
+  void afterEach() throws IOException {
+    if (client != null) {
+      client.close();
+    }
+  }
+
+  @Test
+  void httpGetRequestToBaseDirTest() throws IOException {
+    final Connection.Response response = Jsoup.connect(BASE_URL)
+        .method(Connection.Method.GET)
+        .execute();
+
+    assertThat(response.parse().select("li").stream().map(Element::text)
+        .collect(Collectors.toList()))
+        .contains("dirwithhtml/")
+        .contains("subdirectory/");
+  }
+
+  @Test
+  void largeFileIsTransferredCompletelyTest() throws IOException {
+    // HttpURLConnection doesn't limit reads to the content length. without connection close the
+    // 408 sent after the short keep alive timeout could be read as part of the body.
+    final Connection.Response response = Jsoup.connect(BASE_URL + "subdirectory/hamburg.jpg")
+        .method(Connection.Method.GET)
+        .header(HttpHeaderField.CONNECTION.getRepresentation(), "close")
+        .maxBodySize(0)
+        .execute();
+
+    final SoftAssertions softly = new SoftAssertions();
+    final Path file = Path.of("./src/test/resources/sampledirectory/subdirectory/hamburg.jpg");
+    softly.assertThat(response.statusCode()).isEqualTo(HttpStatusCode.OK.getCode());
+    softly.assertThat(response.header("Content-Length")).isEqualTo(String.valueOf(Files.size(file)));
+    softly.assertThat(response.header("Transfer-Encoding")).isNull();
+    softly.assertThat(response.bodyAsBytes()).isEqualTo(Files.readAllBytes(file));
+    softly.assertAll();
+  }
+
+  @Test
+  void connectionStaysOpen() throws IOException {
+    assertThat(client.sendHeadRequest().readResponse())
+        .contains(HttpStatusCode.OK.getRepresentation());
+    assertThat(client.sendHeadRequest().readResponse())
+        .contains(HttpStatusCode.OK.getRepresentation());
+  }
+
+  @Test
+  void pipelinedRequestsAreAnsweredInOrder() throws IOException {
+    client.sendHeadRequest().send("HEAD /unknown HTTP/1.1");
+
+    assertThat(client.readResponse()).contains(HttpStatusCode.OK.getRepresentation());
+    assertThat(client.readResponse()).contains(HttpStatusCode.NOT_FOUND.getRepresentation());
+  }
+
+  @Test
+  void pipelinedRequestsAreAnsweredTogetherTest() throws IOException {
+    // all requests are received with a single read
+    client.send("HEAD / HTTP/1.1\r\n\r\nHEAD /unknown HTTP/1.1\r\n\r\nHEAD / HTTP/1.1");
+
+    assertThat(client.readResponse()).contains(HttpStatusCode.OK.getRepresentation());
+    assertThat(client.readResponse()).contains(HttpStatusCode.NOT_FOUND.getRepresentation());
+    assertThat(client.readResponse()).contains(HttpStatusCode.OK.getRepresentation());
+  }
+
+  @Test
+  void connectionClosesAfterClientTimeout() throws IOException, InterruptedException {
+    assertThat(client.sendHeadRequest().readResponse())
+        .contains(HttpStatusCode.OK.getRepresentation());
+    TimeUnit.SECONDS.sleep(1);
+    assertThat(client.readResponse()).contains(HttpStatusCode.REQUEST_TIMEOUT.getRepresentation());
+  }
+
+  @Test
+  void handlesInvalidHttpGraceful() throws IOException {
+    assertThat(client.send("HEAD / GarbageHTTP/1.1").readResponse())
+        .contains(HttpStatusCode.BAD_REQUEST.getRepresentation());
+  }
+}
@@ -23,6 +23,7 @@ import org.springframework.test.context.TestPropertySource;
 @SpringBootTest(classes = VanillaHttpServer.class)
 @TestPropertySource(properties = {
     "vanilla.server.port=9998",
+    "vanilla.server.filesystem.eTag=CONTENT",
     "vanilla.server.filesystem.basedir=./src/test/resources/sampledirectory"
 })
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
@@ -5,6 +5,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import de.havemann.lukas.vanillahttp.VanillaHttpServer;
 import de.havemann.lukas.vanillahttp.protocol.specification.HttpStatusCode;
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
@@ -58,6 +59,16 @@ class Extension2AcceptanceTest {
         .contains(HttpStatusCode.OK.getRepresentation());
   }
 
+  @Test
+  void pipelinedRequestsAreAnsweredTogetherTest() throws IOException {
+    // all requests are received with a single read
+    client.send("HEAD / HTTP/1.1\r\n\r\nHEAD /unknown HTTP/1.1\r\n\r\nHEAD / HTTP/1.1");
+
+    assertThat(client.readResponse()).contains(HttpStatusCode.OK.getRepresentation());
+    assertThat(client.readResponse()).contains(HttpStatusCode.NOT_FOUND.getRepresentation());
+    assertThat(client.readResponse()).contains(HttpStatusCode.OK.getRepresentation());
+  }
+
   @Test
   void connectionClosesAfterClientTimeout() throws IOException, InterruptedException {
     assertThat(client.sendHeadRequest().readResponse())
@@ -95,7 +106,7 @@ class Extension2AcceptanceTest {
     }
   }
 
-  static class SimpleHttpTestClient {
+  static class SimpleHttpTestClient implements Closeable {
 
     private final int port;
     private Socket clientSocket;
@@ -141,8 +152,11 @@ class Extension2AcceptanceTest {
       return builder.toString();
     }
 
+    @Override
     public void close() throws IOException {
-      clientSocket.close();
+      if (clientSocket != null) {
+        clientSocket.close();
+      }
     }
 
     public SimpleHttpTestClient header(String key, String value) {
@@ -0,0 +1,20 @@
+package de.havemann.lukas.vanillahttp.acceptancetest;
+
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpHeaderField;
+import java.net.http.HttpResponse;
+
+/**
+ * Helpers for responses of the {@link java.net.http.HttpClient} in acceptance tests
+ */
+final class HttpResponses {
+
+  private HttpResponses() {
+  }
+
+  /**
+   * @return first value of the header field or null, if it is missing
+   */
+  static String header(HttpResponse<?> response, HttpHeaderField headerField) {
+    return response.headers().firstValue(headerField.getRepresentation()).orElse(null);
+  }
+}
@@ -0,0 +1,140 @@
+package de.havemann.lukas.vanillahttp.acceptancetest;
+
+import static de.havemann.lukas.vanillahttp.acceptancetest.HttpResponses.header;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import de.havemann.lukas.vanillahttp.VanillaHttpServer;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpHeaderField;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpStatusCode;
+import de.havemann.lukas.vanillahttp.protocol.specification.MediaType;
+import de.havemann.lukas.vanillahttp.search.DirectoryIndexCache;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Testing paginated json directory listings, which are read from the {@link DirectoryIndexCache}
+ */
+@SpringBootTest(classes = VanillaHttpServer.class)
+@TestPropertySource(properties = {
+    "vanilla.server.port=9986",
+    "vanilla.server.filesystem.basedir=./target/json-listing-test"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class JsonDirectoryListingAcceptanceTest {
+
+  private static final String BASE_URL = "http://localhost:9986/";
+  private static final Path BASE_DIR = Path.of("./target/json-listing-test");
+  private static final int ENTRIES = 2500;
+
+  private final HttpClient httpClient = HttpClient.newHttpClient();
+
+  @Autowired
+  private DirectoryIndexCache directoryIndexCache;
+
+  @BeforeAll
+  void beforeAll() throws IOException {
+    if (Files.exists(BASE_DIR)) {
+      try (Stream<Path> paths = Files.walk(BASE_DIR)) {
+        paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+      }
+    }
+
+    final Path large = Files.createDirectories(BASE_DIR.resolve("large"));
+    for (int i = 0; i < ENTRIES; i++) {
+      Files.write(large.resolve(String.format("file-%04d.txt", i)), new byte[i % 10]);
+    }
+    Files.createDirectories(BASE_DIR.resolve("small").resolve("sub"));
+    Files.writeString(BASE_DIR.resolve("small").resolve("quote\".txt"), "content");
+  }
+
+  @Test
+  void largeDirectoryIsListedInPagesTest() throws Exception {
+    final List<String> names = new ArrayList<>();
+    final long misses = directoryIndexCache.getMisses();
+    String next = null;
+    int pages = 0;
+    do {
+      final HttpResponse<String> response = get("large/?format=json&limit=1000"
+          + (next == null ? "" : "&after=" + next));
+      assertThat(response.statusCode()).isEqualTo(HttpStatusCode.OK.getCode());
+      final DocumentContext json = JsonPath.parse(response.body());
+      names.addAll(json.read("$.entries[*].name"));
+      next = json.read("$.next");
+      pages++;
+    } while (next != null);
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(pages).isEqualTo(3);
+    softly.assertThat(names).hasSize(ENTRIES).isSorted().doesNotHaveDuplicates();
+    // the directory is scanned only for the first page
+    softly.assertThat(directoryIndexCache.getMisses()).isEqualTo(misses + 1);
+    softly.assertAll();
+  }
+
+  @Test
+  void entriesAreSortedBySizeTest() throws Exception {
+    final DocumentContext json = JsonPath.parse(
+        get("large/?format=json&sort=size&order=desc&limit=3").body());
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(json.<List<Integer>>read("$.entries[*].size")).containsExactly(9, 9, 9);
+    softly.assertThat(json.<List<String>>read("$.entries[*].name"))
+        .containsExactly("file-2499.txt", "file-2489.txt", "file-2479.txt");
+    softly.assertAll();
+  }
+
+  @Test
+  void jsonIsNegotiatedWithAcceptHeaderTest() throws Exception {
+    final HttpResponse<String> response = httpClient.send(
+        HttpRequest.newBuilder(URI.create(BASE_URL + "small/"))
+            .header(HttpHeaderField.ACCEPT.getRepresentation(), "application/json")
+            .build(),
+        HttpResponse.BodyHandlers.ofString());
+    final DocumentContext json = JsonPath.parse(response.body());
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(header(response, HttpHeaderField.CONTENT_TYPE))
+        .isEqualTo(MediaType.JSON.getRepresentation());
+    softly.assertThat(response.headers().allValues(HttpHeaderField.VARY.getRepresentation()))
+        .contains(HttpHeaderField.ACCEPT.getRepresentation());
+    softly.assertThat(json.<String>read("$.directory")).isEqualTo("/small");
+    softly.assertThat(json.<List<String>>read("$.entries[*].name"))
+        .containsExactly("quote\".txt", "sub");
+    softly.assertThat(json.<List<String>>read("$.entries[*].type"))
+        .containsExactly("file", "directory");
+    softly.assertThat(json.<Integer>read("$.entries[0].size")).isEqualTo(7);
+    softly.assertThat(json.<String>read("$.entries[0].lastModified")).endsWith("Z");
+    softly.assertThat(get("small/").body()).startsWith("<!DOCTYPE html");
+    softly.assertAll();
+  }
+
+  @Test
+  void invalidCursorIsBadRequestTest() throws Exception {
+    assertThat(get("large/?format=json&after=invalid").statusCode())
+        .isEqualTo(HttpStatusCode.BAD_REQUEST.getCode());
+  }
+
+  private HttpResponse<String> get(String path) throws Exception {
+    return httpClient.send(HttpRequest.newBuilder(URI.create(BASE_URL + path)).build(),
+        HttpResponse.BodyHandlers.ofString());
+  }
+}
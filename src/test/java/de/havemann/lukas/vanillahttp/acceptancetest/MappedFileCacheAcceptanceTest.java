@@ -0,0 +1,79 @@
+package de.havemann.lukas.vanillahttp.acceptancetest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.havemann.lukas.vanillahttp.VanillaHttpServer;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpHeaderField;
+import de.havemann.lukas.vanillahttp.search.MappedFileCache;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Testing that large files are served from memory mapped regions of {@link MappedFileCache}
+ */
+@SpringBootTest(classes = VanillaHttpServer.class)
+@TestPropertySource(properties = {
+    "vanilla.server.port=9990",
+    "vanilla.server.filesystem.mappedCache.enabled=true",
+    "vanilla.server.filesystem.mappedCache.minFileSize=64KB",
+    "vanilla.server.filesystem.basedir=./target/mapped-cache-test"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class MappedFileCacheAcceptanceTest {
+
+  private static final String BASE_URL = "http://localhost:9990/";
+  private static final Path BASE_DIR = Path.of("./target/mapped-cache-test");
+
+  @Autowired
+  private MappedFileCache mappedFileCache;
+
+  @BeforeAll
+  void beforeAll() throws IOException {
+    Files.createDirectories(BASE_DIR);
+  }
+
+  @Test
+  void largeFileIsServedFromMappingTest() throws IOException {
+    final byte[] content = new byte[256 * 1024];
+    new Random(42).nextBytes(content);
+    Files.write(BASE_DIR.resolve("large.bin"), content);
+
+    final Connection.Response firstResponse = get("large.bin");
+    final long hitsBefore = mappedFileCache.getHits();
+    final Connection.Response secondResponse = get("large.bin");
+
+    assertThat(mappedFileCache.getHits()).isEqualTo(hitsBefore + 1);
+    assertThat(firstResponse.bodyAsBytes()).isEqualTo(content);
+    assertThat(secondResponse.bodyAsBytes()).isEqualTo(content);
+    assertThat(secondResponse.header(HttpHeaderField.CONTENT_LENGTH.getRepresentation()))
+        .isEqualTo(Integer.toString(content.length));
+  }
+
+  @Test
+  void smallFileIsNotMappedTest() throws IOException {
+    Files.writeString(BASE_DIR.resolve("small.txt"), "small content");
+    final int mappingsBefore = mappedFileCache.getMappingCount();
+
+    assertThat(get("small.txt").body()).isEqualTo("small content");
+    assertThat(mappedFileCache.getMappingCount()).isEqualTo(mappingsBefore);
+  }
+
+  private static Connection.Response get(String path) throws IOException {
+    return Jsoup.connect(BASE_URL + path)
+        .method(Connection.Method.GET)
+        .ignoreContentType(true)
+        .maxBodySize(0)
+        .header(HttpHeaderField.CONNECTION.getRepresentation(), "close")
+        .execute();
+  }
+}
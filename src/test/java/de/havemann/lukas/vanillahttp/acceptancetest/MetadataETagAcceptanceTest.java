@@ -0,0 +1,62 @@
+package de.havemann.lukas.vanillahttp.acceptancetest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.havemann.lukas.vanillahttp.VanillaHttpServer;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpHeaderField;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpStatusCode;
+import de.havemann.lukas.vanillahttp.protocol.specification.etag.ETag;
+import java.io.IOException;
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Testing the default ETag generation from file metadata
+ */
+@SpringBootTest(classes = VanillaHttpServer.class)
+@TestPropertySource(properties = {
+    "vanilla.server.port=9992",
+    "vanilla.server.filesystem.eTag=METADATA",
+    "vanilla.server.filesystem.basedir=./src/test/resources/sampledirectory"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class MetadataETagAcceptanceTest {
+
+  private static final String BASE_URL = "http://localhost:9992/";
+
+  @Test
+  void weakETagIsSentForFilesTest() throws IOException {
+    final Connection.Response getResponse = Jsoup.connect(BASE_URL + "fileonfirstlevel.txt")
+        .method(Connection.Method.GET)
+        .execute();
+    final Connection.Response headResponse = Jsoup.connect(BASE_URL + "fileonfirstlevel.txt")
+        .method(Connection.Method.HEAD)
+        .execute();
+
+    final String eTag = getResponse.header(HttpHeaderField.E_TAG.getRepresentation());
+    assertThat(ETag.from(eTag).getKind()).isEqualTo(ETag.Kind.WEAK);
+    assertThat(headResponse.header(HttpHeaderField.E_TAG.getRepresentation())).isEqualTo(eTag);
+  }
+
+  @Test
+  void ifNoneMatchIsRespectedTest() throws IOException {
+    final Connection connection = Jsoup.connect(BASE_URL + "subdirectory/hamburg.jpg")
+        .method(Connection.Method.GET)
+        .maxBodySize(0);
+    final Connection.Response firstResponse = connection.execute();
+    final String firstResponseEtag = firstResponse
+        .header(HttpHeaderField.E_TAG.getRepresentation());
+
+    assertThat(firstResponse.statusCode()).isEqualTo(HttpStatusCode.OK.getCode());
+
+    final Connection.Response secondResponse = connection
+        .header(HttpHeaderField.IF_NONE_MATCH.getRepresentation(), firstResponseEtag)
+        .execute();
+
+    assertThat(secondResponse.statusCode()).isEqualTo(HttpStatusCode.NOT_MODIFIED.getCode());
+  }
+}
@@ -0,0 +1,58 @@
+package de.havemann.lukas.vanillahttp.acceptancetest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import de.havemann.lukas.vanillahttp.VanillaHttpServer;
+import de.havemann.lukas.vanillahttp.acceptancetest.Extension2AcceptanceTest.SimpleHttpTestClient;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpStatusCode;
+import de.havemann.lukas.vanillahttp.server.ConnectionAcceptorService;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Testing {@link ConnectionAcceptorService} with multiple acceptor threads
+ */
+@SpringBootTest(classes = VanillaHttpServer.class)
+@TestPropertySource(properties = {
+    "vanilla.server.port=9993",
+    "vanilla.server.acceptor.threads=4",
+    "vanilla.server.acceptor.reusePort=true",
+    "vanilla.server.filesystem.basedir=./src/test/resources/sampledirectory"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DirtiesContext
+class MultipleAcceptorThreadsAcceptanceTest {
+
+  @Autowired
+  private ConnectionAcceptorService connectionAcceptorService;
+
+  @Test
+  void acceptsConnectionsAndStopsImmediatelyOnShutdown() throws Exception {
+    for (int i = 0; i < 20; i++) {
+      try (SimpleHttpTestClient client = new SimpleHttpTestClient(9993)) {
+        assertThat(client.sendHeadRequest().readResponse())
+            .contains(HttpStatusCode.OK.getRepresentation());
+      }
+    }
+
+    final long start = System.nanoTime();
+    connectionAcceptorService.shutdown(null);
+    assertThat(Duration.ofNanos(System.nanoTime() - start))
+        .isLessThan(ConnectionAcceptorService.ACCEPTOR_SHUTDOWN_TIMEOUT);
+
+    assertThatThrownBy(() -> connect(9993)).isInstanceOf(ConnectException.class);
+  }
+
+  private static void connect(int port) throws IOException {
+    new Socket("127.0.0.1", port).close();
+  }
+}
@@ -0,0 +1,146 @@
+package de.havemann.lukas.vanillahttp.acceptancetest;
+
+import static de.havemann.lukas.vanillahttp.acceptancetest.HttpResponses.header;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.havemann.lukas.vanillahttp.VanillaHttpServer;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpHeaderField;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpStatusCode;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Testing byte range requests of cached and uncached files
+ */
+@SpringBootTest(classes = VanillaHttpServer.class)
+@TestPropertySource(properties = {
+    "vanilla.server.port=9988",
+    "vanilla.server.filesystem.contentCache.enabled=true",
+    "vanilla.server.filesystem.basedir=./target/range-test"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class RangeRequestAcceptanceTest {
+
+  private static final String BASE_URL = "http://localhost:9988/";
+  private static final Path BASE_DIR = Path.of("./target/range-test");
+
+  private final HttpClient httpClient = HttpClient.newHttpClient();
+  private byte[] small;
+  private byte[] large;
+
+  @BeforeAll
+  void beforeAll() throws IOException {
+    final Random random = new Random(42);
+    small = new byte[2048];
+    random.nextBytes(small);
+    large = new byte[2 * 1024 * 1024];
+    random.nextBytes(large);
+
+    Files.createDirectories(BASE_DIR);
+    Files.write(BASE_DIR.resolve("small.bin"), small);
+    Files.write(BASE_DIR.resolve("large.bin"), large);
+  }
+
+  @Test
+  void singleRangeIsSentAsPartialContentTest() throws Exception {
+    for (String file : new String[]{"small.bin", "large.bin"}) {
+      final byte[] content = file.equals("small.bin") ? small : large;
+      // repeated to serve the cached file as well
+      for (int i = 0; i < 3; i++) {
+        final HttpResponse<byte[]> response = get(file, "bytes=100-1099");
+
+        final SoftAssertions softly = new SoftAssertions();
+        softly.assertThat(response.statusCode())
+            .isEqualTo(HttpStatusCode.PARTIAL_CONTENT.getCode());
+        softly.assertThat(header(response, HttpHeaderField.CONTENT_RANGE))
+            .isEqualTo("bytes 100-1099/" + content.length);
+        softly.assertThat(header(response, HttpHeaderField.ACCEPT_RANGES)).isEqualTo("bytes");
+        softly.assertThat(response.body()).isEqualTo(Arrays.copyOfRange(content, 100, 1100));
+        softly.assertAll();
+      }
+    }
+  }
+
+  @Test
+  void suffixRangeIsSentTest() throws Exception {
+    final HttpResponse<byte[]> response = get("large.bin", "bytes=-10");
+
+    assertThat(response.statusCode()).isEqualTo(HttpStatusCode.PARTIAL_CONTENT.getCode());
+    assertThat(response.body())
+        .isEqualTo(Arrays.copyOfRange(large, large.length - 10, large.length));
+  }
+
+  @Test
+  void multipleRangesAreSentAsMultipartTest() throws Exception {
+    final HttpResponse<byte[]> response = get("large.bin", "bytes=0-9, 1000000-1000009");
+    final String contentType = header(response, HttpHeaderField.CONTENT_TYPE);
+
+    assertThat(response.statusCode()).isEqualTo(HttpStatusCode.PARTIAL_CONTENT.getCode());
+    assertThat(contentType).startsWith("multipart/byteranges; boundary=");
+    final String boundary = contentType.substring(contentType.indexOf('=') + 1);
+    final String body = new String(response.body(), StandardCharsets.ISO_8859_1);
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(body).contains("Content-Range: bytes 0-9/" + large.length);
+    softly.assertThat(body).contains("Content-Range: bytes 1000000-1000009/" + large.length);
+    softly.assertThat(body).contains(new String(large, 1000000, 10, StandardCharsets.ISO_8859_1));
+    softly.assertThat(body).endsWith("\r\n--" + boundary + "--\r\n");
+    softly.assertThat(header(response, HttpHeaderField.CONTENT_LENGTH))
+        .isEqualTo(String.valueOf(response.body().length));
+    softly.assertAll();
+  }
+
+  @Test
+  void unsatisfiableRangeTest() throws Exception {
+    final HttpResponse<byte[]> response = get("small.bin", "bytes=5000-");
+
+    assertThat(response.statusCode())
+        .isEqualTo(HttpStatusCode.RANGE_NOT_SATISFIABLE.getCode());
+    assertThat(header(response, HttpHeaderField.CONTENT_RANGE)).isEqualTo("bytes */2048");
+  }
+
+  @Test
+  void changedRepresentationIsSentCompletelyTest() throws Exception {
+    final String lastModified = header(get("large.bin", "bytes=0-0"),
+        HttpHeaderField.LAST_MODIFIED);
+
+    final HttpResponse<byte[]> unchanged = send(request("large.bin", "bytes=0-0")
+        .header(HttpHeaderField.IF_RANGE.getRepresentation(), lastModified));
+    final HttpResponse<byte[]> changed = send(request("large.bin", "bytes=0-0")
+        .header(HttpHeaderField.IF_RANGE.getRepresentation(), "Wed, 21 Oct 2015 07:28:00 GMT"));
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(unchanged.statusCode()).isEqualTo(HttpStatusCode.PARTIAL_CONTENT.getCode());
+    softly.assertThat(unchanged.body()).hasSize(1);
+    softly.assertThat(changed.statusCode()).isEqualTo(HttpStatusCode.OK.getCode());
+    softly.assertThat(changed.body()).isEqualTo(large);
+    softly.assertAll();
+  }
+
+  private HttpResponse<byte[]> get(String file, String range) throws Exception {
+    return send(request(file, range));
+  }
+
+  private HttpResponse<byte[]> send(HttpRequest.Builder request) throws Exception {
+    return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+  }
+
+  private static HttpRequest.Builder request(String file, String range) {
+    return HttpRequest.newBuilder(URI.create(BASE_URL + file))
+        .header(HttpHeaderField.RANGE.getRepresentation(), range);
+  }
+}
@@ -0,0 +1,77 @@
+package de.havemann.lukas.vanillahttp.acceptancetest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.havemann.lukas.vanillahttp.VanillaHttpServer;
+import de.havemann.lukas.vanillahttp.acceptancetest.Extension2AcceptanceTest.SimpleHttpTestClient;
+import de.havemann.lukas.vanillahttp.dispatcher.VirtualThreadDispatcher;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpStatusCode;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.assertj.core.api.SoftAssertions;
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Testing the client connection handling of {@link VirtualThreadDispatcher}. Only runs on Java 21
+ * or newer.
+ */
+@SpringBootTest(classes = VanillaHttpServer.class)
+@TestPropertySource(properties = {
+    "vanilla.server.port=9994",
+    "vanilla.server.dispatcher=virtual",
+    "vanilla.server.http.keepAliveTimeout: 60s",
+    "vanilla.server.http.chunkedEncodingBufferSize: 1KB",
+    "vanilla.server.filesystem.basedir=./src/test/resources/sampledirectory"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfSystemProperty(named = "java.specification.version", matches = "2[1-9]|[3-9]\\d")
+class VirtualThreadDispatcherAcceptanceTest {
+
+  private static final String BASE_URL = "http://localhost:9994/";
+
+  @Test
+  void largeFileIsTransferredCompletelyTest() throws IOException {
+    final Connection.Response response = Jsoup.connect(BASE_URL + "subdirectory/hamburg.jpg")
+        .method(Connection.Method.GET)
+        .maxBodySize(0)
+        .execute();
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(response.statusCode()).isEqualTo(HttpStatusCode.OK.getCode());
+    softly.assertThat(response.bodyAsBytes()).isEqualTo(Files.readAllBytes(
+        Path.of("./src/test/resources/sampledirectory/subdirectory/hamburg.jpg")));
+    softly.assertAll();
+  }
+
+  @Test
+  void manyKeepAliveConnectionsAreServedConcurrently() throws IOException {
+    final List<SimpleHttpTestClient> clients = new ArrayList<>();
+    try {
+      for (int i = 0; i < 100; i++) {
+        final SimpleHttpTestClient client = new SimpleHttpTestClient(9994);
+        clients.add(client);
+        assertThat(client.sendHeadRequest().readResponse())
+            .contains(HttpStatusCode.OK.getRepresentation());
+      }
+
+      // all connections are still open and served by their own virtual thread
+      for (SimpleHttpTestClient client : clients) {
+        assertThat(client.sendHeadRequest().readResponse())
+            .contains(HttpStatusCode.OK.getRepresentation());
+      }
+    } finally {
+      for (SimpleHttpTestClient client : clients) {
+        client.close();
+      }
+    }
+  }
+}
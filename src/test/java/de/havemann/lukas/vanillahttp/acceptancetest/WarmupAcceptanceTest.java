@@ -0,0 +1,62 @@
+package de.havemann.lukas.vanillahttp.acceptancetest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.havemann.lukas.vanillahttp.VanillaHttpServer;
+import de.havemann.lukas.vanillahttp.search.ContentCache;
+import de.havemann.lukas.vanillahttp.search.FilesystemWarmer;
+import de.havemann.lukas.vanillahttp.search.PathResolutionCache;
+import java.io.IOException;
+import org.assertj.core.api.SoftAssertions;
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Testing that {@link FilesystemWarmer} warms up the caches before connections are accepted
+ */
+@SpringBootTest(classes = VanillaHttpServer.class)
+@TestPropertySource(properties = {
+    "vanilla.server.port=9985",
+    "vanilla.server.filesystem.warmup.enabled=true",
+    "vanilla.server.filesystem.warmup.hotList=./src/test/resources/warmup-access.log",
+    "vanilla.server.filesystem.contentCache.enabled=true",
+    "vanilla.server.filesystem.eTag=CONTENT"
+})
+class WarmupAcceptanceTest {
+
+  private static final String BASE_URL = "http://localhost:9985/";
+
+  @Autowired
+  private FilesystemWarmer filesystemWarmer;
+
+  @Autowired
+  private PathResolutionCache pathResolutionCache;
+
+  @Autowired
+  private ContentCache contentCache;
+
+  @Test
+  void cachesAreWarmBeforeFirstRequestTest() throws IOException {
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(filesystemWarmer.getState()).isEqualTo("FINISHED");
+    softly.assertThat(filesystemWarmer.getPreloadedFiles()).isEqualTo(2);
+    // root, three directories and their files
+    softly.assertThat(filesystemWarmer.getResolvedPaths()).isGreaterThanOrEqualTo(9);
+    softly.assertThat(contentCache.getEntryCount()).isEqualTo(2);
+    softly.assertAll();
+
+    final long contentHits = contentCache.getHits();
+    final long resolutionHits = pathResolutionCache.getHits();
+    final Connection.Response response = Jsoup.connect(BASE_URL + "sub%20with%20space/")
+        .ignoreContentType(true).execute();
+
+    assertThat(response.body()).contains("and file.txt");
+    assertThat(pathResolutionCache.getHits()).isGreaterThan(resolutionHits);
+    Jsoup.connect(BASE_URL + "fileonfirstlevel.txt").ignoreContentType(true).execute();
+    assertThat(contentCache.getHits()).isEqualTo(contentHits + 1);
+  }
+}
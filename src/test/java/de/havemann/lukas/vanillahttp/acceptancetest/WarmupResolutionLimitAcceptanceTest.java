@@ -0,0 +1,51 @@
+package de.havemann.lukas.vanillahttp.acceptancetest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.havemann.lukas.vanillahttp.VanillaHttpServer;
+import de.havemann.lukas.vanillahttp.search.FilesystemWarmer;
+import de.havemann.lukas.vanillahttp.search.PathResolutionCache;
+import java.io.IOException;
+import org.assertj.core.api.SoftAssertions;
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Testing that {@link FilesystemWarmer} stops the walk once the {@link PathResolutionCache} is full
+ * and keeps the resolutions of the hot list
+ */
+@SpringBootTest(classes = VanillaHttpServer.class)
+@TestPropertySource(properties = {
+    "vanilla.server.port=9982",
+    "vanilla.server.filesystem.warmup.enabled=true",
+    "vanilla.server.filesystem.warmup.hotList=./src/test/resources/warmup-access.log",
+    "vanilla.server.filesystem.resolutionCache.maxEntries=4"
+})
+class WarmupResolutionLimitAcceptanceTest {
+
+  private static final String BASE_URL = "http://localhost:9982/";
+
+  @Autowired
+  private FilesystemWarmer filesystemWarmer;
+
+  @Autowired
+  private PathResolutionCache pathResolutionCache;
+
+  @Test
+  void walkStopsOnceResolutionCacheIsFullTest() throws IOException {
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(filesystemWarmer.getState()).isEqualTo("FINISHED");
+    // fewer than root, three directories and their files
+    softly.assertThat(filesystemWarmer.getResolvedPaths()).isLessThan(9);
+    softly.assertThat(pathResolutionCache.getSize()).isEqualTo(4);
+    softly.assertAll();
+
+    final long resolutionHits = pathResolutionCache.getHits();
+    Jsoup.connect(BASE_URL + "subdirectory/hamburg.jpg").ignoreContentType(true).execute();
+
+    assertThat(pathResolutionCache.getHits()).isEqualTo(resolutionHits + 1);
+  }
+}
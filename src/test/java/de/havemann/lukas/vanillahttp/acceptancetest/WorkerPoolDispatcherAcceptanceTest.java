@@ -0,0 +1,70 @@
+package de.havemann.lukas.vanillahttp.acceptancetest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.havemann.lukas.vanillahttp.VanillaHttpServer;
+import de.havemann.lukas.vanillahttp.acceptancetest.Extension2AcceptanceTest.SimpleHttpTestClient;
+import de.havemann.lukas.vanillahttp.dispatcher.WorkerPoolDispatcher;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpStatusCode;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Testing the bounded worker pool of {@link WorkerPoolDispatcher} with a pool of a single worker
+ * thread and a direct hand-off queue.
+ */
+@SpringBootTest(classes = VanillaHttpServer.class)
+@TestPropertySource(properties = {
+    "vanilla.server.port=9996",
+    "vanilla.server.dispatcher=pool",
+    "vanilla.server.pool.coreSize=1",
+    "vanilla.server.pool.maxSize=1",
+    "vanilla.server.pool.queueSize=0",
+    "vanilla.server.pool.rejectionPolicy=SERVICE_UNAVAILABLE",
+    "vanilla.server.filesystem.basedir=./src/test/resources/sampledirectory"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class WorkerPoolDispatcherAcceptanceTest {
+
+  @Autowired
+  private WorkerPoolDispatcher dispatcher;
+
+  @Test
+  void rejectsConnectionsIfPoolIsExhausted() throws IOException, InterruptedException {
+    final SimpleHttpTestClient occupyingClient = new SimpleHttpTestClient(9996);
+    final long rejectedBefore = dispatcher.getRejectedConnections();
+
+    try (occupyingClient) {
+      // keep-alive connection blocks the only worker thread
+      assertThat(occupyingClient.sendHeadRequest().readResponse())
+          .contains(HttpStatusCode.OK.getRepresentation());
+      assertThat(dispatcher.getPoolSize()).isEqualTo(1);
+
+      // rejected connection is answered immediately, without waiting for the request
+      try (Socket rejectedClient = new Socket("127.0.0.1", 9996)) {
+        final BufferedReader reader = new BufferedReader(
+            new InputStreamReader(rejectedClient.getInputStream(), StandardCharsets.UTF_8));
+        assertThat(reader.readLine())
+            .contains(HttpStatusCode.SERVICE_UNAVAILABLE.getRepresentation());
+        assertThat(reader.readLine()).isEqualTo("Connection: close");
+      }
+      assertThat(dispatcher.getRejectedConnections()).isEqualTo(rejectedBefore + 1);
+    }
+
+    // worker is released as soon as the occupying client closed its connection
+    TimeUnit.MILLISECONDS.sleep(200);
+    try (SimpleHttpTestClient client = new SimpleHttpTestClient(9996)) {
+      assertThat(client.sendHeadRequest().readResponse())
+          .contains(HttpStatusCode.OK.getRepresentation());
+    }
+  }
+}
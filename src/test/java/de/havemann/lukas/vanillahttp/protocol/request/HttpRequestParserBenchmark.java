@@ -0,0 +1,88 @@
+package de.havemann.lukas.vanillahttp.protocol.request;
+
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpHeaderField;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpProtocol;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput and allocation of reading and parsing a typical request on a keep-alive connection
+ * with {@link HttpRequestBuffer}. Run with {@code mvn -P benchmark test-compile exec:exec
+ * -Djmh.args="HttpRequestParserBenchmark -prof gc"} and compare {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpRequestParserBenchmark {
+
+  private static final byte[] REQUEST = String.join(HttpProtocol.DELIMITER,
+      "GET /subdirectory/fileonsecondlevel.txt HTTP/1.1",
+      "Host: localhost:8080",
+      "User-Agent: Mozilla/5.0 (X11; Linux x86_64; rv:109.0) Gecko/20100101 Firefox/118.0",
+      "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8",
+      "Accept-Language: en-US,en;q=0.5",
+      "Accept-Encoding: gzip, deflate, br",
+      "Connection: keep-alive",
+      "If-None-Match: \"d41d8cd98f00b204e9800998ecf8427e\"",
+      "", "").getBytes(StandardCharsets.UTF_8);
+
+  private HttpRequestBuffer requestBuffer;
+
+  @Setup
+  public void setup() {
+    requestBuffer = new HttpRequestBuffer(new RepeatingInputStream(REQUEST));
+  }
+
+  @Benchmark
+  public void readRequest(Blackhole blackhole) throws IOException {
+    // typical access of the request processing: uri, connection and etag header
+    final HttpRequest request = requestBuffer.readRequest().orElseThrow();
+    blackhole.consume(request.getUri());
+    blackhole.consume(request.getHeader().isConnectionClose());
+    blackhole.consume(request.getHeader().getValueOf(HttpHeaderField.IF_NONE_MATCH));
+  }
+
+  /**
+   * Endless stream of the same request, like a client sending requests on a keep-alive connection
+   */
+  private static final class RepeatingInputStream extends InputStream {
+
+    private final byte[] data;
+    private int position;
+
+    private RepeatingInputStream(byte[] data) {
+      this.data = data;
+    }
+
+    @Override
+    public int read() {
+      final int result = data[position] & 0xff;
+      position = (position + 1) % data.length;
+      return result;
+    }
+
+    @Override
+    public int read(byte[] target, int offset, int length) {
+      final int count = Math.min(length, data.length - position);
+      System.arraycopy(data, position, target, offset, count);
+      position = (position + count) % data.length;
+      return count;
+    }
+  }
+}
@@ -1,10 +1,13 @@
 package de.havemann.lukas.vanillahttp.protocol.request;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 
 import de.havemann.lukas.vanillahttp.protocol.specification.HttpHeaderField;
 import de.havemann.lukas.vanillahttp.protocol.specification.HttpMethod;
 import de.havemann.lukas.vanillahttp.protocol.specification.HttpProtocol;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import org.assertj.core.api.SoftAssertions;
 import org.junit.jupiter.api.Test;
 
@@ -56,6 +59,47 @@ class HttpRequestParserTest {
     softly.assertAll();
   }
 
+  @Test
+  void parseFromByteRangeTest() {
+    final byte[] buffer = ("xx" + EXAMPLE_HEAD_REQUEST + "\r\n\r\nGET /next HTTP/1.1")
+        .getBytes(StandardCharsets.UTF_8);
+    final int length = EXAMPLE_HEAD_REQUEST.length() + 4;
+
+    final HttpRequest actual = new HttpRequestParser(buffer, 2, length).parse();
+    Arrays.fill(buffer, (byte) 'x');
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(actual.getUri()).isEqualTo("/test/head");
+    softly.assertThat(actual.getHeader().getAll())
+        .containsEntry("Accept", "application/json")
+        .containsEntry("Host", "adobe.com")
+        .hasSize(2);
+    softly.assertThat(actual.getMessageBody()).isEmpty();
+    softly.assertAll();
+  }
+
+  @Test
+  void foldSameHeaderFieldsTest() {
+    final HttpRequest actual = new HttpRequestParser(String.join(HttpProtocol.DELIMITER,
+        "GET / HTTP/1.1",
+        "If-None-Match: \"first\"",
+        "If-None-Match: \"second\"")).parse();
+
+    assertThat(actual.getHeader().getValueOf(HttpHeaderField.IF_NONE_MATCH))
+        .contains("\"first\",\"second\"");
+    assertThat(actual.getHeader().getAll())
+        .containsEntry("If-None-Match", "\"first\",\"second\"");
+    assertThat(actual.getHeader().has(HttpHeaderField.CONNECTION)).isFalse();
+  }
+
+  @Test
+  void parseErrorInvalidHeaderField() {
+    assertThatThrownBy(() -> new HttpRequestParser("HEAD / HTTP/1.1\r\nHost:localhost").parse())
+        .isInstanceOf(HttpRequestParsingException.class)
+        .extracting(e -> ((HttpRequestParsingException) e).getErrorToken())
+        .isEqualTo("Host:localhost");
+  }
+
   @Test
   void parseErrorUri() {
     assertThatThrownBy(() -> new HttpRequestParser("HEAD ").parse())
@@ -0,0 +1,72 @@
+package de.havemann.lukas.vanillahttp.protocol.request;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+/**
+ * tests for {@link NonBlockingHttpRequestBuffer}
+ */
+class NonBlockingHttpRequestBufferTest {
+
+  private final NonBlockingHttpRequestBuffer testee = new NonBlockingHttpRequestBuffer();
+
+  private static ReadableByteChannel channelOf(String data) {
+    return Channels.newChannel(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  void requestReceivedInMultipleReadsTest() throws IOException {
+    testee.readFrom(channelOf("GET / HTTP/1.1\r\nHost: local"));
+    assertThat(testee.hasCompleteRequest()).isFalse();
+
+    testee.readFrom(channelOf("host\r\n\r"));
+    assertThat(testee.hasCompleteRequest()).isFalse();
+
+    testee.readFrom(channelOf("\n"));
+    assertThat(testee.hasCompleteRequest()).isTrue();
+    assertThat(testee.nextRequest()).get().extracting(HttpRequest::getUri).isEqualTo("/");
+    assertThat(testee.hasCompleteRequest()).isFalse();
+  }
+
+  @Test
+  void pipelinedRequestsTest() throws IOException {
+    testee.readFrom(channelOf("HEAD /first HTTP/1.1\r\n\r\nHEAD /second HTTP/1.1\r\n\r\n"));
+
+    assertThat(testee.nextRequest()).get().extracting(HttpRequest::getUri).isEqualTo("/first");
+    assertThat(testee.hasBufferedRequest()).isTrue();
+    assertThat(testee.nextRequest()).get().extracting(HttpRequest::getUri).isEqualTo("/second");
+    assertThat(testee.hasBufferedRequest()).isFalse();
+    assertThat(testee.hasCompleteRequest()).isFalse();
+  }
+
+  @Test
+  void emptyLineTest() throws IOException {
+    testee.readFrom(channelOf("\r\n"));
+
+    assertThat(testee.nextRequest()).isEqualTo(Optional.empty());
+  }
+
+  @Test
+  void requestHeaderTooLargeTest() throws IOException {
+    final String header = "GET / HTTP/1.1\r\nX-Large: " + "x".repeat(
+        NonBlockingHttpRequestBuffer.MAX_REQUEST_HEADER_SIZE);
+    final ReadableByteChannel channel = channelOf(header);
+    while (testee.readFrom(channel) > 0) {
+      // read everything
+    }
+
+    assertThat(testee.hasBufferedRequest()).isFalse();
+    assertThatThrownBy(testee::hasCompleteRequest)
+        .isInstanceOf(HttpRequestParsingException.class)
+        .extracting(e -> ((HttpRequestParsingException) e).getReason())
+        .isEqualTo(HttpRequestParsingException.Reason.REQUEST_HEADER_TOO_LARGE);
+  }
+}
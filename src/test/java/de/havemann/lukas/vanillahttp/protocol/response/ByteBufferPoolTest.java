@@ -0,0 +1,53 @@
+package de.havemann.lukas.vanillahttp.protocol.response;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * tests for {@link ByteBufferPool}
+ */
+class ByteBufferPoolTest {
+
+  private final ByteBufferPool pool = new ByteBufferPool(1);
+
+  @Test
+  void buffersAreRoundedUpToSizeClassTest() {
+    assertThat(pool.acquire(1).capacity()).isEqualTo(ByteBufferPool.MIN_SIZE);
+    assertThat(pool.acquire(ByteBufferPool.MIN_SIZE + 1).capacity())
+        .isEqualTo(2 * ByteBufferPool.MIN_SIZE);
+    assertThat(pool.acquire(ByteBufferPool.MAX_SIZE).capacity()).isEqualTo(ByteBufferPool.MAX_SIZE);
+  }
+
+  @Test
+  void releasedBufferIsReusedTest() {
+    final ByteBuffer buffer = pool.acquire(1000);
+    buffer.put((byte) 1);
+    pool.release(buffer);
+
+    final ByteBuffer reused = pool.acquire(1000);
+
+    assertThat(reused).isSameAs(buffer);
+    assertThat(reused.position()).isZero();
+    assertThat(reused.isDirect()).isTrue();
+    assertThat(pool.getAllocations()).isEqualTo(1);
+  }
+
+  @Test
+  void poolIsBoundedPerSizeTest() {
+    pool.release(pool.acquire(1000));
+    pool.release(ByteBuffer.allocateDirect(1024));
+
+    assertThat(pool.getPooledBufferCount()).isEqualTo(1);
+  }
+
+  @Test
+  void largeBuffersAreNotPooledTest() {
+    final ByteBuffer large = pool.acquire(ByteBufferPool.MAX_SIZE + 1);
+    pool.release(large);
+
+    assertThat(large.isDirect()).isFalse();
+    assertThat(pool.getPooledBufferCount()).isZero();
+  }
+}
@@ -0,0 +1,149 @@
+package de.havemann.lukas.vanillahttp.protocol.response;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+/**
+ * tests for {@link CoalescingChannel}
+ */
+class CoalescingChannelTest {
+
+  private final ByteBufferPool pool = new ByteBufferPool(1);
+
+  private static ByteBuffer bufferOf(String content) {
+    return ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void coalescedWritesAreSentWithFlushTest() throws Exception {
+    final RecordingChannel target = new RecordingChannel(Integer.MAX_VALUE);
+    final CoalescingChannel testee = new CoalescingChannel(target, pool);
+
+    testee.setCoalescing(true);
+    assertThat(testee.write(bufferOf("first "))).isEqualTo(6);
+    assertThat(testee.write(bufferOf("second "))).isEqualTo(7);
+    testee.setCoalescing(false);
+    testee.write(bufferOf("last"));
+    assertThat(target.writes).isZero();
+
+    assertThat(testee.flush()).isTrue();
+    assertThat(target.content()).isEqualTo("first second last");
+    assertThat(target.writes).isEqualTo(1);
+    assertThat(pool.getPooledBufferCount()).isEqualTo(1);
+  }
+
+  @Test
+  void writesWithoutCoalescingAreSentDirectlyTest() throws Exception {
+    final RecordingChannel target = new RecordingChannel(Integer.MAX_VALUE);
+    final CoalescingChannel testee = new CoalescingChannel(target, pool);
+
+    testee.write(bufferOf("direct"));
+
+    assertThat(target.content()).isEqualTo("direct");
+    assertThat(pool.getAllocations()).isZero();
+  }
+
+  @Test
+  void largeWriteIsGatheredWithStagedBytesTest() throws Exception {
+    final RecordingChannel target = new RecordingChannel(Integer.MAX_VALUE);
+    final CoalescingChannel testee = new CoalescingChannel(target, pool);
+    final String large = "x".repeat(CoalescingChannel.STAGING_SIZE);
+
+    testee.setCoalescing(true);
+    testee.write(bufferOf("staged "));
+    testee.write(bufferOf(large));
+
+    assertThat(target.content()).isEqualTo("staged " + large);
+    assertThat(target.writes).isEqualTo(1);
+  }
+
+  @Test
+  void partialWritesKeepOrderTest() throws Exception {
+    final RecordingChannel target = new RecordingChannel(4);
+    final CoalescingChannel testee = new CoalescingChannel(target, pool);
+
+    testee.setCoalescing(true);
+    testee.write(bufferOf("staged "));
+    assertThat(testee.flush()).isFalse();
+
+    final ByteBuffer source = bufferOf("direct");
+    testee.setCoalescing(false);
+    while (source.hasRemaining()) {
+      target.acceptMore();
+      testee.write(source);
+    }
+    while (!testee.flush()) {
+      target.acceptMore();
+    }
+
+    assertThat(target.content()).isEqualTo("staged direct");
+  }
+
+  /**
+   * Non-blocking channel, which accepts only a limited number of bytes until more is requested
+   */
+  private static final class RecordingChannel implements GatheringByteChannel {
+
+    private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+    private final int bytesPerRound;
+    private int available;
+    private int writes;
+
+    private RecordingChannel(int bytesPerRound) {
+      this.bytesPerRound = bytesPerRound;
+      this.available = bytesPerRound;
+    }
+
+    void acceptMore() {
+      available = bytesPerRound;
+    }
+
+    String content() {
+      return written.toString(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public long write(ByteBuffer[] sources, int offset, int length) {
+      writes++;
+      long total = 0;
+      for (int i = offset; i < offset + length; i++) {
+        total += transfer(sources[i]);
+      }
+      return total;
+    }
+
+    @Override
+    public long write(ByteBuffer[] sources) {
+      return write(sources, 0, sources.length);
+    }
+
+    @Override
+    public int write(ByteBuffer source) {
+      writes++;
+      return transfer(source);
+    }
+
+    private int transfer(ByteBuffer source) {
+      final int count = Math.min(available, source.remaining());
+      for (int i = 0; i < count; i++) {
+        written.write(source.get());
+      }
+      available -= count;
+      return count;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
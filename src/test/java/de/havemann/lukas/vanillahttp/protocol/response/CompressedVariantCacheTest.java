@@ -0,0 +1,100 @@
+package de.havemann.lukas.vanillahttp.protocol.response;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.havemann.lukas.vanillahttp.protocol.specification.ContentCoding;
+import de.havemann.lukas.vanillahttp.protocol.specification.etag.ETag;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * tests for {@link CompressedVariantCache}
+ */
+class CompressedVariantCacheTest {
+
+  private static final String PATH = "/file.txt";
+  private static final ETag FIRST = new ETag("first", ETag.Kind.STRONG);
+  private static final ETag SECOND = new ETag("second", ETag.Kind.STRONG);
+
+  @Test
+  void cachedVariantIsServedTest() {
+    final CompressedVariantCache cache = createCache(DataSize.ofKilobytes(1));
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(cache.get(PATH, FIRST, ContentCoding.GZIP)).isEmpty();
+    final byte[] variant = cache.put(PATH, FIRST, ContentCoding.GZIP, new byte[10]);
+    softly.assertThat(cache.get(PATH, FIRST, ContentCoding.GZIP)).containsSame(variant);
+    softly.assertThat(cache.getHits()).isEqualTo(1);
+    softly.assertThat(cache.getMisses()).isEqualTo(1);
+    softly.assertAll();
+  }
+
+  @Test
+  void everyCodingAndPathIsCachedSeparatelyTest() {
+    final CompressedVariantCache cache = createCache(DataSize.ofKilobytes(1));
+
+    cache.put(PATH, FIRST, ContentCoding.GZIP, new byte[10]);
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(cache.get(PATH, FIRST, ContentCoding.DEFLATE)).isEmpty();
+    // metadata etags of different files may be equal
+    softly.assertThat(cache.get("/other.txt", FIRST, ContentCoding.GZIP)).isEmpty();
+    softly.assertThat(cache.get(PATH, SECOND, ContentCoding.GZIP)).isEmpty();
+    softly.assertAll();
+  }
+
+  @Test
+  void leastRecentlyUsedVariantIsEvictedTest() {
+    // space for two variants only
+    final CompressedVariantCache cache = createCache(DataSize.ofBytes(700));
+    final ETag third = new ETag("third", ETag.Kind.STRONG);
+
+    cache.put(PATH, FIRST, ContentCoding.GZIP, new byte[200]);
+    cache.put(PATH, SECOND, ContentCoding.GZIP, new byte[200]);
+    cache.get(PATH, FIRST, ContentCoding.GZIP);
+    cache.put(PATH, third, ContentCoding.GZIP, new byte[200]);
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(cache.getEntryCount()).isEqualTo(2);
+    softly.assertThat(cache.getSize()).isLessThanOrEqualTo(700);
+    softly.assertThat(cache.get(PATH, FIRST, ContentCoding.GZIP)).isPresent();
+    softly.assertThat(cache.get(PATH, SECOND, ContentCoding.GZIP)).isEmpty();
+    softly.assertAll();
+  }
+
+  @Test
+  void variantLargerThanCacheIsNotCachedTest() {
+    final CompressedVariantCache cache = createCache(DataSize.ofBytes(100));
+
+    cache.put(PATH, FIRST, ContentCoding.GZIP, new byte[200]);
+
+    assertThat(cache.getEntryCount()).isZero();
+    assertThat(cache.getSize()).isZero();
+  }
+
+  @Test
+  void streamedVariantIsCachedOnceReadCompletelyTest() throws Exception {
+    final CompressedVariantCache cache = createCache(DataSize.ofKilobytes(1));
+    final byte[] variant = {1, 2, 3, 4};
+
+    try (InputStream stream = cache.capture(PATH, FIRST, ContentCoding.GZIP,
+        new ByteArrayInputStream(variant))) {
+      stream.read(new byte[2]);
+      assertThat(cache.get(PATH, FIRST, ContentCoding.GZIP)).isEmpty();
+      stream.readAllBytes();
+    }
+
+    assertThat(cache.get(PATH, FIRST, ContentCoding.GZIP)).contains(variant);
+  }
+
+  private static CompressedVariantCache createCache(DataSize maxSize) {
+    final CompressedVariantCache cache = new CompressedVariantCache();
+    ReflectionTestUtils.setField(cache, "maxSize", maxSize);
+    cache.init();
+    return cache;
+  }
+}
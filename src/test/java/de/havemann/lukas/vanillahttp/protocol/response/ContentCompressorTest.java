@@ -0,0 +1,117 @@
+package de.havemann.lukas.vanillahttp.protocol.response;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.havemann.lukas.vanillahttp.protocol.specification.ContentCoding;
+import de.havemann.lukas.vanillahttp.protocol.specification.MediaType;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.OptionalLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * tests for {@link ContentCompressor}
+ */
+class ContentCompressorTest {
+
+  private static final String CONTENT = "<html><body>"
+      + "Hello World! ".repeat(1000) + "</body></html>";
+
+  private final ContentCompressor compressor = new ContentCompressor();
+
+  @BeforeEach
+  void beforeEach() {
+    ReflectionTestUtils.setField(compressor, "enabled", true);
+    ReflectionTestUtils.setField(compressor, "minSize", DataSize.ofKilobytes(1));
+    ReflectionTestUtils.setField(compressor, "maxSize", DataSize.ofMegabytes(1));
+    ReflectionTestUtils.setField(compressor, "level", 6);
+    compressor.init();
+  }
+
+  @Test
+  void onlyTextOfSuitableSizeIsCompressedTest() {
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(compressor.isCompressible(MediaType.HTML, OptionalLong.of(2048))).isTrue();
+    softly.assertThat(compressor.isCompressible(MediaType.JPEG_IMAGES, OptionalLong.of(2048)))
+        .isFalse();
+    softly.assertThat(compressor.isCompressible(MediaType.HTML, OptionalLong.of(100))).isFalse();
+    softly.assertThat(compressor.isCompressible(MediaType.HTML, OptionalLong.of(2 << 20)))
+        .isFalse();
+    softly.assertThat(compressor.isCompressible(MediaType.HTML, OptionalLong.empty())).isFalse();
+    softly.assertAll();
+  }
+
+  @Test
+  void largeTextMayBePrecompressedTest() {
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(compressor.mayBePrecompressed(MediaType.HTML, OptionalLong.of(2 << 20)))
+        .isTrue();
+    softly.assertThat(compressor.mayBePrecompressed(MediaType.HTML, OptionalLong.of(100)))
+        .isFalse();
+    softly.assertThat(compressor.mayBePrecompressed(MediaType.JPEG_IMAGES, OptionalLong.of(2048)))
+        .isFalse();
+    softly.assertAll();
+  }
+
+  @Test
+  void bufferRegionIsCompressedWithGzipTest() throws Exception {
+    final byte[] compressed = compressor.compress(
+        BufferRegion.of(CONTENT.getBytes(StandardCharsets.UTF_8)), ContentCoding.GZIP);
+
+    assertThat(compressed.length).isLessThan(CONTENT.length() / 10);
+    assertThat(gunzip(compressed)).isEqualTo(CONTENT);
+    assertThat(compressor.getCompressedResponses()).isEqualTo(1);
+    assertThat(compressor.getBytesBeforeCompression()).isEqualTo(CONTENT.length());
+  }
+
+  @Test
+  void fileRegionIsCompressedWithDeflateTest(@TempDir Path tempDir) throws Exception {
+    final Path file = Files.writeString(tempDir.resolve("index.html"), "prefix" + CONTENT);
+
+    final byte[] compressed = compressor.compress(new FileRegion(() -> FileChannel.open(file),
+        "prefix".length(), CONTENT.length()), ContentCoding.DEFLATE);
+
+    try (InflaterInputStream inflater = new InflaterInputStream(
+        new ByteArrayInputStream(compressed))) {
+      assertThat(new String(inflater.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(CONTENT);
+    }
+  }
+
+  @Test
+  void streamIsCompressedWhileItIsReadTest() throws Exception {
+    // larger than a single read of the content
+    final String content = CONTENT.repeat(5);
+    final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+    try (InputStream stream = compressor.compressing(
+        new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), ContentCoding.GZIP)) {
+      final byte[] buffer = new byte[100];
+      int read;
+      while ((read = stream.read(buffer)) != -1) {
+        compressed.write(buffer, 0, read);
+      }
+    }
+
+    assertThat(gunzip(compressed.toByteArray())).isEqualTo(content);
+    assertThat(compressor.getBytesAfterCompression()).isEqualTo(compressed.size());
+  }
+
+  private static String gunzip(byte[] compressed) throws IOException {
+    try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+      return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}
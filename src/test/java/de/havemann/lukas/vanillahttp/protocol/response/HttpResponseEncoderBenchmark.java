@@ -0,0 +1,116 @@
+package de.havemann.lukas.vanillahttp.protocol.response;
+
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpHeaderField;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpProtocol;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpStatusCode;
+import de.havemann.lukas.vanillahttp.protocol.specification.MediaType;
+import de.havemann.lukas.vanillahttp.protocol.specification.etag.ETag;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.tuple.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput and allocation of serializing a typical file response with {@link
+ * HttpResponseEncoder}. {@link #headWithByteArrayOutputStream()} is the previous serialization of
+ * the head, which encoded every protocol element per response. Run with {@code mvn -P benchmark
+ * test-compile exec:exec -Djmh.args="HttpResponseEncoderBenchmark -prof gc"} and compare {@code
+ * gc.alloc.rate.norm}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpResponseEncoderBenchmark {
+
+  private static final byte[] CRLF = HttpProtocol.DELIMITER.getBytes(StandardCharsets.UTF_8);
+
+  private final DiscardingChannel channel = new DiscardingChannel();
+  private final ResponseHeadBuffer headBuffer = new ResponseHeadBuffer();
+  private HttpResponse response;
+
+  @Setup
+  public void setup() {
+    response = new HttpResponse.Builder(HttpProtocol.HTTP_1_1)
+        .statusCode(HttpStatusCode.OK)
+        .contentType(MediaType.HTML)
+        .lastModified(ZonedDateTime.of(2021, 10, 31, 10, 0, 0, 0, ZoneOffset.UTC))
+        .eTag(new ETag("d41d8cd98f00b204e9800998ecf8427e", ETag.Kind.STRONG))
+        .keepAliveFor(Duration.ofSeconds(15))
+        .payload("<html><body>Hello World!</body></html>".getBytes(StandardCharsets.UTF_8))
+        .build();
+  }
+
+  @Benchmark
+  public long responseWithHeadBufferOfConnection() throws Exception {
+    try (HttpResponseEncoder encoder = new HttpResponseEncoder(response, 1024, headBuffer)) {
+      encoder.writeTo(channel);
+    }
+    return channel.written;
+  }
+
+  @Benchmark
+  public long headWithByteArrayOutputStream() throws IOException {
+    final ByteArrayOutputStream head = new ByteArrayOutputStream(256);
+    head.write(response.getProtocol().getRepresentation().getBytes(StandardCharsets.UTF_8));
+    head.write(' ');
+    head.write(response.getStatusCode().getRepresentation().getBytes(StandardCharsets.UTF_8));
+    head.write(CRLF);
+    for (Pair<HttpHeaderField, String> headerField : response.getHeaderFields()) {
+      head.write(headerField.getKey().getRepresentation().getBytes(StandardCharsets.UTF_8));
+      head.write(HttpHeaderField.KEY_VALUE_DELIMITER.getBytes(StandardCharsets.UTF_8));
+      head.write(headerField.getValue().getBytes(StandardCharsets.UTF_8));
+      head.write(CRLF);
+    }
+    head.write(CRLF);
+    return channel.write(ByteBuffer.wrap(head.toByteArray()));
+  }
+
+  @Benchmark
+  public long headWithHeadBufferOfConnection() throws IOException {
+    return channel.write(headBuffer.encode(response));
+  }
+
+  /**
+   * Channel, which accepts and drops all bytes
+   */
+  private static final class DiscardingChannel implements WritableByteChannel {
+
+    private long written;
+
+    @Override
+    public int write(ByteBuffer source) {
+      final int length = source.remaining();
+      source.position(source.limit());
+      written += length;
+      return length;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -0,0 +1,199 @@
+package de.havemann.lukas.vanillahttp.protocol.response;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpProtocol;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpStatusCode;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * tests for {@link HttpResponseEncoder}
+ */
+class HttpResponseEncoderTest {
+
+  private static final String EXPECTED_RESPONSE = String.join(HttpProtocol.DELIMITER,
+      "HTTP/1.1 200 OK",
+      "Content-Length: 12",
+      "",
+      "Hello World!");
+
+  private final ByteBufferPool pool = new ByteBufferPool(4);
+
+  @Test
+  void headAndBodyAreGatheredTest() throws Exception {
+    final RecordingChannel channel = new RecordingChannel(Integer.MAX_VALUE);
+
+    try (HttpResponseEncoder encoder = new HttpResponseEncoder(response(),
+        1024, new ResponseHeadBuffer(pool))) {
+      assertThat(encoder.writeTo(channel)).isTrue();
+    }
+
+    assertThat(channel.content()).isEqualTo(EXPECTED_RESPONSE);
+    assertThat(channel.writes).isEqualTo(1);
+  }
+
+  @Test
+  void smallFileIsGatheredWithHeadTest(@TempDir Path tempDir) throws Exception {
+    final Path file = Files.writeString(tempDir.resolve("hello.txt"), "Hello World!");
+    final RecordingChannel channel = new RecordingChannel(Integer.MAX_VALUE);
+    final HttpResponse response = new HttpResponse.Builder(HttpProtocol.HTTP_1_1)
+        .statusCode(HttpStatusCode.OK)
+        .fileRegion(new FileRegion(() -> FileChannel.open(file), 0, 12))
+        .build();
+
+    try (HttpResponseEncoder encoder = new HttpResponseEncoder(response, 1024,
+        new ResponseHeadBuffer(pool))) {
+      assertThat(encoder.writeTo(channel)).isTrue();
+    }
+
+    assertThat(channel.content()).isEqualTo(EXPECTED_RESPONSE);
+    assertThat(channel.writes).isEqualTo(1);
+  }
+
+  @Test
+  void partialWritesAreContinuedAndBuffersReleasedTest() throws Exception {
+    final RecordingChannel channel = new RecordingChannel(7);
+
+    try (HttpResponseEncoder encoder = new HttpResponseEncoder(response(), 1024,
+        new ResponseHeadBuffer(pool))) {
+      while (!encoder.writeTo(channel)) {
+        channel.acceptMore();
+      }
+    }
+
+    assertThat(channel.content()).isEqualTo(EXPECTED_RESPONSE);
+    assertThat(pool.getPooledBufferCount()).isEqualTo(1);
+  }
+
+  @Test
+  void regionsOfCompositeBodyAreWrittenInOrderTest(@TempDir Path tempDir) throws Exception {
+    final Path file = Files.writeString(tempDir.resolve("hello.txt"), "Hello World!");
+    final RecordingChannel channel = new RecordingChannel(5);
+    final HttpResponse response = new HttpResponse.Builder(HttpProtocol.HTTP_1_1)
+        .statusCode(HttpStatusCode.OK)
+        .compositeRegion(new CompositeRegion.Builder()
+            .add(BufferRegion.of("Hello".getBytes(StandardCharsets.UTF_8)).slice(0, 4))
+            .add(new FileRegion(() -> FileChannel.open(file), 4, 7))
+            .add(BufferRegion.of("!!".getBytes(StandardCharsets.UTF_8)).slice(1, 1))
+            .build())
+        .build();
+
+    try (HttpResponseEncoder encoder = new HttpResponseEncoder(response, 1024,
+        new ResponseHeadBuffer(pool))) {
+      while (!encoder.writeTo(channel)) {
+        channel.acceptMore();
+      }
+    }
+
+    assertThat(channel.content()).isEqualTo(EXPECTED_RESPONSE);
+  }
+
+  @Test
+  void truncatedFileAbortsNonBlockingTransferTest(@TempDir Path tempDir) throws Exception {
+    final Path file = Files.write(tempDir.resolve("truncated.bin"), new byte[64 * 1024]);
+    // the file was truncated after the content length was announced
+    final HttpResponse response = new HttpResponse.Builder(HttpProtocol.HTTP_1_1)
+        .statusCode(HttpStatusCode.OK)
+        .fileRegion(new FileRegion(() -> FileChannel.open(file), 0, 128 * 1024))
+        .build();
+    final Pipe pipe = Pipe.open();
+    pipe.sink().configureBlocking(false);
+    pipe.source().configureBlocking(false);
+    final ByteBuffer drain = ByteBuffer.allocate(16 * 1024);
+
+    try (HttpResponseEncoder encoder = new HttpResponseEncoder(response, 1024,
+        new ResponseHeadBuffer(pool))) {
+      assertThatThrownBy(() -> {
+        for (int round = 0; round < 1000 && !encoder.writeTo(pipe.sink()); round++) {
+          while (pipe.source().read(drain.clear()) > 0) {
+            // the client reads everything sent so far
+          }
+        }
+      }).isInstanceOf(EOFException.class);
+    } finally {
+      pipe.sink().close();
+      pipe.source().close();
+    }
+  }
+
+  private static HttpResponse response() {
+    return new HttpResponse.Builder(HttpProtocol.HTTP_1_1)
+        .statusCode(HttpStatusCode.OK)
+        .payload("Hello World!".getBytes(StandardCharsets.UTF_8))
+        .build();
+  }
+
+  /**
+   * Non-blocking channel, which accepts only a limited number of bytes until more is requested
+   */
+  private static final class RecordingChannel implements GatheringByteChannel {
+
+    private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+    private final int bytesPerRound;
+    private int available;
+    private int writes;
+
+    private RecordingChannel(int bytesPerRound) {
+      this.bytesPerRound = bytesPerRound;
+      this.available = bytesPerRound;
+    }
+
+    void acceptMore() {
+      available = bytesPerRound;
+    }
+
+    String content() {
+      return written.toString(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public long write(ByteBuffer[] sources, int offset, int length) {
+      writes++;
+      long total = 0;
+      for (int i = offset; i < offset + length; i++) {
+        total += transfer(sources[i]);
+      }
+      return total;
+    }
+
+    @Override
+    public long write(ByteBuffer[] sources) {
+      return write(sources, 0, sources.length);
+    }
+
+    @Override
+    public int write(ByteBuffer source) {
+      writes++;
+      return transfer(source);
+    }
+
+    private int transfer(ByteBuffer source) {
+      final int count = Math.min(available, source.remaining());
+      for (int i = 0; i < count; i++) {
+        written.write(source.get());
+      }
+      available -= count;
+      return count;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
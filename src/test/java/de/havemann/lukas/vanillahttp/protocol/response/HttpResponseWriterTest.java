@@ -7,13 +7,20 @@ import de.havemann.lukas.vanillahttp.protocol.specification.HttpStatusCode;
 import de.havemann.lukas.vanillahttp.protocol.specification.etag.ETag;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 /**
  * tests for {@link HttpResponseWriter}
@@ -48,6 +55,12 @@ class HttpResponseWriterTest {
       "",
       "");
 
+  private static final String EXPECTED_FILE_RESPONSE = String.join(HttpProtocol.DELIMITER,
+      "HTTP/1.1 200 OK",
+      "Content-Length: 5",
+      "",
+      "World");
+
   private ByteArrayOutputStream actual;
   private HttpResponseWriter testee;
 
@@ -97,4 +110,76 @@ class HttpResponseWriterTest {
 
     assertThat(actual.toString(StandardCharsets.UTF_8)).isEqualTo(EXPECTED_HTTP1_RESPONSE);
   }
-}
\ No newline at end of file
+
+  @Test
+  void fileRegionIsWrittenWithContentLengthTest(@TempDir Path tempDir) throws Exception {
+    final Path file = tempDir.resolve("hello.txt");
+    Files.writeString(file, "Hello World!");
+
+    final HttpResponse response = new HttpResponse.Builder(HttpProtocol.HTTP_1_1)
+        .statusCode(HttpStatusCode.OK)
+        .fileRegion(new FileRegion(() -> FileChannel.open(file), 6, 5))
+        .build();
+
+    testee.write(response);
+
+    assertThat(actual.toString(StandardCharsets.UTF_8)).isEqualTo(EXPECTED_FILE_RESPONSE);
+  }
+
+  @Test
+  void fileRegionIsTransferredToChannelTest(@TempDir Path tempDir) throws Exception {
+    final Path file = tempDir.resolve("hello.txt");
+    final Path target = tempDir.resolve("response.txt");
+    Files.writeString(file, "Hello World!");
+
+    try (FileChannel targetChannel = FileChannel.open(target, StandardOpenOption.CREATE_NEW,
+        StandardOpenOption.WRITE)) {
+      new HttpResponseWriter(targetChannel, HttpResponseWriter.DEFAULT_BUFFER_SIZE)
+          .write(new HttpResponse.Builder(HttpProtocol.HTTP_1_1)
+              .statusCode(HttpStatusCode.OK)
+              .fileRegion(new FileRegion(() -> FileChannel.open(file), 6, 5))
+              .build());
+    }
+
+    assertThat(Files.readString(target)).isEqualTo(EXPECTED_FILE_RESPONSE);
+  }
+
+  @Test
+  void bufferRegionIsWrittenWithContentLengthAndReleasedTest() throws Exception {
+    final AtomicBoolean released = new AtomicBoolean();
+    final ByteBuffer buffer = ByteBuffer.wrap("Hello World!".getBytes(StandardCharsets.UTF_8),
+        6, 5);
+
+    final HttpResponse response = new HttpResponse.Builder(HttpProtocol.HTTP_1_1)
+        .statusCode(HttpStatusCode.OK)
+        .bufferRegion(new BufferRegion(() -> new BufferRegion.Lease() {
+          @Override
+          public ByteBuffer getBuffer() {
+            return buffer;
+          }
+
+          @Override
+          public void close() {
+            released.set(true);
+          }
+        }, 5))
+        .build();
+
+    testee.write(response);
+
+    assertThat(actual.toString(StandardCharsets.UTF_8)).isEqualTo(EXPECTED_FILE_RESPONSE);
+    assertThat(released.get()).isTrue();
+  }
+
+  @Test
+  void payloadIsWrittenWithContentLengthTest() throws Exception {
+    final HttpResponse response = new HttpResponse.Builder(HttpProtocol.HTTP_1_1)
+        .statusCode(HttpStatusCode.OK)
+        .payload("World".getBytes(StandardCharsets.UTF_8))
+        .build();
+
+    testee.write(response);
+
+    assertThat(actual.toString(StandardCharsets.UTF_8)).isEqualTo(EXPECTED_FILE_RESPONSE);
+  }
+}
@@ -0,0 +1,59 @@
+package de.havemann.lukas.vanillahttp.protocol.specification;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * tests for {@link AcceptEncoding}
+ */
+class AcceptEncodingTest {
+
+  private static final List<ContentCoding> OFFERED = List.of(ContentCoding.GZIP,
+      ContentCoding.DEFLATE);
+
+  private static Optional<ContentCoding> select(String acceptEncoding) {
+    return AcceptEncoding.of(new HttpHeader(Map.of("Accept-Encoding", acceptEncoding)))
+        .select(OFFERED);
+  }
+
+  @Test
+  void missingHeaderSelectsIdentityTest() {
+    assertThat(AcceptEncoding.of(new HttpHeader(Map.of())).select(OFFERED)).isEmpty();
+  }
+
+  @Test
+  void qualityValuesAreRespectedTest() {
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(select("gzip, deflate, br")).contains(ContentCoding.GZIP);
+    softly.assertThat(select("deflate")).contains(ContentCoding.DEFLATE);
+    softly.assertThat(select("gzip;q=0.5, deflate")).contains(ContentCoding.DEFLATE);
+    softly.assertThat(select("GZIP;Q=0.8, deflate;q=0.1")).contains(ContentCoding.GZIP);
+    softly.assertThat(select("x-gzip")).contains(ContentCoding.GZIP);
+    softly.assertThat(select("*")).contains(ContentCoding.GZIP);
+    softly.assertThat(select("*, gzip;q=0")).contains(ContentCoding.DEFLATE);
+    softly.assertAll();
+  }
+
+  @Test
+  void identityIsPreferredIfRankedHigherTest() {
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(select("gzip;q=0.5, identity")).isEmpty();
+    softly.assertThat(select("gzip;q=0, deflate;q=0")).isEmpty();
+    softly.assertThat(select("br")).isEmpty();
+    softly.assertThat(select("identity;q=0, gzip;q=0.1")).contains(ContentCoding.GZIP);
+    softly.assertAll();
+  }
+
+  @Test
+  void invalidQualityValuesAreIgnoredTest() {
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(select("gzip;q=abc")).isEmpty();
+    softly.assertThat(select("gzip;q=2, deflate")).contains(ContentCoding.DEFLATE);
+    softly.assertAll();
+  }
+}
@@ -0,0 +1,78 @@
+package de.havemann.lukas.vanillahttp.protocol.specification;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * tests for {@link RangeRequest}
+ */
+class RangeRequestTest {
+
+  private static Optional<RangeRequest> parse(String range) {
+    return RangeRequest.of(new HttpHeader(Map.of("Range", range)));
+  }
+
+  private static List<ByteRange> resolve(String range, long completeLength) {
+    return parse(range).orElseThrow().resolve(completeLength);
+  }
+
+  @Test
+  void missingHeaderRequestsCompleteRepresentationTest() {
+    assertThat(RangeRequest.of(new HttpHeader(Map.of()))).isEmpty();
+  }
+
+  @Test
+  void invalidHeaderIsIgnoredTest() {
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(parse("items=0-10")).isEmpty();
+    softly.assertThat(parse("bytes=10-5")).isEmpty();
+    softly.assertThat(parse("bytes=a-5")).isEmpty();
+    softly.assertThat(parse("bytes=5")).isEmpty();
+    softly.assertThat(parse("bytes=-")).isEmpty();
+    softly.assertThat(parse("bytes=+1-5")).isEmpty();
+    softly.assertThat(parse("bytes=0-1" + ",2-3".repeat(RangeRequest.MAX_RANGES))).isEmpty();
+    softly.assertAll();
+  }
+
+  @Test
+  void rangesAreResolvedAgainstLengthTest() {
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(resolve("bytes=0-499", 1000)).containsExactly(new ByteRange(0, 499));
+    softly.assertThat(resolve("Bytes=500-", 1000)).containsExactly(new ByteRange(500, 999));
+    softly.assertThat(resolve("bytes=900-2000", 1000)).containsExactly(new ByteRange(900, 999));
+    softly.assertThat(resolve("bytes=-100", 1000)).containsExactly(new ByteRange(900, 999));
+    softly.assertThat(resolve("bytes=-2000", 1000)).containsExactly(new ByteRange(0, 999));
+    softly.assertAll();
+  }
+
+  @Test
+  void unsatisfiableRangesAreDroppedTest() {
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(resolve("bytes=1000-", 1000)).isEmpty();
+    softly.assertThat(resolve("bytes=-0", 1000)).isEmpty();
+    softly.assertThat(resolve("bytes=0-", 0)).isEmpty();
+    softly.assertThat(resolve("bytes=2000-3000, 0-9", 1000)).containsExactly(new ByteRange(0, 9));
+    softly.assertAll();
+  }
+
+  @Test
+  void overlappingRangesAreCoalescedTest() {
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(resolve("bytes=500-599, 0-99, 50-149", 1000))
+        .containsExactly(new ByteRange(0, 149), new ByteRange(500, 599));
+    softly.assertThat(resolve("bytes=0-9, 10-19", 1000)).containsExactly(new ByteRange(0, 19));
+    softly.assertThat(resolve("bytes=0-99, -950", 1000)).containsExactly(new ByteRange(0, 999));
+    softly.assertAll();
+  }
+
+  @Test
+  void contentRangeTest() {
+    assertThat(new ByteRange(0, 499).contentRangeOf(1234)).isEqualTo("bytes 0-499/1234");
+    assertThat(ByteRange.unsatisfiedContentRange(1234)).isEqualTo("bytes */1234");
+  }
+}
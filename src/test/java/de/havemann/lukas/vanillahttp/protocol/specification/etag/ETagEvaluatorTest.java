@@ -105,6 +105,30 @@ class ETagEvaluatorTest {
   }
 
 
+  @Test
+  void ifRangeTest() {
+    final ETag strong = new ETag("ETAG", ETag.Kind.STRONG);
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(testee.isRangeApplicable(strong, FIX_POINT_IN_TIME)).as("no if range")
+        .isTrue();
+
+    givenRequest(HttpHeaderField.IF_RANGE, "\"ETAG\"");
+    softly.assertThat(testee.isRangeApplicable(strong, FIX_POINT_IN_TIME)).as("same etag")
+        .isTrue();
+    softly.assertThat(testee.isRangeApplicable(new ETag("OTHER", ETag.Kind.STRONG), null))
+        .as("changed etag").isFalse();
+    softly.assertThat(testee.isRangeApplicable(new ETag("ETAG", ETag.Kind.WEAK), null))
+        .as("weak etag").isFalse();
+
+    givenRequest(HttpHeaderField.IF_RANGE, "Wed, 21 Oct 2015 00:00:00 GMT");
+    softly.assertThat(testee.isRangeApplicable(strong, FIX_POINT_IN_TIME.plusNanos(100)))
+        .as("same date").isTrue();
+    softly.assertThat(testee.isRangeApplicable(strong, FIX_POINT_IN_TIME.plusDays(1)))
+        .as("modified").isFalse();
+    softly.assertThat(testee.isRangeApplicable(strong, null)).as("no date").isFalse();
+    softly.assertAll();
+  }
+
   private void givenRequest(HttpHeaderField httpHeaderField, String value) {
     // replacing ' with " here for readability of test
     value = value.replaceAll("'", "\"");
@@ -27,6 +27,16 @@ class ETagTest {
     softly.assertAll();
   }
 
+  @Test
+  void withSuffixTest() {
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(new ETag("TEST", ETag.Kind.STRONG).withSuffix("gzip").getRepresentation())
+        .isEqualTo("\"TEST-gzip\"");
+    softly.assertThat(new ETag("TEST", ETag.Kind.WEAK).withSuffix("gzip").getRepresentation())
+        .isEqualTo("W/\"TEST-gzip\"");
+    softly.assertAll();
+  }
+
   /**
    * +--------+--------+-------------------+-----------------+ | ETag 1 | ETag 2 | Strong Comparison
    * | Weak Comparison | +--------+--------+-------------------+-----------------+ | W/"1"  | W/"1"
@@ -0,0 +1,134 @@
+package de.havemann.lukas.vanillahttp.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.havemann.lukas.vanillahttp.protocol.specification.MediaType;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * tests for {@link ContentCache}
+ */
+class ContentCacheTest {
+
+  private ContentCache cache;
+
+  @BeforeEach
+  void beforeEach() {
+    cache = new ContentCache();
+    ReflectionTestUtils.setField(cache, "enabled", true);
+    ReflectionTestUtils.setField(cache, "maxSize", DataSize.ofBytes(300));
+    ReflectionTestUtils.setField(cache, "maxEntrySize", DataSize.ofBytes(150));
+    cache.init();
+  }
+
+  @Test
+  void cachedContentIsReturnedTest() {
+    cache.get("/a");
+    assertThat(cache.put("/a", entry(100))).isTrue();
+
+    assertThat(cache.get("/a")).isPresent();
+    assertThat(cache.getSize()).isEqualTo(100);
+    assertThat(cache.getHits()).isEqualTo(1);
+    assertThat(cache.getMisses()).isEqualTo(1);
+  }
+
+  @Test
+  void tooLargeContentIsRejectedTest() {
+    assertThat(cache.admits("/a", 151)).isFalse();
+    assertThat(cache.put("/a", entry(151))).isFalse();
+    assertThat(cache.getRejections()).isEqualTo(1);
+  }
+
+  @Test
+  void rarelyRequestedContentDoesNotReplaceFrequentlyRequestedContentTest() {
+    IntStream.range(0, 3).forEach(i -> {
+      cache.get("/hot1");
+      cache.get("/hot2");
+      cache.get("/hot3");
+    });
+    cache.put("/hot1", entry(100));
+    cache.put("/hot2", entry(100));
+    cache.put("/hot3", entry(100));
+
+    cache.get("/cold");
+    assertThat(cache.put("/cold", entry(100))).isFalse();
+
+    assertThat(cache.get("/hot1")).isPresent();
+    assertThat(cache.get("/hot2")).isPresent();
+    assertThat(cache.get("/hot3")).isPresent();
+  }
+
+  @Test
+  void leastRecentlyUsedContentIsEvictedForMoreFrequentContentTest() {
+    cache.get("/a");
+    cache.put("/a", entry(100));
+    cache.get("/b");
+    cache.put("/b", entry(100));
+    cache.get("/c");
+    cache.put("/c", entry(100));
+    cache.get("/a");
+
+    cache.get("/d");
+    cache.get("/d");
+    assertThat(cache.put("/d", entry(100))).isTrue();
+
+    assertThat(cache.get("/b")).isEmpty();
+    assertThat(cache.get("/a")).isPresent();
+    assertThat(cache.getEvictions()).isEqualTo(1);
+    assertThat(cache.getSize()).isEqualTo(300);
+  }
+
+  @Test
+  void changedFilesAreInvalidatedTest() {
+    cache.put("/dir/a", entry("dir/a", 10));
+    cache.put("/dir/sub/b", entry("dir/sub/b", 10));
+    cache.put("/other", entry("other", 10));
+
+    cache.onChange(Path.of("dir").toAbsolutePath());
+
+    assertThat(cache.get("/dir/a")).isEmpty();
+    assertThat(cache.get("/dir/sub/b")).isEmpty();
+    assertThat(cache.get("/other")).isPresent();
+    assertThat(cache.getSize()).isEqualTo(10);
+  }
+
+  @Test
+  void directoryIndexIsInvalidatedByOtherIndexTest() {
+    cache.put("/dir/", entry("dir/index.htm", 10));
+
+    cache.onChange(Path.of("dir/index.html").toAbsolutePath());
+
+    assertThat(cache.get("/dir/")).isEmpty();
+  }
+
+  @Test
+  void contentLoadedBeforeChangeIsRejectedTest() {
+    final ContentCache.Entry outdated = entry("a", 10);
+    cache.onChange(Path.of("b").toAbsolutePath());
+
+    assertThat(cache.put("/a", outdated)).isFalse();
+  }
+
+  @Test
+  void disabledCacheIsAlwaysEmptyTest() {
+    ReflectionTestUtils.setField(cache, "enabled", false);
+
+    assertThat(cache.put("/a", entry(100))).isFalse();
+    assertThat(cache.get("/a")).isEmpty();
+  }
+
+  private static ContentCache.Entry entry(int size) {
+    return entry("file", size);
+  }
+
+  private static ContentCache.Entry entry(String path, int size) {
+    return new ContentCache.Entry(Path.of(path), new byte[size], MediaType.ASCII_TEXT, null,
+        null, FileTime.fromMillis(0), System.nanoTime());
+  }
+}
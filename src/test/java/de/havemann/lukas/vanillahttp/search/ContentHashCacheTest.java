@@ -0,0 +1,75 @@
+package de.havemann.lukas.vanillahttp.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * tests for {@link ContentHashCache}
+ */
+class ContentHashCacheTest {
+
+  private static final FileTime LAST_MODIFIED = FileTime.fromMillis(1_000_000);
+  private static final byte[] HASH = "hash".getBytes(StandardCharsets.UTF_8);
+
+  private final AtomicInteger calculations = new AtomicInteger();
+  private ContentHashCache cache;
+
+  @BeforeEach
+  void beforeEach() {
+    cache = new ContentHashCache();
+    ReflectionTestUtils.setField(cache, "maxEntries", 2);
+    cache.init();
+  }
+
+  @Test
+  void hashOfUnchangedResourceIsCalculatedOnceTest() throws Exception {
+    cache.get(new ContentHashCache.Key(Path.of("a.txt"), 10, LAST_MODIFIED), this::calculate);
+    final byte[] hash = cache.get(new ContentHashCache.Key(Path.of("./a.txt"), 10, LAST_MODIFIED),
+        this::calculate);
+
+    assertThat(hash).isEqualTo(HASH);
+    assertThat(calculations).hasValue(1);
+    assertThat(cache.getHits()).isEqualTo(1);
+    assertThat(cache.getMisses()).isEqualTo(1);
+  }
+
+  @Test
+  void changedResourceIsHashedAgainTest() throws Exception {
+    cache.get(new ContentHashCache.Key(Path.of("a.txt"), 10, LAST_MODIFIED), this::calculate);
+    cache.get(new ContentHashCache.Key(Path.of("a.txt"), 11, LAST_MODIFIED), this::calculate);
+    cache.get(new ContentHashCache.Key(Path.of("a.txt"), 11, FileTime.fromMillis(2_000_000)),
+        this::calculate);
+
+    assertThat(calculations).hasValue(3);
+  }
+
+  @Test
+  void leastRecentlyUsedEntryIsEvictedTest() throws Exception {
+    final ContentHashCache.Key first = new ContentHashCache.Key(Path.of("a.txt"), 1, LAST_MODIFIED);
+    final ContentHashCache.Key second = new ContentHashCache.Key(Path.of("b.txt"), 1, LAST_MODIFIED);
+    final ContentHashCache.Key third = new ContentHashCache.Key(Path.of("c.txt"), 1, LAST_MODIFIED);
+
+    cache.get(first, this::calculate);
+    cache.get(second, this::calculate);
+    cache.get(first, this::calculate);
+    cache.get(third, this::calculate);
+    assertThat(cache.getSize()).isEqualTo(2);
+
+    cache.get(first, this::calculate);
+    assertThat(calculations).hasValue(3);
+    cache.get(second, this::calculate);
+    assertThat(calculations).hasValue(4);
+  }
+
+  private byte[] calculate() {
+    calculations.incrementAndGet();
+    return HASH;
+  }
+}
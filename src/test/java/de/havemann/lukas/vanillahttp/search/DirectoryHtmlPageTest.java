@@ -0,0 +1,66 @@
+package de.havemann.lukas.vanillahttp.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * tests for {@link DirectoryHtmlPage}
+ */
+class DirectoryHtmlPageTest {
+
+  @Test
+  void pageIsRenderedWhileReadTest(@TempDir Path directory) throws IOException {
+    for (int i = 0; i < 1000; i++) {
+      Files.createFile(directory.resolve("file-" + i));
+    }
+    Files.createDirectory(directory.resolve("sub"));
+
+    final ByteArrayOutputStream read = new ByteArrayOutputStream();
+    try (InputStream page = new DirectoryHtmlPage("/dir", directory).open()) {
+      // byte by byte and in chunks across the rendered batches
+      read.write(page.read());
+      read.write(page.readNBytes(10_000));
+      page.transferTo(read);
+    }
+
+    final String html = read.toString(StandardCharsets.UTF_8);
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(html).startsWith("<!DOCTYPE html");
+    softly.assertThat(html).contains("<title>Directory listing for /dir</title>");
+    softly.assertThat(html).contains("<li><a href=\"file-999\">file-999</a>\n");
+    softly.assertThat(html).contains("<li><a href=\"sub/\">sub/</a>\n");
+    softly.assertThat(html.split("<li>")).hasSize(1002);
+    softly.assertThat(html).endsWith(DirectoryHtmlPage.END_PAGE);
+    softly.assertAll();
+  }
+
+  @Test
+  void directoryNameIsEscapedTest(@TempDir Path directory) throws IOException {
+    final ByteArrayOutputStream page = new ByteArrayOutputStream();
+    new DirectoryHtmlPage("/<script>", directory).render(page);
+
+    assertThat(page.toString(StandardCharsets.UTF_8))
+        .contains("<h2>Directory listing for /&lt;script&gt;</h2>")
+        .doesNotContain("<script>");
+  }
+
+  @Test
+  void escapingTest() {
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(DirectoryHtmlPage.escapeHtml("plain")).isEqualTo("plain");
+    softly.assertThat(DirectoryHtmlPage.escapeHtml("a<b>&\"c'"))
+        .isEqualTo("a&lt;b&gt;&amp;&quot;c&#39;");
+    softly.assertThat(DirectoryHtmlPage.encodeLink("a b#?%:ä.txt"))
+        .isEqualTo("a%20b%23%3F%25%3A%C3%A4.txt");
+    softly.assertAll();
+  }
+}
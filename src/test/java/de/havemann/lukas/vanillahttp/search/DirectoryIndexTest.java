@@ -0,0 +1,130 @@
+package de.havemann.lukas.vanillahttp.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpHeader;
+import de.havemann.lukas.vanillahttp.protocol.specification.HttpHeaderField;
+import de.havemann.lukas.vanillahttp.search.DirectoryListingQuery.SortKey;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * tests for {@link DirectoryIndex} and {@link DirectoryListingQuery}
+ */
+class DirectoryIndexTest {
+
+  @Test
+  void pagesContainEveryEntryOnceTest(@TempDir Path directory) throws IOException {
+    for (int i = 0; i < 25; i++) {
+      Files.createFile(directory.resolve(String.format("file-%02d", i)));
+    }
+    final DirectoryIndex index = DirectoryIndex.of(directory, SortKey.NAME);
+
+    final List<String> ascending = readAllPages(index, false);
+    final List<String> descending = readAllPages(index, true);
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(ascending).hasSize(25).isSorted().doesNotHaveDuplicates();
+    softly.assertThat(descending).hasSize(25).containsExactlyElementsOf(reversed(ascending));
+    softly.assertAll();
+  }
+
+  @Test
+  void entriesAreSortedBySizeAndNameTest(@TempDir Path directory) throws IOException {
+    Files.write(directory.resolve("b"), new byte[3]);
+    Files.write(directory.resolve("a"), new byte[3]);
+    Files.write(directory.resolve("c"), new byte[1]);
+    Files.createDirectory(directory.resolve("sub"));
+
+    final DirectoryIndex.Page page = DirectoryIndex.of(directory, SortKey.SIZE)
+        .page(new DirectoryListingQuery(SortKey.SIZE, true, 2, null));
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(names(page)).containsExactly("sub", "b");
+    softly.assertThat(page.getEntries().get(0).isDirectory()).isTrue();
+    softly.assertThat(page.getNext()).isPresent();
+    softly.assertAll();
+  }
+
+  @Test
+  void cursorOfRemovedEntryContinuesAfterItTest(@TempDir Path directory) throws IOException {
+    for (String name : List.of("a", "b", "c", "d")) {
+      Files.createFile(directory.resolve(name));
+    }
+    final String cursor = DirectoryIndex.of(directory, SortKey.NAME)
+        .page(new DirectoryListingQuery(SortKey.NAME, false, 2, null)).getNext().orElseThrow();
+
+    Files.delete(directory.resolve("b"));
+    final DirectoryIndex.Page next = DirectoryIndex.of(directory, SortKey.NAME)
+        .page(new DirectoryListingQuery(SortKey.NAME, false, 2, cursor));
+
+    assertThat(names(next)).containsExactly("c", "d");
+    assertThat(next.getNext()).isEmpty();
+  }
+
+  @Test
+  void invalidCursorIsRejectedTest(@TempDir Path directory) throws IOException {
+    final DirectoryIndex index = DirectoryIndex.of(directory, SortKey.SIZE);
+
+    assertThatThrownBy(() -> index.page(new DirectoryListingQuery(SortKey.SIZE, false, 1, "!")))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> index.page(new DirectoryListingQuery(SortKey.SIZE, false, 1, "YQ")))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void queryIsParsedFromUriAndHeaderTest() {
+    final HttpHeader acceptJson = new HttpHeader(
+        Map.of(HttpHeaderField.ACCEPT.getRepresentation(), "application/json"));
+    final HttpHeader noHeader = new HttpHeader(Map.of());
+
+    final DirectoryListingQuery query = DirectoryListingQuery
+        .of("/dir/?format=json&sort=mtime&order=desc&limit=99999&after=a%2Db", noHeader)
+        .orElseThrow();
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(query.getSortKey()).isEqualTo(SortKey.LAST_MODIFIED);
+    softly.assertThat(query.isDescending()).isTrue();
+    softly.assertThat(query.getLimit()).isEqualTo(DirectoryListingQuery.MAX_LIMIT);
+    softly.assertThat(query.getAfter()).contains("a-b");
+    softly.assertThat(DirectoryListingQuery.of("/dir/", acceptJson)).isPresent();
+    softly.assertThat(DirectoryListingQuery.of("/dir/?format=html", acceptJson)).isEmpty();
+    softly.assertThat(DirectoryListingQuery.of("/dir/", noHeader)).isEmpty();
+    softly.assertThat(DirectoryListingQuery.of("/dir/?format=json&limit=x", noHeader)
+        .map(DirectoryListingQuery::getLimit)).contains(DirectoryListingQuery.DEFAULT_LIMIT);
+    softly.assertAll();
+  }
+
+  private static List<String> readAllPages(DirectoryIndex index, boolean descending) {
+    final List<String> names = new ArrayList<>();
+    String cursor = null;
+    do {
+      final DirectoryIndex.Page page = index
+          .page(new DirectoryListingQuery(SortKey.NAME, descending, 7, cursor));
+      names.addAll(names(page));
+      cursor = page.getNext().orElse(null);
+    } while (cursor != null);
+    return names;
+  }
+
+  private static List<String> names(DirectoryIndex.Page page) {
+    return page.getEntries().stream().map(DirectoryIndex.Entry::getName)
+        .collect(Collectors.toList());
+  }
+
+  private static List<String> reversed(List<String> list) {
+    final List<String> reversed = new ArrayList<>(list);
+    Collections.reverse(reversed);
+    return reversed;
+  }
+}
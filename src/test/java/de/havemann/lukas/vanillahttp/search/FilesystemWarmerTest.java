@@ -0,0 +1,23 @@
+package de.havemann.lukas.vanillahttp.search;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * tests for {@link FilesystemWarmer}
+ */
+class FilesystemWarmerTest {
+
+  @Test
+  void requestPathOfHotListLineTest() {
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(FilesystemWarmer.requestPathOf("/style.css")).contains("/style.css");
+    softly.assertThat(FilesystemWarmer.requestPathOf("  /a%20b.txt ")).contains("/a%20b.txt");
+    softly.assertThat(FilesystemWarmer.requestPathOf(
+        "127.0.0.1 - - [01/May/2021:10:00:00 +0200] \"GET /app.js HTTP/1.1\" 200 512"))
+        .contains("/app.js");
+    softly.assertThat(FilesystemWarmer.requestPathOf("# comment")).isEmpty();
+    softly.assertThat(FilesystemWarmer.requestPathOf("1.2.3.4 - - [...] \"-\" 400 0")).isEmpty();
+    softly.assertAll();
+  }
+}
@@ -0,0 +1,119 @@
+package de.havemann.lukas.vanillahttp.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * tests for {@link FilesystemWatcher}
+ */
+class FilesystemWatcherTest {
+
+  // polling implementations of the watch service detect changes only every few seconds
+  private static final long TIMEOUT_SECONDS = 30;
+
+  private final BlockingQueue<Path> changes = new LinkedBlockingQueue<>();
+  private final AtomicInteger overflows = new AtomicInteger();
+
+  @TempDir
+  Path baseDir;
+
+  private FilesystemWatcher watcher;
+
+  @BeforeEach
+  void beforeEach() {
+    watcher = new FilesystemWatcher(List.of(new FileChangeListener() {
+      @Override
+      public void onChange(Path path) {
+        changes.add(path);
+      }
+
+      @Override
+      public void onOverflow() {
+        overflows.incrementAndGet();
+      }
+    }));
+    ReflectionTestUtils.setField(watcher, "enabled", true);
+    ReflectionTestUtils.setField(watcher, "basedir", baseDir.toString());
+  }
+
+  @AfterEach
+  void afterEach() throws InterruptedException {
+    watcher.shutdown();
+  }
+
+  @Test
+  void changedFileIsReportedTest() throws Exception {
+    final Path file = Files.writeString(baseDir.resolve("file.txt"), "first version");
+    watcher.start();
+
+    Files.writeString(file, "second version");
+
+    assertThat(watcher.isWatching()).isTrue();
+    awaitChangeOf(file);
+  }
+
+  @Test
+  void changesInNewDirectoriesAreReportedTest() throws Exception {
+    watcher.start();
+
+    final Path directory = Files.createDirectory(baseDir.resolve("new"));
+    awaitChangeOf(directory);
+    awaitRegistrationOf(2);
+    final Path file = Files.writeString(directory.resolve("file.txt"), "content");
+
+    awaitChangeOf(file);
+  }
+
+  @Test
+  void disabledWatcherIsNotWatchingTest() {
+    ReflectionTestUtils.setField(watcher, "enabled", false);
+    watcher.start();
+
+    assertThat(watcher.isWatching()).isFalse();
+  }
+
+  @Test
+  void failedRegistrationStopsWatchingTest() {
+    watcher.start();
+
+    // registering the directories again fails, like once the limit of watches is reached
+    ReflectionTestUtils.invokeMethod(watcher, "handleOverflow", baseDir.resolve("missing"));
+
+    assertThat(watcher.isWatching()).isFalse();
+    assertThat(overflows).hasValue(1);
+  }
+
+  private void awaitChangeOf(Path path) throws InterruptedException {
+    final Path expected = path.toAbsolutePath().normalize();
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+    while (System.nanoTime() < deadline) {
+      final Path changed = changes.poll(1, TimeUnit.SECONDS);
+      if (expected.equals(changed)) {
+        return;
+      }
+    }
+
+    throw new AssertionError("no change reported for " + expected);
+  }
+
+  private void awaitRegistrationOf(int directories) throws InterruptedException {
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+    while (watcher.getWatchedDirectoryCount() < directories && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+
+    assertThat(watcher.getWatchedDirectoryCount()).isEqualTo(directories);
+  }
+}
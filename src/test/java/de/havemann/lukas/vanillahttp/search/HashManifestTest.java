@@ -0,0 +1,152 @@
+package de.havemann.lukas.vanillahttp.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * tests for {@link HashManifest}
+ */
+class HashManifestTest {
+
+  private static final FileTime LAST_MODIFIED = FileTime.fromMillis(1_000_000);
+  private static final byte[] HASH = {1, 2, 3, 4};
+
+  @Test
+  void persistedHashIsServedForUnchangedFileTest(@TempDir Path directory) throws IOException {
+    final Path manifestFile = directory.resolve("hashes.manifest");
+    final Path file = Files.writeString(directory.resolve("a.txt"), "a");
+    final ContentHashCache.Key key = new ContentHashCache.Key(file, 10, LAST_MODIFIED);
+    final ContentHashCache contentHashCache = createHashCache();
+    final HashManifest before = createManifest(manifestFile, contentHashCache);
+    contentHashCache.get(key, () -> HASH);
+    before.shutdown();
+
+    final HashManifest after = createManifest(manifestFile, createHashCache());
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(after.getEntryCount()).isEqualTo(1);
+    softly.assertThat(after.get(key)).contains(HASH);
+    softly.assertThat(after.get(new ContentHashCache.Key(file, 11, LAST_MODIFIED))).isEmpty();
+    softly.assertThat(after.get(new ContentHashCache.Key(file, 10,
+        FileTime.fromMillis(2_000_000)))).isEmpty();
+    softly.assertThat(after.get(new ContentHashCache.Key(directory.resolve("b.txt"), 10,
+        LAST_MODIFIED))).isEmpty();
+    softly.assertThat(after.getHits()).isEqualTo(1);
+    softly.assertAll();
+  }
+
+  @Test
+  void mappedHashesAreKeptOnSaveTest(@TempDir Path directory) throws IOException {
+    final Path manifestFile = directory.resolve("hashes.manifest");
+    for (int i = 0; i <= 100; i++) {
+      Files.writeString(directory.resolve("file-" + i), "content");
+    }
+    final ContentHashCache first = createHashCache();
+    for (int i = 0; i < 100; i++) {
+      first.get(keyOf(directory, i), () -> HASH);
+    }
+    createManifest(manifestFile, first).shutdown();
+
+    // a new version of file 0 and a new file are hashed after the restart
+    final ContentHashCache second = createHashCache();
+    final byte[] newHash = {5, 6};
+    second.get(new ContentHashCache.Key(directory.resolve("file-0"), 1, LAST_MODIFIED),
+        () -> newHash);
+    second.get(keyOf(directory, 100), () -> HASH);
+    createManifest(manifestFile, second).shutdown();
+
+    final HashManifest manifest = createManifest(manifestFile, createHashCache());
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(manifest.getEntryCount()).isEqualTo(101);
+    softly.assertThat(manifest.get(new ContentHashCache.Key(directory.resolve("file-0"), 1,
+        LAST_MODIFIED))).contains(newHash);
+    for (int i = 1; i <= 100; i++) {
+      softly.assertThat(manifest.get(keyOf(directory, i))).contains(HASH);
+    }
+    softly.assertAll();
+  }
+
+  @Test
+  void invalidManifestIsIgnoredTest(@TempDir Path directory) throws IOException {
+    final Path manifestFile = directory.resolve("hashes.manifest");
+    Files.writeString(manifestFile, "no manifest");
+
+    final HashManifest manifest = createManifest(manifestFile, createHashCache());
+
+    assertThat(manifest.getEntryCount()).isZero();
+    assertThat(manifest.get(keyOf(directory, 0))).isEmpty();
+  }
+
+  @Test
+  void deletedFilesAndTooLongPathsAreNotPersistedTest(@TempDir Path directory)
+      throws IOException {
+    final Path manifestFile = directory.resolve("hashes.manifest");
+    Files.writeString(directory.resolve("file-0"), "content");
+    Files.writeString(directory.resolve("file-1"), "content");
+    final ContentHashCache first = createHashCache();
+    first.get(keyOf(directory, 0), () -> HASH);
+    first.get(keyOf(directory, 1), () -> HASH);
+    first.get(new ContentHashCache.Key(directory.resolve("x".repeat(70_000)), 1, LAST_MODIFIED),
+        () -> HASH);
+    createManifest(manifestFile, first).shutdown();
+
+    // the deleted file is pruned from the mapped manifest on the next save
+    Files.delete(directory.resolve("file-1"));
+    createManifest(manifestFile, createHashCache()).shutdown();
+
+    final HashManifest manifest = createManifest(manifestFile, createHashCache());
+    assertThat(manifest.getEntryCount()).isEqualTo(1);
+    assertThat(manifest.get(keyOf(directory, 0))).contains(HASH);
+  }
+
+  @Test
+  void newHashesAreSavedPeriodicallyTest(@TempDir Path directory) throws IOException {
+    final Path manifestFile = directory.resolve("hashes.manifest");
+    Files.writeString(directory.resolve("file-0"), "content");
+    final ContentHashCache contentHashCache = createHashCache();
+    final HashManifest manifest = createManifest(manifestFile, contentHashCache);
+
+    contentHashCache.get(keyOf(directory, 0), () -> HASH);
+    manifest.saveIfHashed();
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(manifest.getEntryCount()).isEqualTo(1);
+    softly.assertThat(createManifest(manifestFile, createHashCache()).get(keyOf(directory, 0)))
+        .contains(HASH);
+    softly.assertAll();
+
+    // nothing is saved without new hashes
+    Files.delete(manifestFile);
+    manifest.saveIfHashed();
+    assertThat(manifestFile).doesNotExist();
+  }
+
+  private static ContentHashCache.Key keyOf(Path directory, int i) {
+    return new ContentHashCache.Key(directory.resolve("file-" + i), i, LAST_MODIFIED);
+  }
+
+  private static ContentHashCache createHashCache() {
+    final ContentHashCache cache = new ContentHashCache();
+    ReflectionTestUtils.setField(cache, "maxEntries", 1000);
+    cache.init();
+    return cache;
+  }
+
+  private static HashManifest createManifest(Path file, ContentHashCache contentHashCache) {
+    final HashManifest manifest = new HashManifest(contentHashCache);
+    ReflectionTestUtils.setField(manifest, "file", file.toString());
+    ReflectionTestUtils.setField(manifest, "maxEntries", 1000);
+    ReflectionTestUtils.setField(manifest, "saveInterval", Duration.ZERO);
+    manifest.init();
+    return manifest;
+  }
+}
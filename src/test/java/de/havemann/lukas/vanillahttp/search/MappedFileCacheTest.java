@@ -0,0 +1,122 @@
+package de.havemann.lukas.vanillahttp.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.havemann.lukas.vanillahttp.protocol.response.BufferRegion;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * tests for {@link MappedFileCache}
+ */
+class MappedFileCacheTest {
+
+  @TempDir
+  Path baseDir;
+
+  private MappedFileCache cache;
+
+  @BeforeEach
+  void beforeEach() {
+    cache = new MappedFileCache();
+    ReflectionTestUtils.setField(cache, "enabled", true);
+    ReflectionTestUtils.setField(cache, "minFileSize", DataSize.ofBytes(5));
+    ReflectionTestUtils.setField(cache, "maxSize", DataSize.ofBytes(100));
+    ReflectionTestUtils.setField(cache, "maxMappings", 2);
+    cache.init();
+  }
+
+  @Test
+  void mappingIsReusedTest() throws IOException {
+    final Path file = write("a.txt", "mapped content");
+
+    final MappedFileCache.Mapping first = cache.get(file, attributesOf(file)).orElseThrow();
+    final MappedFileCache.Mapping second = cache.get(file, attributesOf(file)).orElseThrow();
+
+    assertThat(second).isSameAs(first);
+    assertThat(read(second.lease(attributesOf(file)))).isEqualTo("mapped content");
+    assertThat(cache.getHits()).isEqualTo(1);
+    assertThat(cache.getSize()).isEqualTo(14);
+  }
+
+  @Test
+  void smallFilesAreNotMappedTest() throws IOException {
+    final Path file = write("small.txt", "tiny");
+
+    assertThat(cache.get(file, attributesOf(file))).isEmpty();
+    assertThat(cache.getMappingCount()).isZero();
+  }
+
+  @Test
+  void changedFileIsMappedAgainTest() throws IOException {
+    final Path file = write("a.txt", "first version");
+    final MappedFileCache.Mapping first = cache.get(file, attributesOf(file)).orElseThrow();
+
+    write("a.txt", "second version");
+    final MappedFileCache.Mapping second = cache.get(file, attributesOf(file)).orElseThrow();
+
+    assertThat(first.isUnmapped()).isTrue();
+    assertThat(read(second.lease(attributesOf(file)))).isEqualTo("second version");
+  }
+
+  @Test
+  void evictedMappingIsUnmappedAfterLastLeaseTest() throws IOException {
+    final Path a = write("a.txt", "content a");
+    final Path b = write("b.txt", "content b");
+    final Path c = write("c.txt", "content c");
+    final MappedFileCache.Mapping mappingOfA = cache.get(a, attributesOf(a)).orElseThrow();
+    final BufferRegion.Lease lease = mappingOfA.lease(attributesOf(a));
+    cache.get(b, attributesOf(b));
+    cache.get(c, attributesOf(c));
+    cache.get(c, attributesOf(c));
+
+    assertThat(cache.getEvictions()).isEqualTo(1);
+    assertThat(mappingOfA.isUnmapped()).isFalse();
+    assertThat(read(lease)).isEqualTo("content a");
+    assertThat(mappingOfA.isUnmapped()).isTrue();
+  }
+
+  @Test
+  void leaseOfUnmappedFileMapsFileAgainTest() throws IOException {
+    final Path file = write("a.txt", "mapped content");
+    final MappedFileCache.Mapping mapping = cache.get(file, attributesOf(file)).orElseThrow();
+
+    cache.onChange(baseDir.toAbsolutePath());
+
+    assertThat(mapping.isUnmapped()).isTrue();
+    assertThat(read(mapping.lease(attributesOf(file)))).isEqualTo("mapped content");
+    assertThat(cache.getMappingCount()).isZero();
+  }
+
+  private Path write(String name, String content) throws IOException {
+    final Path file = Files.writeString(baseDir.resolve(name), content);
+    // modification time is not precise enough on every filesystem to detect the change
+    Files.setLastModifiedTime(file,
+        FileTime.from(Instant.now().plusSeconds(content.length() * 60L)));
+    return file;
+  }
+
+  private static BasicFileAttributes attributesOf(Path file) throws IOException {
+    return Files.readAttributes(file, BasicFileAttributes.class);
+  }
+
+  private static String read(BufferRegion.Lease lease) {
+    try (lease) {
+      final ByteBuffer buffer = lease.getBuffer();
+      final byte[] content = new byte[buffer.remaining()];
+      buffer.get(content);
+      return new String(content, StandardCharsets.UTF_8);
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package de.havemann.lukas.vanillahttp.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.havemann.lukas.vanillahttp.search.PathResolutionCache.Resolution;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * tests for {@link NegativeLookupCache}
+ */
+class NegativeLookupCacheTest {
+
+  private static final Path BASE_DIR = Path.of("/base");
+
+  @Test
+  void missingPathIsCachedUntilCreatedTest() {
+    final NegativeLookupCache cache = createCache(10, Duration.ofMinutes(1));
+    cache.put("/dir/missing.txt", missing("dir/missing.txt"));
+    cache.put("/other.txt", missing("other.txt"));
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(cache.get("/dir/missing.txt")).isPresent();
+    softly.assertThat(cache.get("/never-missed.txt")).isEmpty();
+    softly.assertAll();
+
+    // creation of the parent directory includes the missing file
+    cache.onChange(BASE_DIR.resolve("dir"));
+    assertThat(cache.get("/dir/missing.txt")).isEmpty();
+    assertThat(cache.get("/other.txt")).isPresent();
+  }
+
+  @Test
+  void missingPathExpiresAfterTimeToLiveTest() {
+    final NegativeLookupCache cache = createCache(10, Duration.ZERO);
+    cache.put("/missing.txt", missing("missing.txt"));
+
+    assertThat(cache.get("/missing.txt")).isEmpty();
+    assertThat(cache.getSize()).isZero();
+  }
+
+  @Test
+  void rebuiltBloomFilterContainsRemainingPathsTest() {
+    final NegativeLookupCache cache = createCache(100, Duration.ofMinutes(1));
+    for (int i = 0; i < 1000; i++) {
+      cache.put("/missing-" + i, missing("missing-" + i));
+    }
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(cache.getSize()).isEqualTo(100);
+    for (int i = 900; i < 1000; i++) {
+      softly.assertThat(cache.get("/missing-" + i)).isPresent();
+    }
+    softly.assertThat(cache.get("/missing-0")).isEmpty();
+    softly.assertAll();
+  }
+
+  @Test
+  void bloomFilterOfFullCacheIsNotRebuiltOnEveryPutTest() {
+    final NegativeLookupCache cache = createCache(100, Duration.ofMinutes(1));
+    for (int i = 0; i <= 100; i++) {
+      cache.put("/missing-" + i, missing("missing-" + i));
+    }
+    assertThat(cache.getRebuilds()).isEqualTo(1);
+
+    // the full cache evicts a path with every put
+    cache.put("/next", missing("next"));
+
+    assertThat(cache.getRebuilds()).isEqualTo(1);
+    assertThat(cache.get("/next")).isPresent();
+    for (int i = 0; i < 99; i++) {
+      cache.put("/more-" + i, missing("more-" + i));
+    }
+    assertThat(cache.getRebuilds()).isEqualTo(1);
+  }
+
+  @Test
+  void disabledCacheCachesNothingTest() {
+    final NegativeLookupCache cache = createCache(0, Duration.ofMinutes(1));
+    cache.put("/missing.txt", missing("missing.txt"));
+
+    assertThat(cache.get("/missing.txt")).isEmpty();
+  }
+
+  private static Resolution missing(String path) {
+    return new Resolution(Resolution.Kind.NOT_FOUND, BASE_DIR.resolve(path));
+  }
+
+  private static NegativeLookupCache createCache(int maxEntries, Duration timeToLive) {
+    final NegativeLookupCache cache = new NegativeLookupCache();
+    ReflectionTestUtils.setField(cache, "maxEntries", maxEntries);
+    ReflectionTestUtils.setField(cache, "timeToLive", timeToLive);
+    cache.init();
+    return cache;
+  }
+}
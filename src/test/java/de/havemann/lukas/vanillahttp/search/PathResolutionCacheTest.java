@@ -0,0 +1,145 @@
+package de.havemann.lukas.vanillahttp.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.havemann.lukas.vanillahttp.search.PathResolutionCache.Resolution;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * tests for {@link PathResolutionCache}
+ */
+class PathResolutionCacheTest {
+
+  private static final Duration FOREVER = Duration.ofNanos(Long.MAX_VALUE);
+  private static final Path BASE_DIR = Path.of("/base");
+
+  @Test
+  void changedFileAndParentDirectoryAreInvalidatedTest() {
+    final PathResolutionCache cache = createCache(10);
+    put(cache, "/dir/", new Resolution(Resolution.Kind.DIRECTORY, BASE_DIR.resolve("dir")));
+    put(cache, "/dir/file.txt",
+        new Resolution(Resolution.Kind.FILE, BASE_DIR.resolve("dir/file.txt")));
+    put(cache, "/other.txt", new Resolution(Resolution.Kind.FILE, BASE_DIR.resolve("other.txt")));
+
+    // a created index file changes the resolution of its directory
+    cache.onChange(BASE_DIR.resolve("dir/index.html"));
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(cache.get("/dir/", FOREVER)).isEmpty();
+    softly.assertThat(cache.get("/dir/file.txt", FOREVER)).isPresent();
+    softly.assertThat(cache.get("/other.txt", FOREVER)).isPresent();
+    softly.assertAll();
+
+    cache.onChange(BASE_DIR.resolve("dir"));
+    assertThat(cache.get("/dir/file.txt", FOREVER)).isEmpty();
+    assertThat(cache.get("/other.txt", FOREVER)).isPresent();
+  }
+
+  @Test
+  void resolutionToOtherIndexFileIsInvalidatedTest() {
+    final PathResolutionCache cache = createCache(10);
+    put(cache, "/d/", new Resolution(Resolution.Kind.FILE, BASE_DIR.resolve("d/index.htm")));
+    put(cache, "/d/file.txt", new Resolution(Resolution.Kind.FILE, BASE_DIR.resolve("d/file.txt")));
+
+    // the created index.html is preferred over index.htm
+    cache.onChange(BASE_DIR.resolve("d/index.html"));
+
+    assertThat(cache.get("/d/", FOREVER)).isEmpty();
+    assertThat(cache.get("/d/file.txt", FOREVER)).isPresent();
+  }
+
+  @Test
+  void changedSiblingIsInvalidatedTest() {
+    final PathResolutionCache cache = createCache(10);
+    final Path gzip = BASE_DIR.resolve("dir/app.js.gz");
+    final Path deflate = BASE_DIR.resolve("dir/app.js.zz");
+    putSibling(cache, gzip, new PathResolutionCache.Sibling(null));
+    putSibling(cache, deflate, new PathResolutionCache.Sibling(null));
+
+    // a created sibling must be looked up again
+    cache.onChange(gzip);
+
+    assertThat(cache.getSibling(gzip, FOREVER)).isEmpty();
+    assertThat(cache.getSibling(deflate, FOREVER)).isPresent();
+    assertThat(cache.getSibling(deflate, Duration.ZERO)).isEmpty();
+  }
+
+  @Test
+  void changedDirectoryInvalidatesOnlyPathsBelowItTest() {
+    final PathResolutionCache cache = createCache(10);
+    put(cache, "/dir/sub/file.txt",
+        new Resolution(Resolution.Kind.FILE, BASE_DIR.resolve("dir/sub/file.txt")));
+    put(cache, "/dir-other/file.txt",
+        new Resolution(Resolution.Kind.FILE, BASE_DIR.resolve("dir-other/file.txt")));
+    put(cache, "/dir0.txt", new Resolution(Resolution.Kind.FILE, BASE_DIR.resolve("dir0.txt")));
+
+    cache.onChange(BASE_DIR.resolve("dir"));
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(cache.get("/dir/sub/file.txt", FOREVER)).isEmpty();
+    softly.assertThat(cache.get("/dir-other/file.txt", FOREVER)).isPresent();
+    softly.assertThat(cache.get("/dir0.txt", FOREVER)).isPresent();
+    softly.assertAll();
+  }
+
+  @Test
+  void resolutionStartedBeforeChangeIsNotCachedTest() {
+    final PathResolutionCache cache = createCache(10);
+    final long startedAt = System.nanoTime() - 1;
+
+    // the file is deleted while it is resolved
+    cache.onChange(BASE_DIR.resolve("deleted.txt"));
+    cache.put("/deleted.txt",
+        new Resolution(Resolution.Kind.FILE, BASE_DIR.resolve("deleted.txt")), startedAt);
+    cache.putSibling(BASE_DIR.resolve("deleted.txt.gz"), new PathResolutionCache.Sibling(null),
+        startedAt);
+
+    assertThat(cache.get("/deleted.txt", FOREVER)).isEmpty();
+    assertThat(cache.getSibling(BASE_DIR.resolve("deleted.txt.gz"), FOREVER)).isEmpty();
+  }
+
+  @Test
+  void outdatedResolutionIsIgnoredTest() {
+    final PathResolutionCache cache = createCache(10);
+    put(cache, "/file.txt", new Resolution(Resolution.Kind.FILE, BASE_DIR.resolve("file.txt")));
+
+    assertThat(cache.get("/file.txt", Duration.ZERO)).isEmpty();
+    assertThat(cache.get("/file.txt", FOREVER)).map(Resolution::getKind)
+        .contains(Resolution.Kind.FILE);
+  }
+
+  @Test
+  void leastRecentlyUsedResolutionIsEvictedTest() {
+    final PathResolutionCache cache = createCache(2);
+    put(cache, "/a", new Resolution(Resolution.Kind.FILE, BASE_DIR.resolve("a")));
+    put(cache, "/b", new Resolution(Resolution.Kind.FILE, BASE_DIR.resolve("b")));
+    cache.get("/a", FOREVER);
+    put(cache, "/c", new Resolution(Resolution.Kind.FILE, BASE_DIR.resolve("c")));
+
+    final SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(cache.getSize()).isEqualTo(2);
+    softly.assertThat(cache.get("/a", FOREVER)).isPresent();
+    softly.assertThat(cache.get("/b", FOREVER)).isEmpty();
+    softly.assertAll();
+  }
+
+  private static void put(PathResolutionCache cache, String rawPath, Resolution resolution) {
+    cache.put(rawPath, resolution, System.nanoTime());
+  }
+
+  private static void putSibling(PathResolutionCache cache, Path path,
+      PathResolutionCache.Sibling sibling) {
+    cache.putSibling(path, sibling, System.nanoTime());
+  }
+
+  private static PathResolutionCache createCache(int maxEntries) {
+    final PathResolutionCache cache = new PathResolutionCache();
+    ReflectionTestUtils.setField(cache, "maxEntries", maxEntries);
+    cache.init();
+    return cache;
+  }
+}
@@ -0,0 +1,116 @@
+package de.havemann.lukas.vanillahttp.search;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * tests for {@link SingleFlight}
+ */
+class SingleFlightTest {
+
+  private static final int CALLERS = 8;
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+  private final AtomicInteger loads = new AtomicInteger();
+  private final AtomicInteger fallbacks = new AtomicInteger();
+
+  @AfterEach
+  void afterEach() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void concurrentCallersShareOneLoadTest() throws Exception {
+    final SingleFlight singleFlight = createSingleFlight(Duration.ofSeconds(10));
+    final CountDownLatch release = new CountDownLatch(1);
+
+    final List<Future<String>> results = new ArrayList<>();
+    for (int i = 0; i < CALLERS; i++) {
+      results.add(executor.submit(() -> singleFlight.execute(SingleFlight.keyOf("load", 1),
+          () -> {
+            loads.incrementAndGet();
+            await(release);
+            return "loaded";
+          }, this::fallback)));
+    }
+    // all callers have to wait for the first load
+    while (singleFlight.getCoalesced() < CALLERS - 1) {
+      Thread.sleep(1);
+    }
+    release.countDown();
+
+    final SoftAssertions softly = new SoftAssertions();
+    for (Future<String> result : results) {
+      softly.assertThat(result.get()).isEqualTo("loaded");
+    }
+    softly.assertThat(loads).hasValue(1);
+    softly.assertThat(fallbacks).hasValue(0);
+    softly.assertThat(singleFlight.getInFlight()).isZero();
+    softly.assertAll();
+  }
+
+  @Test
+  void waitingCallerLoadsDirectlyAfterTimeoutTest() throws Exception {
+    final SingleFlight singleFlight = createSingleFlight(Duration.ofMillis(10));
+    final CountDownLatch release = new CountDownLatch(1);
+    final Future<String> slow = executor.submit(() -> singleFlight.execute("key", () -> {
+      await(release);
+      return "slow";
+    }, this::fallback));
+    while (singleFlight.getInFlight() == 0) {
+      Thread.sleep(1);
+    }
+
+    assertThat(singleFlight.execute("key", () -> "unexpected", this::fallback))
+        .isEqualTo("direct");
+    release.countDown();
+    assertThat(slow.get()).isEqualTo("slow");
+    assertThat(singleFlight.getFallbacks()).isEqualTo(1);
+  }
+
+  @Test
+  void failedLoadIsNotSharedTest() throws Exception {
+    final SingleFlight singleFlight = createSingleFlight(Duration.ofSeconds(10));
+
+    assertThatThrownBy(() -> singleFlight.execute("key", () -> {
+      throw new IOException("failed");
+    }, this::fallback)).isInstanceOf(IOException.class);
+    // the failed load is not in flight anymore
+    assertThat(singleFlight.execute("key", () -> "loaded", this::fallback)).isEqualTo("loaded");
+    assertThat(singleFlight.getInFlight()).isZero();
+  }
+
+  private String fallback() {
+    fallbacks.incrementAndGet();
+    return "direct";
+  }
+
+  private static void await(CountDownLatch latch) throws IOException {
+    try {
+      latch.await();
+    } catch (InterruptedException ex) {
+      throw new IOException(ex);
+    }
+  }
+
+  private static SingleFlight createSingleFlight(Duration timeout) {
+    final SingleFlight singleFlight = new SingleFlight();
+    ReflectionTestUtils.setField(singleFlight, "timeout", timeout);
+    singleFlight.init();
+    return singleFlight;
+  }
+}
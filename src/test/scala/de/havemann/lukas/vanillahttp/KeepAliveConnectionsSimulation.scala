@@ -0,0 +1,40 @@
+package de.havemann.lukas.vanillahttp
+
+import io.gatling.core.Predef._
+import io.gatling.http.Predef._
+import io.gatling.http.protocol.HttpProtocolBuilder
+import io.gatling.http.request.builder.HttpRequestBuilder.toActionBuilder
+
+import scala.concurrent.duration.DurationInt
+
+/**
+ * Simulation of many concurrent clients, which keep their own connection open and send a request
+ * every second. Used to compare the client socket dispatchers (e.g. unlimited vs. virtual).
+ *
+ * Configurable with system properties: baseUrl, users, rampUp (seconds), duration (seconds)
+ */
+//noinspection TypeAnnotation
+class KeepAliveConnectionsSimulation extends Simulation {
+
+  val baseUrl = System.getProperty("baseUrl", "http://localhost:8080")
+  val users = Integer.getInteger("users", 5000).intValue()
+  val rampUp = Integer.getInteger("rampUp", 30).intValue()
+  val duration = Integer.getInteger("duration", 60).intValue()
+
+  // no shareConnections, so every virtual user holds its own keep-alive connection
+  val httpProtocol: HttpProtocolBuilder = http
+    .baseUrl(baseUrl)
+
+  val keepAliveClient = scenario("keep-alive client")
+    .during(duration.seconds) {
+      exec(toActionBuilder(http("request text file")
+        .get("/fileonfirstlevel.txt")
+        .check(status.is(200))))
+        .pause(1.second)
+    }
+
+  setUp(
+    keepAliveClient.inject(
+      rampUsers(users).during(rampUp.seconds))
+      .protocols(httpProtocol))
+}